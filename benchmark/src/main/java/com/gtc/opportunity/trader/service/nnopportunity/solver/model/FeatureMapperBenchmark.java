@@ -0,0 +1,89 @@
+package com.gtc.opportunity.trader.service.nnopportunity.solver.model;
+
+import com.gtc.meta.CurrencyPair;
+import com.gtc.opportunity.trader.service.dto.FlatOrderBook;
+import com.gtc.opportunity.trader.service.dto.FlatOrderBookWithHistory;
+import com.gtc.opportunity.trader.service.nnopportunity.util.BookFlattener;
+import com.gtc.provider.book.PriceLevelBook;
+import com.gtc.provider.clients.binance.dto.BinanceDepth;
+import com.gtc.provider.service.RecordedBooks;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.DataSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Feature extraction from recorded books, book after each depth update gets previous ones as history.
+ * Every other book is labeled as 'can proceed' for training set extraction.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FeatureMapperBenchmark {
+
+    private static final int HISTORY = 3;
+
+    private final FeatureMapper mapper = new FeatureMapper();
+
+    private final List<FlatOrderBookWithHistory> canProceed = new ArrayList<>();
+    private final List<FlatOrderBookWithHistory> noop = new ArrayList<>();
+    private final List<FlatOrderBookWithHistory> all = new ArrayList<>();
+    private int book;
+
+    @Setup
+    public void replay() {
+        Map<CurrencyPair, PriceLevelBook> books = new HashMap<>();
+        Map<CurrencyPair, List<FlatOrderBook>> flat = new HashMap<>();
+        for (BinanceDepth depth : RecordedBooks.frames()) {
+            CurrencyPair pair = RecordedBooks.pair(depth.getSymbol());
+            PriceLevelBook levels = books.computeIfAbsent(pair, id -> new PriceLevelBook());
+            RecordedBooks.apply(levels, depth);
+            List<FlatOrderBook> seen = flat.computeIfAbsent(pair, id -> new ArrayList<>());
+            if (!hasBothSides(levels)) {
+                continue;
+            }
+
+            seen.add(0, BookFlattener.simplify(RecordedBooks.snapshot(RecordedBooks.CLIENT, pair, levels)));
+            if (seen.size() > HISTORY) {
+                FlatOrderBookWithHistory withHistory =
+                        new FlatOrderBookWithHistory(seen.get(0), new ArrayList<>(seen.subList(1, HISTORY + 1)));
+                all.add(withHistory);
+                (0 == all.size() % 2 ? canProceed : noop).add(withHistory);
+                seen.remove(HISTORY);
+            }
+        }
+    }
+
+    @Benchmark
+    public INDArray extractFeatures() {
+        INDArray result = mapper.extractFeatures(all.get(book));
+        book = (book + 1) % all.size();
+        return result;
+    }
+
+    @Benchmark
+    public DataSet extractAll() {
+        return mapper.extract(canProceed, noop);
+    }
+
+    private static boolean hasBothSides(PriceLevelBook book) {
+        return book.read((buy, sell) -> buy.size() > 0 && sell.size() > 0);
+    }
+}
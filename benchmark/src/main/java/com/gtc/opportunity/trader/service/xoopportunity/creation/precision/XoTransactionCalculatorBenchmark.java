@@ -0,0 +1,83 @@
+package com.gtc.opportunity.trader.service.xoopportunity.creation.precision;
+
+import com.gtc.opportunity.trader.cqe.domain.FullCrossMarketOpportunity;
+import com.gtc.opportunity.trader.service.dto.PreciseXoAmountDto;
+import com.gtc.opportunity.trader.service.nnopportunity.solver.time.LocalTime;
+import com.gtc.opportunity.trader.service.xoopportunity.common.SolverPool;
+import com.gtc.opportunity.trader.service.xoopportunity.creation.fastexception.RejectionException;
+import com.gtc.opportunity.trader.service.xoopportunity.creation.precision.dto.XoTradeCondition;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Precise amount and price calculation for cross-market opportunity recorded on real market
+ * (same condition as realdata calculator test), solver is limited to 75ms.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class XoTransactionCalculatorBenchmark {
+
+    private final XoTransactionCalculator calculator = new XoTransactionCalculator(
+            new ToLongMathMapper(),
+            new HistogramIntegrator(),
+            new SolverPool(1),
+            new LocalTime()
+    );
+
+    private final XoTradeCondition condition = new XoTradeCondition(
+            "K1", 1000.0,
+            1.0e-4, 5.0, 0.30690191721627685, 5.0, 0.0032409, 0.0032569,
+            new BigDecimal("1.1"), new BigDecimal("1.1"),
+            new BigDecimal("0.999"), new BigDecimal("0.998"),
+            new BigDecimal("0.000001"), new BigDecimal("0.000001"), new BigDecimal("0.01"),
+            new BigDecimal("0.0001"), new BigDecimal("1.001"), 75,
+            new FullCrossMarketOpportunity.Histogram[] {
+                    new FullCrossMarketOpportunity.Histogram(0.0032561, 0.003258, -10.0),
+                    new FullCrossMarketOpportunity.Histogram(0.0032542, 0.0032561, -52.8),
+                    new FullCrossMarketOpportunity.Histogram(0.0032523, 0.0032542, 0.0),
+                    new FullCrossMarketOpportunity.Histogram(0.0032504, 0.0032523, 0.0),
+                    new FullCrossMarketOpportunity.Histogram(0.0032485, 0.0032504, -15.0),
+                    new FullCrossMarketOpportunity.Histogram(0.0032466, 0.0032485, -1.8985),
+                    new FullCrossMarketOpportunity.Histogram(0.0032447, 0.0032466, -19.8),
+                    new FullCrossMarketOpportunity.Histogram(0.0032428, 0.0032447, -26.4),
+                    new FullCrossMarketOpportunity.Histogram(0.0032409, 0.0032428, 0.0),
+                    new FullCrossMarketOpportunity.Histogram(0.003239, 0.0032409, -16.2031)
+            },
+            new FullCrossMarketOpportunity.Histogram[] {
+                    new FullCrossMarketOpportunity.Histogram(0.003229, 0.0032321, 141.25),
+                    new FullCrossMarketOpportunity.Histogram(0.0032321, 0.0032352, 400.59000000000003),
+                    new FullCrossMarketOpportunity.Histogram(0.0032352, 0.0032383, 0.97),
+                    new FullCrossMarketOpportunity.Histogram(0.0032383, 0.0032414, 14.9),
+                    new FullCrossMarketOpportunity.Histogram(0.0032414, 0.0032445, 0.0),
+                    new FullCrossMarketOpportunity.Histogram(0.0032445, 0.0032476, 0.0),
+                    new FullCrossMarketOpportunity.Histogram(0.0032476, 0.0032507, 0.0),
+                    new FullCrossMarketOpportunity.Histogram(0.0032507, 0.0032538, 0.0),
+                    new FullCrossMarketOpportunity.Histogram(0.0032538, 0.0032569, 0.0),
+                    new FullCrossMarketOpportunity.Histogram(0.0032569, 0.00326, 105.47)
+            }
+    );
+
+    @Benchmark
+    public PreciseXoAmountDto calculate() {
+        try {
+            return calculator.calculate(condition);
+        } catch (RejectionException ex) {
+            // solver timeout is part of what is measured
+            return null;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.gtc.opportunity.trader.service.xoopportunity.finder;
+
+import com.gtc.meta.TradingCurrency;
+import com.gtc.model.provider.OrderBook;
+import com.gtc.opportunity.trader.config.CacheConfig;
+import com.gtc.opportunity.trader.cqe.domain.FullCrossMarketOpportunity;
+import com.gtc.opportunity.trader.domain.XoConfig;
+import com.gtc.opportunity.trader.service.nnopportunity.solver.time.LocalTime;
+import com.gtc.opportunity.trader.service.xoopportunity.creation.ConfigCache;
+import com.gtc.provider.service.RecordedBooks;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Opportunity search over recorded books seen on several clients, each client has prices shifted by
+ * a few tenths of percent (same seed every run), so that some pairs of clients give gain.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FindOpportunitiesBenchmark {
+
+    private static final double MIN_GAIN = 1.003;
+    private static final double PRICE_DEVIATION = 0.005;
+
+    @Param({"5", "25", "100"})
+    private int clients;
+
+    private BookRepository repository;
+    private List<OrderBook> books;
+    private int book;
+
+    @Setup
+    public void addBooks() {
+        Random random = new Random(1L);
+        List<OrderBook> recorded = RecordedBooks.snapshots();
+        books = new ArrayList<>();
+        for (int client = 0; client < clients; ++client) {
+            for (OrderBook it : recorded) {
+                books.add(RecordedBooks.shifted(it, "client" + client,
+                        1.0 + random.nextGaussian() * PRICE_DEVIATION));
+            }
+        }
+
+        repository = new BookRepository(new NeverStaleConfigCache(), new LocalTime());
+        books.forEach(repository::addOrderBook);
+    }
+
+    @Benchmark
+    public Set<FullCrossMarketOpportunity> findOpportunities() {
+        return repository.findOpportunities(MIN_GAIN, Collections.emptyList());
+    }
+
+    @Benchmark
+    public void addOrderBook() {
+        repository.addOrderBook(books.get(book));
+        book = (book + 1) % books.size();
+    }
+
+    // books must not expire while benchmark runs
+    private static class NeverStaleConfigCache extends ConfigCache {
+
+        private static final Optional<XoConfig> CONFIG =
+                Optional.of(XoConfig.builder().staleBookThresholdMS(600_000).build());
+
+        NeverStaleConfigCache() {
+            super(null, null, null, new CacheConfig());
+        }
+
+        @Override
+        public Optional<XoConfig> getXoCfg(String clientName, TradingCurrency from, TradingCurrency to) {
+            return CONFIG;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.gtc.provider.service;
+
+import com.gtc.model.provider.AggregatedOrder;
+import com.gtc.provider.book.PriceLevelBook;
+import com.gtc.provider.clients.binance.dto.BinanceDepth;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Histogram of recorded book after each depth update: incremental one (what {@link StatsReporter} uses) vs
+ * full build from filtered levels. Frames of a symbol are replayed in a loop, so the book keeps its
+ * recorded shape.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HistogramBenchmark {
+
+    @Param({"ETHBTC", "LTCBTC", "XRPBTC"})
+    private String symbol;
+
+    private final PriceLevelBook book = new PriceLevelBook();
+
+    private HistogramBuilder builder;
+    private IncrementalHistogram histogram;
+    private List<BinanceDepth> frames;
+    private int frame;
+
+    @Setup
+    public void replay() {
+        builder = RecordedBooks.histogramBuilder();
+        histogram = builder.newIncrementalHistogram();
+        book.setListener(histogram);
+        frames = RecordedBooks.frames(symbol);
+        frames.forEach(it -> RecordedBooks.apply(book, it));
+    }
+
+    @Benchmark
+    public void incremental(Blackhole blackhole) {
+        nextFrame();
+        blackhole.consume(book.read((buy, sell) -> {
+            AggregatedOrder[] histogramBuy = histogram.buildBuy(buy, RecordedBooks.buyLimit(buy.price(0)));
+            AggregatedOrder[] histogramSell = histogram.buildSell(sell, RecordedBooks.sellLimit(sell.price(0)));
+            return histogramBuy.length + histogramSell.length;
+        }));
+    }
+
+    @Benchmark
+    public void full(Blackhole blackhole) {
+        nextFrame();
+        blackhole.consume(builder.buildHistogram(RecordedBooks.bids(book, false), false));
+        blackhole.consume(builder.buildHistogram(RecordedBooks.bids(book, true), true));
+    }
+
+    private void nextFrame() {
+        RecordedBooks.apply(book, frames.get(frame));
+        frame = (frame + 1) % frames.size();
+    }
+}
@@ -0,0 +1,208 @@
+package com.gtc.provider.service;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gtc.meta.CurrencyPair;
+import com.gtc.meta.TradingCurrency;
+import com.gtc.model.provider.AggregatedOrder;
+import com.gtc.model.provider.Bid;
+import com.gtc.model.provider.ByClientAndCurrency;
+import com.gtc.model.provider.OrderBook;
+import com.gtc.provider.book.BookSide;
+import com.gtc.provider.book.PriceLevelBook;
+import com.gtc.provider.clients.binance.dto.BinanceDepth;
+import com.gtc.provider.clients.binance.dto.BinanceDepthStream;
+import com.gtc.provider.config.WriteConf;
+import lombok.SneakyThrows;
+import lombok.experimental.UtilityClass;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Order books replayed from recorded Binance depth updates (ETHBTC, LTCBTC, XRPBTC), same frames that
+ * provider tests use. Histograms are built with production settings, books of other clients are copies
+ * with prices shifted by given factor.
+ */
+@UtilityClass
+public class RecordedBooks {
+
+    public static final String DEPTH_FRAMES = "binance/depth-frames.txt";
+    public static final String CLIENT = "binance";
+    public static final int RESOLUTION = 10;
+    public static final double DEVIATE_PCT = 1.0;
+
+    private static final int QUOTE_LENGTH = 3;
+
+    /**
+     * Depth updates in recorded order.
+     */
+    @SneakyThrows
+    public static List<BinanceDepth> frames() {
+        ObjectMapper mapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        try (InputStream is = RecordedBooks.class.getClassLoader().getResourceAsStream(DEPTH_FRAMES);
+             BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
+            return reader.lines()
+                    .filter(it -> !it.isEmpty())
+                    .map(it -> read(mapper, it).getData())
+                    .collect(Collectors.toList());
+        }
+    }
+
+    public static List<BinanceDepth> frames(String symbol) {
+        return frames().stream().filter(it -> symbol.equals(it.getSymbol())).collect(Collectors.toList());
+    }
+
+    /**
+     * Books after all recorded updates, by pair.
+     */
+    public static Map<CurrencyPair, PriceLevelBook> replay() {
+        Map<CurrencyPair, PriceLevelBook> books = new LinkedHashMap<>();
+        frames().forEach(it -> apply(books.computeIfAbsent(pair(it.getSymbol()), id -> new PriceLevelBook()), it));
+        return books;
+    }
+
+    /**
+     * Same as Binance client does for depth update.
+     */
+    public static void apply(PriceLevelBook book, BinanceDepth depth) {
+        book.apply(it -> {
+            applySide(it, depth.getAsks(), true);
+            applySide(it, depth.getBids(), false);
+        });
+    }
+
+    public static CurrencyPair pair(String symbol) {
+        int split = symbol.length() - QUOTE_LENGTH;
+        return new CurrencyPair(
+                TradingCurrency.fromCode(symbol.substring(0, split)),
+                TradingCurrency.fromCode(symbol.substring(split))
+        );
+    }
+
+    public static HistogramBuilder histogramBuilder() {
+        WriteConf conf = new WriteConf();
+        conf.setHistogram(new WriteConf.Histogram());
+        conf.getHistogram().setResolution(RESOLUTION);
+        conf.getHistogram().setDeviateFromSignChangePct(DEVIATE_PCT);
+        return new HistogramBuilder(conf);
+    }
+
+    /**
+     * Order book as {@link StatsReporter} publishes it.
+     */
+    public static OrderBook snapshot(String client, CurrencyPair pair, PriceLevelBook book) {
+        IncrementalHistogram histogram = histogramBuilder().newIncrementalHistogram();
+        return book.read((buy, sell) -> {
+            OrderBook result = OrderBook.builder()
+                    .meta(new ByClientAndCurrency(client, pair))
+                    .bidCount(buy.size() + sell.size())
+                    .bestBuy(0 == buy.size() ? Double.MIN_VALUE : buy.price(0))
+                    .bestSell(0 == sell.size() ? Double.MAX_VALUE : sell.price(0))
+                    .amountBestBuy(0 == buy.size() ? 0.0 : Math.abs(buy.amount(0)))
+                    .amountBestSell(0 == sell.size() ? 0.0 : Math.abs(sell.amount(0)))
+                    .build();
+            result.setHistogramBuy(histogram.buildBuy(buy, buyLimit(result.getBestBuy())));
+            result.setHistogramSell(histogram.buildSell(sell, sellLimit(result.getBestSell())));
+            return result;
+        });
+    }
+
+    /**
+     * Snapshots of all recorded pairs.
+     */
+    public static List<OrderBook> snapshots() {
+        List<OrderBook> result = new ArrayList<>();
+        replay().forEach((pair, book) -> result.add(snapshot(CLIENT, pair, book)));
+        return result;
+    }
+
+    /**
+     * Copy of {@code book} as if it was seen on {@code client} with all prices multiplied by {@code factor}.
+     */
+    public static OrderBook shifted(OrderBook book, String client, double factor) {
+        return OrderBook.builder()
+                .meta(new ByClientAndCurrency(client, book.getMeta().getPair()))
+                .bidCount(book.getBidCount())
+                .bestBuy(book.getBestBuy() * factor)
+                .bestSell(book.getBestSell() * factor)
+                .amountBestBuy(book.getAmountBestBuy())
+                .amountBestSell(book.getAmountBestSell())
+                .histogramBuy(shifted(book.getHistogramBuy(), factor))
+                .histogramSell(shifted(book.getHistogramSell(), factor))
+                .build();
+    }
+
+    /**
+     * Levels of a side within histogram limit, what full (not incremental) histogram build takes.
+     */
+    public static List<Bid> bids(PriceLevelBook book, boolean isSell) {
+        return book.read((buy, sell) -> {
+            BookSide side = isSell ? sell : buy;
+            List<Bid> result = new ArrayList<>(side.size());
+            if (0 == side.size()) {
+                return result;
+            }
+
+            double limit = isSell ? sellLimit(side.price(0)) : buyLimit(side.price(0));
+            for (int rank = 0; rank < side.size(); ++rank) {
+                double price = side.price(rank);
+                if (isSell ? price > limit : price < limit) {
+                    break;
+                }
+
+                result.add(new Bid(String.valueOf(price), side.amount(rank), price, price, side.timestamp(rank)));
+            }
+
+            return result;
+        });
+    }
+
+    public static double buyLimit(double bestBuy) {
+        return bestBuy * (1.0 - DEVIATE_PCT / 100.0);
+    }
+
+    public static double sellLimit(double bestSell) {
+        return bestSell * (1.0 + DEVIATE_PCT / 100.0);
+    }
+
+    private static AggregatedOrder[] shifted(AggregatedOrder[] orders, double factor) {
+        AggregatedOrder[] result = new AggregatedOrder[orders.length];
+        for (int i = 0; i < orders.length; ++i) {
+            AggregatedOrder order = orders[i];
+            result[i] = new AggregatedOrder(order.getMinPrice() * factor, order.getMaxPrice() * factor,
+                    order.getAmount(), order.getBidCount(), order.isSell(), order.getPosId(), order.getLatestBid(),
+                    order.getAverageBid(), order.getOldestBid());
+        }
+
+        return result;
+    }
+
+    private static void applySide(PriceLevelBook book, double[] levels, boolean isSell) {
+        if (null == levels) {
+            return;
+        }
+
+        for (int i = 0; i < levels.length; i += 2) {
+            double price = levels[i];
+            double amount = levels[i + 1];
+            if (0 == amount) {
+                book.remove(price);
+            } else {
+                book.update(price, isSell ? -amount : amount);
+            }
+        }
+    }
+
+    @SneakyThrows
+    private static BinanceDepthStream read(ObjectMapper mapper, String frame) {
+        return mapper.readValue(frame, BinanceDepthStream.class);
+    }
+}
@@ -0,0 +1,75 @@
+package com.gtc.provider.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gtc.model.provider.OrderBook;
+import com.gtc.provider.config.PublishConf;
+import com.gtc.provider.market.MarketSubsRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishing recorded order books to book subscribers - serialization and offer to each outbound queue,
+ * subscribers discard what they receive.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SubsRegistryBenchmark {
+
+    @Param({"1", "10", "50"})
+    private int subscribers;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private SubsRegistry registry;
+    private List<OrderBook> books;
+    private int book;
+
+    @Setup
+    public void subscribe() {
+        registry = new SubsRegistry(mapper, new MarketSubsRegistry(), new PublishConf());
+        for (int i = 0; i < subscribers; ++i) {
+            registry.subscribeBook(new DiscardingSession("session" + i), RecordedBooks.CLIENT);
+        }
+
+        books = RecordedBooks.snapshots();
+    }
+
+    @TearDown
+    public void shutdown() {
+        registry.shutdown();
+    }
+
+    @Benchmark
+    public void publishOrderBook() {
+        registry.publishOrderBook(nextBook());
+    }
+
+    @Benchmark
+    public String serializeOrderBook() throws JsonProcessingException {
+        return mapper.writeValueAsString(nextBook());
+    }
+
+    private OrderBook nextBook() {
+        OrderBook result = books.get(book);
+        book = (book + 1) % books.size();
+        return result;
+    }
+}
@@ -0,0 +1,83 @@
+package com.gtc.tradinggateway.service;
+
+import com.gtc.tradinggateway.config.BinanceConfig;
+import com.gtc.tradinggateway.config.ConfigFactory;
+import com.gtc.tradinggateway.config.GdaxConfig;
+import com.gtc.tradinggateway.service.binance.BinanceEncryptionService;
+import com.gtc.tradinggateway.service.gdax.GdaxEncryptionService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request signing of exchanges: hex HMAC of query string (Binance) and base64 HMAC with decoded secret of
+ * timestamp, method, path and body (Gdax).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SigningBenchmark {
+
+    private static final String SECRET = "NhqPtmdSJYdKjVHjA7PZj4Mge3R5YNiP1e3UZjInClVN65XAbvqqM6A7H5fATj0j";
+    private static final String PATH = "/orders";
+    private static final String METHOD = "POST";
+    private static final String TIMESTAMP = "1533513600";
+
+    // query string (Binance) or json body (Gdax) length
+    @Param({"128", "1024"})
+    private int payload;
+
+    private BinanceConfig binanceConfig;
+    private GdaxConfig gdaxConfig;
+    private BinanceEncryptionService binance;
+    private GdaxEncryptionService gdax;
+    private String message;
+
+    @Setup
+    public void configure() {
+        ConfigFactory factory = new ConfigFactory();
+        binanceConfig = new BinanceConfig(factory);
+        binanceConfig.setSecretKey(SECRET);
+        binance = new BinanceEncryptionService(binanceConfig);
+        gdaxConfig = new GdaxConfig(factory);
+        gdaxConfig.setSecretKey(Base64.getEncoder().encodeToString(SECRET.getBytes()));
+        gdax = new GdaxEncryptionService(gdaxConfig);
+
+        StringBuilder builder = new StringBuilder("symbol=LTCBTC&side=BUY&type=LIMIT&timeInForce=GTC");
+        while (builder.length() < payload) {
+            builder.append("&quantity=1.00000000&price=0.01626740");
+        }
+        message = builder.substring(0, payload);
+    }
+
+    @TearDown
+    public void closeHttp() {
+        binanceConfig.closeHttp();
+        gdaxConfig.closeHttp();
+    }
+
+    @Benchmark
+    public String binance() {
+        return binance.generate(message);
+    }
+
+    @Benchmark
+    public String gdax() {
+        return gdax.generate(PATH, METHOD, message, TIMESTAMP);
+    }
+}
@@ -0,0 +1,51 @@
+package com.gtc.tradinggateway.aspect.rate;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket on {@link System#nanoTime()} (generic cell rate algorithm) - whole state is single
+ * theoretical arrival time of next permit, so acquiring permit is single CAS. Permits can be reserved in future,
+ * which is what blocking acquisition uses - caller gets the time when it may proceed.
+ */
+class NanoTokenBucket {
+
+    static final long REJECTED = -1L;
+
+    private final long intervalNs;
+    private final long toleranceNs;
+    private final AtomicLong nextArrival;
+
+    /**
+     * @param capacity burst size
+     * @param intervalNs time to refill one permit
+     */
+    NanoTokenBucket(int capacity, long intervalNs, long nowNs) {
+        if (capacity < 1 || intervalNs < 0) {
+            throw new IllegalArgumentException("Capacity should be positive and interval not negative");
+        }
+
+        this.intervalNs = intervalNs;
+        this.toleranceNs = (capacity - 1) * intervalNs;
+        this.nextArrival = new AtomicLong(nowNs);
+    }
+
+    /**
+     * Reserves permit at or after {@code earliestNs}.
+     * @return delay from {@code nowNs} when permit can be used or {@link #REJECTED} if it is longer than
+     * {@code maxDelayNs}
+     */
+    long reserve(long nowNs, long earliestNs, long maxDelayNs) {
+        while (true) {
+            long arrival = nextArrival.get();
+            long allowedAt = Math.max(earliestNs, arrival - toleranceNs);
+            long delay = allowedAt - nowNs;
+            if (delay > maxDelayNs) {
+                return REJECTED;
+            }
+
+            if (nextArrival.compareAndSet(arrival, Math.max(arrival, allowedAt) + intervalNs)) {
+                return Math.max(0L, delay);
+            }
+        }
+    }
+}
@@ -16,8 +16,23 @@ public @interface RateLimited {
 
     Mode mode() default Mode.METHOD;
 
+    /**
+     * What to do if there is no permit available right now.
+     */
+    Acquire acquire() default Acquire.FAIL_FAST;
+
+    /**
+     * How long {@link Acquire#BLOCK} may wait for permit, calls that would need to wait longer fail immediately.
+     */
+    String maxWaitMs() default "";
+
     enum Mode {
         CLASS,
         METHOD
     }
+
+    enum Acquire {
+        FAIL_FAST,
+        BLOCK
+    }
 }
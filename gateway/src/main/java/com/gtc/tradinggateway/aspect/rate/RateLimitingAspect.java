@@ -1,38 +1,43 @@
 package com.gtc.tradinggateway.aspect.rate;
 
 import com.google.common.base.Strings;
+import com.newrelic.api.agent.NewRelic;
+import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.reflect.MethodSignature;
-import org.isomorphism.util.TokenBucket;
-import org.isomorphism.util.TokenBuckets;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.beans.factory.config.EmbeddedValueResolver;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import java.lang.reflect.Method;
 import java.lang.reflect.Type;
-import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
 import java.util.Arrays;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
 import java.util.stream.Collectors;
 
+import static com.gtc.tradinggateway.aspect.rate.RateLimited.Acquire.BLOCK;
 import static com.gtc.tradinggateway.aspect.rate.RateLimited.Mode.CLASS;
 
 /**
  * Created by Valentyn Berezin on 20.02.18.
+ * Annotation is resolved to limiter once per method, limiters are shared by key (class or method).
  */
+@Slf4j
 @Aspect
 @Component
 public class RateLimitingAspect {
 
-    private final Map<String, TokenBucket> limiters = new ConcurrentHashMap<>();
-    private final Map<String, LocalDateTime> minIntervalLimiters = new ConcurrentHashMap<>();
+    private final Map<Method, Limiter> limitersByMethod = new ConcurrentHashMap<>();
+    private final Map<String, Limiter> limiters = new ConcurrentHashMap<>();
 
     private final EmbeddedValueResolver resolver;
 
@@ -40,33 +45,61 @@ public class RateLimitingAspect {
         this.resolver = new EmbeddedValueResolver(beanFactory);
     }
 
-    @Around("execution(public * *(..)) && (@annotation(ann) || @within(ann)) " +
+    @Around("execution(public * *(..)) " +
+            "&& (@annotation(com.gtc.tradinggateway.aspect.rate.RateLimited) " +
+            "|| @within(com.gtc.tradinggateway.aspect.rate.RateLimited)) " +
             "&& !@annotation(com.gtc.tradinggateway.aspect.rate.IgnoreRateLimited)")
-    public Object rateLimit(ProceedingJoinPoint joinPoint, RateLimited ann) throws Throwable {
+    public Object rateLimit(ProceedingJoinPoint joinPoint) throws Throwable {
+        // annotation is not bound in pointcut, so it matches statically without per-call reflection
         Method method = getMethod(joinPoint);
-        String key = getKey(method, ann);
-        int tokens = Integer.parseInt(resolver.resolveStringValue(ann.ratePerMinute()));
-
-        boolean minInterval = minIntervalAcquire(key, ann);
-        boolean acquired = limiters.computeIfAbsent(key, id ->
-                        TokenBuckets.builder()
-                        .withCapacity(tokens)
-                        .withFixedIntervalRefillStrategy(tokens, 1, TimeUnit.MINUTES)
-                        .build()
-        ).tryConsume();
-
-        if (!acquired || !minInterval) {
-            throw new RateTooHighException("Rate limiting");
+        // get first - computeIfAbsent locks bin on hit in java 8
+        Limiter limiter = limitersByMethod.get(method);
+        if (null == limiter) {
+            RateLimited ann = getAnnotation(method, joinPoint.getTarget());
+            limiter = limitersByMethod.computeIfAbsent(method, id -> limiters.computeIfAbsent(
+                    getKey(method, ann), key -> newLimiter(key, ann)));
         }
 
+        limiter.acquire();
         return joinPoint.proceed();
     }
 
+    public Map<String, RateStatistics> statistics() {
+        return limiters.values().stream().collect(Collectors.toMap(it -> it.key, Limiter::statistics));
+    }
+
+    @Scheduled(fixedDelayString = "${app.rateLimit.reportIntervalMs}")
+    public void reportStats() {
+        statistics().forEach((key, stat) -> {
+            if (0 == stat.getWaited() && 0 == stat.getRejected()) {
+                return;
+            }
+
+            log.info("Rate limit {}: acquired {}, rejected {}, waited {} (avg {} ms, max {} ms)", key,
+                    stat.getAcquired(), stat.getRejected(), stat.getWaited(), stat.averageWaitMs(),
+                    TimeUnit.NANOSECONDS.toMillis(stat.getMaxWaitNs()));
+            NewRelic.recordMetric("Rate limit wait " + key, (float) stat.averageWaitMs());
+        });
+    }
+
     private Method getMethod(ProceedingJoinPoint joinPoint) {
         MethodSignature signature = (MethodSignature) joinPoint.getSignature();
         return signature.getMethod();
     }
 
+    private RateLimited getAnnotation(Method method, Object target) {
+        RateLimited ann = method.getAnnotation(RateLimited.class);
+        if (null == ann) {
+            ann = method.getDeclaringClass().getAnnotation(RateLimited.class);
+        }
+
+        if (null == ann) {
+            ann = AnnotationUtils.findAnnotation(target.getClass(), RateLimited.class);
+        }
+
+        return ann;
+    }
+
     private String getKey(Method method, RateLimited ann) {
         // method level annotation overrides within
         if (CLASS.equals(ann.mode()) && null == method.getAnnotation(RateLimited.class)) {
@@ -81,23 +114,85 @@ public class RateLimitingAspect {
                 + ")";
     }
 
-    private boolean minIntervalAcquire(String key, RateLimited ann) {
-        if (Strings.isNullOrEmpty(ann.minSeparationMs())) {
-            return true;
+    private Limiter newLimiter(String key, RateLimited ann) {
+        long now = System.nanoTime();
+        int tokens = resolveInt(ann.ratePerMinute());
+        NanoTokenBucket rate = new NanoTokenBucket(tokens, TimeUnit.MINUTES.toNanos(1) / tokens, now);
+        NanoTokenBucket separation = Strings.isNullOrEmpty(ann.minSeparationMs()) ? null
+                : new NanoTokenBucket(1, TimeUnit.MILLISECONDS.toNanos(resolveInt(ann.minSeparationMs())), now);
+
+        long maxWaitNs = 0L;
+        if (BLOCK == ann.acquire()) {
+            if (Strings.isNullOrEmpty(ann.maxWaitMs())) {
+                throw new IllegalStateException("Blocking rate limit " + key + " needs maxWaitMs");
+            }
+
+            maxWaitNs = TimeUnit.MILLISECONDS.toNanos(resolveInt(ann.maxWaitMs()));
+        }
+
+        return new Limiter(key, rate, separation, maxWaitNs);
+    }
+
+    private int resolveInt(String value) {
+        return Integer.parseInt(resolver.resolveStringValue(value));
+    }
+
+    private static class Limiter {
+
+        private final String key;
+        private final NanoTokenBucket rate;
+        private final NanoTokenBucket separation;
+        private final long maxWaitNs;
+
+        private final LongAdder acquired = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder waited = new LongAdder();
+        private final LongAdder totalWaitNs = new LongAdder();
+        private final AtomicLong maxWaitObservedNs = new AtomicLong();
+
+        Limiter(String key, NanoTokenBucket rate, NanoTokenBucket separation, long maxWaitNs) {
+            this.key = key;
+            this.rate = rate;
+            this.separation = separation;
+            this.maxWaitNs = maxWaitNs;
         }
 
-        int minMs = Integer.parseInt(resolver.resolveStringValue(ann.minSeparationMs()));
-        AtomicBoolean acquired = new AtomicBoolean();
-        minIntervalLimiters.compute(key, (id, oldTime) -> {
-            LocalDateTime now = LocalDateTime.now();
-            if (null == oldTime || ChronoUnit.MILLIS.between(oldTime, now) >= minMs) {
-                acquired.set(true);
-                return LocalDateTime.now();
+        void acquire() {
+            long now = System.nanoTime();
+            long delay = rate.reserve(now, now, maxWaitNs);
+            if (NanoTokenBucket.REJECTED != delay && null != separation) {
+                delay = separation.reserve(now, now + delay, maxWaitNs);
             }
 
-            return null;
-        });
+            if (NanoTokenBucket.REJECTED == delay) {
+                rejected.increment();
+                throw new RateTooHighException("Rate limiting");
+            }
 
-        return acquired.get();
+            if (delay > 0) {
+                await(now + delay);
+                waited.increment();
+                totalWaitNs.add(delay);
+                maxWaitObservedNs.accumulateAndGet(delay, Math::max);
+            }
+
+            acquired.increment();
+        }
+
+        RateStatistics statistics() {
+            return new RateStatistics(acquired.sum(), rejected.sum(), waited.sum(), totalWaitNs.sum(),
+                    maxWaitObservedNs.get());
+        }
+
+        private void await(long untilNs) {
+            long left;
+            while ((left = untilNs - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(this, left);
+                if (Thread.currentThread().isInterrupted()) {
+                    rejected.increment();
+                    throw new RateTooHighException("Interrupted while waiting for rate limit");
+                }
+            }
+        }
     }
 }
@@ -0,0 +1,20 @@
+package com.gtc.tradinggateway.aspect.rate;
+
+import lombok.Data;
+
+/**
+ * Snapshot of rate limiter counters for single key.
+ */
+@Data
+public class RateStatistics {
+
+    private final long acquired;
+    private final long rejected;
+    private final long waited;
+    private final long totalWaitNs;
+    private final long maxWaitNs;
+
+    public double averageWaitMs() {
+        return 0 == waited ? 0.0 : totalWaitNs / (waited * 1e6);
+    }
+}
@@ -1,49 +0,0 @@
-package com.gtc.tradinggateway.config;
-
-import lombok.extern.slf4j.Slf4j;
-import org.springframework.aop.interceptor.AsyncUncaughtExceptionHandler;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.context.annotation.Configuration;
-import org.springframework.scheduling.annotation.AsyncConfigurer;
-import org.springframework.scheduling.annotation.EnableAsync;
-import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
-
-import java.lang.reflect.Method;
-import java.util.concurrent.Executor;
-
-/**
- * Created by Valentyn Berezin on 06.03.18.
- */
-@EnableAsync
-@Configuration
-public class AsyncConfig implements AsyncConfigurer {
-
-    @Value("${app.async.pool.core}")
-    private int asyncCorePoolSize;
-
-    @Value("${app.async.pool.max}")
-    private int asyncMaxPoolSize;
-
-    @Override
-    public Executor getAsyncExecutor() {
-        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
-        executor.setCorePoolSize(asyncCorePoolSize);
-        executor.setMaxPoolSize(asyncMaxPoolSize);
-        executor.initialize();
-        return executor;
-    }
-
-    @Override
-    public AsyncUncaughtExceptionHandler getAsyncUncaughtExceptionHandler() {
-        return new Handler();
-    }
-
-    @Slf4j
-    private static class Handler implements AsyncUncaughtExceptionHandler {
-
-        @Override
-        public void handleUncaughtException(Throwable ex, Method method, Object... params) {
-            log.error("Caught exception on {}", method, ex);
-        }
-    }
-}
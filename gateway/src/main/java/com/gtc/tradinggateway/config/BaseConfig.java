@@ -1,15 +1,21 @@
 package com.gtc.tradinggateway.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gtc.tradinggateway.config.http.PooledHttpRequestFactory;
 import com.gtc.tradinggateway.meta.PairSymbol;
 import com.gtc.tradinggateway.meta.TradingCurrency;
 import lombok.Data;
+import org.springframework.http.client.AsyncClientHttpRequestInterceptor;
+import org.springframework.web.client.AsyncRestTemplate;
 import org.springframework.web.client.RestTemplate;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 /**
  * Created by Valentyn Berezin on 16.01.18.
@@ -27,12 +33,37 @@ public class BaseConfig {
 
     protected RestTemplate restTemplate = new RestTemplate();
 
+    protected PooledHttpRequestFactory.Cfg http = new PooledHttpRequestFactory.Cfg();
+
+    protected PooledHttpRequestFactory httpPool = new PooledHttpRequestFactory();
+
+    // only if http.nonBlocking, shares connection pool, message converters and interceptors with restTemplate
+    protected AsyncRestTemplate asyncRestTemplate;
+
     protected Map<String, PairSymbol> pairs;
 
     protected Map<String, String> customResponseCurrencyMapping = new HashMap<>();
 
     protected Map<TradingCurrency, String> customCurrencyName;
 
+    @PostConstruct
+    @SuppressWarnings("deprecation")
+    public void configureHttp() {
+        httpPool.configure(http);
+        if (http.isNonBlocking()) {
+            asyncRestTemplate = new AsyncRestTemplate(httpPool, restTemplate);
+            asyncRestTemplate.setInterceptors(restTemplate.getInterceptors().stream()
+                    .filter(AsyncClientHttpRequestInterceptor.class::isInstance)
+                    .map(AsyncClientHttpRequestInterceptor.class::cast)
+                    .collect(Collectors.toList()));
+        }
+    }
+
+    @PreDestroy
+    public void closeHttp() {
+        httpPool.close();
+    }
+
     public void setCustomCurrencyName(List<String> list) {
         customCurrencyName = list.stream()
                 .collect(
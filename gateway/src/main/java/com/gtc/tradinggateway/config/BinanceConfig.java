@@ -19,6 +19,6 @@ public class BinanceConfig extends BaseConfig {
 
     public BinanceConfig(ConfigFactory factory) {
         mapper = factory.defaultMapper();
-        restTemplate = factory.defaultRestTemplate(mapper);
+        restTemplate = factory.defaultRestTemplate(mapper, httpPool);
     }
 }
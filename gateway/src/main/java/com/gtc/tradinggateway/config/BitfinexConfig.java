@@ -19,6 +19,6 @@ public class BitfinexConfig extends BaseConfig {
 
     public BitfinexConfig(ConfigFactory factory) {
         mapper = factory.defaultMapper();
-        restTemplate = factory.defaultRestTemplate(mapper);
+        restTemplate = factory.defaultRestTemplate(mapper, httpPool);
     }
 }
@@ -0,0 +1,25 @@
+package com.gtc.tradinggateway.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import static com.gtc.tradinggateway.config.Const.CONF_ROOT_CHILD;
+import static com.gtc.tradinggateway.config.Const.Command.COMMAND;
+
+/**
+ * Per-exchange command execution pools.
+ */
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(CONF_ROOT_CHILD + COMMAND)
+public class CommandConf {
+
+    // threads executing commands of single exchange
+    private int threadsPerClient = 2;
+
+    // commands of single exchange waiting for execution, further ones are rejected
+    private int queueCapacity = 100;
+}
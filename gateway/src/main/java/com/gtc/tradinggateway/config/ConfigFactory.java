@@ -11,17 +11,26 @@ import com.fasterxml.jackson.databind.ser.std.StdSerializer;
 import com.google.common.base.Charsets;
 import com.google.common.collect.ImmutableList;
 import com.google.common.io.ByteStreams;
+import com.gtc.tradinggateway.config.http.PooledHttpRequestFactory;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.client.*;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.stereotype.Service;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.ListenableFutureAdapter;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
 
 /**
  * Created by mikro on 08.02.2018.
@@ -48,16 +57,17 @@ public class ConfigFactory {
                 .registerModule(module);
     }
 
-    RestTemplate defaultRestTemplate(ObjectMapper mapper) {
+    RestTemplate defaultRestTemplate(ObjectMapper mapper, PooledHttpRequestFactory httpPool) {
         RestTemplate template = new RestTemplate(ImmutableList.of(new MappingJackson2HttpMessageConverter(mapper)));
+        template.setRequestFactory(httpPool);
 
         if (traceEnabled) {
-            template.setRequestFactory(new BufferingClientHttpRequestFactory(new SimpleClientHttpRequestFactory()));
+            template.setRequestFactory(new BufferingClientHttpRequestFactory(httpPool));
             template.getInterceptors().add(new FullLoggingInterceptor());
         }
 
         if (!traceEnabled && traceResponseBodyEnabled) {
-            template.setRequestFactory(new BufferingClientHttpRequestFactory(new SimpleClientHttpRequestFactory()));
+            template.setRequestFactory(new BufferingClientHttpRequestFactory(httpPool));
             template.getInterceptors().add(new ResponseBodyLoggingInterceptor());
         }
 
@@ -65,13 +75,27 @@ public class ConfigFactory {
     }
 
     @Slf4j
-    public static class FullLoggingInterceptor implements ClientHttpRequestInterceptor {
+    @SuppressWarnings("deprecation")
+    public static class FullLoggingInterceptor
+            implements ClientHttpRequestInterceptor, AsyncClientHttpRequestInterceptor {
 
         @Override
-        @SneakyThrows
-        public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)  {
+        public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+                throws IOException {
             ClientHttpResponse response = execution.execute(request, body);
+            log(request, body, response);
+            return response;
+        }
+
+        @Override
+        public ListenableFuture<ClientHttpResponse> intercept(HttpRequest request, byte[] body,
+                                                              AsyncClientHttpRequestExecution execution)
+                throws IOException {
+            return buffered(execution.executeAsync(request, body), response -> log(request, body, response));
+        }
 
+        @SneakyThrows
+        private static void log(HttpRequest request, byte[] body, ClientHttpResponse response) {
             log.info("request method: {}, request URI: {}, request headers: {}, request body: {} \n " +
                             "response status code: {}, response headers: {}, response body: {}",
                     request.getMethod(),
@@ -81,25 +105,95 @@ public class ConfigFactory {
                     response.getStatusCode(),
                     response.getHeaders(),
                     new String(ByteStreams.toByteArray(response.getBody()), Charsets.UTF_8));
-
-            return response;
         }
     }
 
     @Slf4j
-    public static class ResponseBodyLoggingInterceptor implements ClientHttpRequestInterceptor {
+    @SuppressWarnings("deprecation")
+    public static class ResponseBodyLoggingInterceptor
+            implements ClientHttpRequestInterceptor, AsyncClientHttpRequestInterceptor {
 
         @Override
-        @SneakyThrows
-        public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)  {
+        public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+                throws IOException {
             ClientHttpResponse response = execution.execute(request, body);
+            log(response);
+            return response;
+        }
 
+        @Override
+        public ListenableFuture<ClientHttpResponse> intercept(HttpRequest request, byte[] body,
+                                                              AsyncClientHttpRequestExecution execution)
+                throws IOException {
+            return buffered(execution.executeAsync(request, body), ResponseBodyLoggingInterceptor::log);
+        }
+
+        @SneakyThrows
+        private static void log(ClientHttpResponse response) {
             log.info("response status code: {}, response body: {}",
                     response.getStatusCode(),
                     new String(ByteStreams.toByteArray(response.getBody()), Charsets.UTF_8)
             );
+        }
+    }
 
-            return response;
+    // there is no buffering async request factory, so body is read here to be both logged and returned
+    private static ListenableFuture<ClientHttpResponse> buffered(ListenableFuture<ClientHttpResponse> future,
+                                                                 Consumer<ClientHttpResponse> logger) {
+        return new ListenableFutureAdapter<ClientHttpResponse, ClientHttpResponse>(future) {
+
+            @Override
+            protected ClientHttpResponse adapt(ClientHttpResponse response) throws ExecutionException {
+                try {
+                    ClientHttpResponse result = new BufferedResponse(response);
+                    logger.accept(result);
+                    return result;
+                } catch (IOException ex) {
+                    response.close();
+                    throw new ExecutionException(ex);
+                }
+            }
+        };
+    }
+
+    private static class BufferedResponse implements ClientHttpResponse {
+
+        private final ClientHttpResponse delegate;
+        private final byte[] body;
+
+        BufferedResponse(ClientHttpResponse delegate) throws IOException {
+            this.delegate = delegate;
+            this.body = ByteStreams.toByteArray(delegate.getBody());
+        }
+
+        @Override
+        public HttpStatus getStatusCode() throws IOException {
+            return delegate.getStatusCode();
+        }
+
+        @Override
+        public int getRawStatusCode() throws IOException {
+            return delegate.getRawStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return delegate.getStatusText();
+        }
+
+        @Override
+        public void close() {
+            delegate.close();
+        }
+
+        @Override
+        public InputStream getBody() {
+            return new ByteArrayInputStream(body);
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return delegate.getHeaders();
         }
     }
 
@@ -45,5 +45,11 @@ public class Const {
         public static final String RATE_EQUALIZER = "rate-equalizer";
     }
 
+    @UtilityClass
+    public class Command {
+
+        public static final String COMMAND = "command";
+    }
+
     public static final String STATISTICS = "statistics";
 }
@@ -19,6 +19,6 @@ public class GdaxConfig extends BaseConfig {
 
     public GdaxConfig(ConfigFactory factory) {
         mapper = factory.defaultMapper();
-        restTemplate = factory.defaultRestTemplate(mapper);
+        restTemplate = factory.defaultRestTemplate(mapper, httpPool);
     }
 }
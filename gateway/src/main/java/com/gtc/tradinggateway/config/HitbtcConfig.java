@@ -22,7 +22,7 @@ public class HitbtcConfig extends BaseConfig {
 
     public HitbtcConfig(ConfigFactory factory) {
         mapper = factory.defaultMapper();
-        restTemplate = factory.defaultRestTemplate(mapper);
+        restTemplate = factory.defaultRestTemplate(mapper, httpPool);
         restTemplate.setMessageConverters(ImmutableList.of(
                 new FormHttpMessageToPojoConverter(mapper),
                 new MappingJackson2HttpMessageConverter(mapper)
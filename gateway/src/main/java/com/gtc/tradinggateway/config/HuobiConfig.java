@@ -18,7 +18,7 @@ public class HuobiConfig extends BaseConfig {
 
     public HuobiConfig(ConfigFactory factory) {
         mapper = factory.defaultMapper();
-        restTemplate = factory.defaultRestTemplate(mapper);
+        restTemplate = factory.defaultRestTemplate(mapper, httpPool);
         restTemplate.setMessageConverters(ImmutableList.of(
                 new MappingJackson2HttpMessageConverter(mapper)
         ));
@@ -18,6 +18,6 @@ public class MockExchangeConfig extends BaseConfig {
     public MockExchangeConfig(ConfigFactory factory) {
         mapper = factory.defaultMapper();
         mapper.setPropertyNamingStrategy(PropertyNamingStrategy.SNAKE_CASE);
-        restTemplate = factory.defaultRestTemplate(mapper);
+        restTemplate = factory.defaultRestTemplate(mapper, httpPool);
     }
 }
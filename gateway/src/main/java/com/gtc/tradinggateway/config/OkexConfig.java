@@ -29,7 +29,7 @@ public class OkexConfig extends BaseConfig {
 
     public OkexConfig(ConfigFactory factory) {
         mapper = factory.defaultMapper().setPropertyNamingStrategy(PropertyNamingStrategy.SNAKE_CASE);
-        restTemplate = factory.defaultRestTemplate(mapper);
+        restTemplate = factory.defaultRestTemplate(mapper, httpPool);
         restTemplate.setMessageConverters(ImmutableList.of(
                 new CustomMapping(
                         mapper,
@@ -16,6 +16,6 @@ public class TheRockTradingConfig extends BaseConfig {
 
     public TheRockTradingConfig(ConfigFactory factory) {
         mapper = factory.defaultMapper();
-        restTemplate = factory.defaultRestTemplate(mapper);
+        restTemplate = factory.defaultRestTemplate(mapper, httpPool);
     }
 }
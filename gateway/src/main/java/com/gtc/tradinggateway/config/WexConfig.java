@@ -34,7 +34,7 @@ public class WexConfig extends BaseConfig {
         supported.add(MediaType.TEXT_HTML);
         converter.setSupportedMediaTypes(supported);
 
-        restTemplate = factory.defaultRestTemplate(mapper);
+        restTemplate = factory.defaultRestTemplate(mapper, httpPool);
         restTemplate.setMessageConverters(ImmutableList.of(new FormHttpMessageToPojoConverter(mapper), converter));
     }
 }
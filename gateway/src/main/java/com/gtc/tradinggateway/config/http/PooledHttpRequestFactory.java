@@ -0,0 +1,306 @@
+package com.gtc.tradinggateway.config.http;
+
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.AsyncClientHttpRequest;
+import org.springframework.http.client.AsyncClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.OkHttp3ClientHttpRequestFactory;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Per-exchange pooled HTTP client - keeps connections alive between calls and limits number of concurrent
+ * requests (and so connections) to exchange. Blocking requests that can't get connection within connect timeout
+ * fail, non-blocking ones fail at once. Silent retries on connection failure are disabled as requests
+ * (i.e. order creation) are not idempotent.
+ * Can be reconfigured after properties are bound, old client is closed then.
+ */
+@Slf4j
+@SuppressWarnings("deprecation") // async part of OkHttp3ClientHttpRequestFactory is deprecated in favor of WebClient
+public class PooledHttpRequestFactory implements ClientHttpRequestFactory, AsyncClientHttpRequestFactory {
+
+    private volatile Pool pool;
+
+    public PooledHttpRequestFactory() {
+        configure(new Cfg());
+    }
+
+    public synchronized void configure(Cfg cfg) {
+        Pool old = pool;
+        pool = new Pool(cfg);
+        if (null != old) {
+            old.close();
+        }
+    }
+
+    @Override
+    public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) throws IOException {
+        Pool current = pool;
+        return new LimitedRequest(current, current.factory.createRequest(uri, httpMethod));
+    }
+
+    @Override
+    public AsyncClientHttpRequest createAsyncRequest(URI uri, HttpMethod httpMethod) throws IOException {
+        Pool current = pool;
+        return new LimitedAsyncRequest(current, current.factory.createAsyncRequest(uri, httpMethod));
+    }
+
+    public int idleConnections() {
+        return pool.client.connectionPool().idleConnectionCount();
+    }
+
+    public int connections() {
+        return pool.client.connectionPool().connectionCount();
+    }
+
+    public void close() {
+        pool.close();
+    }
+
+    OkHttpClient client() {
+        return pool.client;
+    }
+
+    @Data
+    public static class Cfg {
+
+        private int maxConnections = 10;
+        private int keepAliveS = 30;
+        private int connectTimeoutMs = 5000;
+        private int readTimeoutMs = 15000;
+        private boolean nonBlocking = false;
+    }
+
+    private static class Pool {
+
+        private final OkHttpClient client;
+        private final OkHttp3ClientHttpRequestFactory factory;
+        private final Semaphore permits;
+        private final int waitMs;
+
+        Pool(Cfg cfg) {
+            Dispatcher dispatcher = new Dispatcher();
+            dispatcher.setMaxRequests(cfg.getMaxConnections());
+            dispatcher.setMaxRequestsPerHost(cfg.getMaxConnections());
+
+            this.client = new OkHttpClient.Builder()
+                    .connectionPool(new ConnectionPool(cfg.getMaxConnections(), cfg.getKeepAliveS(), TimeUnit.SECONDS))
+                    .dispatcher(dispatcher)
+                    .connectTimeout(cfg.getConnectTimeoutMs(), TimeUnit.MILLISECONDS)
+                    .readTimeout(cfg.getReadTimeoutMs(), TimeUnit.MILLISECONDS)
+                    .writeTimeout(cfg.getReadTimeoutMs(), TimeUnit.MILLISECONDS)
+                    .retryOnConnectionFailure(false)
+                    .build();
+            this.factory = new OkHttp3ClientHttpRequestFactory(client);
+            this.permits = new Semaphore(cfg.getMaxConnections(), true);
+            this.waitMs = cfg.getConnectTimeoutMs();
+        }
+
+        void acquire() throws IOException {
+            try {
+                if (!permits.tryAcquire(waitMs, TimeUnit.MILLISECONDS)) {
+                    throw new IOException("No free connection within " + waitMs + " ms");
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for connection");
+            }
+        }
+
+        // factory.destroy() closes only client it has created itself
+        void close() {
+            client.dispatcher().executorService().shutdown();
+            client.connectionPool().evictAll();
+            if (null == client.cache()) {
+                return;
+            }
+
+            try {
+                client.cache().close();
+            } catch (IOException ex) {
+                log.warn("Failed closing http cache", ex);
+            }
+        }
+    }
+
+    private static class LimitedRequest implements ClientHttpRequest {
+
+        private final Pool pool;
+        private final ClientHttpRequest delegate;
+
+        LimitedRequest(Pool pool, ClientHttpRequest delegate) {
+            this.pool = pool;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public ClientHttpResponse execute() throws IOException {
+            pool.acquire();
+            try {
+                return new PermitReleasingResponse(pool.permits, delegate.execute());
+            } catch (IOException | RuntimeException ex) {
+                pool.permits.release();
+                throw ex;
+            }
+        }
+
+        @Override
+        public OutputStream getBody() throws IOException {
+            return delegate.getBody();
+        }
+
+        @Override
+        public HttpMethod getMethod() {
+            return delegate.getMethod();
+        }
+
+        @Override
+        public String getMethodValue() {
+            return delegate.getMethodValue();
+        }
+
+        @Override
+        public URI getURI() {
+            return delegate.getURI();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return delegate.getHeaders();
+        }
+    }
+
+    private static class LimitedAsyncRequest implements AsyncClientHttpRequest {
+
+        private final Pool pool;
+        private final AsyncClientHttpRequest delegate;
+
+        LimitedAsyncRequest(Pool pool, AsyncClientHttpRequest delegate) {
+            this.pool = pool;
+            this.delegate = delegate;
+        }
+
+        // waiting for permit would block caller thread
+        @Override
+        public ListenableFuture<ClientHttpResponse> executeAsync() throws IOException {
+            if (!pool.permits.tryAcquire()) {
+                throw new IOException("No free connection");
+            }
+
+            ListenableFuture<ClientHttpResponse> response;
+            try {
+                response = delegate.executeAsync();
+            } catch (IOException | RuntimeException ex) {
+                pool.permits.release();
+                throw ex;
+            }
+
+            SettableListenableFuture<ClientHttpResponse> result = new SettableListenableFuture<>();
+            response.addCallback(
+                    it -> {
+                        PermitReleasingResponse released = new PermitReleasingResponse(pool.permits, it);
+                        if (!result.set(released)) {
+                            released.close();
+                        }
+                    },
+                    ex -> {
+                        pool.permits.release();
+                        result.setException(ex);
+                    }
+            );
+
+            return result;
+        }
+
+        @Override
+        public OutputStream getBody() throws IOException {
+            return delegate.getBody();
+        }
+
+        @Override
+        public HttpMethod getMethod() {
+            return delegate.getMethod();
+        }
+
+        @Override
+        public String getMethodValue() {
+            return delegate.getMethodValue();
+        }
+
+        @Override
+        public URI getURI() {
+            return delegate.getURI();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return delegate.getHeaders();
+        }
+    }
+
+    private static class PermitReleasingResponse implements ClientHttpResponse {
+
+        private final Semaphore permits;
+        private final ClientHttpResponse delegate;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        PermitReleasingResponse(Semaphore permits, ClientHttpResponse delegate) {
+            this.permits = permits;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public HttpStatus getStatusCode() throws IOException {
+            return delegate.getStatusCode();
+        }
+
+        @Override
+        public int getRawStatusCode() throws IOException {
+            return delegate.getRawStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return delegate.getStatusText();
+        }
+
+        @Override
+        public void close() {
+            try {
+                delegate.close();
+            } finally {
+                if (released.compareAndSet(false, true)) {
+                    permits.release();
+                }
+            }
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            return delegate.getBody();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return delegate.getHeaders();
+        }
+    }
+}
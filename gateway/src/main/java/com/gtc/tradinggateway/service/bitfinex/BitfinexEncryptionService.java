@@ -3,14 +3,12 @@ package com.gtc.tradinggateway.service.bitfinex;
 import com.google.common.base.Charsets;
 import com.google.common.collect.ImmutableMap;
 import com.gtc.tradinggateway.config.BitfinexConfig;
+import com.gtc.tradinggateway.util.HmacSigner;
 import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
-import org.apache.commons.codec.binary.Hex;
 import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Service;
 
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
 import java.util.Base64;
 import java.util.Map;
 
@@ -23,7 +21,7 @@ import static org.springframework.http.MediaType.APPLICATION_JSON;
 @RequiredArgsConstructor
 public class BitfinexEncryptionService {
 
-    private static final String METHOD = "HmacSHA384";
+    private static final String METHOD = HmacSigner.SHA384;
 
     private final BitfinexConfig cfg;
 
@@ -33,13 +31,8 @@ public class BitfinexEncryptionService {
         return Base64.getEncoder().encodeToString(payload.getBytes());
     }
 
-    @SneakyThrows
     public String generateSignature(String msg, String keyString) {
-        SecretKeySpec key = new SecretKeySpec((keyString).getBytes(Charsets.UTF_8), METHOD);
-        Mac mac = Mac.getInstance(METHOD);
-        mac.init(key);
-
-        return new String(Hex.encodeHex(mac.doFinal(msg.getBytes(Charsets.UTF_8))));
+        return HmacSigner.of(METHOD, keyString.getBytes(Charsets.UTF_8)).hex(msg.getBytes(Charsets.UTF_8));
     }
 
     public HttpHeaders restHeaders(Object request) {
@@ -0,0 +1,148 @@
+package com.gtc.tradinggateway.service.command;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.gtc.model.gateway.BaseMessage;
+import com.gtc.tradinggateway.config.CommandConf;
+import com.newrelic.api.agent.NewRelic;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Executes commands on dedicated pool per exchange (client name), so that slow or retrying exchange does not hold
+ * threads of others. Waiting commands of exchange are kept in bounded priority queue - lower
+ * {@link BaseMessage#getPriority()} goes first, same priority in submission order. Command that does not fit
+ * the queue is rejected, so that caller can back off.
+ */
+@Slf4j
+@Service
+public class CommandExecutor {
+
+    private final CommandConf conf;
+    private final Map<String, Lane> lanes = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    public CommandExecutor(CommandConf conf) {
+        this.conf = conf;
+    }
+
+    /**
+     * @return false if queue of {@code clientName} is full and command was not accepted
+     */
+    public boolean submit(String clientName, int priority, Runnable command) {
+        Lane lane = lanes.get(clientName);
+        if (null == lane) {
+            lane = lanes.computeIfAbsent(clientName, Lane::new);
+        }
+
+        return lane.submit(new Task(lane, priority, sequence.getAndIncrement(), command));
+    }
+
+    public Map<String, LaneStatistics> statistics() {
+        Map<String, LaneStatistics> result = new TreeMap<>();
+        lanes.forEach((name, lane) -> result.put(name, new LaneStatistics(
+                lane.queued.get(),
+                lane.executor.getActiveCount(),
+                lane.executed.get(),
+                lane.rejected.get()
+        )));
+        return result;
+    }
+
+    @Scheduled(fixedDelayString = "${app.statistics.reportIntervalMs}")
+    public void reportStatistics() {
+        statistics().forEach((name, stat) -> {
+            NewRelic.recordMetric("Custom/Command/Queued/" + name, stat.getQueued());
+            NewRelic.recordMetric("Custom/Command/Rejected/" + name, stat.getRejected());
+            if (stat.getRejected() > 0) {
+                log.warn("Commands of {} rejected so far {}", name, stat.getRejected());
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        lanes.values().forEach(it -> it.executor.shutdownNow());
+    }
+
+    @Data
+    public static class LaneStatistics {
+
+        private final int queued;
+        private final int active;
+        private final long executed;
+        private final long rejected;
+    }
+
+    private class Lane {
+
+        private final String name;
+        private final ThreadPoolExecutor executor;
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicLong executed = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+
+        Lane(String name) {
+            this.name = name;
+            this.executor = new ThreadPoolExecutor(
+                    conf.getThreadsPerClient(),
+                    conf.getThreadsPerClient(),
+                    0L,
+                    TimeUnit.MILLISECONDS,
+                    new PriorityBlockingQueue<>(),
+                    new ThreadFactoryBuilder().setNameFormat("command-" + name + "-%d").setDaemon(true).build()
+            );
+        }
+
+        boolean submit(Task task) {
+            if (queued.incrementAndGet() > conf.getQueueCapacity()) {
+                queued.decrementAndGet();
+                rejected.incrementAndGet();
+                log.warn("Command queue of {} is full, rejecting", name);
+                return false;
+            }
+
+            executor.execute(task);
+            return true;
+        }
+    }
+
+    @RequiredArgsConstructor
+    private static class Task implements Runnable, Comparable<Task> {
+
+        private final Lane lane;
+        private final int priority;
+        private final long seq;
+        private final Runnable command;
+
+        @Override
+        public void run() {
+            lane.queued.decrementAndGet();
+            try {
+                command.run();
+            } catch (RuntimeException ex) {
+                log.error("Command of {} failed", lane.name, ex);
+            } finally {
+                lane.executed.incrementAndGet();
+            }
+        }
+
+        @Override
+        public int compareTo(Task other) {
+            int byPriority = Integer.compare(priority, other.priority);
+            return 0 != byPriority ? byPriority : Long.compare(seq, other.seq);
+        }
+    }
+}
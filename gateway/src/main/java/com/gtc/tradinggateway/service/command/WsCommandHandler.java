@@ -2,6 +2,7 @@ package com.gtc.tradinggateway.service.command;
 
 import com.google.common.base.Throwables;
 import com.gtc.model.gateway.BaseMessage;
+import com.gtc.model.gateway.RetryStrategy;
 import com.gtc.model.gateway.WithOrderId;
 import com.gtc.model.gateway.command.account.GetAllBalancesCommand;
 import com.gtc.model.gateway.command.create.CreateOrderCommand;
@@ -33,7 +34,6 @@ import org.springframework.retry.backoff.ExponentialBackOffPolicy;
 import org.springframework.retry.policy.NeverRetryPolicy;
 import org.springframework.retry.policy.SimpleRetryPolicy;
 import org.springframework.retry.support.RetryTemplate;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.HttpStatusCodeException;
 import org.springframework.web.socket.WebSocketSession;
@@ -44,6 +44,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiFunction;
 import java.util.stream.Collectors;
 
@@ -52,20 +53,26 @@ import java.util.stream.Collectors;
  */
 @Slf4j
 @Service
-@Async
 public class WsCommandHandler {
 
     private final SubsRegistry registry;
+    private final CommandExecutor commandExecutor;
+
+    // templates are stateless, so one per strategy is shared by all commands
+    private final Map<RetryStrategy, RetryTemplate> retryTemplates = new ConcurrentHashMap<>();
+    private final RetryTemplate noRetryTemplate = noRetryTemplate();
+    private final RetryListener retryListener = new DoRetryListener();
 
     private final Map<String, Account> accountOps;
     private final Map<String, CreateOrder> createOps;
     private final Map<String, ManageOrders> manageOps;
     private final Map<String, Withdraw> withdrawOps;
 
-    public WsCommandHandler(ClientsConf conf, SubsRegistry registry, List<Account> accountCmds,
-                            List<CreateOrder> createCmds, List<ManageOrders> manageCmds,
+    public WsCommandHandler(ClientsConf conf, SubsRegistry registry, CommandExecutor commandExecutor,
+                            List<Account> accountCmds, List<CreateOrder> createCmds, List<ManageOrders> manageCmds,
                             List<Withdraw> withdrawCmds) {
         this.registry = registry;
+        this.commandExecutor = commandExecutor;
         accountOps = accountCmds.stream().filter(it -> conf.getActive().contains(it.name()))
                 .collect(Collectors.toMap(ClientNamed::name, it -> it));
         createOps = createCmds.stream().filter(it -> conf.getActive().contains(it.name()))
@@ -119,17 +126,26 @@ public class WsCommandHandler {
     @Trace(dispatcher = true)
     public void create(WebSocketSession session, @Valid MultiOrderCreateCommand command) {
         log.info("Request to create multi-orders {}", command);
-        command.getCommands().stream().map(CreateOrderCommand::getClientName).forEach(name -> {
-            if (!createOps.keySet().contains(name)) {
-                throw new NoClientException(name);
-            }
-
-            checkReadiness(name, createOps.get(name));
-        });
+        try {
+            command.getCommands().stream().map(CreateOrderCommand::getClientName).forEach(name -> {
+                if (!createOps.keySet().contains(name)) {
+                    throw new NoClientException(name);
+                }
+
+                checkReadiness(name, createOps.get(name));
+            });
+        } catch (RuntimeException ex) {
+            ErrorResponse error = buildError(command, ex);
+            log.error("Sending error message {} in response to {}", error, command.getId());
+            registry.doSend(session, error);
+            return;
+        }
 
         // FIXME - far from ideal this 'type' mapping should be redesigned
-        command.getCommands().parallelStream().forEach(it -> {
+        // each order goes to its exchange queue, not less urgent than multi-order itself
+        command.getCommands().forEach(it -> {
             it.setType(it.type());
+            it.setPriority(Math.min(command.getPriority(), it.getPriority()));
             create(session, it);
         });
     }
@@ -230,6 +246,27 @@ public class WsCommandHandler {
             return;
         }
 
+        boolean accepted = commandExecutor.submit(
+                message.getClientName(),
+                message.getPriority(),
+                () -> execute(session, message, handler, executor)
+        );
+
+        if (!accepted) {
+            ErrorResponse error = buildError(message, new QueueFullException(message.getClientName()));
+            error.setTransient(true);
+            log.error("Sending transient error message {} in response to {}", error, message.getId());
+            registry.doSend(session, error);
+        }
+    }
+
+    // runs on client lane thread, outside of transaction of command handler that submitted it
+    @Trace(dispatcher = true)
+    private <T extends ClientNamed, U extends BaseMessage> void execute(
+            WebSocketSession session,
+            U message,
+            T handler,
+            BiFunction<T, U, ? extends BaseMessage> executor) {
         String oldName = Thread.currentThread().getName();
         Thread.currentThread().setName(message.getClientName() + " / " + message.getId());
 
@@ -257,19 +294,29 @@ public class WsCommandHandler {
     }
 
     private <U extends BaseMessage> RetryTemplate retryTemplate(U message) {
-        RetryTemplate template = new RetryTemplate();
-
-        if (null != message.getRetryStrategy()) {
-            template.setRetryPolicy(new SimpleRetryPolicy(message.getRetryStrategy().getMaxRetries()));
-            ExponentialBackOffPolicy backoff = new ExponentialBackOffPolicy();
-            backoff.setInitialInterval(message.getRetryStrategy().getBaseDelayMs());
-            backoff.setMultiplier(message.getRetryStrategy().getBackOffMultiplier());
-            template.setBackOffPolicy(backoff);
-            template.registerListener(new DoRetryListener());
-        } else {
-            template.setRetryPolicy(new NeverRetryPolicy());
+        RetryStrategy strategy = message.getRetryStrategy();
+        if (null == strategy) {
+            return noRetryTemplate;
         }
 
+        RetryTemplate template = retryTemplates.get(strategy);
+        return null != template ? template : retryTemplates.computeIfAbsent(strategy, this::newRetryTemplate);
+    }
+
+    private RetryTemplate newRetryTemplate(RetryStrategy strategy) {
+        RetryTemplate template = new RetryTemplate();
+        template.setRetryPolicy(new SimpleRetryPolicy(strategy.getMaxRetries()));
+        ExponentialBackOffPolicy backoff = new ExponentialBackOffPolicy();
+        backoff.setInitialInterval(strategy.getBaseDelayMs());
+        backoff.setMultiplier(strategy.getBackOffMultiplier());
+        template.setBackOffPolicy(backoff);
+        template.registerListener(retryListener);
+        return template;
+    }
+
+    private static RetryTemplate noRetryTemplate() {
+        RetryTemplate template = new RetryTemplate();
+        template.setRetryPolicy(new NeverRetryPolicy());
         return template;
     }
 
@@ -323,6 +370,13 @@ public class WsCommandHandler {
         }
     }
 
+    private static class QueueFullException extends IllegalStateException {
+
+        QueueFullException(String s) {
+            super(s);
+        }
+    }
+
     @Slf4j
     private static class DoRetryListener implements RetryListener {
 
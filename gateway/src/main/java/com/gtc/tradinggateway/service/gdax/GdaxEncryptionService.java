@@ -2,13 +2,11 @@ package com.gtc.tradinggateway.service.gdax;
 
 import com.google.common.collect.ImmutableMap;
 import com.gtc.tradinggateway.config.GdaxConfig;
+import com.gtc.tradinggateway.util.HmacSigner;
 import lombok.RequiredArgsConstructor;
-import lombok.SneakyThrows;
 import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Service;
 
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
 import java.time.Instant;
 import java.util.Base64;
 import java.util.Map;
@@ -22,18 +20,14 @@ import static org.springframework.http.MediaType.APPLICATION_JSON;
 @RequiredArgsConstructor
 public class GdaxEncryptionService {
 
-    private static final String METHOD = "HmacSHA256";
+    private static final String METHOD = HmacSigner.SHA256;
 
     private final GdaxConfig cfg;
 
-    @SneakyThrows
     public String generate(String requestPath, String method, String body, String timestamp) {
         String prehash = timestamp + method.toUpperCase() + requestPath + body;
         byte[] secretDecoded = Base64.getDecoder().decode(cfg.getSecretKey());
-        SecretKeySpec keyspec = new SecretKeySpec(secretDecoded, METHOD);
-        Mac sha256 = (Mac) Mac.getInstance(METHOD).clone();
-        sha256.init(keyspec);
-        return Base64.getEncoder().encodeToString(sha256.doFinal(prehash.getBytes()));
+        return HmacSigner.of(METHOD, secretDecoded).base64(prehash.getBytes());
     }
 
     public Map<String, String> signingHeaders(String relativeUrl, String method, String body) {
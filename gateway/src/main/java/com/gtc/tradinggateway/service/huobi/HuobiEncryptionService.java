@@ -1,16 +1,13 @@
 package com.gtc.tradinggateway.service.huobi;
 
 import com.gtc.tradinggateway.config.HuobiConfig;
+import com.gtc.tradinggateway.util.HmacSigner;
 import lombok.RequiredArgsConstructor;
-import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.codec.binary.Base64;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.stereotype.Service;
 
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
 
 import static org.springframework.http.MediaType.APPLICATION_FORM_URLENCODED_VALUE;
@@ -21,18 +18,13 @@ import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
 @RequiredArgsConstructor
 public class HuobiEncryptionService {
 
-    public static final String METHOD = "HmacSHA256";
+    public static final String METHOD = HmacSigner.SHA256;
 
     private final HuobiConfig cfg;
 
-    @SneakyThrows
     public String generate(HttpMethod method, String url, String params) {
         String message = method.name() + "\napi.huobi.pro\n" + url + "\n" + params;
-        String secret = cfg.getSecretKey();
-        Mac sha256hmac = Mac.getInstance(METHOD);
-        SecretKeySpec secretKeySpec = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), METHOD);
-        sha256hmac.init(secretKeySpec);
-        return Base64.encodeBase64String(sha256hmac.doFinal(message.getBytes()));
+        return HmacSigner.of(METHOD, cfg.getSecretKey().getBytes(StandardCharsets.UTF_8)).base64(message.getBytes());
     }
 
     public HttpHeaders restHeaders() {
@@ -2,14 +2,11 @@ package com.gtc.tradinggateway.service.therocktrading;
 
 import com.google.common.collect.ImmutableMap;
 import com.gtc.tradinggateway.config.TheRockTradingConfig;
+import com.gtc.tradinggateway.util.HmacSigner;
 import lombok.RequiredArgsConstructor;
-import lombok.SneakyThrows;
-import org.apache.commons.codec.binary.Hex;
 import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Service;
 
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.Map;
@@ -20,18 +17,13 @@ import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
 @RequiredArgsConstructor
 public class TheRockTradingEncryptionService {
 
-    private static final String METHOD = "HmacSHA512";
+    private static final String METHOD = HmacSigner.SHA512;
 
     private final TheRockTradingConfig cfg;
 
-    @SneakyThrows
-    private String generate(String absUrl, String nonce) {
+    public String generate(String absUrl, String nonce) {
         String preHash = nonce + absUrl;
-        String secret = cfg.getSecretKey();
-        Mac sha256hmac = Mac.getInstance(METHOD);
-        SecretKeySpec secretKeySpec = new SecretKeySpec(secret.getBytes(), METHOD);
-        sha256hmac.init(secretKeySpec);
-        return new String(Hex.encodeHex(sha256hmac.doFinal(preHash.getBytes())));
+        return HmacSigner.of(METHOD, cfg.getSecretKey().getBytes()).hex(preHash.getBytes());
     }
 
     private Map<String, String> signingHeaders(String absUrl) {
@@ -0,0 +1,90 @@
+package com.gtc.tradinggateway.util;
+
+import lombok.AccessLevel;
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+import lombok.SneakyThrows;
+import org.apache.commons.codec.binary.Hex;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * HMAC signer that keeps keyed {@link Mac} per thread, so that provider lookup and key scheduling happen once
+ * per thread and not for every signed request. Signers are shared by algorithm and key.
+ * Mac is dropped if signing fails, next call on that thread starts from fresh one.
+ */
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public final class HmacSigner {
+
+    public static final String SHA256 = "HmacSHA256";
+    public static final String SHA384 = "HmacSHA384";
+    public static final String SHA512 = "HmacSHA512";
+
+    private static final Map<Key, HmacSigner> SIGNERS = new ConcurrentHashMap<>();
+
+    private final ThreadLocal<Mac> macs;
+
+    public static HmacSigner of(String algorithm, byte[] secret) {
+        return SIGNERS.computeIfAbsent(new Key(algorithm, secret.clone()), HmacSigner::create);
+    }
+
+    public byte[] sign(byte[] message) {
+        return sign(message, 0, message.length);
+    }
+
+    public byte[] sign(byte[] message, int offset, int length) {
+        Mac mac = macs.get();
+        try {
+            mac.update(message, offset, length);
+            return mac.doFinal();
+        } catch (RuntimeException ex) {
+            macs.remove();
+            throw ex;
+        }
+    }
+
+    public String hex(byte[] message) {
+        return new String(Hex.encodeHex(sign(message)));
+    }
+
+    public String base64(byte[] message) {
+        return Base64.getEncoder().encodeToString(sign(message));
+    }
+
+    @SneakyThrows
+    private static HmacSigner create(Key key) {
+        // fail early on bad algorithm or key, other threads clone keyed prototype
+        Mac prototype = newMac(key);
+        return new HmacSigner(ThreadLocal.withInitial(() -> copy(prototype, key)));
+    }
+
+    @SneakyThrows
+    private static Mac copy(Mac prototype, Key key) {
+        try {
+            synchronized (prototype) {
+                return (Mac) prototype.clone();
+            }
+        } catch (CloneNotSupportedException ex) {
+            return newMac(key);
+        }
+    }
+
+    @SneakyThrows
+    private static Mac newMac(Key key) {
+        Mac mac = Mac.getInstance(key.algorithm);
+        mac.init(new SecretKeySpec(key.secret, key.algorithm));
+        return mac;
+    }
+
+    @EqualsAndHashCode
+    @RequiredArgsConstructor
+    private static final class Key {
+
+        private final String algorithm;
+        private final byte[] secret;
+    }
+}
@@ -0,0 +1,60 @@
+package com.gtc.tradinggateway.aspect.rate;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+
+/**
+ * Microbenchmark of per-call overhead of rate limiting aspect against same proxy without it.
+ * Test will only start if it sees property PERF_TEST == true.
+ */
+@Slf4j
+class RateLimitingAspectPerformanceTest {
+
+    private static final int CALLS = 2_000_000;
+    private static final int ROUNDS = 5;
+
+    @Test
+    @EnabledIfEnvironmentVariable(named = "PERF_TEST", matches = "true")
+    void measureOverhead() {
+        Target plain = proxy(false);
+        Target limited = proxy(true);
+
+        for (int round = 0; round < ROUNDS; ++round) {
+            long plainNs = time(plain);
+            long limitedNs = time(limited);
+            log.info("Round {}: plain proxy {} ns/call, rate limited {} ns/call", round,
+                    plainNs / CALLS, limitedNs / CALLS);
+        }
+    }
+
+    private static Target proxy(boolean withAspect) {
+        AspectJProxyFactory factory = new AspectJProxyFactory(new Target());
+        factory.setProxyTargetClass(true);
+        if (withAspect) {
+            factory.addAspect(new RateLimitingAspect(new DefaultListableBeanFactory()));
+        }
+        return factory.getProxy();
+    }
+
+    private static long time(Target target) {
+        long sink = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < CALLS; ++i) {
+            sink += target.call(i);
+        }
+        long duration = System.nanoTime() - start;
+        log.debug("Sink {}", sink);
+        return duration;
+    }
+
+    @RateLimited(ratePerMinute = "2000000000", minSeparationMs = "0", mode = RateLimited.Mode.CLASS)
+    public static class Target {
+
+        public int call(int value) {
+            return value & 1;
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.gtc.tradinggateway.aspect.rate;
+
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Runs rate limiting aspect on proxy with 32 contending threads.
+ */
+class RateLimitingAspectTest {
+
+    private static final int THREADS = 32;
+
+    private RateLimitingAspect aspect;
+    private ExecutorService pool;
+
+    @BeforeEach
+    void init() {
+        aspect = new RateLimitingAspect(new DefaultListableBeanFactory());
+        pool = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @AfterEach
+    void shutdown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void failFastNeverExceedsRate() {
+        Limited limited = proxy(new Limited());
+
+        long start = System.nanoTime();
+        List<Integer> accepted = inParallel(() -> {
+            int count = 0;
+            for (int i = 0; i < 200; ++i) {
+                try {
+                    limited.classLimited();
+                    count++;
+                } catch (RateTooHighException ex) {
+                    // expected
+                }
+            }
+            return count;
+        });
+        long elapsedS = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start);
+
+        // 60 per minute, whole burst is available immediately and next permit comes each second
+        int total = accepted.stream().mapToInt(Integer::intValue).sum();
+        assertThat(total).isBetween(60, 60 + (int) elapsedS);
+        RateStatistics stats = aspect.statistics().get(Limited.class.getCanonicalName());
+        assertThat(stats.getAcquired()).isEqualTo(total);
+        assertThat(stats.getRejected()).isEqualTo(THREADS * 200L - total);
+    }
+
+    @Test
+    void classModeIsSharedAndMethodAnnotationOverrides() {
+        Limited limited = proxy(new Limited());
+
+        for (int i = 0; i < 30; ++i) {
+            limited.classLimited();
+            limited.otherClassLimited();
+        }
+        limited.methodLimited();
+
+        assertThatThrownBy(limited::classLimited).isInstanceOf(RateTooHighException.class);
+        assertThatThrownBy(limited::methodLimited).isInstanceOf(RateTooHighException.class);
+        assertThat(aspect.statistics()).hasSize(2);
+    }
+
+    @Test
+    void blockingKeepsMinSeparation() {
+        Limited limited = proxy(new Limited());
+        int callsPerThread = 5;
+
+        long start = System.nanoTime();
+        List<Integer> accepted = inParallel(() -> {
+            for (int i = 0; i < callsPerThread; ++i) {
+                limited.blocking();
+            }
+            return callsPerThread;
+        });
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        int total = accepted.stream().mapToInt(Integer::intValue).sum();
+        assertThat(total).isEqualTo(THREADS * callsPerThread);
+        // 5 ms separation, first call immediate
+        assertThat(elapsedMs).isGreaterThanOrEqualTo((total - 1) * 5L);
+        RateStatistics stats = aspect.statistics().values().iterator().next();
+        assertThat(stats.getRejected()).isZero();
+        assertThat(stats.getWaited()).isPositive();
+        assertThat(TimeUnit.NANOSECONDS.toMillis(stats.getMaxWaitNs())).isLessThanOrEqualTo(5000L);
+    }
+
+    @Test
+    void blockingFailsFastIfWaitIsTooLong() {
+        Limited limited = proxy(new Limited());
+        limited.blockingShortWait();
+
+        long start = System.nanoTime();
+        assertThatThrownBy(limited::blockingShortWait).isInstanceOf(RateTooHighException.class);
+        // did not wait for permit
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(1000L);
+    }
+
+    @Test
+    void blockingWithoutMaxWaitIsRejected() {
+        Limited limited = proxy(new Limited());
+
+        assertThatThrownBy(limited::blockingNoWait)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("maxWaitMs");
+    }
+
+    @Test
+    @SneakyThrows
+    void bucketGrantsConformUnderContention() {
+        int capacity = 5;
+        long intervalNs = TimeUnit.MILLISECONDS.toNanos(2);
+        long now = System.nanoTime();
+        NanoTokenBucket bucket = new NanoTokenBucket(capacity, intervalNs, now);
+        ConcurrentLinkedQueue<Long> grants = new ConcurrentLinkedQueue<>();
+        CountDownLatch go = new CountDownLatch(1);
+
+        inParallel(() -> {
+            go.await();
+            for (int i = 0; i < 20; ++i) {
+                long at = System.nanoTime();
+                long delay = bucket.reserve(at, at, TimeUnit.SECONDS.toNanos(10));
+                assertThat(delay).isNotNegative();
+                grants.add(at + delay);
+            }
+            return 0;
+        }, go);
+
+        long[] times = grants.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(times);
+        assertThat(times).hasSize(THREADS * 20);
+        // any capacity + k grants span at least k intervals
+        for (int i = 0; i + capacity < times.length; ++i) {
+            for (int k = 1; k <= 3 && i + capacity - 1 + k < times.length; ++k) {
+                assertThat(times[i + capacity - 1 + k] - times[i]).isGreaterThanOrEqualTo(k * intervalNs);
+            }
+        }
+    }
+
+    private <T> T proxy(T target) {
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.addAspect(aspect);
+        return factory.getProxy();
+    }
+
+    private List<Integer> inParallel(Callable<Integer> task) {
+        return inParallel(task, new CountDownLatch(0));
+    }
+
+    @SneakyThrows
+    private List<Integer> inParallel(Callable<Integer> task, CountDownLatch go) {
+        AtomicInteger started = new AtomicInteger();
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; ++i) {
+            futures.add(pool.submit(() -> {
+                started.incrementAndGet();
+                return task.call();
+            }));
+        }
+
+        while (started.get() < THREADS) {
+            Thread.yield();
+        }
+        go.countDown();
+
+        List<Integer> result = new ArrayList<>();
+        for (Future<Integer> future : futures) {
+            result.add(future.get(30, TimeUnit.SECONDS));
+        }
+        return result;
+    }
+
+    @RateLimited(ratePerMinute = "60", mode = RateLimited.Mode.CLASS)
+    public static class Limited {
+
+        public void classLimited() {
+            // limited by class bucket
+        }
+
+        public void otherClassLimited() {
+            // limited by class bucket
+        }
+
+        @RateLimited(ratePerMinute = "1")
+        public void methodLimited() {
+            // own bucket
+        }
+
+        @RateLimited(ratePerMinute = "60000", minSeparationMs = "5", acquire = RateLimited.Acquire.BLOCK,
+                maxWaitMs = "5000")
+        public void blocking() {
+            // own bucket
+        }
+
+        @RateLimited(ratePerMinute = "60000", minSeparationMs = "1000", acquire = RateLimited.Acquire.BLOCK,
+                maxWaitMs = "50")
+        public void blockingShortWait() {
+            // own bucket
+        }
+
+        @RateLimited(ratePerMinute = "60000", acquire = RateLimited.Acquire.BLOCK)
+        public void blockingNoWait() {
+            // invalid
+        }
+    }
+}
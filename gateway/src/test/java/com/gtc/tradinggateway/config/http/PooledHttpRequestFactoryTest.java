@@ -0,0 +1,274 @@
+package com.gtc.tradinggateway.config.http;
+
+import com.gtc.tradinggateway.config.ConfigFactory;
+import com.gtc.tradinggateway.config.HitbtcConfig;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.Data;
+import lombok.SneakyThrows;
+import okhttp3.OkHttpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Runs exchange config REST template against local stub HTTP server.
+ */
+class PooledHttpRequestFactoryTest {
+
+    private static final String FAST = "/fast";
+    private static final String SLOW = "/slow";
+    private static final String ECHO = "/echo";
+    private static final long SLOW_MS = 500L;
+
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger concurrent = new AtomicInteger();
+    private final AtomicInteger maxConcurrent = new AtomicInteger();
+
+    private HttpServer server;
+    private ExecutorService serverPool;
+    private HitbtcConfig cfg;
+
+    @BeforeEach
+    @SneakyThrows
+    void startServer() {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        serverPool = Executors.newCachedThreadPool();
+        server.setExecutor(serverPool);
+        server.createContext(FAST, exchange -> respond(exchange, "{\"value\":\"fast\"}"));
+        server.createContext(SLOW, exchange -> {
+            sleep();
+            respond(exchange, "{\"value\":\"slow\"}");
+        });
+        server.createContext(ECHO, exchange -> respond(exchange,
+                "{\"value\":\"" + exchange.getRequestHeaders().getFirst(HttpHeaders.CONTENT_TYPE) + "|"
+                        + read(exchange) + "\"}"));
+        server.start();
+
+        cfg = new HitbtcConfig(new ConfigFactory());
+        cfg.setRestBase("http://127.0.0.1:" + server.getAddress().getPort());
+    }
+
+    @AfterEach
+    void stopServer() {
+        cfg.closeHttp();
+        server.stop(0);
+        serverPool.shutdownNow();
+    }
+
+    @Test
+    void reusesConnectionBetweenCalls() {
+        cfg.configureHttp();
+
+        for (int i = 0; i < 20; ++i) {
+            assertThat(get(FAST).getValue()).isEqualTo("fast");
+        }
+
+        assertThat(clientPorts).hasSize(1);
+        assertThat(cfg.getHttpPool().idleConnections()).isEqualTo(1);
+    }
+
+    @Test
+    void failsOnReadTimeout() {
+        cfg.getHttp().setReadTimeoutMs(100);
+        cfg.configureHttp();
+
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> get(SLOW))
+                .isInstanceOf(ResourceAccessException.class)
+                .hasCauseInstanceOf(SocketTimeoutException.class);
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(SLOW_MS);
+
+        // broken connection is not reused
+        assertThat(get(FAST).getValue()).isEqualTo("fast");
+    }
+
+    @Test
+    @SneakyThrows
+    void limitsConcurrentConnections() {
+        cfg.getHttp().setMaxConnections(2);
+        cfg.configureHttp();
+
+        List<Value> values = inParallel(6);
+
+        assertThat(values).extracting(Value::getValue).containsOnly("slow");
+        assertThat(maxConcurrent.get()).isEqualTo(2);
+        assertThat(clientPorts).hasSize(2);
+    }
+
+    @Test
+    void failsIfNoConnectionFreedInTime() {
+        cfg.getHttp().setMaxConnections(1);
+        cfg.getHttp().setConnectTimeoutMs(100);
+        cfg.configureHttp();
+
+        assertThatThrownBy(() -> inParallel(2))
+                .hasRootCauseInstanceOf(IOException.class)
+                .hasStackTraceContaining("No free connection");
+    }
+
+    @Test
+    void keepsFormConverter() {
+        cfg.configureHttp();
+        Form form = new Form();
+        form.setSymbol("ETHBTC");
+
+        Value echo = cfg.getRestTemplate().exchange(
+                cfg.getRestBase() + ECHO,
+                HttpMethod.POST,
+                new HttpEntity<>(form, formHeaders()),
+                Value.class).getBody();
+
+        assertThat(echo.getValue())
+                .startsWith(MediaType.APPLICATION_FORM_URLENCODED_VALUE)
+                .endsWith("|symbol=ETHBTC");
+    }
+
+    @Test
+    void closeReleasesClientResources() {
+        cfg.configureHttp();
+        get(FAST);
+        OkHttpClient old = cfg.getHttpPool().client();
+
+        cfg.configureHttp();
+        assertThat(old.dispatcher().executorService().isShutdown()).isTrue();
+        assertThat(old.connectionPool().connectionCount()).isZero();
+
+        OkHttpClient current = cfg.getHttpPool().client();
+        assertThat(get(FAST).getValue()).isEqualTo("fast");
+        cfg.closeHttp();
+        assertThat(current.dispatcher().executorService().isShutdown()).isTrue();
+        assertThat(current.connectionPool().connectionCount()).isZero();
+    }
+
+    @Test
+    @SneakyThrows
+    void executesNonBlockingWithinConnectionLimit() {
+        assertThat(cfg.getAsyncRestTemplate()).isNull();
+        cfg.getRestTemplate().getInterceptors().add(new ConfigFactory.ResponseBodyLoggingInterceptor());
+        cfg.getHttp().setNonBlocking(true);
+        cfg.getHttp().setMaxConnections(2);
+        cfg.configureHttp();
+
+        List<Future<ResponseEntity<Value>>> futures = new ArrayList<>();
+        for (int i = 0; i < 2; ++i) {
+            futures.add(cfg.getAsyncRestTemplate().getForEntity(cfg.getRestBase() + SLOW, Value.class));
+        }
+
+        assertThatThrownBy(() -> cfg.getAsyncRestTemplate().getForEntity(cfg.getRestBase() + SLOW, Value.class))
+                .isInstanceOf(ResourceAccessException.class)
+                .hasStackTraceContaining("No free connection");
+
+        for (Future<ResponseEntity<Value>> future : futures) {
+            assertThat(future.get(10, TimeUnit.SECONDS).getBody().getValue()).isEqualTo("slow");
+        }
+        assertThat(maxConcurrent.get()).isEqualTo(2);
+
+        // connections are released, logged body is still readable
+        assertThat(cfg.getAsyncRestTemplate().getForEntity(cfg.getRestBase() + FAST, Value.class)
+                .get(10, TimeUnit.SECONDS).getBody().getValue()).isEqualTo("fast");
+    }
+
+    private Value get(String path) {
+        RestTemplate template = cfg.getRestTemplate();
+        return template.getForObject(cfg.getRestBase() + path, Value.class);
+    }
+
+    @SneakyThrows
+    private List<Value> inParallel(int count) {
+        ExecutorService callers = Executors.newFixedThreadPool(count);
+        try {
+            List<Future<Value>> futures = new ArrayList<>();
+            for (int i = 0; i < count; ++i) {
+                futures.add(callers.submit(() -> get(SLOW)));
+            }
+
+            List<Value> result = new ArrayList<>();
+            for (Future<Value> future : futures) {
+                result.add(future.get());
+            }
+            return result;
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @SneakyThrows
+    private void sleep() {
+        int now = concurrent.incrementAndGet();
+        maxConcurrent.accumulateAndGet(now, Math::max);
+        try {
+            Thread.sleep(SLOW_MS);
+        } finally {
+            concurrent.decrementAndGet();
+        }
+    }
+
+    private void respond(HttpExchange exchange, String body) throws IOException {
+        clientPorts.add(exchange.getRemoteAddress().getPort());
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
+        try {
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(bytes);
+            }
+        } catch (IOException ex) {
+            // client gave up waiting
+            exchange.close();
+        }
+    }
+
+    private static String read(HttpExchange exchange) throws IOException {
+        byte[] buffer = new byte[1024];
+        StringBuilder result = new StringBuilder();
+        int read;
+        while ((read = exchange.getRequestBody().read(buffer)) > 0) {
+            result.append(new String(buffer, 0, read, StandardCharsets.UTF_8));
+        }
+        return result.toString();
+    }
+
+    private static HttpHeaders formHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
+        return headers;
+    }
+
+    @Data
+    public static class Value {
+
+        private String value;
+    }
+
+    @Data
+    public static class Form {
+
+        private String symbol;
+    }
+}
@@ -0,0 +1,99 @@
+package com.gtc.tradinggateway.service;
+
+import com.gtc.tradinggateway.config.BinanceConfig;
+import com.gtc.tradinggateway.config.BitfinexConfig;
+import com.gtc.tradinggateway.config.ConfigFactory;
+import com.gtc.tradinggateway.config.GdaxConfig;
+import com.gtc.tradinggateway.config.HuobiConfig;
+import com.gtc.tradinggateway.config.TheRockTradingConfig;
+import com.gtc.tradinggateway.config.WexConfig;
+import com.gtc.tradinggateway.service.binance.BinanceEncryptionService;
+import com.gtc.tradinggateway.service.bitfinex.BitfinexEncryptionService;
+import com.gtc.tradinggateway.service.gdax.GdaxEncryptionService;
+import com.gtc.tradinggateway.service.huobi.HuobiEncryptionService;
+import com.gtc.tradinggateway.service.therocktrading.TheRockTradingEncryptionService;
+import com.gtc.tradinggateway.service.wex.WexEncryptionService;
+import com.gtc.tradinggateway.service.wex.dto.WexGetOpenRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Signatures of exchange encryption services against precomputed (independent HMAC implementation) values.
+ * Binance vector comes from exchange API docs.
+ */
+class SigningKnownAnswerTest {
+
+    private final ConfigFactory factory = new ConfigFactory();
+
+    @Test
+    void binance() {
+        BinanceConfig cfg = new BinanceConfig(factory);
+        cfg.setSecretKey("NhqPtmdSJYdKjVHjA7PZj4Mge3R5YNiP1e3UZjInClVN65XAbvqqM6A7H5fATj0j");
+
+        String signature = new BinanceEncryptionService(cfg).generate(
+                "symbol=LTCBTC&side=BUY&type=LIMIT&timeInForce=GTC&quantity=1&price=0.1&recvWindow=5000"
+                        + "&timestamp=1499827319559");
+
+        assertThat(signature).isEqualTo("c8db56825ae71d6d79447849e617115f4a920fa2acdcab2b053c4b2838bd6b71");
+    }
+
+    @Test
+    void bitfinex() {
+        String signature = new BitfinexEncryptionService(new BitfinexConfig(factory))
+                .generateSignature("eyJyZXF1ZXN0IjoiL3YxL2JhbGFuY2VzIn0=", "bitfinex-secret");
+
+        assertThat(signature).isEqualTo("ef2a4bb6bf6fc07c844c177fda0b55503dc65e4d6d2880999c1a54afddd87c9d"
+                + "2ae3b233d38b81181f8fdb7fcf68c60c");
+    }
+
+    @Test
+    void gdax() {
+        GdaxConfig cfg = new GdaxConfig(factory);
+        cfg.setSecretKey("Z2RheC1zZWNyZXQta2V5LTAxMjM0NTY3ODlhYmNkZWY=");
+
+        String signature = new GdaxEncryptionService(cfg).generate("/orders", "post", "{\"size\":\"1.0\"}",
+                "1530000000");
+
+        assertThat(signature).isEqualTo("C8+m6ed3FMXZ/Tk8zNkgDKUASxu+mMmsnv/8v3jORLc=");
+    }
+
+    @Test
+    void huobi() {
+        HuobiConfig cfg = new HuobiConfig(factory);
+        cfg.setSecretKey("b0xxxxxx-c6xxxxxx-94xxxxxx-dxxxx");
+
+        String signature = new HuobiEncryptionService(cfg).generate(HttpMethod.GET, "/v1/order/orders",
+                "AccessKeyId=e2xxxxxx-99xxxxxx-84xxxxxx-7xxxx&SignatureMethod=HmacSHA256&SignatureVersion=2"
+                        + "&Timestamp=2017-05-11T15%3A19%3A30");
+
+        assertThat(signature).isEqualTo("BXE5RAKxKdrRN66+/1LwHw3D4mFo3DP0lKU7YoNQy6E=");
+    }
+
+    @Test
+    void theRockTrading() {
+        TheRockTradingConfig cfg = new TheRockTradingConfig(factory);
+        cfg.setSecretKey("rock-secret");
+
+        String signature = new TheRockTradingEncryptionService(cfg)
+                .generate("https://api.therocktrading.com/v1/balances", "1530000000000");
+
+        assertThat(signature).isEqualTo("77beae7bd26aa6f46bbde1317f13108f4534535f0c954bd166de479a3f763673"
+                + "ff36f42901adf3daeca1a83fcb8d0662e1c8ba629a7c887fbe22133d7a687615");
+    }
+
+    @Test
+    void wex() {
+        WexConfig cfg = new WexConfig(factory);
+        cfg.setPublicKey("wex-public");
+        cfg.setSecretKey("wex-secret");
+
+        String signature = new WexEncryptionService(cfg)
+                .sign(new WexGetOpenRequest(1, "ActiveOrders"))
+                .getFirst("Sign");
+
+        assertThat(signature).isEqualTo("30a24c400d7359c1fe7002b6c61ad4d567c3a6d26b9c8c5fabeef1e12c8f8576"
+                + "f8778d9e08b7640ed41dcb47004b43ba8f568f1d04b638f04d442a1d4b1d6d70");
+    }
+}
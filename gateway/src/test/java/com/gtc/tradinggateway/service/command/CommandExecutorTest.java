@@ -0,0 +1,163 @@
+package com.gtc.tradinggateway.service.command;
+
+import com.gtc.model.gateway.BaseMessage;
+import com.gtc.tradinggateway.config.CommandConf;
+import lombok.Data;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Exchanges must not affect each other and waiting commands must be taken by priority.
+ */
+class CommandExecutorTest {
+
+    private static final String EXCHANGE_A = "a";
+    private static final String EXCHANGE_B = "b";
+    private static final long WAIT_S = 10;
+
+    private CommandExecutor executor;
+
+    @AfterEach
+    void shutdown() {
+        if (null != executor) {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void blockedExchangeDoesNotDelayOthers() {
+        executor = executor(1, 5);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        assertThat(executor.submit(EXCHANGE_A, BaseMessage.LOW_PRIO, () -> {
+            started.countDown();
+            await(release);
+        })).isTrue();
+        await(started);
+
+        AtomicInteger doneA = new AtomicInteger();
+        for (int i = 0; i < 5; ++i) {
+            assertThat(executor.submit(EXCHANGE_A, BaseMessage.LOW_PRIO, doneA::incrementAndGet)).isTrue();
+        }
+        assertThat(executor.submit(EXCHANGE_A, BaseMessage.HIGH_PRIO, doneA::incrementAndGet)).isFalse();
+
+        CountDownLatch doneB = new CountDownLatch(5);
+        for (int i = 0; i < 5; ++i) {
+            assertThat(executor.submit(EXCHANGE_B, BaseMessage.LOW_PRIO, doneB::countDown)).isTrue();
+        }
+        await(doneB);
+
+        assertThat(doneA.get()).isZero();
+        assertThat(executor.statistics().get(EXCHANGE_A)).isEqualTo(new CommandExecutor.LaneStatistics(5, 1, 0, 1));
+        assertThat(executor.statistics().get(EXCHANGE_B).getRejected()).isZero();
+
+        release.countDown();
+        CountDownLatch drained = new CountDownLatch(1);
+        while (!executor.submit(EXCHANGE_A, BaseMessage.LOW_PRIO, drained::countDown)) {
+            Thread.yield();
+        }
+        await(drained);
+        assertThat(doneA.get()).isEqualTo(5);
+    }
+
+    @Test
+    void failingCommandDoesNotStopExchange() {
+        executor = executor(1, 5);
+        CountDownLatch done = new CountDownLatch(1);
+
+        executor.submit(EXCHANGE_A, BaseMessage.LOW_PRIO, () -> {
+            throw new IllegalStateException("Failed");
+        });
+        executor.submit(EXCHANGE_A, BaseMessage.LOW_PRIO, done::countDown);
+
+        await(done);
+        assertThat(executor.statistics().get(EXCHANGE_A).getExecuted()).isGreaterThanOrEqualTo(1L);
+    }
+
+    @Test
+    void takesByPriorityThenBySubmissionUnderLoad() {
+        int submitters = 8;
+        int perSubmitter = 500;
+        executor = executor(1, submitters * perSubmitter);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        executor.submit(EXCHANGE_A, BaseMessage.LOW_PRIO, () -> {
+            started.countDown();
+            await(release);
+        });
+        await(started);
+
+        ConcurrentLinkedQueue<Executed> executed = new ConcurrentLinkedQueue<>();
+        CountDownLatch allDone = new CountDownLatch(submitters * perSubmitter);
+        ExecutorService pool = Executors.newFixedThreadPool(submitters);
+        CountDownLatch submitted = new CountDownLatch(submitters);
+        for (int submitter = 0; submitter < submitters; ++submitter) {
+            int id = submitter;
+            pool.execute(() -> {
+                Random random = new Random(id);
+                for (int i = 0; i < perSubmitter; ++i) {
+                    Executed task = new Executed(BaseMessage.HIGH_PRIO + random.nextInt(11), id, i);
+                    assertThat(executor.submit(EXCHANGE_A, task.getPriority(), () -> {
+                        executed.add(task);
+                        allDone.countDown();
+                    })).isTrue();
+                }
+                submitted.countDown();
+            });
+        }
+
+        await(submitted);
+        pool.shutdown();
+        release.countDown();
+        await(allDone);
+
+        List<Executed> order = new ArrayList<>(executed);
+        assertThat(order).hasSize(submitters * perSubmitter);
+        Map<String, Integer> lastSeqOfSubmitterAndPriority = new HashMap<>();
+        for (int i = 1; i < order.size(); ++i) {
+            assertThat(order.get(i).getPriority()).isGreaterThanOrEqualTo(order.get(i - 1).getPriority());
+        }
+        for (Executed task : order) {
+            String key = task.getSubmitter() + "/" + task.getPriority();
+            Integer last = lastSeqOfSubmitterAndPriority.put(key, task.getSeq());
+            if (null != last) {
+                assertThat(task.getSeq()).isGreaterThan(last);
+            }
+        }
+    }
+
+    private static CommandExecutor executor(int threads, int capacity) {
+        CommandConf conf = new CommandConf();
+        conf.setThreadsPerClient(threads);
+        conf.setQueueCapacity(capacity);
+        return new CommandExecutor(conf);
+    }
+
+    @SneakyThrows
+    private static void await(CountDownLatch latch) {
+        assertThat(latch.await(WAIT_S, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Data
+    private static class Executed {
+
+        private final int priority;
+        private final int submitter;
+        private final int seq;
+    }
+}
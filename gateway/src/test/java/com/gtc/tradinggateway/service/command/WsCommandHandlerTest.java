@@ -0,0 +1,159 @@
+package com.gtc.tradinggateway.service.command;
+
+import com.google.common.collect.ImmutableSet;
+import com.gtc.model.gateway.BaseMessage;
+import com.gtc.model.gateway.RetryStrategy;
+import com.gtc.model.gateway.command.create.CreateOrderCommand;
+import com.gtc.model.gateway.command.create.MultiOrderCreateCommand;
+import com.gtc.model.gateway.response.ErrorResponse;
+import com.gtc.model.gateway.response.create.CreateOrderResponse;
+import com.gtc.tradinggateway.BaseMockitoTest;
+import com.gtc.tradinggateway.config.ClientsConf;
+import com.gtc.tradinggateway.config.CommandConf;
+import com.gtc.tradinggateway.service.CreateOrder;
+import com.gtc.tradinggateway.service.SubsRegistry;
+import com.gtc.tradinggateway.service.dto.OrderCreatedDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Commands run on pool of their exchange, with shared retry and error responses when it is overloaded.
+ */
+class WsCommandHandlerTest extends BaseMockitoTest {
+
+    private static final String EXCHANGE_A = "a";
+    private static final String EXCHANGE_B = "b";
+    private static final long WAIT_MS = 10_000L;
+
+    @Mock
+    private SubsRegistry registry;
+
+    @Mock
+    private WebSocketSession session;
+
+    private CreateOrder createA;
+    private CreateOrder createB;
+    private CommandExecutor executor;
+    private WsCommandHandler handler;
+
+    @BeforeEach
+    void init() {
+        createA = createOrder(EXCHANGE_A);
+        createB = createOrder(EXCHANGE_B);
+
+        ClientsConf clients = new ClientsConf();
+        clients.setActive(Arrays.asList(EXCHANGE_A, EXCHANGE_B));
+        CommandConf commandConf = new CommandConf();
+        commandConf.setThreadsPerClient(1);
+        commandConf.setQueueCapacity(1);
+        executor = new CommandExecutor(commandConf);
+        handler = new WsCommandHandler(clients, registry, executor, Collections.emptyList(),
+                Arrays.asList(createA, createB), Collections.emptyList(), Collections.emptyList());
+    }
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void retriesOnExchangePool() {
+        when(createA.create(any(), any(), any(), any(), any()))
+                .thenThrow(new IllegalStateException("Failed"))
+                .thenReturn(Optional.of(OrderCreatedDto.builder().assignedId("1").build()));
+        CreateOrderCommand command = command(EXCHANGE_A);
+        command.setRetryStrategy(new RetryStrategy(1, 1, 3));
+
+        handler.create(session, command);
+
+        ArgumentCaptor<BaseMessage> sent = ArgumentCaptor.forClass(BaseMessage.class);
+        verify(registry, timeout(WAIT_MS)).doSend(any(), sent.capture());
+        assertThat(sent.getValue()).isInstanceOf(CreateOrderResponse.class);
+    }
+
+    @Test
+    void fullQueueRespondsWithTransientError() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        when(createA.create(any(), any(), any(), any(), any())).then(inv -> {
+            started.countDown();
+            release.await(WAIT_MS, TimeUnit.MILLISECONDS);
+            return Optional.empty();
+        });
+
+        handler.create(session, command(EXCHANGE_A));
+        assertThat(started.await(WAIT_MS, TimeUnit.MILLISECONDS)).isTrue();
+        handler.create(session, command(EXCHANGE_A));
+        handler.create(session, command(EXCHANGE_A));
+
+        ArgumentCaptor<BaseMessage> sent = ArgumentCaptor.forClass(BaseMessage.class);
+        verify(registry).doSend(any(), sent.capture());
+        assertThat(sent.getValue()).isInstanceOf(ErrorResponse.class);
+        assertThat(((ErrorResponse) sent.getValue()).isTransient()).isTrue();
+        release.countDown();
+    }
+
+    @Test
+    void multiOrderSplitsByExchangeWithItsPriority() {
+        CreateOrderCommand orderA = command(EXCHANGE_A);
+        CreateOrderCommand orderB = command(EXCHANGE_B);
+        MultiOrderCreateCommand multi = new MultiOrderCreateCommand(null, null, ImmutableSet.of(orderA, orderB));
+        multi.setPriority(BaseMessage.HIGH_PRIO);
+
+        handler.create(session, multi);
+
+        verify(createA, timeout(WAIT_MS)).create(any(), any(), any(), any(), any());
+        verify(createB, timeout(WAIT_MS)).create(any(), any(), any(), any(), any());
+        assertThat(orderA.getPriority()).isEqualTo(BaseMessage.HIGH_PRIO);
+        assertThat(orderB.getPriority()).isEqualTo(BaseMessage.HIGH_PRIO);
+        assertThat(orderA.getType()).isEqualTo(CreateOrderCommand.TYPE);
+    }
+
+    @Test
+    void multiOrderWithUnknownExchangeRespondsWithError() {
+        MultiOrderCreateCommand multi = new MultiOrderCreateCommand(null, null,
+                ImmutableSet.of(command(EXCHANGE_A), command("unknown")));
+
+        handler.create(session, multi);
+
+        verify(registry).doSend(any(), any(ErrorResponse.class));
+        verify(createA, never()).create(any(), any(), any(), any(), any());
+    }
+
+    private static CreateOrder createOrder(String name) {
+        CreateOrder create = mock(CreateOrder.class);
+        when(create.name()).thenReturn(name);
+        when(create.create(any(), any(), any(), any(), any())).thenReturn(Optional.empty());
+        return create;
+    }
+
+    private static CreateOrderCommand command(String exchange) {
+        return CreateOrderCommand.builder()
+                .clientName(exchange)
+                .currencyFrom("BTC")
+                .currencyTo("ETH")
+                .amount(BigDecimal.ONE)
+                .price(BigDecimal.ONE)
+                .orderId("order")
+                .build();
+    }
+}
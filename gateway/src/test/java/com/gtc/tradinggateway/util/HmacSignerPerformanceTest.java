@@ -0,0 +1,63 @@
+package com.gtc.tradinggateway.util;
+
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.binary.Hex;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Microbenchmark of cached signer against Mac lookup and init per signature, that encryption services did before.
+ * Test will only start if it sees property PERF_TEST == true.
+ */
+@Slf4j
+class HmacSignerPerformanceTest {
+
+    private static final int SIGNATURES = 500_000;
+    private static final int ROUNDS = 5;
+    private static final String SECRET = "NhqPtmdSJYdKjVHjA7PZj4Mge3R5YNiP1e3UZjInClVN65XAbvqqM6A7H5fATj0j";
+    private static final String MESSAGE = "symbol=LTCBTC&side=BUY&type=LIMIT&timeInForce=GTC&quantity=1&price=0.1"
+            + "&recvWindow=5000&timestamp=1499827319559";
+
+    @Test
+    @EnabledIfEnvironmentVariable(named = "PERF_TEST", matches = "true")
+    void compareWithMacPerCall() {
+        for (String algorithm : new String[] {HmacSigner.SHA256, HmacSigner.SHA384, HmacSigner.SHA512}) {
+            for (int round = 0; round < ROUNDS; ++round) {
+                long perCallNs = timeMacPerCall(algorithm);
+                long cachedNs = timeCached(algorithm);
+                log.info("{} round {}: Mac per call {} ns/signature, cached signer {} ns/signature", algorithm,
+                        round, perCallNs / SIGNATURES, cachedNs / SIGNATURES);
+            }
+        }
+    }
+
+    @SneakyThrows
+    private static long timeMacPerCall(String algorithm) {
+        long sink = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < SIGNATURES; ++i) {
+            Mac mac = Mac.getInstance(algorithm);
+            mac.init(new SecretKeySpec(SECRET.getBytes(), algorithm));
+            sink += new String(Hex.encodeHex(mac.doFinal(MESSAGE.getBytes()))).charAt(0);
+        }
+        long duration = System.nanoTime() - start;
+        log.debug("Sink {}", sink);
+        return duration;
+    }
+
+    private static long timeCached(String algorithm) {
+        long sink = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < SIGNATURES; ++i) {
+            sink += HmacSigner.of(algorithm, SECRET.getBytes()).hex(MESSAGE.getBytes()).charAt(0);
+        }
+        long duration = System.nanoTime() - start;
+        log.debug("Sink {}", sink);
+        return duration;
+    }
+}
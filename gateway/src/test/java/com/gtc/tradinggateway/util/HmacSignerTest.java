@@ -0,0 +1,89 @@
+package com.gtc.tradinggateway.util;
+
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * RFC 4231 test case 2 vectors.
+ */
+class HmacSignerTest {
+
+    private static final byte[] KEY = "Jefe".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] DATA = "what do ya want for nothing?".getBytes(StandardCharsets.UTF_8);
+
+    private static final String SHA256 = "5bdcc146bf60754e6a042426089575c75a003f089d2739839dec58b964ec3843";
+    private static final String SHA384 = "af45d2e376484031617f78d2b58a6b1b9c7ef464f5a01b47e42ec3736322445e"
+            + "8e2240ca5e69e2c78b3239ecfab21649";
+    private static final String SHA512 = "164b7a7bfcf819e2e395fbe73b56e0a387bd64222e831fd610270cd7ea250554"
+            + "9758bf75c05a994a6d034f65f8f0e6fdcaeab1a34d4a6b4b636e070a38bce737";
+
+    @Test
+    void signsKnownVectors() {
+        assertThat(HmacSigner.of(HmacSigner.SHA256, KEY).hex(DATA)).isEqualTo(SHA256);
+        assertThat(HmacSigner.of(HmacSigner.SHA384, KEY).hex(DATA)).isEqualTo(SHA384);
+        assertThat(HmacSigner.of(HmacSigner.SHA512, KEY).hex(DATA)).isEqualTo(SHA512);
+        assertThat(HmacSigner.of(HmacSigner.SHA256, KEY).base64(DATA))
+                .isEqualTo("W9zBRr9gdU5qBCQmCJV1x1oAPwidJzmDnexYuWTsOEM=");
+    }
+
+    @Test
+    void sharesSignerByKeyContent() {
+        assertThat(HmacSigner.of(HmacSigner.SHA256, KEY.clone())).isSameAs(HmacSigner.of(HmacSigner.SHA256, KEY));
+        assertThat(HmacSigner.of(HmacSigner.SHA256, KEY)).isNotSameAs(HmacSigner.of(HmacSigner.SHA512, KEY));
+    }
+
+    @Test
+    void notAffectedByCallerChangingKey() {
+        byte[] key = KEY.clone();
+        HmacSigner signer = HmacSigner.of(HmacSigner.SHA384, key);
+        key[0] = 0;
+
+        assertThat(signer.hex(DATA)).isEqualTo(SHA384);
+    }
+
+    @Test
+    void recoversAfterFailedSigning() {
+        HmacSigner signer = HmacSigner.of(HmacSigner.SHA256, KEY);
+
+        assertThatThrownBy(() -> signer.sign(DATA, 1, DATA.length)).isInstanceOf(IllegalArgumentException.class);
+
+        assertThat(signer.hex(DATA)).isEqualTo(SHA256);
+    }
+
+    @Test
+    @SneakyThrows
+    void signsConcurrently() {
+        HmacSigner signer = HmacSigner.of(HmacSigner.SHA512, KEY);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<Boolean>> tasks = new ArrayList<>();
+            for (int i = 0; i < 8; ++i) {
+                tasks.add(() -> {
+                    for (int j = 0; j < 5000; ++j) {
+                        if (!SHA512.equals(signer.hex(DATA))) {
+                            return false;
+                        }
+                    }
+                    return true;
+                });
+            }
+
+            for (Future<Boolean> result : pool.invokeAll(tasks)) {
+                assertThat(result.get()).isTrue();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
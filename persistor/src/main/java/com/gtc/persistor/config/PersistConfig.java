@@ -16,4 +16,10 @@ public class PersistConfig {
 
     private String localDir;
     private String storageDir;
+    private HistoryFormat format = HistoryFormat.TSV;
+
+    public enum HistoryFormat {
+        TSV,
+        BINARY
+    }
 }
@@ -1,9 +1,12 @@
 package com.gtc.persistor.config;
 
+import com.gtc.ws.ReconnectPolicy;
+import com.gtc.ws.SharedWsHttpClient;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import javax.annotation.PostConstruct;
 import java.util.List;
 
 import static com.gtc.persistor.config.Const.Ws.CHILD;
@@ -20,4 +23,11 @@ public class WsConfig {
     private String provider;
     private List<String> marketsToSubscribe;
     private int disconnectIfInactiveS;
+    private SharedWsHttpClient.Cfg client = new SharedWsHttpClient.Cfg();
+    private ReconnectPolicy reconnect = new ReconnectPolicy();
+
+    @PostConstruct
+    public void configureClient() {
+        SharedWsHttpClient.configure(client);
+    }
 }
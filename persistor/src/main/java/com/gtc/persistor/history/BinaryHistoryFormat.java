@@ -0,0 +1,95 @@
+package com.gtc.persistor.history;
+
+import com.gtc.meta.CurrencyPair;
+import com.gtc.meta.TradingCurrency;
+import lombok.Data;
+import lombok.experimental.UtilityClass;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Binary order book history, one file per client, pair and hour. All values are big-endian.
+ * <pre>
+ * header: int MAGIC, short VERSION, UTF client, UTF pair from, UTF pair to, short buy levels, short sell levels
+ * block:  int BLOCK, int record count n, long first timestamp, long max timestamp, then columns of n
+ *         fixed-width values each: int timestamp delta to previous record (0 for the first one),
+ *         double best buy, double best sell, double buy step, double sell step,
+ *         double buy amount at 0..buy levels - 1, double sell amount at 0..sell levels - 1
+ * index:  int INDEX, int block count, block count * (long first timestamp, long max timestamp,
+ *         long block offset, int n), long index offset, int INDEX
+ * </pre>
+ * Each persisting round appends one block (records are sorted within it, but blocks can overlap in time),
+ * index is appended once hour is finished.
+ */
+@UtilityClass
+public class BinaryHistoryFormat {
+
+    public static final String EXTENSION = ".bin";
+
+    static final int MAGIC = 0x47544348; // GTCH
+    static final short VERSION = 1;
+    static final int BLOCK = 0x424c4b30; // BLK0
+    static final int INDEX = 0x49445830; // IDX0
+
+    static final int BLOCK_HEADER_SIZE = 4 + 4 + 8 + 8;
+    static final int INDEX_ENTRY_SIZE = 8 + 8 + 8 + 4;
+    static final int INDEX_TRAILER_SIZE = 8 + 4;
+    // best buy, best sell, buy step, sell step
+    static final int FIXED_DOUBLE_COLUMNS = 4;
+
+    static int recordSize(Header header) {
+        return 4 + 8 * doubleColumns(header);
+    }
+
+    static int doubleColumns(Header header) {
+        return FIXED_DOUBLE_COLUMNS + header.getBuyLevels() + header.getSellLevels();
+    }
+
+    static void writeHeader(DataOutput out, Header header) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeUTF(header.getClient());
+        out.writeUTF(header.getPair().getFrom().getCode());
+        out.writeUTF(header.getPair().getTo().getCode());
+        out.writeShort(header.getBuyLevels());
+        out.writeShort(header.getSellLevels());
+    }
+
+    static Header readHeader(DataInput in) throws IOException {
+        if (MAGIC != in.readInt()) {
+            throw new IllegalStateException("Not a binary history file");
+        }
+
+        short version = in.readShort();
+        if (VERSION != version) {
+            throw new IllegalStateException("Unsupported version " + version);
+        }
+
+        String client = in.readUTF();
+        CurrencyPair pair = new CurrencyPair(
+                TradingCurrency.fromCode(in.readUTF()),
+                TradingCurrency.fromCode(in.readUTF())
+        );
+        return new Header(client, pair, in.readShort(), in.readShort());
+    }
+
+    @Data
+    public static class Header {
+
+        private final String client;
+        private final CurrencyPair pair;
+        private final int buyLevels;
+        private final int sellLevels;
+    }
+
+    @Data
+    static class IndexEntry {
+
+        private final long firstTimestamp;
+        private final long maxTimestamp;
+        private final long offset;
+        private final int records;
+    }
+}
@@ -0,0 +1,212 @@
+package com.gtc.persistor.history;
+
+import com.google.common.io.ByteStreams;
+import com.gtc.model.provider.OrderBook;
+import com.gtc.persistor.history.BinaryHistoryFormat.Header;
+import lombok.Getter;
+import lombok.SneakyThrows;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.zip.GZIPInputStream;
+
+import static com.gtc.persistor.history.BinaryHistoryFormat.INDEX;
+import static com.gtc.persistor.history.BinaryHistoryFormat.INDEX_ENTRY_SIZE;
+import static com.gtc.persistor.history.BinaryHistoryFormat.INDEX_TRAILER_SIZE;
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * Streams order books from binary history file (plain or gzipped), decoding one block at a time.
+ * Books older than {@code fromTimestamp} are skipped - blocks that end before it are not decoded at all,
+ * for plain files with index reader jumps directly to the first relevant block.
+ */
+public class BinaryHistoryReader implements Iterator<OrderBook>, AutoCloseable {
+
+    private static final int BUFFER = 1 << 16;
+
+    private final Path path;
+    private final long fromTimestamp;
+
+    @Getter
+    private final Header header;
+    private final int recordSize;
+    private final int doubleColumns;
+
+    private DataInputStream in;
+    private byte[] buffer = new byte[0];
+    private ByteBuffer block;
+    private int blockRecords;
+    private int blockPos;
+    private long timestamp;
+    private boolean finished;
+    private OrderBook next;
+
+    public BinaryHistoryReader(Path path) {
+        this(path, Long.MIN_VALUE);
+    }
+
+    @SneakyThrows
+    public BinaryHistoryReader(Path path, long fromTimestamp) {
+        this.path = path;
+        this.fromTimestamp = fromTimestamp;
+
+        if (path.toString().endsWith(".gz")) {
+            in = new DataInputStream(new BufferedInputStream(
+                    new GZIPInputStream(new FileInputStream(path.toFile()), BUFFER), BUFFER));
+            header = BinaryHistoryFormat.readHeader(in);
+        } else {
+            FileChannel channel = FileChannel.open(path, READ);
+            in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), BUFFER));
+            header = BinaryHistoryFormat.readHeader(in);
+            seekUsingIndex(channel);
+        }
+
+        recordSize = BinaryHistoryFormat.recordSize(header);
+        doubleColumns = BinaryHistoryFormat.doubleColumns(header);
+    }
+
+    @Override
+    @SneakyThrows
+    public boolean hasNext() {
+        while (null == next && !finished) {
+            if (blockPos == blockRecords && !readBlock()) {
+                finished = true;
+                break;
+            }
+
+            OrderBook book = decode(blockPos++);
+            if (book.getMeta().getTimestamp() >= fromTimestamp) {
+                next = book;
+            }
+        }
+
+        return null != next;
+    }
+
+    @Override
+    public OrderBook next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        OrderBook result = next;
+        next = null;
+        return result;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private boolean readBlock() throws IOException {
+        while (true) {
+            int tag;
+            try {
+                tag = in.readInt();
+            } catch (EOFException ex) {
+                return false;
+            }
+
+            if (INDEX == tag) {
+                return false;
+            }
+
+            BinaryHistoryWriter.checkBlock(path, tag);
+            int records = in.readInt();
+            long first = in.readLong();
+            long max = in.readLong();
+            int size = records * recordSize;
+            if (max < fromTimestamp) {
+                ByteStreams.skipFully(in, size);
+                continue;
+            }
+
+            if (buffer.length < size) {
+                buffer = new byte[size];
+                block = ByteBuffer.wrap(buffer);
+            }
+
+            in.readFully(buffer, 0, size);
+            blockRecords = records;
+            blockPos = 0;
+            timestamp = first;
+            return true;
+        }
+    }
+
+    private OrderBook decode(int pos) {
+        timestamp += block.getInt(4 * pos);
+
+        int base = 4 * blockRecords + 8 * pos;
+        double bestBuy = column(base, 0);
+        double bestSell = column(base, 1);
+        double buyStep = column(base, 2);
+        double sellStep = column(base, 3);
+
+        double[] buyAmounts = new double[header.getBuyLevels()];
+        for (int level = 0; level < buyAmounts.length; ++level) {
+            buyAmounts[level] = column(base, BinaryHistoryFormat.FIXED_DOUBLE_COLUMNS + level);
+        }
+
+        double[] sellAmounts = new double[header.getSellLevels()];
+        for (int level = 0; level < sellAmounts.length; ++level) {
+            sellAmounts[level] = column(base, BinaryHistoryFormat.FIXED_DOUBLE_COLUMNS + buyAmounts.length + level);
+        }
+
+        return HistoryRecords.toBook(header.getClient(), header.getPair(), timestamp, bestBuy, bestSell,
+                buyStep, sellStep, buyAmounts, sellAmounts);
+    }
+
+    private double column(int base, int column) {
+        return block.getDouble(base + 8 * blockRecords * column);
+    }
+
+    private void seekUsingIndex(FileChannel channel) throws IOException {
+        if (Long.MIN_VALUE == fromTimestamp || channel.size() < INDEX_TRAILER_SIZE) {
+            return;
+        }
+
+        ByteBuffer trailer = ByteBuffer.allocate(INDEX_TRAILER_SIZE);
+        readFully(channel, trailer, channel.size() - INDEX_TRAILER_SIZE);
+        long indexOffset = trailer.getLong(0);
+        if (INDEX != trailer.getInt(8)) {
+            return;
+        }
+
+        ByteBuffer countBuffer = ByteBuffer.allocate(8);
+        readFully(channel, countBuffer, indexOffset);
+        int blocks = countBuffer.getInt(4);
+        ByteBuffer index = ByteBuffer.allocate(blocks * INDEX_ENTRY_SIZE);
+        readFully(channel, index, indexOffset + 8);
+
+        long offset = indexOffset;
+        for (int i = 0; i < blocks; ++i) {
+            int entry = i * INDEX_ENTRY_SIZE;
+            if (index.getLong(entry + 8) >= fromTimestamp) {
+                offset = index.getLong(entry + 16);
+                break;
+            }
+        }
+
+        channel.position(offset);
+        in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), BUFFER));
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+}
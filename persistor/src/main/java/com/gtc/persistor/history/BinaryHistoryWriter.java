@@ -0,0 +1,250 @@
+package com.gtc.persistor.history;
+
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingInputStream;
+import com.gtc.model.provider.AggregatedOrder;
+import com.gtc.model.provider.OrderBook;
+import com.gtc.persistor.history.BinaryHistoryFormat.Header;
+import com.gtc.persistor.history.BinaryHistoryFormat.IndexEntry;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.gtc.persistor.history.BinaryHistoryFormat.BLOCK;
+import static com.gtc.persistor.history.BinaryHistoryFormat.BLOCK_HEADER_SIZE;
+import static com.gtc.persistor.history.BinaryHistoryFormat.INDEX;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Appends books as columnar blocks, see {@link BinaryHistoryFormat}.
+ */
+@Slf4j
+public class BinaryHistoryWriter implements HistoryWriter {
+
+    @Override
+    public String extension() {
+        return BinaryHistoryFormat.EXTENSION;
+    }
+
+    /**
+     * Incomplete trailing block (i.e. previous append was interrupted by crash) is cut off before appending.
+     */
+    @Override
+    @SneakyThrows
+    public void append(Path dest, List<OrderBook> books) throws InterruptedException {
+        OrderBook first = books.get(0);
+        Header header = new Header(
+                first.getMeta().getClient(),
+                first.getMeta().getPair(),
+                first.getHistogramBuy().length,
+                first.getHistogramSell().length
+        );
+
+        boolean exists = dest.toFile().exists();
+        try (FileChannel channel = FileChannel.open(dest, CREATE, READ, WRITE)) {
+            if (exists) {
+                Blocks blocks = completeBlocks(dest, channel);
+                if (null == blocks) {
+                    throw new IllegalStateException("History file " + dest + " is already finished");
+                }
+
+                header = blocks.getHeader();
+            }
+
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+            if (!exists) {
+                BinaryHistoryFormat.writeHeader(out, header);
+            }
+
+            try {
+                writeBlocks(dest, header, books, out);
+            } finally {
+                out.flush();
+            }
+        }
+    }
+
+    /**
+     * Appends block index, does nothing if file already has it. Incomplete trailing block (i.e. append was
+     * interrupted by crash) is cut off, so that file can be finished with the blocks written before it.
+     */
+    @Override
+    @SneakyThrows
+    public void finish(Path file) {
+        try (FileChannel channel = FileChannel.open(file, READ, WRITE)) {
+            Blocks blocks = completeBlocks(file, channel);
+            if (null != blocks) {
+                writeIndex(channel, blocks.getEntries());
+            }
+        }
+    }
+
+    /**
+     * Reads block headers, truncating file after last complete block and positioning channel there.
+     * Returns null if file already has index.
+     */
+    private static Blocks completeBlocks(Path file, FileChannel channel) throws IOException {
+        List<IndexEntry> entries = new ArrayList<>();
+        CountingInputStream counting = new CountingInputStream(
+                new BufferedInputStream(Channels.newInputStream(channel), 1 << 16));
+        DataInputStream in = new DataInputStream(counting);
+        Header header = BinaryHistoryFormat.readHeader(in);
+        int recordSize = BinaryHistoryFormat.recordSize(header);
+        long size = channel.size();
+
+        long offset = counting.getCount();
+        while (offset + Integer.BYTES <= size) {
+            int tag = in.readInt();
+            if (INDEX == tag) {
+                return null;
+            }
+
+            checkBlock(file, tag);
+            if (offset + BLOCK_HEADER_SIZE > size) {
+                break;
+            }
+
+            int records = in.readInt();
+            long end = offset + BLOCK_HEADER_SIZE + (long) records * recordSize;
+            if (end > size) {
+                break;
+            }
+
+            entries.add(new IndexEntry(in.readLong(), in.readLong(), offset, records));
+            ByteStreams.skipFully(in, (long) records * recordSize);
+            offset = end;
+        }
+
+        if (offset < size) {
+            log.warn("History file {} ends with incomplete block at {} of {} bytes, cutting it off",
+                    file, offset, size);
+            channel.truncate(offset);
+        }
+
+        channel.position(offset);
+        return new Blocks(header, entries);
+    }
+
+    static void checkBlock(Path file, int tag) {
+        if (BLOCK != tag) {
+            throw new IllegalStateException("Corrupted history file " + file);
+        }
+    }
+
+    private static void writeIndex(FileChannel channel, List<IndexEntry> entries) throws IOException {
+        long indexOffset = channel.position();
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+        out.writeInt(INDEX);
+        out.writeInt(entries.size());
+        for (IndexEntry entry : entries) {
+            out.writeLong(entry.getFirstTimestamp());
+            out.writeLong(entry.getMaxTimestamp());
+            out.writeLong(entry.getOffset());
+            out.writeInt(entry.getRecords());
+        }
+
+        out.writeLong(indexOffset);
+        out.writeInt(INDEX);
+        out.flush();
+    }
+
+    private static void writeBlocks(Path dest, Header header, List<OrderBook> books, DataOutputStream out)
+            throws IOException, InterruptedException {
+        int from = 0;
+        while (from < books.size()) {
+            // timestamp deltas are int
+            int to = from + 1;
+            while (to < books.size() && fitsInt(timestamp(books, to) - timestamp(books, to - 1))) {
+                to++;
+            }
+
+            writeBlock(header, books.subList(from, to), out);
+            from = to;
+
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedException("Interrupted on " + dest);
+            }
+        }
+    }
+
+    private static void writeBlock(Header header, List<OrderBook> books, DataOutputStream out) throws IOException {
+        int records = books.size();
+        ByteBuffer block = ByteBuffer.allocate(
+                BLOCK_HEADER_SIZE + records * BinaryHistoryFormat.recordSize(header));
+        block.putInt(BLOCK);
+        block.putInt(records);
+        block.putLong(timestamp(books, 0));
+        block.putLong(books.stream().mapToLong(it -> it.getMeta().getTimestamp()).max().orElse(Long.MAX_VALUE));
+
+        long prev = timestamp(books, 0);
+        for (OrderBook book : books) {
+            block.putInt((int) (book.getMeta().getTimestamp() - prev));
+            prev = book.getMeta().getTimestamp();
+        }
+
+        for (OrderBook book : books) {
+            block.putDouble(book.getBestBuy());
+        }
+
+        for (OrderBook book : books) {
+            block.putDouble(book.getBestSell());
+        }
+
+        for (OrderBook book : books) {
+            block.putDouble(HistoryRecords.buyStep(book));
+        }
+
+        for (OrderBook book : books) {
+            block.putDouble(HistoryRecords.sellStep(book));
+        }
+
+        putAmounts(block, books, header.getBuyLevels(), false);
+        putAmounts(block, books, header.getSellLevels(), true);
+        out.write(block.array(), 0, block.position());
+    }
+
+    private static void putAmounts(ByteBuffer block, List<OrderBook> books, int levels, boolean isSell) {
+        for (int level = 0; level < levels; ++level) {
+            for (OrderBook book : books) {
+                AggregatedOrder[] histogram = isSell ? book.getHistogramSell() : book.getHistogramBuy();
+                if (histogram.length != levels) {
+                    throw new IllegalStateException("Histogram size changed for " + book.getMeta());
+                }
+
+                block.putDouble(histogram[level].getAmount());
+            }
+        }
+    }
+
+    private static boolean fitsInt(long value) {
+        return value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE;
+    }
+
+    private static long timestamp(List<OrderBook> books, int pos) {
+        return books.get(pos).getMeta().getTimestamp();
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    private static class Blocks {
+
+        private final Header header;
+        private final List<IndexEntry> entries;
+    }
+}
@@ -0,0 +1,59 @@
+package com.gtc.persistor.history;
+
+import com.gtc.meta.CurrencyPair;
+import com.gtc.model.provider.AggregatedOrder;
+import com.gtc.model.provider.ByClientAndCurrency;
+import com.gtc.model.provider.OrderBook;
+import lombok.experimental.UtilityClass;
+
+/**
+ * What is persisted from order book - best prices, histogram steps and histogram amounts, and how book is
+ * restored from it (same as for TSV files).
+ */
+@UtilityClass
+public class HistoryRecords {
+
+    public static double buyStep(OrderBook book) {
+        return book.getHistogramBuy()[0].getMaxPrice() - book.getHistogramBuy()[0].getMinPrice();
+    }
+
+    public static double sellStep(OrderBook book) {
+        return book.getHistogramSell()[0].getMaxPrice() - book.getHistogramSell()[0].getMinPrice();
+    }
+
+    public static OrderBook toBook(String client, CurrencyPair pair, long timestamp, double bestBuy, double bestSell,
+                                   double buyStep, double sellStep, double[] buyAmounts, double[] sellAmounts) {
+        AggregatedOrder[] buy = new AggregatedOrder[buyAmounts.length];
+        AggregatedOrder[] sell = new AggregatedOrder[sellAmounts.length];
+
+        for (int i = 0; i < buy.length; ++i) {
+            buy[i] = new AggregatedOrder(
+                    bestBuy - buyStep * (buy.length - i),
+                    bestBuy - buyStep * (buy.length - 1 - i),
+                    buyAmounts[i],
+                    0,
+                    false,
+                    (short) -(buy.length - i),
+                    0, 0, 0);
+        }
+
+        for (int i = 0; i < sell.length; ++i) {
+            sell[i] = new AggregatedOrder(
+                    bestSell + sellStep * i,
+                    bestSell + sellStep * (i + 1),
+                    sellAmounts[i],
+                    0,
+                    true,
+                    (short) (i + 1),
+                    0, 0, 0);
+        }
+
+        return OrderBook.builder()
+                .meta(new ByClientAndCurrency(client, pair, timestamp))
+                .bestBuy(bestBuy)
+                .bestSell(bestSell)
+                .histogramBuy(buy)
+                .histogramSell(sell)
+                .build();
+    }
+}
@@ -0,0 +1,24 @@
+package com.gtc.persistor.history;
+
+import com.gtc.model.provider.OrderBook;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Writes order books of single client and pair into hourly history file.
+ */
+public interface HistoryWriter {
+
+    String extension();
+
+    /**
+     * @param books sorted by timestamp, not empty
+     */
+    void append(Path dest, List<OrderBook> books) throws InterruptedException;
+
+    /**
+     * Called once file won't get any more data, before it is gzipped.
+     */
+    void finish(Path file);
+}
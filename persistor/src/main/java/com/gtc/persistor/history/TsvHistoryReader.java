@@ -0,0 +1,140 @@
+package com.gtc.persistor.history;
+
+import com.gtc.meta.CurrencyPair;
+import com.gtc.model.provider.OrderBook;
+import lombok.SneakyThrows;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.zip.GZIPInputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Streams order books from TSV history file (plain or gzipped).
+ */
+public class TsvHistoryReader implements Iterator<OrderBook>, AutoCloseable {
+
+    private static final String TAB = "\t";
+
+    private final String client;
+    private final CurrencyPair pair;
+    private final BufferedReader reader;
+
+    private final int time;
+    private final int bestBuy;
+    private final int bestSell;
+    private final int buyStep;
+    private final int sellStep;
+    private final int[] buyAmounts;
+    private final int[] sellAmounts;
+
+    private String line;
+
+    @SneakyThrows
+    public TsvHistoryReader(Path path, String client, CurrencyPair pair) {
+        this.client = client;
+        this.pair = pair;
+        InputStream file = new FileInputStream(path.toFile());
+        if (path.toString().endsWith(".gz")) {
+            file = new GZIPInputStream(file, 1 << 16);
+        }
+        this.reader = new BufferedReader(new InputStreamReader(file, UTF_8), 1 << 16);
+
+        Map<String, Integer> header = new HashMap<>();
+        String[] names = reader.readLine().split(TAB);
+        for (int i = 0; i < names.length; ++i) {
+            header.put(names[i], i);
+        }
+
+        this.time = column(header, "Time");
+        this.bestBuy = column(header, "Best buy");
+        this.bestSell = column(header, "Best sell");
+        // BUGFIX - old version used mixed up steps
+        if (header.containsKey("Histogram price buy step")) {
+            this.buyStep = column(header, "Histogram price sell step");
+            this.sellStep = column(header, "Histogram price buy step");
+        } else {
+            this.buyStep = column(header, "Histogram price Buy step");
+            this.sellStep = column(header, "Histogram price Sell step");
+        }
+
+        this.buyAmounts = amountColumns(header, "Buy amount at ");
+        this.sellAmounts = amountColumns(header, "Sell amount at ");
+    }
+
+    @Override
+    @SneakyThrows
+    public boolean hasNext() {
+        if (null == line) {
+            line = reader.readLine();
+        }
+
+        return null != line && !line.isEmpty();
+    }
+
+    @Override
+    public OrderBook next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        String[] values = line.split(TAB);
+        line = null;
+        return HistoryRecords.toBook(
+                client,
+                pair,
+                Long.parseLong(values[time]),
+                Double.parseDouble(values[bestBuy]),
+                Double.parseDouble(values[bestSell]),
+                Double.parseDouble(values[buyStep]),
+                Double.parseDouble(values[sellStep]),
+                amounts(values, buyAmounts),
+                amounts(values, sellAmounts)
+        );
+    }
+
+    @Override
+    public void close() throws Exception {
+        reader.close();
+    }
+
+    private static double[] amounts(String[] values, int[] columns) {
+        double[] result = new double[columns.length];
+        for (int i = 0; i < columns.length; ++i) {
+            result[i] = Double.parseDouble(values[columns[i]]);
+        }
+
+        return result;
+    }
+
+    private static int[] amountColumns(Map<String, Integer> header, String prefix) {
+        int count = 0;
+        while (header.containsKey(prefix + count)) {
+            count++;
+        }
+
+        int[] columns = new int[count];
+        for (int i = 0; i < count; ++i) {
+            columns[i] = header.get(prefix + i);
+        }
+
+        return columns;
+    }
+
+    private static int column(Map<String, Integer> header, String name) {
+        Integer pos = header.get(name);
+        if (null == pos) {
+            throw new IllegalStateException("Unknown version, no column " + name);
+        }
+
+        return pos;
+    }
+}
@@ -0,0 +1,108 @@
+package com.gtc.persistor.history;
+
+import com.google.common.io.MoreFiles;
+import com.gtc.model.provider.AggregatedOrder;
+import com.gtc.model.provider.OrderBook;
+import lombok.SneakyThrows;
+
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+
+/**
+ * Tab-separated text history, first line is header.
+ */
+public class TsvHistoryWriter implements HistoryWriter {
+
+    public static final String EXTENSION = ".tsv";
+
+    @Override
+    public String extension() {
+        return EXTENSION;
+    }
+
+    @Override
+    @SneakyThrows
+    public void append(Path dest, List<OrderBook> books) throws InterruptedException {
+        boolean exists = dest.toFile().exists();
+
+        try (Writer file = MoreFiles.asCharSink(dest, UTF_8, CREATE, APPEND).openBufferedStream()) {
+            if (!exists) {
+                writeHeader(file, books.get(0).getHistogramBuy().length, books.get(0).getHistogramSell().length);
+            }
+
+            writeBooksInterruptably(dest, books, file);
+        }
+    }
+
+    @Override
+    public void finish(Path file) {
+        // NOP
+    }
+
+    private void writeBooksInterruptably(Path dest, List<OrderBook> books, Writer file)
+            throws InterruptedException {
+        for (OrderBook book : books) {
+            writeBook(file, book);
+
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedException("Interrupted on " + dest);
+            }
+        }
+    }
+
+    @SneakyThrows
+    private void writeHeader(Writer file, int histogramBuyPrecision, int histogramSellPrecision) {
+        file.write("Time\t");
+        file.write("Best buy\t");
+        file.write("Best sell\t");
+        file.write("Histogram price Buy step\t");
+        file.write("Histogram price Sell step\t");
+
+        writeAmounts(file, "Buy amount at ", histogramBuyPrecision);
+        writeAmounts(file, "Sell amount at ", histogramSellPrecision);
+        file.write(System.lineSeparator());
+    }
+
+    @SneakyThrows
+    private void writeAmounts(Writer file, String name, int precision) {
+        for (int i = 0; i < precision; ++i) {
+            file.write(name + i + "\t");
+        }
+    }
+
+    @SneakyThrows
+    private void writeBook(Writer file, OrderBook book) {
+        writeField(file, book.getMeta().getTimestamp());
+        writeField(file, book.getBestBuy());
+        writeField(file, book.getBestSell());
+        writeField(file, HistoryRecords.buyStep(book));
+        writeField(file, HistoryRecords.sellStep(book));
+
+        Consumer<AggregatedOrder[]> writeHistogram = histogram -> {
+            for (int i = 0; i < histogram.length; ++i) {
+                writeField(file, histogram[i].getAmount(), i != histogram.length - 1);
+            }
+        };
+
+        writeHistogram.accept(book.getHistogramBuy());
+        file.write("\t");
+        writeHistogram.accept(book.getHistogramSell());
+        file.write(System.lineSeparator());
+    }
+
+    @SneakyThrows
+    private <T> void writeField(Writer file, T value) {
+        writeField(file, value, true);
+    }
+
+    @SneakyThrows
+    private <T> void writeField(Writer file, T value, boolean hasSeparator) {
+        file.write(String.valueOf(value) + (hasSeparator ? "\t" : ""));
+    }
+}
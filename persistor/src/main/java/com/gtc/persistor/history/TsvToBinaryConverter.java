@@ -0,0 +1,86 @@
+package com.gtc.persistor.history;
+
+import com.gtc.meta.CurrencyPair;
+import com.gtc.meta.TradingCurrency;
+import com.gtc.model.provider.OrderBook;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Converts existing TSV history (i.e. ZEC-BTC_okex-2018-07-30T04.tsv.gz) to binary one
+ * (ZEC-BTC_okex-2018-07-30T04.bin) with block index.
+ */
+@Slf4j
+public class TsvToBinaryConverter {
+
+    private static final Pattern NAME = Pattern.compile(
+            "^([^-]+)-([^_]+)_(.+)-(\\d{4}-\\d{2}-\\d{2}T\\d{2})\\.tsv(\\.gz)?$");
+    private static final int BLOCK_SIZE = 1024;
+
+    private final BinaryHistoryWriter writer = new BinaryHistoryWriter();
+
+    @SneakyThrows
+    public List<Path> convertFolder(Path sourceDir, Path destDir) {
+        List<Path> sources;
+        try (Stream<Path> files = Files.list(sourceDir)) {
+            sources = files
+                    .filter(it -> NAME.matcher(it.getFileName().toString()).matches())
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+
+        List<Path> result = new ArrayList<>();
+        for (Path source : sources) {
+            result.add(convert(source, destDir));
+            log.info("Converted {}", source);
+        }
+
+        return result;
+    }
+
+    @SneakyThrows
+    public Path convert(Path source, Path destDir) {
+        Matcher name = NAME.matcher(source.getFileName().toString());
+        if (!name.matches()) {
+            throw new IllegalArgumentException("Not a history file " + source);
+        }
+
+        CurrencyPair pair = new CurrencyPair(
+                TradingCurrency.fromCode(name.group(1)),
+                TradingCurrency.fromCode(name.group(2))
+        );
+        Path dest = destDir.resolve(String.format("%s-%s_%s-%s%s",
+                name.group(1), name.group(2), name.group(3), name.group(4), BinaryHistoryFormat.EXTENSION));
+        Files.deleteIfExists(dest);
+
+        try (TsvHistoryReader reader = new TsvHistoryReader(source, name.group(3), pair)) {
+            List<OrderBook> books = new ArrayList<>(BLOCK_SIZE);
+            while (reader.hasNext()) {
+                books.add(reader.next());
+                if (books.size() == BLOCK_SIZE) {
+                    writer.append(dest, books);
+                    books.clear();
+                }
+            }
+
+            if (!books.isEmpty()) {
+                writer.append(dest, books);
+            }
+        }
+
+        if (Files.exists(dest)) {
+            writer.finish(dest);
+        }
+
+        return dest;
+    }
+}
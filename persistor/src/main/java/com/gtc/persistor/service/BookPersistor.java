@@ -1,10 +1,11 @@
 package com.gtc.persistor.service;
 
-import com.google.common.io.MoreFiles;
 import com.google.common.util.concurrent.SimpleTimeLimiter;
-import com.gtc.model.provider.AggregatedOrder;
 import com.gtc.model.provider.OrderBook;
 import com.gtc.persistor.config.PersistConfig;
+import com.gtc.persistor.history.BinaryHistoryWriter;
+import com.gtc.persistor.history.HistoryWriter;
+import com.gtc.persistor.history.TsvHistoryWriter;
 import com.newrelic.api.agent.Trace;
 import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
@@ -14,7 +15,6 @@ import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.io.FileOutputStream;
-import java.io.Writer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -23,16 +23,12 @@ import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
-import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.zip.GZIPOutputStream;
 
 import static com.gtc.persistor.config.Const.Persist.PERSIST_S;
-import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
-import static java.nio.file.StandardOpenOption.APPEND;
-import static java.nio.file.StandardOpenOption.CREATE;
 
 /**
  * Created by Valentyn Berezin on 01.07.18.
@@ -50,6 +46,9 @@ public class BookPersistor {
     private final PersistConfig cfg;
     private final OrderBookRepository bookRepository;
 
+    private final HistoryWriter tsvWriter = new TsvHistoryWriter();
+    private final HistoryWriter binaryWriter = new BinaryHistoryWriter();
+
     @Value(PERSIST_S)
     private Integer persistS;
 
@@ -94,83 +93,14 @@ public class BookPersistor {
         }
 
         books.sort(Comparator.comparingLong(a -> a.getMeta().getTimestamp()));
-        Path dest = Paths.get(cfg.getLocalDir(), filename);
-        boolean exists = dest.toFile().exists();
-
-        try (Writer file = MoreFiles.asCharSink(dest, UTF_8, CREATE, APPEND).openBufferedStream()) {
-            if (!exists) {
-                writeHeader(file, books.get(0).getHistogramBuy().length, books.get(0).getHistogramSell().length);
-            }
-
-            writeBooksInterruptably(filename, books, file);
-        }
-    }
-
-    private void writeBooksInterruptably(String filename, List<OrderBook> books, Writer file)
-            throws InterruptedException {
-        for (OrderBook book : books) {
-            writeBook(file, book);
-
-            if (Thread.currentThread().isInterrupted()) {
-                throw new InterruptedException("Interrupted on " + filename);
-            }
-        }
-    }
-
-    @SneakyThrows
-    private void writeHeader(Writer file, int histogramBuyPrecision, int histogramSellPrecision) {
-        file.write("Time\t");
-        file.write("Best buy\t");
-        file.write("Best sell\t");
-        file.write("Histogram price Buy step\t");
-        file.write("Histogram price Sell step\t");
-
-        writeAmounts(file, "Buy amount at ", histogramBuyPrecision);
-        writeAmounts(file, "Sell amount at ", histogramSellPrecision);
-        file.write(System.lineSeparator());
-    }
-
-    @SneakyThrows
-    private void writeAmounts(Writer file, String name, int precision) {
-        for (int i = 0; i < precision; ++i) {
-            file.write(name + i + "\t");
-        }
-    }
-
-    @SneakyThrows
-    private void writeBook(Writer file, OrderBook book) {
-        writeField(file, book.getMeta().getTimestamp());
-        writeField(file, book.getBestBuy());
-        writeField(file, book.getBestSell());
-        writeField(file, book.getHistogramBuy()[0].getMaxPrice() - book.getHistogramBuy()[0].getMinPrice());
-        writeField(file, book.getHistogramSell()[0].getMaxPrice() - book.getHistogramSell()[0].getMinPrice());
-
-        Consumer<AggregatedOrder[]> writeHistogram = histogram -> {
-            for (int i = 0; i < histogram.length; ++i) {
-                writeField(file, histogram[i].getAmount(), i != histogram.length - 1);
-            }
-        };
-
-        writeHistogram.accept(book.getHistogramBuy());
-        file.write("\t");
-        writeHistogram.accept(book.getHistogramSell());
-        file.write(System.lineSeparator());
-    }
-
-    @SneakyThrows
-    private <T> void writeField(Writer file, T value) {
-        writeField(file, value, true);
-    }
-
-    @SneakyThrows
-    private <T> void writeField(Writer file, T value, boolean hasSeparator) {
-        file.write(String.valueOf(value) + (hasSeparator ? "\t" : ""));
+        writer().append(Paths.get(cfg.getLocalDir(), filename), books);
     }
 
     @SneakyThrows
     private void zipFinishedDataAndMoveToStorageIfNecessary() {
         for (Path path : listFilesToZip()) {
             Path toZip = path.getParent().resolve(path.getFileName().toString() + TO_ZIP);
+            writerFor(path).finish(path);
             Files.move(path, toZip, REPLACE_EXISTING);
 
             String origName = path.getFileName().toString();
@@ -198,6 +128,15 @@ public class BookPersistor {
         }
     }
 
+    private HistoryWriter writer() {
+        return PersistConfig.HistoryFormat.BINARY == cfg.getFormat() ? binaryWriter : tsvWriter;
+    }
+
+    // format could have been changed since file was created
+    private HistoryWriter writerFor(Path file) {
+        return file.toString().endsWith(binaryWriter.extension()) ? binaryWriter : tsvWriter;
+    }
+
     private LocalDateTime utcDate() {
         return LocalDateTime.now(ZoneOffset.UTC);
     }
@@ -213,6 +152,6 @@ public class BookPersistor {
 
     private String getSuffixAndLockDate() {
         LocalDateTime date = utcDate();
-        return String.format("-%s.tsv", FORMAT.format(date));
+        return String.format("-%s%s", FORMAT.format(date), writer().extension());
     }
 }
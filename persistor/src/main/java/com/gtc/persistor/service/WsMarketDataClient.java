@@ -42,7 +42,8 @@ public class WsMarketDataClient {
                         wsConfig.getProvider(),
                         "market",
                         wsConfig.getDisconnectIfInactiveS(),
-                        objectMapper, log
+                        objectMapper, log,
+                        wsConfig.getReconnect()
                 ),
                 new BaseWebsocketClient.Handlers(
                         this::subscribeOnConnect,
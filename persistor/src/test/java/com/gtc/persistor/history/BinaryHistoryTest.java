@@ -0,0 +1,162 @@
+package com.gtc.persistor.history;
+
+import com.gtc.model.provider.OrderBook;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.gtc.persistor.history.HistoryFixtures.assertPersistedSame;
+import static com.gtc.persistor.history.HistoryFixtures.randomBooks;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BinaryHistoryTest {
+
+    private final Random random = new Random(1L);
+    private final BinaryHistoryWriter writer = new BinaryHistoryWriter();
+
+    private Path dir;
+    private Path file;
+    private List<OrderBook> written;
+
+    @BeforeEach
+    void init() throws Exception {
+        dir = Files.createTempDirectory("binary-history");
+        file = dir.resolve("EOS-BTC_binance-2018-07-30T04.bin");
+        written = new ArrayList<>();
+
+        // as persistor does - several appends, each one is a block
+        long timestamp = 1532923200000L;
+        for (int batch = 0; batch < 20; ++batch) {
+            List<OrderBook> books = randomBooks(random, timestamp, 1 + random.nextInt(100));
+            timestamp = books.get(books.size() - 1).getMeta().getTimestamp();
+            writer.append(file, books);
+            written.addAll(books);
+        }
+    }
+
+    @AfterEach
+    void cleanup() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(it -> it.toFile().delete());
+        }
+    }
+
+    @Test
+    void roundTripWithoutIndex() throws Exception {
+        assertReadsBack(readAll(file, Long.MIN_VALUE), written);
+    }
+
+    @Test
+    void roundTripWithIndex() throws Exception {
+        writer.finish(file);
+        long size = Files.size(file);
+        writer.finish(file);
+
+        assertThat(Files.size(file)).isEqualTo(size);
+        assertReadsBack(readAll(file, Long.MIN_VALUE), written);
+    }
+
+    @Test
+    void roundTripGzipped() throws Exception {
+        writer.finish(file);
+
+        assertReadsBack(readAll(HistoryFixtures.gzip(file), Long.MIN_VALUE), written);
+    }
+
+    @Test
+    void readsFromTimestamp() throws Exception {
+        long from = written.get(written.size() / 2).getMeta().getTimestamp();
+        List<OrderBook> expected = written.stream()
+                .filter(it -> it.getMeta().getTimestamp() >= from)
+                .collect(Collectors.toList());
+
+        assertReadsBack(readAll(file, from), expected);
+        writer.finish(file);
+        assertReadsBack(readAll(file, from), expected);
+        assertReadsBack(readAll(HistoryFixtures.gzip(file), from), expected);
+    }
+
+    @Test
+    void finishCutsOffIncompleteTrailingBlock() throws Exception {
+        long complete = Files.size(file);
+        long timestamp = written.get(written.size() - 1).getMeta().getTimestamp();
+        writer.append(file, randomBooks(random, timestamp, 10));
+        long appended = Files.size(file) - complete;
+        Path full = Files.copy(file, dir.resolve("full.bin"));
+
+        // crash within tag, block header and records
+        for (long cut : new long[] {2, BinaryHistoryFormat.BLOCK_HEADER_SIZE - 1, appended - 1}) {
+            Files.copy(full, file, StandardCopyOption.REPLACE_EXISTING);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.truncate(complete + cut);
+            }
+
+            writer.finish(file);
+
+            assertReadsBack(readAll(file, Long.MIN_VALUE), written);
+            assertReadsBack(readAll(HistoryFixtures.gzip(file), Long.MIN_VALUE), written);
+        }
+    }
+
+    @Test
+    void appendCutsOffIncompleteTrailingBlock() throws Exception {
+        long complete = Files.size(file);
+        long timestamp = written.get(written.size() - 1).getMeta().getTimestamp();
+        writer.append(file, randomBooks(random, timestamp, 10));
+        long appended = Files.size(file) - complete;
+        Path full = Files.copy(file, dir.resolve("full.bin"));
+
+        for (long cut : new long[] {2, BinaryHistoryFormat.BLOCK_HEADER_SIZE - 1, appended - 1}) {
+            Files.copy(full, file, StandardCopyOption.REPLACE_EXISTING);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.truncate(complete + cut);
+            }
+
+            List<OrderBook> next = randomBooks(random, timestamp, 10);
+            writer.append(file, next);
+            writer.finish(file);
+
+            List<OrderBook> expected = new ArrayList<>(written);
+            expected.addAll(next);
+            assertReadsBack(readAll(file, Long.MIN_VALUE), expected);
+            assertReadsBack(readAll(HistoryFixtures.gzip(file), Long.MIN_VALUE), expected);
+        }
+    }
+
+    @Test
+    void headerDescribesFile() throws Exception {
+        try (BinaryHistoryReader reader = new BinaryHistoryReader(file)) {
+            assertThat(reader.getHeader()).isEqualTo(new BinaryHistoryFormat.Header(
+                    HistoryFixtures.CLIENT, HistoryFixtures.PAIR, HistoryFixtures.LEVELS, HistoryFixtures.LEVELS));
+        }
+    }
+
+    private static List<OrderBook> readAll(Path path, long from) throws Exception {
+        List<OrderBook> result = new ArrayList<>();
+        try (BinaryHistoryReader reader = new BinaryHistoryReader(path, from)) {
+            reader.forEachRemaining(result::add);
+        }
+
+        return result;
+    }
+
+    private static void assertReadsBack(List<OrderBook> actual, List<OrderBook> expected) {
+        assertThat(actual).hasSameSizeAs(expected);
+        for (int i = 0; i < expected.size(); ++i) {
+            assertPersistedSame(actual.get(i), expected.get(i));
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.gtc.persistor.history;
+
+import com.gtc.meta.CurrencyPair;
+import com.gtc.meta.TradingCurrency;
+import com.gtc.model.provider.AggregatedOrder;
+import com.gtc.model.provider.ByClientAndCurrency;
+import com.gtc.model.provider.OrderBook;
+import lombok.SneakyThrows;
+import lombok.experimental.UtilityClass;
+
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@UtilityClass
+class HistoryFixtures {
+
+    static final String CLIENT = "binance";
+    static final CurrencyPair PAIR = new CurrencyPair(TradingCurrency.EOS, TradingCurrency.Bitcoin);
+    static final int LEVELS = 10;
+
+    /**
+     * Books like ones coming from provider - histogram boundaries are not restored exactly from step.
+     */
+    static List<OrderBook> randomBooks(Random random, long startTimestamp, int count) {
+        List<OrderBook> books = new ArrayList<>(count);
+        long timestamp = startTimestamp;
+        double mid = 0.0007 + random.nextDouble() * 0.0001;
+        for (int i = 0; i < count; ++i) {
+            timestamp += random.nextInt(200);
+            mid += (random.nextInt(3) - 1) * 0.0000001;
+            double bestBuy = mid - random.nextInt(10) * 0.0000001;
+            double bestSell = mid + random.nextInt(10) * 0.0000001;
+            books.add(OrderBook.builder()
+                    .meta(new ByClientAndCurrency(CLIENT, PAIR, timestamp))
+                    .bestBuy(bestBuy)
+                    .bestSell(bestSell)
+                    .histogramBuy(histogram(random, bestBuy * 0.99, bestBuy, false))
+                    .histogramSell(histogram(random, bestSell, bestSell * 1.01, true))
+                    .build()
+            );
+        }
+
+        return books;
+    }
+
+    // compares only what is persisted
+    static void assertPersistedSame(OrderBook actual, OrderBook expected) {
+        assertThat(actual.getMeta().getClient()).isEqualTo(expected.getMeta().getClient());
+        assertThat(actual.getMeta().getPair()).isEqualTo(expected.getMeta().getPair());
+        assertThat(actual.getMeta().getTimestamp()).isEqualTo(expected.getMeta().getTimestamp());
+        assertThat(actual.getBestBuy()).isEqualTo(expected.getBestBuy());
+        assertThat(actual.getBestSell()).isEqualTo(expected.getBestSell());
+        assertThat(HistoryRecords.buyStep(actual)).isEqualTo(HistoryRecords.buyStep(expected));
+        assertThat(HistoryRecords.sellStep(actual)).isEqualTo(HistoryRecords.sellStep(expected));
+        assertThat(amounts(actual.getHistogramBuy())).containsExactly(amounts(expected.getHistogramBuy()));
+        assertThat(amounts(actual.getHistogramSell())).containsExactly(amounts(expected.getHistogramSell()));
+    }
+
+    @SneakyThrows
+    static Path gzip(Path file) {
+        Path gz = file.resolveSibling(file.getFileName() + ".gz");
+        try (GZIPOutputStream out = new GZIPOutputStream(new FileOutputStream(gz.toFile()))) {
+            Files.copy(file, out);
+        }
+
+        return gz;
+    }
+
+    private static double[] amounts(AggregatedOrder[] histogram) {
+        double[] result = new double[histogram.length];
+        for (int i = 0; i < histogram.length; ++i) {
+            result[i] = histogram[i].getAmount();
+        }
+
+        return result;
+    }
+
+    private static AggregatedOrder[] histogram(Random random, double min, double max, boolean isSell) {
+        AggregatedOrder[] result = new AggregatedOrder[LEVELS];
+        double step = (max - min) / LEVELS;
+        for (int i = 0; i < LEVELS; ++i) {
+            AggregatedOrder order = new AggregatedOrder();
+            order.setMinPrice(min + i * step);
+            order.setMaxPrice(min + (i + 1) * step);
+            order.setAmount((isSell ? -1 : 1) * random.nextInt(100000) / 100.0);
+            order.setSell(isSell);
+            result[i] = order;
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,84 @@
+package com.gtc.persistor.history;
+
+import com.gtc.model.provider.OrderBook;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of writing and replaying hour of history (36000 books at 100ms) in TSV and binary format,
+ * both gzipped as they are stored. Test will only start if it sees property PERF_TEST == true.
+ */
+@Slf4j
+class HistoryFormatPerformanceTest {
+
+    private static final int BOOKS = 36000;
+    private static final int BATCH = 50;
+    private static final int ROUNDS = 5;
+
+    @Test
+    @EnabledIfEnvironmentVariable(named = "PERF_TEST", matches = "true")
+    void compareWithTsv() throws Exception {
+        List<OrderBook> books = HistoryFixtures.randomBooks(new Random(1L), 1532923200000L, BOOKS);
+        Path dir = Files.createTempDirectory("history-perf");
+
+        for (int round = 0; round < ROUNDS; ++round) {
+            Path tsv = dir.resolve("EOS-BTC_binance-2018-07-30T04.tsv");
+            Path bin = dir.resolve("EOS-BTC_binance-2018-07-30T04.bin");
+            Files.deleteIfExists(tsv);
+            Files.deleteIfExists(bin);
+
+            long tsvWrite = write(new TsvHistoryWriter(), tsv, books);
+            long binWrite = write(new BinaryHistoryWriter(), bin, books);
+            Path tsvGz = HistoryFixtures.gzip(tsv);
+            Path binGz = HistoryFixtures.gzip(bin);
+
+            long tsvRead = read(new TsvHistoryReader(tsvGz, HistoryFixtures.CLIENT, HistoryFixtures.PAIR));
+            long binRead = read(new BinaryHistoryReader(binGz));
+
+            log.info("Round {}: write books/s TSV {} binary {}; read books/s TSV {} binary {}; gz size TSV {} binary {}",
+                    round, perSecond(tsvWrite), perSecond(binWrite), perSecond(tsvRead), perSecond(binRead),
+                    Files.size(tsvGz), Files.size(binGz));
+
+            for (Path file : new Path[] {tsv, bin, tsvGz, binGz}) {
+                Files.delete(file);
+            }
+        }
+
+        Files.delete(dir);
+    }
+
+    private static long write(HistoryWriter writer, Path dest, List<OrderBook> books) throws Exception {
+        long start = System.nanoTime();
+        for (int i = 0; i < books.size(); i += BATCH) {
+            writer.append(dest, books.subList(i, Math.min(books.size(), i + BATCH)));
+        }
+
+        writer.finish(dest);
+        return System.nanoTime() - start;
+    }
+
+    private static <T extends Iterator<OrderBook> & AutoCloseable> long read(T reader) throws Exception {
+        long start = System.nanoTime();
+        double sink = 0;
+        try (T iterator = reader) {
+            while (iterator.hasNext()) {
+                sink += iterator.next().getBestBuy();
+            }
+        }
+
+        log.debug("Sink {}", sink);
+        return System.nanoTime() - start;
+    }
+
+    private static long perSecond(long nanos) {
+        return BOOKS * TimeUnit.SECONDS.toNanos(1) / nanos;
+    }
+}
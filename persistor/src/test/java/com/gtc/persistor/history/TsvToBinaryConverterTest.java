@@ -0,0 +1,63 @@
+package com.gtc.persistor.history;
+
+import com.gtc.model.provider.OrderBook;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TsvToBinaryConverterTest {
+
+    private final Random random = new Random(1L);
+
+    private Path dir;
+
+    @BeforeEach
+    void init() throws IOException {
+        dir = Files.createTempDirectory("tsv-history");
+    }
+
+    @AfterEach
+    void cleanup() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(it -> it.toFile().delete());
+        }
+    }
+
+    @Test
+    void convertedFileHasSameBooks() throws Exception {
+        Path tsv = dir.resolve("EOS-BTC_binance-2018-07-30T04.tsv");
+        TsvHistoryWriter writer = new TsvHistoryWriter();
+        writer.append(tsv, HistoryFixtures.randomBooks(random, 1532923200000L, 1500));
+        writer.append(tsv, HistoryFixtures.randomBooks(random, 1532923300000L, 700));
+        Path gz = HistoryFixtures.gzip(tsv);
+        Files.delete(tsv);
+
+        List<Path> converted = new TsvToBinaryConverter().convertFolder(dir, dir);
+
+        assertThat(converted).containsExactly(dir.resolve("EOS-BTC_binance-2018-07-30T04.bin"));
+        List<OrderBook> fromTsv = new ArrayList<>();
+        try (TsvHistoryReader reader = new TsvHistoryReader(gz, HistoryFixtures.CLIENT, HistoryFixtures.PAIR)) {
+            reader.forEachRemaining(fromTsv::add);
+        }
+
+        List<OrderBook> fromBinary = new ArrayList<>();
+        try (BinaryHistoryReader reader = new BinaryHistoryReader(converted.get(0))) {
+            reader.forEachRemaining(fromBinary::add);
+        }
+
+        assertThat(fromTsv).hasSize(2200);
+        // both are restored from same values
+        assertThat(fromBinary).isEqualTo(fromTsv);
+    }
+}
@@ -0,0 +1,12 @@
+package com.gtc.provider.book;
+
+/**
+ * Gets notified about level changes of {@link PriceLevelBook}, is called by writer thread while book holds
+ * write lock, so it must be cheap and must not call back into the book.
+ */
+public interface BookListener {
+
+    void levelChanged(boolean isSell, double price);
+
+    void cleared();
+}
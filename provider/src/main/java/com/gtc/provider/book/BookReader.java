@@ -0,0 +1,10 @@
+package com.gtc.provider.book;
+
+/**
+ * Reads consistent snapshot of both book sides while {@link PriceLevelBook} holds read lock.
+ */
+@FunctionalInterface
+public interface BookReader<T> {
+
+    T read(BookSide buy, BookSide sell);
+}
@@ -0,0 +1,21 @@
+package com.gtc.provider.book;
+
+/**
+ * Read-only view of one side of {@link PriceLevelBook}. Rank 0 is always the best level (highest bid or
+ * lowest ask), values are read straight from the backing arrays, so view is only valid inside
+ * {@link PriceLevelBook#read(BookReader)} or {@link PriceLevelBook#forEachTop(boolean, int, LevelConsumer)}.
+ */
+public interface BookSide {
+
+    int size();
+
+    double price(int rank);
+
+    // signed amount: > 0 buy, < 0 sell, same as in Bid
+    double amount(int rank);
+
+    // number of orders that form this level, 1 for exchanges that report price levels only
+    int count(int rank);
+
+    long timestamp(int rank);
+}
@@ -0,0 +1,10 @@
+package com.gtc.provider.book;
+
+/**
+ * Primitive callback for walking book levels without materializing them.
+ */
+@FunctionalInterface
+public interface LevelConsumer {
+
+    void accept(double price, double amount, int count, long timestamp);
+}
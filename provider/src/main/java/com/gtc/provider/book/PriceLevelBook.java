@@ -0,0 +1,214 @@
+package com.gtc.provider.book;
+
+import com.gtc.model.provider.Bid;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Order book of single channel that keeps buy and sell price levels in primitive sorted arrays,
+ * so that updates coming from websocket do not allocate. Amount sign follows {@link Bid} convention:
+ * amount > 0 is buy, amount < 0 is sell, amount == 0 removes level.
+ * Exchanges that stream individual orders (i.e. Bitfinex raw book) should use
+ * {@link #putOrder(long, double, double)} and {@link #removeOrder(long)} - orders get aggregated into levels.
+ * Writes are expected from websocket thread, reads from schedulers - both are guarded by read-write lock.
+ */
+public class PriceLevelBook {
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final PriceLevels buy = new PriceLevels(false);
+    private final PriceLevels sell = new PriceLevels(true);
+
+    // only for order-based books
+    private Map<Long, RawOrder> orders;
+
+    public void update(double price, double amount) {
+        Lock write = lock.writeLock();
+        write.lock();
+        try {
+            if (0.0 == amount) {
+                doRemove(price);
+                return;
+            }
+
+            long timestamp = System.currentTimeMillis();
+            if (amount > 0) {
+                sell.remove(price);
+                buy.set(price, amount, timestamp);
+            } else {
+                buy.remove(price);
+                sell.set(price, amount, timestamp);
+            }
+        } finally {
+            write.unlock();
+        }
+    }
+
+    public void remove(double price) {
+        Lock write = lock.writeLock();
+        write.lock();
+        try {
+            doRemove(price);
+        } finally {
+            write.unlock();
+        }
+    }
+
+    public void putOrder(long id, double price, double amount) {
+        Lock write = lock.writeLock();
+        write.lock();
+        try {
+            if (null == orders) {
+                orders = new HashMap<>();
+            }
+
+            long timestamp = System.currentTimeMillis();
+            RawOrder order = orders.get(id);
+            if (null != order) {
+                side(order.amount).add(order.price, -order.amount, -1, timestamp);
+            } else {
+                order = new RawOrder();
+                orders.put(id, order);
+            }
+
+            order.price = price;
+            order.amount = amount;
+            side(amount).add(price, amount, 1, timestamp);
+        } finally {
+            write.unlock();
+        }
+    }
+
+    public void removeOrder(long id) {
+        Lock write = lock.writeLock();
+        write.lock();
+        try {
+            RawOrder order = null == orders ? null : orders.remove(id);
+            if (null == order) {
+                return;
+            }
+
+            side(order.amount).add(order.price, -order.amount, -1, System.currentTimeMillis());
+        } finally {
+            write.unlock();
+        }
+    }
+
+    public void clear() {
+        Lock write = lock.writeLock();
+        write.lock();
+        try {
+            buy.clear();
+            sell.clear();
+            if (null != orders) {
+                orders.clear();
+            }
+        } finally {
+            write.unlock();
+        }
+    }
+
+    /**
+     * Registers listener of level changes (replacing previous one).
+     */
+    public void setListener(BookListener listener) {
+        Lock write = lock.writeLock();
+        write.lock();
+        try {
+            buy.setListener(listener);
+            sell.setListener(listener);
+        } finally {
+            write.unlock();
+        }
+    }
+
+    /**
+     * Applies several updates atomically (i.e. snapshot replacement), readers will not see partial state.
+     */
+    public void apply(Consumer<PriceLevelBook> updates) {
+        Lock write = lock.writeLock();
+        write.lock();
+        try {
+            updates.accept(this);
+        } finally {
+            write.unlock();
+        }
+    }
+
+    /**
+     * Zero-copy snapshot - reader gets direct view on the arrays under read lock, so it should be fast and
+     * must not leak views.
+     */
+    public <T> T read(BookReader<T> reader) {
+        Lock read = lock.readLock();
+        read.lock();
+        try {
+            return reader.read(buy, sell);
+        } finally {
+            read.unlock();
+        }
+    }
+
+    /**
+     * Walks at most {@code depth} best levels of a side, best level first.
+     */
+    public void forEachTop(boolean isSell, int depth, LevelConsumer consumer) {
+        Lock read = lock.readLock();
+        read.lock();
+        try {
+            PriceLevels side = isSell ? sell : buy;
+            int limit = Math.min(depth, side.size());
+            for (int rank = 0; rank < limit; ++rank) {
+                consumer.accept(side.price(rank), side.amount(rank), side.count(rank), side.timestamp(rank));
+            }
+        } finally {
+            read.unlock();
+        }
+    }
+
+    public int size() {
+        return read((buySide, sellSide) -> buySide.size() + sellSide.size());
+    }
+
+    /**
+     * Materializes levels as {@link Bid} (one per level, price is id), allocates - use only
+     * where object view is really needed.
+     */
+    public List<Bid> toBids() {
+        return read((buySide, sellSide) -> {
+            List<Bid> bids = new ArrayList<>(buySide.size() + sellSide.size());
+            addBids(buySide, bids);
+            addBids(sellSide, bids);
+            return bids;
+        });
+    }
+
+    private static void addBids(BookSide side, List<Bid> bids) {
+        for (int rank = 0; rank < side.size(); ++rank) {
+            double price = side.price(rank);
+            bids.add(new Bid(String.valueOf(price), side.amount(rank), price, price, side.timestamp(rank)));
+        }
+    }
+
+    private void doRemove(double price) {
+        if (!buy.remove(price)) {
+            sell.remove(price);
+        }
+    }
+
+    private PriceLevels side(double amount) {
+        return amount > 0 ? buy : sell;
+    }
+
+    private static class RawOrder {
+
+        private double price;
+        private double amount;
+    }
+}
@@ -0,0 +1,184 @@
+package com.gtc.provider.book;
+
+import java.util.Arrays;
+
+/**
+ * One side of price-level book stored in parallel primitive arrays sorted by price.
+ * Levels are kept so that the best one is at the array tail - most of the updates happen near the top of
+ * the book, so insertions and removals there shift only few elements. Lookup is binary search.
+ * Not thread-safe, guarded by {@link PriceLevelBook}.
+ */
+final class PriceLevels implements BookSide {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final boolean isSell;
+    // +1 for buy side (best is highest price), -1 for sell side (best is lowest price)
+    private final double direction;
+
+    // direction * price, ascending
+    private double[] keys = new double[INITIAL_CAPACITY];
+    private double[] amounts = new double[INITIAL_CAPACITY];
+    private int[] counts = new int[INITIAL_CAPACITY];
+    private long[] timestamps = new long[INITIAL_CAPACITY];
+    private int size;
+
+    private BookListener listener;
+
+    PriceLevels(boolean isSell) {
+        this.isSell = isSell;
+        this.direction = isSell ? -1.0 : 1.0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public double price(int rank) {
+        return direction * keys[index(rank)];
+    }
+
+    @Override
+    public double amount(int rank) {
+        return amounts[index(rank)];
+    }
+
+    @Override
+    public int count(int rank) {
+        return counts[index(rank)];
+    }
+
+    @Override
+    public long timestamp(int rank) {
+        return timestamps[index(rank)];
+    }
+
+    /**
+     * @return rank of level with given price or negative value if there is no such level
+     */
+    int rankOf(double price) {
+        int pos = search(price);
+        return pos < 0 ? -1 : size - 1 - pos;
+    }
+
+    /**
+     * Sets level amount (replacing previous one).
+     */
+    void set(double price, double amount, long timestamp) {
+        int pos = search(price);
+        if (pos < 0) {
+            pos = insertAt(-(pos + 1), price);
+        }
+
+        amounts[pos] = amount;
+        counts[pos] = 1;
+        timestamps[pos] = timestamp;
+        notifyChanged(price);
+    }
+
+    /**
+     * Adds amount and order count to level, level is removed when its order count drops to 0.
+     */
+    void add(double price, double amount, int count, long timestamp) {
+        int pos = search(price);
+        if (pos < 0) {
+            if (count <= 0) {
+                return;
+            }
+
+            pos = insertAt(-(pos + 1), price);
+            amounts[pos] = 0.0;
+            counts[pos] = 0;
+        }
+
+        counts[pos] += count;
+        if (counts[pos] <= 0) {
+            removeAt(pos);
+        } else {
+            amounts[pos] += amount;
+            timestamps[pos] = timestamp;
+        }
+
+        notifyChanged(price);
+    }
+
+    boolean remove(double price) {
+        int pos = search(price);
+        if (pos < 0) {
+            return false;
+        }
+
+        removeAt(pos);
+        notifyChanged(price);
+        return true;
+    }
+
+    void clear() {
+        size = 0;
+        if (null != listener) {
+            listener.cleared();
+        }
+    }
+
+    void setListener(BookListener listener) {
+        this.listener = listener;
+    }
+
+    private void notifyChanged(double price) {
+        if (null != listener) {
+            listener.levelChanged(isSell, price);
+        }
+    }
+
+    private int index(int rank) {
+        if (rank < 0 || rank >= size) {
+            throw new IndexOutOfBoundsException("Rank " + rank + " size " + size);
+        }
+
+        return size - 1 - rank;
+    }
+
+    private int search(double price) {
+        return Arrays.binarySearch(keys, 0, size, direction * price);
+    }
+
+    private int insertAt(int pos, double price) {
+        if (size == keys.length) {
+            grow();
+        }
+
+        int tail = size - pos;
+        if (tail > 0) {
+            System.arraycopy(keys, pos, keys, pos + 1, tail);
+            System.arraycopy(amounts, pos, amounts, pos + 1, tail);
+            System.arraycopy(counts, pos, counts, pos + 1, tail);
+            System.arraycopy(timestamps, pos, timestamps, pos + 1, tail);
+        }
+
+        keys[pos] = direction * price;
+        size++;
+        return pos;
+    }
+
+    private void removeAt(int pos) {
+        int tail = size - pos - 1;
+        if (tail > 0) {
+            System.arraycopy(keys, pos + 1, keys, pos, tail);
+            System.arraycopy(amounts, pos + 1, amounts, pos, tail);
+            System.arraycopy(counts, pos + 1, counts, pos, tail);
+            System.arraycopy(timestamps, pos + 1, timestamps, pos, tail);
+        }
+
+        size--;
+    }
+
+    private void grow() {
+        int capacity = keys.length * 2;
+        keys = Arrays.copyOf(keys, capacity);
+        amounts = Arrays.copyOf(amounts, capacity);
+        counts = Arrays.copyOf(counts, capacity);
+        timestamps = Arrays.copyOf(timestamps, capacity);
+    }
+}
@@ -4,16 +4,19 @@ import com.appunite.websocket.rx.object.messages.RxObjectEventConnected;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.gtc.meta.CurrencyPair;
-import com.gtc.model.provider.Bid;
+import com.gtc.provider.book.PriceLevelBook;
 import com.gtc.ws.BaseWebsocketClient;
+import com.gtc.ws.FrameDecoder;
+import com.gtc.ws.ReconnectPolicy;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicReference;
@@ -27,19 +30,21 @@ public abstract class BaseRawClient implements WsClient {
 
     protected final String name;
     protected final ObjectMapper objectMapper;
-    protected final Map<ChannelDto, Map<String, Bid>> market = new ConcurrentHashMap<>();
+    protected final Map<ChannelDto, PriceLevelBook> market = new ConcurrentHashMap<>();
     protected final Map<ChannelDto, Ticker> ticker = new ConcurrentHashMap<>();
 
     private final BaseWebsocketClient client;
 
     private final AtomicReference<RxObjectEventConnected> conn = new AtomicReference<>();
 
-    public BaseRawClient(String wsPath, String name, int disconnectIfInactiveS, ObjectMapper mapper) {
+    public BaseRawClient(String wsPath, String name, int disconnectIfInactiveS, ObjectMapper mapper,
+                         ReconnectPolicy reconnectPolicy) {
         this.name = name;
         this.objectMapper = mapper;
         this.client = new BaseWebsocketClient(
-                new BaseWebsocketClient.Config(wsPath, name, disconnectIfInactiveS, mapper, log),
-                new BaseWebsocketClient.Handlers(this::attachToBidsAndTicker, this::parseEventDto, this::parseArray)
+                new BaseWebsocketClient.Config(wsPath, name, disconnectIfInactiveS, mapper, log, reconnectPolicy),
+                new BaseWebsocketClient.Handlers(
+                        this::attachToBidsAndTicker, this::parseEventDto, this::parseArray, decoders())
         );
     }
 
@@ -55,9 +60,9 @@ public abstract class BaseRawClient implements WsClient {
 
     @Override
     public MarketDto market() {
-        Map<CurrencyPair, Collection<Bid>> byCurrency = new HashMap<>();
+        Map<CurrencyPair, PriceLevelBook> byCurrency = new HashMap<>();
         Map<CurrencyPair, MarketDto.Ticker> allTickers = new HashMap<>();
-        market.forEach((curr, mrkt) -> byCurrency.put(curr.getPair(), mrkt.values()));
+        market.forEach((curr, mrkt) -> byCurrency.put(curr.getPair(), mrkt));
         ticker.forEach((curr, value) -> allTickers.put(
                 curr.getPair(),
                 new MarketDto.Ticker(value.getTimestampMillis(), value.getValue())
@@ -91,6 +96,10 @@ public abstract class BaseRawClient implements WsClient {
         attachToBidsAndTicker(connected);
     }
 
+    protected PriceLevelBook book(ChannelDto channel) {
+        return market.computeIfAbsent(channel, id -> new PriceLevelBook());
+    }
+
     protected void attachToBidsAndTicker(RxObjectEventConnected evt) {
         conn.set(evt);
         bidConfig().forEach((key, value) ->
@@ -114,6 +123,14 @@ public abstract class BaseRawClient implements WsClient {
 
     protected abstract void parseArray(JsonNode node);
 
+    /**
+     * Typed decoders that bind frames directly, bypassing {@link #parseEventDto(JsonNode)} and
+     * {@link #parseArray(JsonNode)}. Called from constructor, so it should only create decoders.
+     */
+    protected List<FrameDecoder<?>> decoders() {
+        return Collections.emptyList();
+    }
+
     @Getter
     @RequiredArgsConstructor
     protected static class Ticker {
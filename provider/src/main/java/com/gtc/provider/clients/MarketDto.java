@@ -1,11 +1,10 @@
 package com.gtc.provider.clients;
 
-import com.gtc.model.provider.Bid;
 import com.gtc.meta.CurrencyPair;
+import com.gtc.provider.book.PriceLevelBook;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 
-import java.util.Collection;
 import java.util.Map;
 
 /**
@@ -14,7 +13,7 @@ import java.util.Map;
 @Data
 public class MarketDto {
 
-    private final Map<CurrencyPair, Collection<Bid>> market;
+    private final Map<CurrencyPair, PriceLevelBook> market;
     private final Map<CurrencyPair, Ticker> ticker;
 
     @Data
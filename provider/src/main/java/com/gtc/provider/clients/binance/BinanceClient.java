@@ -2,21 +2,27 @@ package com.gtc.provider.clients.binance;
 
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.databind.*;
-import com.gtc.model.provider.Bid;
+import com.google.common.collect.ImmutableList;
 import com.gtc.meta.CurrencyPair;
 import com.gtc.provider.clients.BaseRawClient;
 import com.gtc.provider.clients.ChannelDto;
+import com.gtc.provider.book.PriceLevelBook;
+import com.gtc.provider.clients.binance.dto.BinanceDepth;
+import com.gtc.provider.clients.binance.dto.BinanceDepthStream;
 import com.gtc.provider.clients.binance.dto.BinanceOrderBookResponse;
 import com.gtc.provider.clients.binance.dto.BinanceStream;
 import com.gtc.provider.clients.binance.dto.BinanceTickerResponse;
+import com.gtc.provider.clients.binance.dto.BinanceTickerStream;
 import com.gtc.provider.config.BinanceConf;
+import com.gtc.provider.config.WsClientConf;
+import com.gtc.ws.FrameDecoder;
 import lombok.SneakyThrows;
 import org.springframework.stereotype.Component;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -32,24 +38,30 @@ public class BinanceClient extends BaseRawClient {
     private static final String CHANNEL_SEP = "@";
     private static final String TICKER_CHANNEL = "ticker";
     private static final String ORDERBOOK_CHANNEL = "depth";
+    private static final String STREAM = "stream";
     private final BinanceConf conf;
 
-    public BinanceClient(BinanceConf conf) {
+    public BinanceClient(BinanceConf conf, WsClientConf wsConf) {
         super(
                 conf.getWs2().getRoot() + "?streams=" + getRequestPath(conf),
                 BINANCE,
                 conf.getDisconnectIfInactiveS(),
-                new ObjectMapper(new JsonFactory())
-                        .setPropertyNamingStrategy(PropertyNamingStrategy.LOWER_CAMEL_CASE)
-                        .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
-                        .configure(DeserializationFeature.FAIL_ON_NUMBERS_FOR_ENUMS, false)
-                        .configure(DeserializationFeature.ACCEPT_FLOAT_AS_INT, true)
-                        .configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false)
-                        .configure(DeserializationFeature.FAIL_ON_NULL_CREATOR_PROPERTIES, false)
+                newMapper(),
+                wsConf.getReconnect()
         );
         this.conf = conf;
     }
 
+    static ObjectMapper newMapper() {
+        return new ObjectMapper(new JsonFactory())
+                .setPropertyNamingStrategy(PropertyNamingStrategy.LOWER_CAMEL_CASE)
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+                .configure(DeserializationFeature.FAIL_ON_NUMBERS_FOR_ENUMS, false)
+                .configure(DeserializationFeature.ACCEPT_FLOAT_AS_INT, true)
+                .configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false)
+                .configure(DeserializationFeature.FAIL_ON_NULL_CREATOR_PROPERTIES, false);
+    }
+
     private static String getRequestPath(BinanceConf conf) {
         Collection<String> tickers = getRequestTypePath(tickerConfig(conf).keySet(), TICKER_CHANNEL);
         Collection<String> ordersBook = getRequestTypePath(bidConfig(conf).keySet(), ORDERBOOK_CHANNEL);
@@ -83,6 +95,16 @@ public class BinanceClient extends BaseRawClient {
         return null;
     }
 
+    @Override
+    protected List<FrameDecoder<?>> decoders() {
+        return ImmutableList.of(
+                FrameDecoder.byField(STREAM, CHANNEL_SEP + ORDERBOOK_CHANNEL, BinanceDepthStream.class,
+                        this::handleDepth),
+                FrameDecoder.byField(STREAM, CHANNEL_SEP + TICKER_CHANNEL, BinanceTickerStream.class,
+                        this::handleTicker)
+        );
+    }
+
     @Override
     @SneakyThrows
     protected void parseEventDto(JsonNode node) {
@@ -106,6 +128,40 @@ public class BinanceClient extends BaseRawClient {
                 new Ticker(response.getPrice()));
     }
 
+    private void handleTicker(BinanceTickerStream stream) {
+        BinanceTickerResponse response = stream.getData();
+        String symbol = response.getSymbol();
+        ticker.put(
+                new ChannelDto(symbol, conf.getSymbol().getTicker().get(symbol)),
+                new Ticker(response.getPrice()));
+    }
+
+    private void handleDepth(BinanceDepthStream stream) {
+        BinanceDepth depth = stream.getData();
+        String symbol = depth.getSymbol();
+        PriceLevelBook book = book(new ChannelDto(symbol, conf.getSymbol().getBid().get(symbol)));
+        book.apply(it -> {
+            handleDepthSide(it, depth.getAsks(), true);
+            handleDepthSide(it, depth.getBids(), false);
+        });
+    }
+
+    private void handleDepthSide(PriceLevelBook book, double[] levels, boolean isSell) {
+        if (null == levels) {
+            return;
+        }
+
+        for (int i = 0; i < levels.length; i += 2) {
+            double price = levels[i];
+            double amount = levels[i + 1];
+            if (amount == 0) {
+                book.remove(price);
+            } else {
+                book.update(price, getAmount(amount, isSell));
+            }
+        }
+    }
+
     @SneakyThrows
     private void handleOrderBook(JsonNode node) {
         BinanceOrderBookResponse response = objectMapper.reader()
@@ -130,18 +186,12 @@ public class BinanceClient extends BaseRawClient {
 
     private void addOrderBookItem(String symbol, double price, double amount, boolean isSell) {
         ChannelDto channel = new ChannelDto(symbol, conf.getSymbol().getBid().get(symbol));
-        market.computeIfAbsent(channel, id -> new ConcurrentHashMap<>())
-                .put(String.valueOf(price), new Bid(
-                        String.valueOf(price),
-                        getAmount(amount, isSell),
-                        price,
-                        price
-                ));
+        book(channel).update(price, getAmount(amount, isSell));
     }
 
     private void removeOrderBookItem(String symbol, double price) {
         ChannelDto channel = new ChannelDto(symbol, conf.getSymbol().getBid().get(symbol));
-        market.computeIfAbsent(channel, id -> new ConcurrentHashMap<>()).remove(String.valueOf(price));
+        book(channel).remove(price);
     }
 
     private double getAmount(double amount, boolean isSell) {
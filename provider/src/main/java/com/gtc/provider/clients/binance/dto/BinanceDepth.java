@@ -0,0 +1,23 @@
+package com.gtc.provider.clients.binance.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import lombok.Data;
+
+/**
+ * Depth update bound without tree, levels are flat price, amount pairs.
+ */
+@Data
+public class BinanceDepth {
+
+    @JsonProperty("s")
+    private String symbol;
+
+    @JsonProperty("b")
+    @JsonDeserialize(using = PriceLevelsDeserializer.class)
+    private double[] bids;
+
+    @JsonProperty("a")
+    @JsonDeserialize(using = PriceLevelsDeserializer.class)
+    private double[] asks;
+}
@@ -0,0 +1,14 @@
+package com.gtc.provider.clients.binance.dto;
+
+import lombok.Data;
+
+/**
+ * Combined stream frame with depth update.
+ */
+@Data
+public class BinanceDepthStream {
+
+    private String stream;
+
+    private BinanceDepth data;
+}
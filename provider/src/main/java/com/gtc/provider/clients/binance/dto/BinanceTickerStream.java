@@ -0,0 +1,14 @@
+package com.gtc.provider.clients.binance.dto;
+
+import lombok.Data;
+
+/**
+ * Combined stream frame with ticker.
+ */
+@Data
+public class BinanceTickerStream {
+
+    private String stream;
+
+    private BinanceTickerResponse data;
+}
@@ -0,0 +1,51 @@
+package com.gtc.provider.clients.binance.dto;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Reads levels [["price", "amount", ...], ...] into flat array of price, amount pairs straight from parser,
+ * anything after amount (old API had empty array there) is skipped.
+ */
+public class PriceLevelsDeserializer extends JsonDeserializer<double[]> {
+
+    private static final int INITIAL_LEVELS = 16;
+
+    @Override
+    public double[] deserialize(JsonParser parser, DeserializationContext ctx) throws IOException {
+        if (JsonToken.START_ARRAY != parser.getCurrentToken()) {
+            return (double[]) ctx.handleUnexpectedToken(double[].class, parser);
+        }
+
+        double[] levels = new double[INITIAL_LEVELS * 2];
+        int size = 0;
+        while (JsonToken.START_ARRAY == parser.nextToken()) {
+            if (size + 2 > levels.length) {
+                levels = Arrays.copyOf(levels, levels.length * 2);
+            }
+
+            parser.nextToken();
+            levels[size++] = parser.getValueAsDouble();
+            parser.nextToken();
+            levels[size++] = parser.getValueAsDouble();
+            skipRest(parser);
+        }
+
+        return size == levels.length ? levels : Arrays.copyOf(levels, size);
+    }
+
+    private static void skipRest(JsonParser parser) throws IOException {
+        JsonToken token;
+        while (JsonToken.END_ARRAY != (token = parser.nextToken())) {
+            if (null == token) {
+                throw new IOException("Unexpected end of levels");
+            }
+            parser.skipChildren();
+        }
+    }
+}
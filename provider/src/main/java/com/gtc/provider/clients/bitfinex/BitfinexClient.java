@@ -6,18 +6,18 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.PropertyNamingStrategy;
 import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.gtc.provider.book.PriceLevelBook;
 import com.gtc.provider.clients.BaseRawClient;
 import com.gtc.provider.clients.ChannelDto;
 import com.gtc.provider.clients.bitfinex.dto.SubscribeEvent;
 import com.gtc.provider.clients.bitfinex.dto.SubscribedEvent;
 import com.gtc.provider.config.BitfinexConf;
-import com.gtc.model.provider.Bid;
+import com.gtc.provider.config.WsClientConf;
 import com.gtc.meta.CurrencyPair;
 import lombok.SneakyThrows;
 import org.springframework.stereotype.Component;
 
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 import static com.gtc.provider.config.Const.BITFINEX;
 
@@ -33,7 +33,7 @@ public class BitfinexClient extends BaseRawClient {
 
     private final BitfinexConf conf;
 
-    public BitfinexClient(BitfinexConf conf) {
+    public BitfinexClient(BitfinexConf conf, WsClientConf wsConf) {
         super(
                 conf.getWs2().getRoot(),
                 BITFINEX,
@@ -43,7 +43,8 @@ public class BitfinexClient extends BaseRawClient {
                         .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
                         .configure(DeserializationFeature.FAIL_ON_NUMBERS_FOR_ENUMS, false)
                         .configure(DeserializationFeature.ACCEPT_FLOAT_AS_INT, true)
-                        .configure(DeserializationFeature.FAIL_ON_NULL_CREATOR_PROPERTIES, false)
+                        .configure(DeserializationFeature.FAIL_ON_NULL_CREATOR_PROPERTIES, false),
+                wsConf.getReconnect()
         );
         this.conf = conf;
     }
@@ -63,7 +64,7 @@ public class BitfinexClient extends BaseRawClient {
         if (BOOK_NAME.equals(evt.getChannel())) {
             market.put(
                     new ChannelDto(evt.getChanId(), conf.getSymbol().getBid().get(evt.getSymbol())),
-                    new ConcurrentHashMap<>());
+                    new PriceLevelBook());
         } else if (TICKER_NAME.equals(evt.getChannel())) {
             ticker.put(
                     new ChannelDto(evt.getChanId(), conf.getSymbol().getTicker().get(evt.getSymbol())),
@@ -120,10 +121,11 @@ public class BitfinexClient extends BaseRawClient {
         long id = value.get(0).asLong();
         double price = value.get(1).asDouble();
         double amount = value.get(2).asDouble();
+        // raw book - id is order id
         if (0.0 == amount || 0.0 == price) {
-            market.get(dto).remove(String.valueOf(id));
+            market.get(dto).removeOrder(id);
         } else {
-            market.get(dto).put(String.valueOf(id), new Bid(String.valueOf(id), amount, price, price));
+            market.get(dto).putOrder(id, price, amount);
         }
     }
 
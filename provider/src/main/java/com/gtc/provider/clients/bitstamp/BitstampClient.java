@@ -6,19 +6,19 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.PropertyNamingStrategy;
 import com.google.common.base.CharMatcher;
-import com.gtc.model.provider.Bid;
 import com.gtc.meta.CurrencyPair;
+import com.gtc.provider.book.PriceLevelBook;
 import com.gtc.provider.clients.BaseRawClient;
 import com.gtc.provider.clients.ChannelDto;
 import com.gtc.provider.clients.bitstamp.dto.BitstampOrderEvent;
 import com.gtc.provider.clients.bitstamp.dto.BitstampTickerEvent;
 import com.gtc.provider.clients.common.pusher.dto.PusherSubscribe;
 import com.gtc.provider.config.BitstampConf;
+import com.gtc.provider.config.WsClientConf;
 import lombok.SneakyThrows;
 import org.springframework.stereotype.Service;
 
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 import static com.gtc.provider.config.Const.BITSTAMP;
 
@@ -36,7 +36,7 @@ public class BitstampClient extends BaseRawClient {
 
     private final BitstampConf conf;
 
-    public BitstampClient(BitstampConf conf) {
+    public BitstampClient(BitstampConf conf, WsClientConf wsConf) {
         super(
                 conf.getWs2().getRoot(),
                 BITSTAMP,
@@ -46,7 +46,8 @@ public class BitstampClient extends BaseRawClient {
                         .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
                         .configure(DeserializationFeature.FAIL_ON_NUMBERS_FOR_ENUMS, false)
                         .configure(DeserializationFeature.ACCEPT_FLOAT_AS_INT, true)
-                        .configure(DeserializationFeature.FAIL_ON_NULL_CREATOR_PROPERTIES, false)
+                        .configure(DeserializationFeature.FAIL_ON_NULL_CREATOR_PROPERTIES, false),
+                wsConf.getReconnect()
         );
         this.conf = conf;
     }
@@ -95,28 +96,15 @@ public class BitstampClient extends BaseRawClient {
                 dto.getChannel(),
                 conf.getSymbol().getBid().get(getChannelPair(dto.getChannel(), ORDER_BOOK)));
 
-        Map<String, Bid> channel = market.computeIfAbsent(
-                channelDto,
-                id -> new ConcurrentHashMap<>());
-        data.getAsks().forEach(ask -> createBid(channel, ask, -1.0));
-        data.getBids().forEach(bid -> createBid(channel, bid, 1.0));
+        book(channelDto).apply(channel -> {
+            data.getAsks().forEach(ask -> createBid(channel, ask, -1.0));
+            data.getBids().forEach(bid -> createBid(channel, bid, 1.0));
+        });
     }
 
-    private void createBid(Map<String, Bid> channel, String[] param, double sign) {
-        double amount = sign * Double.valueOf(param[1]);
-        if (0.0 == amount) {
-            channel.remove(param[0]);
-            return;
-        }
-
-        // price is id
-        channel.put(param[0],
-                new Bid(
-                        param[0],
-                        amount,
-                        Double.valueOf(param[0]),
-                        Double.valueOf(param[0]))
-        );
+    private void createBid(PriceLevelBook channel, String[] param, double sign) {
+        // price is id, 0 amount removes level
+        channel.update(Double.valueOf(param[0]), sign * Double.valueOf(param[1]));
     }
 
     @SneakyThrows
@@ -5,18 +5,17 @@ import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.PropertyNamingStrategy;
-import com.gtc.model.provider.Bid;
 import com.gtc.meta.CurrencyPair;
 import com.gtc.provider.clients.BaseRawClient;
 import com.gtc.provider.clients.ChannelDto;
 import com.gtc.provider.clients.exx.dto.ExxOrderBookResponse;
 import com.gtc.provider.clients.exx.dto.ExxRequest;
 import com.gtc.provider.config.ExxConf;
+import com.gtc.provider.config.WsClientConf;
 import lombok.SneakyThrows;
 import org.springframework.stereotype.Component;
 
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 import static com.gtc.provider.config.Const.EXX;
 
@@ -37,7 +36,7 @@ public class ExxClient extends BaseRawClient {
 
     private final ExxConf conf;
 
-    public ExxClient(ExxConf conf) {
+    public ExxClient(ExxConf conf, WsClientConf wsConf) {
         super(
                 conf.getWs2().getRoot(),
                 EXX,
@@ -47,7 +46,9 @@ public class ExxClient extends BaseRawClient {
                 .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
                 .configure(DeserializationFeature.FAIL_ON_NUMBERS_FOR_ENUMS, false)
                 .configure(DeserializationFeature.ACCEPT_FLOAT_AS_INT, true)
-                .configure(DeserializationFeature.FAIL_ON_NULL_CREATOR_PROPERTIES, false));
+                .configure(DeserializationFeature.FAIL_ON_NULL_CREATOR_PROPERTIES, false),
+                wsConf.getReconnect()
+        );
         this.conf = conf;
     }
 
@@ -99,12 +100,10 @@ public class ExxClient extends BaseRawClient {
     private void handleOrderBookItem(String symbol, double price, double amount, boolean isSell) {
         ChannelDto channel = new ChannelDto(symbol, conf.getSymbol().getBid().get(symbol));
         if (amount == 0) {
-            market.computeIfAbsent(channel, id -> new ConcurrentHashMap<>()).remove(String.valueOf(price));
+            book(channel).remove(price);
             return;
         }
-        String id = String.valueOf(price);
-        market.computeIfAbsent(channel, idKey -> new ConcurrentHashMap<>())
-                .put(id, new Bid(id, getAmount(amount, isSell), price, price));
+        book(channel).update(price, getAmount(amount, isSell));
     }
 
     private double getAmount(double amount, boolean isSell) {
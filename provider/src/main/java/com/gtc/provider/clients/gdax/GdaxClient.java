@@ -6,17 +6,16 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.PropertyNamingStrategy;
 import com.google.common.collect.ImmutableList;
-import com.gtc.model.provider.Bid;
 import com.gtc.meta.CurrencyPair;
 import com.gtc.provider.clients.BaseRawClient;
 import com.gtc.provider.clients.ChannelDto;
 import com.gtc.provider.clients.gdax.dto.*;
 import com.gtc.provider.config.GdaxConf;
+import com.gtc.provider.config.WsClientConf;
 import lombok.SneakyThrows;
 import org.springframework.stereotype.Component;
 
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 import static com.gtc.provider.config.Const.GDAX;
 
@@ -39,7 +38,7 @@ public class GdaxClient extends BaseRawClient {
 
     private final GdaxConf conf;
 
-    public GdaxClient(GdaxConf conf) {
+    public GdaxClient(GdaxConf conf, WsClientConf wsConf) {
         super(
                 conf.getWs2().getRoot(),
                 GDAX,
@@ -49,7 +48,8 @@ public class GdaxClient extends BaseRawClient {
                         .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
                         .configure(DeserializationFeature.FAIL_ON_NUMBERS_FOR_ENUMS, false)
                         .configure(DeserializationFeature.ACCEPT_FLOAT_AS_INT, true)
-                        .configure(DeserializationFeature.FAIL_ON_NULL_CREATOR_PROPERTIES, false)
+                        .configure(DeserializationFeature.FAIL_ON_NULL_CREATOR_PROPERTIES, false),
+                wsConf.getReconnect()
         );
         this.conf = conf;
     }
@@ -115,8 +115,7 @@ public class GdaxClient extends BaseRawClient {
         for (double[] snapshotItem : list) {
             double price = snapshotItem[0];
             double amount = getAmount(snapshotItem[1], isSell);
-            String id = String.valueOf(price);
-            addBid(id, amount, price, channel);
+            book(channel).update(price, amount);
         }
     }
 
@@ -133,26 +132,12 @@ public class GdaxClient extends BaseRawClient {
         for (String[] change : changes) {
             String type = change[0];
             double price = Double.parseDouble(change[1]);
-            String id = String.valueOf(price);
             double amount = getAmount(Double.parseDouble(change[2]), SELL.equals(type));
-            if (amount == 0) {
-                removeBid(id, channel);
-            } else {
-                addBid(id, amount, price, channel);
-            }
+            // 0 amount removes level
+            book(channel).update(price, amount);
         }
     }
 
-    private void addBid(String id, double amount, double price, ChannelDto channel) {
-        market.computeIfAbsent(channel, mapId -> new ConcurrentHashMap<>())
-                .put(id, new Bid(id, amount, price, price));
-    }
-
-    private void removeBid(String id, ChannelDto channel) {
-        market.computeIfAbsent(channel, mapId -> new ConcurrentHashMap<>())
-                .remove(id);
-    }
-
     private double getAmount(double amount, boolean isSell) {
         return isSell ? -amount : amount;
     }
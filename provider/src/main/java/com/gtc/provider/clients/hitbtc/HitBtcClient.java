@@ -5,19 +5,19 @@ import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.PropertyNamingStrategy;
-import com.gtc.model.provider.Bid;
 import com.gtc.meta.CurrencyPair;
+import com.gtc.provider.book.PriceLevelBook;
 import com.gtc.provider.clients.BaseRawClient;
 import com.gtc.provider.clients.ChannelDto;
 import com.gtc.provider.clients.hitbtc.dto.HitBtcOrderEvent;
 import com.gtc.provider.clients.hitbtc.dto.HitBtcSubscribe;
 import com.gtc.provider.clients.hitbtc.dto.HitBtcTickerEvent;
 import com.gtc.provider.config.HitBtcConf;
+import com.gtc.provider.config.WsClientConf;
 import lombok.SneakyThrows;
 import org.springframework.stereotype.Component;
 
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 import static com.gtc.provider.config.Const.HITBTC;
 
@@ -36,7 +36,7 @@ public class HitBtcClient extends BaseRawClient {
 
     private final HitBtcConf conf;
 
-    public HitBtcClient(HitBtcConf conf) {
+    public HitBtcClient(HitBtcConf conf, WsClientConf wsConf) {
         super(
                 conf.getWs2().getRoot(),
                 HITBTC,
@@ -46,7 +46,9 @@ public class HitBtcClient extends BaseRawClient {
                         .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
                         .configure(DeserializationFeature.FAIL_ON_NUMBERS_FOR_ENUMS, false)
                         .configure(DeserializationFeature.ACCEPT_FLOAT_AS_INT, true)
-                        .configure(DeserializationFeature.FAIL_ON_NULL_CREATOR_PROPERTIES, false));
+                        .configure(DeserializationFeature.FAIL_ON_NULL_CREATOR_PROPERTIES, false),
+                wsConf.getReconnect()
+        );
         this.conf = conf;
     }
 
@@ -102,27 +104,19 @@ public class HitBtcClient extends BaseRawClient {
                 evt.getParams().getSymbol(),
                 conf.getSymbol().getBid().get(evt.getParams().getSymbol()));
 
-        if (BIDS_SNAPSHOT.equals(evt.getMethod())) {
-            market.remove(channelDto);
-        }
+        book(channelDto).apply(channel -> {
+            if (BIDS_SNAPSHOT.equals(evt.getMethod())) {
+                channel.clear();
+            }
 
-        Map<String, Bid> channel = market.computeIfAbsent(
-                channelDto,
-                id -> new ConcurrentHashMap<>());
-        evt.getParams().getAsk().forEach(ask -> createBid(channel, ask, -1.0));
-        evt.getParams().getBid().forEach(bid -> createBid(channel, bid, 1.0));
+            evt.getParams().getAsk().forEach(ask -> createBid(channel, ask, -1.0));
+            evt.getParams().getBid().forEach(bid -> createBid(channel, bid, 1.0));
+        });
     }
 
-    private void createBid(Map<String, Bid> channel, HitBtcOrderEvent.Params.Order param, double sign) {
-        double amount = sign * Double.valueOf(param.getSize());
-        if (0.0 == amount) {
-            channel.remove(param.getPrice());
-            return;
-        }
-
-        // price is id
-        channel.put(param.getPrice(), new Bid(param.getPrice(), amount, Double.valueOf(param.getPrice()),
-                Double.valueOf(param.getPrice())));
+    private void createBid(PriceLevelBook channel, HitBtcOrderEvent.Params.Order param, double sign) {
+        // price is id, 0 amount removes level
+        channel.update(Double.valueOf(param.getPrice()), sign * Double.valueOf(param.getSize()));
     }
 
     @Override
@@ -7,19 +7,19 @@ import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.PropertyNamingStrategy;
-import com.gtc.model.provider.Bid;
 import com.gtc.meta.CurrencyPair;
+import com.gtc.provider.book.PriceLevelBook;
 import com.gtc.provider.clients.BaseRawClient;
 import com.gtc.provider.clients.ChannelDto;
 import com.gtc.provider.clients.huobi.dto.HuobiPong;
 import com.gtc.provider.clients.huobi.dto.HuobiResponse;
 import com.gtc.provider.clients.huobi.dto.HuobiSubscribeRequest;
 import com.gtc.provider.config.HuobiConf;
+import com.gtc.provider.config.WsClientConf;
 import lombok.SneakyThrows;
 import org.springframework.stereotype.Component;
 
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static com.gtc.provider.config.Const.HUOBI;
@@ -36,7 +36,7 @@ public class HuobiClient extends BaseRawClient {
     private final AtomicReference<RxObjectEventConnected> rxObjectEventConnected = new AtomicReference<>();
     private final HuobiConf conf;
 
-    public HuobiClient(HuobiConf conf) {
+    public HuobiClient(HuobiConf conf, WsClientConf wsConf) {
         super(
                 conf.getWs2().getRoot(),
                 HUOBI,
@@ -46,7 +46,9 @@ public class HuobiClient extends BaseRawClient {
                         .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
                         .configure(DeserializationFeature.FAIL_ON_NUMBERS_FOR_ENUMS, false)
                         .configure(DeserializationFeature.ACCEPT_FLOAT_AS_INT, true)
-                        .configure(DeserializationFeature.FAIL_ON_NULL_CREATOR_PROPERTIES, false));
+                        .configure(DeserializationFeature.FAIL_ON_NULL_CREATOR_PROPERTIES, false),
+                wsConf.getReconnect()
+        );
         this.conf = conf;
     }
 
@@ -117,31 +119,20 @@ public class HuobiClient extends BaseRawClient {
     }
 
     private void handleBids(HuobiResponse evt) {
-        // TODO - looks like they use full market snapshot and not update, so using PUT...
-        Map<String, Bid> channel = new ConcurrentHashMap<>();
-        market.put(
+        // TODO - looks like they use full market snapshot and not update, so replacing everything...
+        PriceLevelBook book = book(
                 new ChannelDto(
                         evt.getChannel(),
-                        conf.getSymbol().getBid().get(evt.getChannel())),
-                channel);
-        evt.getTick().getAsks().forEach(ask -> createBid(channel, ask, -1.0));
-        evt.getTick().getBids().forEach(bid -> createBid(channel, bid, 1.0));
+                        conf.getSymbol().getBid().get(evt.getChannel())));
+        book.apply(channel -> {
+            channel.clear();
+            evt.getTick().getAsks().forEach(ask -> createBid(channel, ask, -1.0));
+            evt.getTick().getBids().forEach(bid -> createBid(channel, bid, 1.0));
+        });
     }
 
-    private void createBid(Map<String, Bid> channel, double[] param, double sign) {
-        double amount = sign * param[1];
-        if (0.0 == amount) {
-            channel.remove(String.valueOf(param[0]));
-            return;
-        }
-
-        // price is id
-        channel.put(String.valueOf(param[0]),
-                new Bid(
-                        String.valueOf(param[0]),
-                        amount,
-                        param[0],
-                        param[0])
-        );
+    private void createBid(PriceLevelBook channel, double[] param, double sign) {
+        // price is id, 0 amount removes level
+        channel.update(param[0], sign * param[1]);
     }
 }
@@ -5,7 +5,6 @@ import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.PropertyNamingStrategy;
-import com.gtc.model.provider.Bid;
 import com.gtc.meta.CurrencyPair;
 import com.gtc.provider.clients.BaseRawClient;
 import com.gtc.provider.clients.ChannelDto;
@@ -14,10 +13,10 @@ import com.gtc.provider.clients.mock.dto.BookDto;
 import com.gtc.provider.clients.mock.dto.SubsType;
 import com.gtc.provider.clients.mock.dto.TickerDto;
 import com.gtc.provider.config.MockExchngConf;
+import com.gtc.provider.config.WsClientConf;
 import lombok.SneakyThrows;
 
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Created by Valentyn Berezin on 09.03.18.
@@ -29,7 +28,7 @@ public abstract class BaseMockClient extends BaseRawClient {
 
     private final MockExchngConf conf;
 
-    public BaseMockClient(MockExchngConf conf, String name) {
+    public BaseMockClient(MockExchngConf conf, WsClientConf wsConf, String name) {
         super(
                 conf.getWs2().getRoot(),
                 name,
@@ -39,7 +38,8 @@ public abstract class BaseMockClient extends BaseRawClient {
                         .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
                         .configure(DeserializationFeature.FAIL_ON_NUMBERS_FOR_ENUMS, false)
                         .configure(DeserializationFeature.ACCEPT_FLOAT_AS_INT, true)
-                        .configure(DeserializationFeature.FAIL_ON_NULL_CREATOR_PROPERTIES, false)
+                        .configure(DeserializationFeature.FAIL_ON_NULL_CREATOR_PROPERTIES, false),
+                wsConf.getReconnect()
         );
         this.conf = conf;
     }
@@ -95,18 +95,10 @@ public abstract class BaseMockClient extends BaseRawClient {
     }
 
     private void handleBids(BookDto evt) {
-        market.computeIfAbsent(
+        book(
                 new ChannelDto(
                         evt.getSymbol(),
-                        conf.getSymbol().getBid().get(evt.getSymbol())),
-                id -> new ConcurrentHashMap<>()
-        ).put(
-                String.valueOf(evt.getPrice()),
-                new Bid(
-                        String.valueOf(evt.getPrice()),
-                        evt.getAmount().doubleValue(),
-                        evt.getPrice().doubleValue(),
-                        evt.getPrice().doubleValue())
-        );
+                        conf.getSymbol().getBid().get(evt.getSymbol()))
+        ).update(evt.getPrice().doubleValue(), evt.getAmount().doubleValue());
     }
 }
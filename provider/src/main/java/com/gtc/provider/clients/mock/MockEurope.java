@@ -1,6 +1,7 @@
 package com.gtc.provider.clients.mock;
 
 import com.gtc.provider.config.MockExchngConf;
+import com.gtc.provider.config.WsClientConf;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
@@ -13,7 +14,7 @@ import static com.gtc.provider.clients.mock.Const.MOCK_ENABLED;
 @ConditionalOnProperty(name = MOCK_ENABLED, havingValue = "true")
 public class MockEurope extends BaseMockClient {
 
-    public MockEurope(MockExchngConf conf) {
-        super(conf, "mock-europe");
+    public MockEurope(MockExchngConf conf, WsClientConf wsConf) {
+        super(conf, wsConf, "mock-europe");
     }
 }
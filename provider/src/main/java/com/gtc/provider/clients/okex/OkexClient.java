@@ -5,7 +5,6 @@ import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.PropertyNamingStrategy;
-import com.gtc.model.provider.Bid;
 import com.gtc.meta.CurrencyPair;
 import com.gtc.provider.clients.BaseRawClient;
 import com.gtc.provider.clients.ChannelDto;
@@ -14,11 +13,11 @@ import com.gtc.provider.clients.okex.dto.OkexRequest;
 import com.gtc.provider.clients.okex.dto.OkexResponse;
 import com.gtc.provider.clients.okex.dto.OkexTickerResponse;
 import com.gtc.provider.config.OkexConf;
+import com.gtc.provider.config.WsClientConf;
 import lombok.SneakyThrows;
 import org.springframework.stereotype.Component;
 
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 import static com.gtc.provider.config.Const.OKEX;
 
@@ -39,7 +38,7 @@ public class OkexClient extends BaseRawClient {
 
     private OkexConf conf;
 
-    public OkexClient(OkexConf conf) {
+    public OkexClient(OkexConf conf, WsClientConf wsConf) {
         super(
                 conf.getWs2().getRoot(),
                 OKEX,
@@ -49,7 +48,8 @@ public class OkexClient extends BaseRawClient {
                         .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
                         .configure(DeserializationFeature.FAIL_ON_NUMBERS_FOR_ENUMS, false)
                         .configure(DeserializationFeature.ACCEPT_FLOAT_AS_INT, true)
-                        .configure(DeserializationFeature.FAIL_ON_NULL_CREATOR_PROPERTIES, false)
+                        .configure(DeserializationFeature.FAIL_ON_NULL_CREATOR_PROPERTIES, false),
+                wsConf.getReconnect()
         );
         this.conf = conf;
     }
@@ -130,14 +130,12 @@ public class OkexClient extends BaseRawClient {
 
     private void addOrderBook(double price, double amount, String symbol) {
         ChannelDto channel = new ChannelDto(symbol, conf.getSymbol().getBid().get(symbol));
-        String id = String.valueOf(price);
-        market.computeIfAbsent(channel, idKey -> new ConcurrentHashMap<>())
-                .put(id, new Bid(id, amount, price, price));
+        book(channel).update(price, amount);
     }
 
     private void removeOrderBook(double price, String symbol) {
         ChannelDto channel = new ChannelDto(symbol, conf.getSymbol().getBid().get(symbol));
-        market.computeIfAbsent(channel, id -> new ConcurrentHashMap<>()).remove(String.valueOf(price));
+        book(channel).remove(price);
     }
 
     private double getAmount(double amount, boolean isSell) {
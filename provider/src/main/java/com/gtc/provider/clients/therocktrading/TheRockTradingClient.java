@@ -6,8 +6,8 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.PropertyNamingStrategy;
 import com.google.common.collect.ImmutableMap;
-import com.gtc.model.provider.Bid;
 import com.gtc.meta.CurrencyPair;
+import com.gtc.provider.book.PriceLevelBook;
 import com.gtc.provider.clients.BaseRawClient;
 import com.gtc.provider.clients.ChannelDto;
 import com.gtc.provider.clients.common.pusher.dto.PusherEvent;
@@ -16,11 +16,11 @@ import com.gtc.provider.clients.therocktrading.dto.TheRockTradingOrderEvent;
 import com.gtc.provider.clients.therocktrading.dto.TheRockTradingOrderSnapshotEvent;
 import com.gtc.provider.clients.therocktrading.dto.TheRockTradingTickerEvent;
 import com.gtc.provider.config.TheRockTradingConf;
+import com.gtc.provider.config.WsClientConf;
 import lombok.SneakyThrows;
 import org.springframework.stereotype.Service;
 
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 import static com.gtc.provider.config.Const.THE_ROCK_TRADING;
 
@@ -40,7 +40,7 @@ public class TheRockTradingClient extends BaseRawClient {
 
     private final TheRockTradingConf conf;
 
-    public TheRockTradingClient(TheRockTradingConf conf) {
+    public TheRockTradingClient(TheRockTradingConf conf, WsClientConf wsConf) {
         super(
                 conf.getWs2().getRoot(),
                 THE_ROCK_TRADING,
@@ -50,7 +50,9 @@ public class TheRockTradingClient extends BaseRawClient {
                         .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
                         .configure(DeserializationFeature.FAIL_ON_NUMBERS_FOR_ENUMS, false)
                         .configure(DeserializationFeature.ACCEPT_FLOAT_AS_INT, true)
-                        .configure(DeserializationFeature.FAIL_ON_NULL_CREATOR_PROPERTIES, false));
+                        .configure(DeserializationFeature.FAIL_ON_NULL_CREATOR_PROPERTIES, false),
+                wsConf.getReconnect()
+        );
         this.conf = conf;
     }
 
@@ -123,9 +125,7 @@ public class TheRockTradingClient extends BaseRawClient {
                 data.getChannel(),
                 conf.getSymbol().getBid().get(data.getChannel()));
 
-        Map<String, Bid> channel = market.computeIfAbsent(
-                channelDto,
-                id -> new ConcurrentHashMap<>());
+        PriceLevelBook channel = book(channelDto);
 
         if (ASK.equals(evt.getSide())) {
             createBid(channel, evt, -1.0);
@@ -144,29 +144,15 @@ public class TheRockTradingClient extends BaseRawClient {
                 data.getChannel(),
                 conf.getSymbol().getBid().get(data.getChannel()));
 
-        Map<String, Bid> channel = market.computeIfAbsent(
-                channelDto,
-                id -> new ConcurrentHashMap<>());
-
-        evt.getAsks().forEach(ask -> createBid(channel, ask, -1.0));
-        evt.getBids().forEach(bid -> createBid(channel, bid, 1.0));
+        book(channelDto).apply(channel -> {
+            evt.getAsks().forEach(ask -> createBid(channel, ask, -1.0));
+            evt.getBids().forEach(bid -> createBid(channel, bid, 1.0));
+        });
     }
 
-    private void createBid(Map<String, Bid> channel, TheRockTradingOrderEvent value, double sign) {
-        double amount = sign * value.getAmount();
-        if (0.0 == amount) {
-            channel.remove(String.valueOf(value.getPrice()));
-            return;
-        }
-
-        // price is id
-        channel.put(String.valueOf(value.getPrice()),
-                new Bid(
-                        String.valueOf(value.getPrice()),
-                        amount,
-                        value.getPrice(),
-                        value.getPrice())
-        );
+    private void createBid(PriceLevelBook channel, TheRockTradingOrderEvent value, double sign) {
+        // price is id, 0 amount removes level
+        channel.update(value.getPrice(), sign * value.getAmount());
     }
 
     @Override
@@ -5,19 +5,19 @@ import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.PropertyNamingStrategy;
-import com.gtc.model.provider.Bid;
 import com.gtc.meta.CurrencyPair;
+import com.gtc.provider.book.PriceLevelBook;
 import com.gtc.provider.clients.BaseRawClient;
 import com.gtc.provider.clients.ChannelDto;
 import com.gtc.provider.clients.common.pusher.dto.PusherSubscribe;
 import com.gtc.provider.clients.wex.dto.WexOrderBookResponse;
 import com.gtc.provider.clients.wex.dto.WexTickerResponse;
 import com.gtc.provider.config.WexConf;
+import com.gtc.provider.config.WsClientConf;
 import lombok.SneakyThrows;
 import org.springframework.stereotype.Component;
 
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 import static com.gtc.provider.config.Const.WEX;
 
@@ -32,7 +32,7 @@ public class WexClient extends BaseRawClient {
 
     private WexConf conf;
 
-    public WexClient(WexConf conf) {
+    public WexClient(WexConf conf, WsClientConf wsConf) {
         super(
                 conf.getWs2().getRoot(),
                 WEX,
@@ -41,7 +41,8 @@ public class WexClient extends BaseRawClient {
                         .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
                         .configure(DeserializationFeature.FAIL_ON_NUMBERS_FOR_ENUMS, false)
                         .configure(DeserializationFeature.ACCEPT_FLOAT_AS_INT, true)
-                        .configure(DeserializationFeature.FAIL_ON_NULL_CREATOR_PROPERTIES, false)
+                        .configure(DeserializationFeature.FAIL_ON_NULL_CREATOR_PROPERTIES, false),
+                wsConf.getReconnect()
         );
         this.conf = conf;
     }
@@ -103,22 +104,20 @@ public class WexClient extends BaseRawClient {
         ChannelDto channelDto = new ChannelDto(
                 symbol,
                 conf.getSymbol().getBid().get(symbol));
-        Map<String, Bid> channel = market.computeIfAbsent(
-                channelDto,
-                id -> new ConcurrentHashMap<>());
-        data.getAsk().forEach((double[] list) -> handleOrderBookItem(channel, list, true));
-        data.getBid().forEach((double[] list) -> handleOrderBookItem(channel, list, false));
+        book(channelDto).apply(channel -> {
+            data.getAsk().forEach((double[] list) -> handleOrderBookItem(channel, list, true));
+            data.getBid().forEach((double[] list) -> handleOrderBookItem(channel, list, false));
+        });
     }
 
-    private void handleOrderBookItem(Map<String, Bid> channel, double[] list, boolean isSell) {
+    private void handleOrderBookItem(PriceLevelBook channel, double[] list, boolean isSell) {
         double amount = list[1];
         double price = list[0];
-        String id = String.valueOf(price);
         if (0.0 == amount) {
-            channel.remove(id);
+            channel.remove(price);
             return;
         }
-        channel.put(id, new Bid(id, getAmount(amount, isSell), price, price));
+        channel.update(price, getAmount(amount, isSell));
     }
 
     private double getAmount(double amount, boolean isSell) {
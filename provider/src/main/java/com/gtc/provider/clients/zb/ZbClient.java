@@ -5,18 +5,18 @@ import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.PropertyNamingStrategy;
-import com.gtc.model.provider.Bid;
 import com.gtc.meta.CurrencyPair;
+import com.gtc.provider.book.PriceLevelBook;
 import com.gtc.provider.clients.BaseRawClient;
 import com.gtc.provider.clients.ChannelDto;
 import com.gtc.provider.clients.zb.dto.ZbEvent;
 import com.gtc.provider.clients.zb.dto.ZbSubscribe;
+import com.gtc.provider.config.WsClientConf;
 import com.gtc.provider.config.ZbConfig;
 import lombok.SneakyThrows;
 import org.springframework.stereotype.Component;
 
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 import static com.gtc.provider.config.Const.ZB;
 
@@ -30,7 +30,7 @@ public class ZbClient extends BaseRawClient {
 
     private final ZbConfig conf;
 
-    public ZbClient(ZbConfig conf) {
+    public ZbClient(ZbConfig conf, WsClientConf wsConf) {
         super(
                 conf.getWs2().getRoot(),
                 ZB,
@@ -40,7 +40,9 @@ public class ZbClient extends BaseRawClient {
                         .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
                         .configure(DeserializationFeature.FAIL_ON_NUMBERS_FOR_ENUMS, false)
                         .configure(DeserializationFeature.ACCEPT_FLOAT_AS_INT, true)
-                        .configure(DeserializationFeature.FAIL_ON_NULL_CREATOR_PROPERTIES, false));
+                        .configure(DeserializationFeature.FAIL_ON_NULL_CREATOR_PROPERTIES, false),
+                wsConf.getReconnect()
+        );
         this.conf = conf;
     }
 
@@ -84,26 +86,21 @@ public class ZbClient extends BaseRawClient {
     }
 
     private void handleBids(ZbEvent evt) {
-        // TODO - looks like they use full market snapshot and not update, so using PUT...
-        Map<String, Bid> channel = new ConcurrentHashMap<>();
-        market.put(
+        // TODO - looks like they use full market snapshot and not update, so replacing everything...
+        PriceLevelBook book = book(
                 new ChannelDto(
                         evt.getChannel(),
-                        conf.getSymbol().getTicker().get(evt.getChannel().split("_")[0])),
-                channel);
-        evt.getAsks().forEach(dto -> createBid(channel, dto, -1.0));
-        evt.getBids().forEach(dto -> createBid(channel, dto, 1.0));
+                        conf.getSymbol().getTicker().get(evt.getChannel().split("_")[0])));
+        book.apply(channel -> {
+            channel.clear();
+            evt.getAsks().forEach(dto -> createBid(channel, dto, -1.0));
+            evt.getBids().forEach(dto -> createBid(channel, dto, 1.0));
+        });
     }
 
-    private void createBid(Map<String, Bid> channel, Double[] dto, double sign) {
-        double amount = sign * dto[1];
-        if (0.0 == amount) {
-            channel.remove(String.valueOf(dto[0]));
-            return;
-        }
-
-        // price is id
-        channel.put(String.valueOf(dto[0]), new Bid(String.valueOf(dto[0]), amount, dto[0], dto[0]));
+    private void createBid(PriceLevelBook channel, Double[] dto, double sign) {
+        // price is id, 0 amount removes level
+        channel.update(dto[0], sign * dto[1]);
     }
 
     @Override
@@ -26,6 +26,7 @@ public class Const {
     public static final String EXX = "exx";
     public static final String WEX = "wex";
     public static final String CLIENTS = "clients";
+    public static final String WS = "ws";
 
     @UtilityClass
     public class Rest {
@@ -40,6 +41,12 @@ public class Const {
         public static final String WRITE = "write";
     }
 
+    @UtilityClass
+    public class Publish {
+
+        public static final String PUBLISH = "publish";
+    }
+
     @UtilityClass
     public class Ws {
         public static final String ORDER_TICKER_QUEUE = "/market";
@@ -0,0 +1,32 @@
+package com.gtc.provider.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import static com.gtc.provider.config.Const.CONF_ROOT_CHILD;
+import static com.gtc.provider.config.Const.Publish.PUBLISH;
+
+/**
+ * Outbound queues of subscribers.
+ */
+@Data
+@Configuration
+@ConfigurationProperties(CONF_ROOT_CHILD + PUBLISH)
+public class PublishConf {
+
+    private int queueSize = 64;
+    private int writers = 4;
+    private SlowConsumerPolicy slowConsumerPolicy = SlowConsumerPolicy.CONFLATE;
+
+    public enum SlowConsumerPolicy {
+
+        // discard oldest queued message
+        DROP_OLDEST,
+        // queued message is replaced by newer one with same key (order book of same client and pair),
+        // if there is nothing to replace oldest one is discarded
+        CONFLATE,
+        // close session of subscriber that can't keep up
+        DISCONNECT
+    }
+}
@@ -0,0 +1,29 @@
+package com.gtc.provider.config;
+
+import com.gtc.ws.ReconnectPolicy;
+import com.gtc.ws.SharedWsHttpClient;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import javax.annotation.PostConstruct;
+
+import static com.gtc.provider.config.Const.CONF_ROOT_CHILD;
+import static com.gtc.provider.config.Const.WS;
+
+/**
+ * Shared websocket client and reconnect policy of exchange clients.
+ */
+@Data
+@Configuration
+@ConfigurationProperties(CONF_ROOT_CHILD + WS)
+public class WsClientConf {
+
+    private SharedWsHttpClient.Cfg client = new SharedWsHttpClient.Cfg();
+    private ReconnectPolicy reconnect = new ReconnectPolicy();
+
+    @PostConstruct
+    public void configureClient() {
+        SharedWsHttpClient.configure(client);
+    }
+}
@@ -27,6 +27,10 @@ public class MarketSubsRegistry {
                 .add(session);
     }
 
+    public void unsubscribe(WebSocketSession session) {
+        marketPricesToSessionId.forEach((k, v) -> v.remove(session));
+    }
+
     public Set<WebSocketSession> destinations(MarketPrice price) {
         return marketPricesToSessionId.getOrDefault(
                 new Key(price.getFrom(), price.getTo()),
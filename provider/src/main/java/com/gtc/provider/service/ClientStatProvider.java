@@ -1,8 +1,9 @@
 package com.gtc.provider.service;
 
+import com.gtc.provider.book.BookSide;
+import com.gtc.provider.book.PriceLevelBook;
 import com.gtc.provider.clients.MarketDto;
 import com.gtc.provider.controller.dto.stat.StatDto;
-import com.gtc.model.provider.Bid;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
@@ -28,13 +29,19 @@ public class ClientStatProvider {
             MarketDto market = client.market();
             List<StatDto.ClientStat> stats = new ArrayList<>();
             market.getTicker().forEach((channel, ticker) -> {
-                Collection<Bid> bids = market.getMarket().getOrDefault(channel, new ArrayList<>());
+                PriceLevelBook book = market.getMarket().getOrDefault(channel, new PriceLevelBook());
+                LongSummaryStatistics bidTime = book.read((buy, sell) -> {
+                    LongSummaryStatistics time = new LongSummaryStatistics();
+                    collectTimestamps(buy, time);
+                    collectTimestamps(sell, time);
+                    return time;
+                });
 
                 StatDto.ClientStat.Timestamp timestamp = new StatDto.ClientStat.Timestamp(
                         ticker.getTimestamp(),
-                        bids.stream().mapToLong(Bid::getTimestamp).min().orElse(0L),
-                        bids.stream().mapToLong(Bid::getTimestamp).max().orElse(0L),
-                        (long) bids.stream().mapToLong(Bid::getTimestamp).average().orElse(0.0)
+                        0 == bidTime.getCount() ? 0L : bidTime.getMin(),
+                        0 == bidTime.getCount() ? 0L : bidTime.getMax(),
+                        (long) bidTime.getAverage()
                 );
 
                 stats.add(
@@ -43,7 +50,7 @@ public class ClientStatProvider {
                                 !client.isDisconnected(),
                                 channel,
                                 timestamp,
-                                bids.size()
+                                (int) bidTime.getCount()
                         )
                 );
             });
@@ -54,4 +61,10 @@ public class ClientStatProvider {
 
         return result;
     }
+
+    private static void collectTimestamps(BookSide side, LongSummaryStatistics time) {
+        for (int rank = 0; rank < side.size(); ++rank) {
+            time.accept(side.timestamp(rank));
+        }
+    }
 }
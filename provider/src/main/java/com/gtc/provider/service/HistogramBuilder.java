@@ -15,6 +15,10 @@ public class HistogramBuilder {
 
     private final WriteConf writeConf;
 
+    IncrementalHistogram newIncrementalHistogram() {
+        return new IncrementalHistogram(writeConf.getHistogram().getResolution());
+    }
+
     AggregatedOrder[] buildHistogram(List<Bid> market, boolean isSell) {
         Stat stat = computeMinMax(market);
         double min = stat.getMin();
@@ -25,7 +29,7 @@ public class HistogramBuilder {
         AggregatedOrder[] entries = new AggregatedOrder[resolution];
 
         for (int pos = 0; pos < resolution; ++pos) {
-            initializeHistogramEntry(isSell, min, resolution, step, entries, pos);
+            entries[pos] = histogramEntry(isSell, min, resolution, step, pos);
         }
 
         double[] avgTime = new double[resolution];
@@ -60,15 +64,14 @@ public class HistogramBuilder {
         return entries;
     }
 
-    private void initializeHistogramEntry(boolean isSell, double min, int resolution, double step,
-                                          AggregatedOrder[] entries, int pos) {
+    static AggregatedOrder histogramEntry(boolean isSell, double min, int resolution, double step, int pos) {
         AggregatedOrder entry = new AggregatedOrder();
         entry.setMinPrice(min + pos * step);
         entry.setMaxPrice(min + (pos + 1) * step);
         entry.setSell(isSell);
         // -1 and 1 enclose virtual 0 (ticker)
         entry.setPosId(isSell ? (short) (pos + 1) : (short) -(resolution - pos));
-        entries[pos] = entry;
+        return entry;
     }
 
     private long oldest(long one, long two) {
@@ -0,0 +1,212 @@
+package com.gtc.provider.service;
+
+import com.gtc.model.provider.AggregatedOrder;
+import com.gtc.provider.book.BookListener;
+import com.gtc.provider.book.BookSide;
+
+import java.util.Arrays;
+
+/**
+ * Histogram of single {@link com.gtc.provider.book.PriceLevelBook} that is kept between reports.
+ * Level changes mark bucket they fall into as dirty and only dirty buckets get re-aggregated on build,
+ * whole histogram is recomputed only when its boundaries shift (best price moved or level at the edge of
+ * deviateFromSignChangePct window appeared/disappeared).
+ * Result is bit-for-bit same as {@link HistogramBuilder#buildHistogram(java.util.List, boolean)} on
+ * levels in rank order - dirty bucket is re-summed in the same order rather than patched with deltas, so
+ * there is no floating point drift.
+ * Listener methods are called under book write lock and build methods must be called under its read lock.
+ */
+class IncrementalHistogram implements BookListener {
+
+    private final Side buy;
+    private final Side sell;
+
+    IncrementalHistogram(int resolution) {
+        this.buy = new Side(false, resolution);
+        this.sell = new Side(true, resolution);
+    }
+
+    synchronized AggregatedOrder[] buildBuy(BookSide side, double histogramBuyLimit) {
+        return buy.build(side, histogramBuyLimit);
+    }
+
+    synchronized AggregatedOrder[] buildSell(BookSide side, double histogramSellLimit) {
+        return sell.build(side, histogramSellLimit);
+    }
+
+    @Override
+    public void levelChanged(boolean isSell, double price) {
+        (isSell ? sell : buy).markDirty(price);
+    }
+
+    @Override
+    public void cleared() {
+        buy.invalidate();
+        sell.invalidate();
+    }
+
+    private static class Side {
+
+        private final boolean isSell;
+        private final int resolution;
+
+        private final boolean[] dirty;
+        private final double[] amount;
+        private final int[] bidCount;
+        private final long[] latestBid;
+        private final long[] averageBid;
+        private final long[] oldestBid;
+
+        private boolean valid;
+        private double min;
+        private double max;
+        private double step;
+        // number of best levels that fit histogram limit
+        private int levels;
+
+        Side(boolean isSell, int resolution) {
+            this.isSell = isSell;
+            this.resolution = resolution;
+            this.dirty = new boolean[resolution];
+            this.amount = new double[resolution];
+            this.bidCount = new int[resolution];
+            this.latestBid = new long[resolution];
+            this.averageBid = new long[resolution];
+            this.oldestBid = new long[resolution];
+        }
+
+        void markDirty(double price) {
+            // levels outside of boundaries can only affect histogram by shifting them
+            if (!valid || price < min || price > max) {
+                return;
+            }
+
+            dirty[pos(price)] = true;
+        }
+
+        void invalidate() {
+            valid = false;
+        }
+
+        AggregatedOrder[] build(BookSide side, double limit) {
+            levels = countLevels(side, limit);
+            updateBoundaries(side);
+
+            for (int pos = 0; pos < resolution; ++pos) {
+                if (dirty[pos]) {
+                    aggregate(side, pos);
+                    dirty[pos] = false;
+                }
+            }
+
+            AggregatedOrder[] entries = new AggregatedOrder[resolution];
+            for (int pos = 0; pos < resolution; ++pos) {
+                AggregatedOrder entry = HistogramBuilder.histogramEntry(isSell, min, resolution, step, pos);
+                entry.setAmount(amount[pos]);
+                entry.setBidCount(bidCount[pos]);
+                entry.setLatestBid(latestBid[pos]);
+                entry.setAverageBid(averageBid[pos]);
+                entry.setOldestBid(oldestBid[pos]);
+                entries[pos] = entry;
+            }
+
+            return entries;
+        }
+
+        private void updateBoundaries(BookSide side) {
+            double newMin = Double.MAX_VALUE;
+            double newMax = Double.MIN_VALUE;
+            if (levels > 0) {
+                double best = side.price(0);
+                double worst = side.price(levels - 1);
+                newMin = Math.min(best, worst);
+                newMax = Math.max(best, worst);
+            }
+
+            if (valid && newMin == min && newMax == max) {
+                return;
+            }
+
+            min = newMin;
+            max = newMax;
+            step = (max - min) / resolution;
+            Arrays.fill(dirty, true);
+            valid = true;
+        }
+
+        private void aggregate(BookSide side, int pos) {
+            int from = firstRank(side, pos);
+            int to = firstRank(side, isSell ? pos + 1 : pos - 1);
+
+            double sum = 0.0;
+            double avgTime = 0.0;
+            long latest = 0L;
+            long oldest = 0L;
+            for (int rank = from; rank < to; ++rank) {
+                long time = side.timestamp(rank);
+                sum += side.amount(rank);
+                // same as in HistogramBuilder - entry starts with 0 timestamps
+                oldest = Math.min(time, oldest);
+                latest = Math.max(time, latest);
+                avgTime += time;
+            }
+
+            int count = to - from;
+            amount[pos] = sum;
+            bidCount[pos] = count;
+            latestBid[pos] = latest;
+            oldestBid[pos] = oldest;
+            averageBid[pos] = (long) (avgTime / count);
+        }
+
+        // bucket number is monotonic by rank - ascending for sell side, descending for buy side
+        private int firstRank(BookSide side, int pos) {
+            int low = 0;
+            int high = levels;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                int midPos = pos(side.price(mid));
+                if (isSell ? midPos >= pos : midPos <= pos) {
+                    high = mid;
+                } else {
+                    low = mid + 1;
+                }
+            }
+
+            return low;
+        }
+
+        private int countLevels(BookSide side, double limit) {
+            int low = 0;
+            int high = side.size();
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                double price = side.price(mid);
+                if (isSell ? price <= limit : price >= limit) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+
+            return low;
+        }
+
+        // same as in HistogramBuilder, price level has priceMin == priceMax
+        private int pos(double price) {
+            int pos;
+            // only 1 bid available on a side
+            if (0.0 == step && !isSell) {
+                pos = resolution - 1;
+            } else {
+                pos = (int) (((price + price) / 2.0 - min) / step);
+            }
+
+            if (pos >= resolution) {
+                pos = resolution - 1;
+            }
+
+            return pos;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.gtc.provider.service;
+
+import com.gtc.provider.config.PublishConf.SlowConsumerPolicy;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Bounded outbound queue of single subscriber session. Queue is drained by its own writer task, so
+ * slow subscriber delays only itself and never the publishing thread. At most one writer is active per session,
+ * so session is never written concurrently. Writer yields its thread after queue worth of messages, so that busy
+ * session does not starve others in small writer pool. When queue is full {@link SlowConsumerPolicy} decides what
+ * happens.
+ */
+@Slf4j
+class SessionOutbound {
+
+    private final WebSocketSession session;
+    private final int capacity;
+    private final SlowConsumerPolicy policy;
+    private final Executor writers;
+    private final Consumer<WebSocketSession> onClose;
+
+    private final Deque<Pending> queue = new ArrayDeque<>();
+    private final Map<String, Pending> pendingByKey = new HashMap<>();
+    private boolean writing;
+    private boolean closed;
+
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    SessionOutbound(WebSocketSession session, int capacity, SlowConsumerPolicy policy, Executor writers,
+                    Consumer<WebSocketSession> onClose) {
+        this.session = session;
+        this.capacity = capacity;
+        this.policy = policy;
+        this.writers = writers;
+        this.onClose = onClose;
+    }
+
+    /**
+     * @param key messages with same key supersede each other (i.e. order book of same client and pair)
+     */
+    void offer(String key, TextMessage message) {
+        boolean startWriter = false;
+        boolean disconnect = false;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+
+            Pending sameKey = pendingByKey.get(key);
+            if (SlowConsumerPolicy.CONFLATE == policy && null != sameKey) {
+                sameKey.message = message;
+                dropped.incrementAndGet();
+                return;
+            }
+
+            if (queue.size() >= capacity) {
+                if (SlowConsumerPolicy.DISCONNECT == policy) {
+                    discard();
+                    disconnect = true;
+                } else {
+                    Pending oldest = queue.poll();
+                    pendingByKey.remove(oldest.key, oldest);
+                    dropped.incrementAndGet();
+                }
+            }
+
+            if (!closed) {
+                Pending pending = new Pending(key, message);
+                queue.add(pending);
+                pendingByKey.put(key, pending);
+                startWriter = !writing;
+                writing = true;
+            }
+        }
+
+        if (disconnect) {
+            log.warn("Session {} can't keep up, disconnecting", session.getId());
+            close(CloseStatus.SESSION_NOT_RELIABLE);
+        } else if (startWriter) {
+            writers.execute(this::drain);
+        }
+    }
+
+    synchronized int depth() {
+        return queue.size();
+    }
+
+    long sent() {
+        return sent.get();
+    }
+
+    long dropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Stops sending without closing session.
+     */
+    synchronized void discard() {
+        closed = true;
+        dropped.addAndGet(queue.size());
+        queue.clear();
+        pendingByKey.clear();
+    }
+
+    private void drain() {
+        for (int written = 0; written < capacity; ++written) {
+            TextMessage message;
+            synchronized (this) {
+                Pending next = queue.poll();
+                if (null == next || closed) {
+                    writing = false;
+                    return;
+                }
+
+                pendingByKey.remove(next.key, next);
+                message = next.message;
+            }
+
+            try {
+                session.sendMessage(message);
+                sent.incrementAndGet();
+            } catch (IOException | RuntimeException ex) {
+                log.warn("Failed sending to session {}", session.getId(), ex);
+                discard();
+                close(CloseStatus.SERVER_ERROR);
+                return;
+            }
+        }
+
+        // writing flag stays set, so no other writer is started meanwhile
+        writers.execute(this::drain);
+    }
+
+    private void close(CloseStatus status) {
+        onClose.accept(session);
+        try {
+            if (session.isOpen()) {
+                session.close(status);
+            }
+        } catch (IOException ex) {
+            log.warn("Failed closing session {}", session.getId(), ex);
+        }
+    }
+
+    @AllArgsConstructor
+    private static class Pending {
+
+        private final String key;
+        private TextMessage message;
+    }
+}
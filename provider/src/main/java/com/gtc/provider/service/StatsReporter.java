@@ -2,21 +2,22 @@ package com.gtc.provider.service;
 
 import com.gtc.meta.CurrencyPair;
 import com.gtc.model.provider.*;
+import com.gtc.provider.book.BookSide;
+import com.gtc.provider.book.PriceLevelBook;
 import com.gtc.provider.clients.MarketDto;
 import com.gtc.provider.clients.WsClient;
 import com.gtc.provider.config.WriteConf;
 import com.newrelic.api.agent.NewRelic;
 import com.newrelic.api.agent.Trace;
-import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.List;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
 import java.util.stream.Stream;
 
 import static com.gtc.provider.config.Const.CONF_ROOT_SCHEDULE_CHILD;
@@ -37,6 +38,10 @@ public class StatsReporter {
     private final SubsRegistry subsRegistry;
     private final WriteConf writeConf;
 
+    // books get replaced on resubscribe, so histograms should not keep them
+    private final Map<PriceLevelBook, IncrementalHistogram> histograms =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
     @Value(SPEL_HISTO_RATE)
     private int histoDelay;
 
@@ -96,93 +101,39 @@ public class StatsReporter {
         );
     }
 
-    private OrderBook writeMarketHistory(String clientName, CurrencyPair pair, Collection<Bid> market) {
-
-        Stat stat = calcStat(market);
-        OrderBook history = OrderBook.builder()
-                .meta(new ByClientAndCurrency(clientName, pair))
-                .bidCount(market.size())
-                // best buy/sell - means market buys/sells
-                .bestBuy(stat.getBestBuy())
-                .bestSell(stat.getBestSell())
-                .amountBestBuy(stat.getBestBuyAmount())
-                .amountBestSell(stat.getBestSellAmount())
-                .build();
-
-        // separate histogram for buy (amount > 0) and sell
-        buildHistogram(history, stat.getSell(), stat.getBuy());
-        return history;
+    private OrderBook writeMarketHistory(String clientName, CurrencyPair pair, PriceLevelBook book) {
+        IncrementalHistogram histogram = histograms.computeIfAbsent(book, this::newHistogram);
+
+        return book.read((buy, sell) -> {
+            OrderBook history = OrderBook.builder()
+                    .meta(new ByClientAndCurrency(clientName, pair))
+                    .bidCount(buy.size() + sell.size())
+                    // best buy/sell - means market buys/sells
+                    .bestBuy(0 == buy.size() ? Double.MIN_VALUE : buy.price(0))
+                    .bestSell(0 == sell.size() ? Double.MAX_VALUE : sell.price(0))
+                    .amountBestBuy(0 == buy.size() ? 0.0 : Math.abs(buy.amount(0)))
+                    .amountBestSell(0 == sell.size() ? 0.0 : Math.abs(sell.amount(0)))
+                    .build();
+
+            // separate histogram for buy (amount > 0) and sell
+            buildHistogram(history, histogram, sell, buy);
+            return history;
+        });
+    }
+
+    private IncrementalHistogram newHistogram(PriceLevelBook book) {
+        IncrementalHistogram histogram = histogramBuilder.newIncrementalHistogram();
+        book.setListener(histogram);
+        return histogram;
     }
 
-    private void buildHistogram(OrderBook history, List<Bid> sellBids, List<Bid> buyBids) {
+    private void buildHistogram(OrderBook history, IncrementalHistogram histogram, BookSide sell, BookSide buy) {
         double histogramSellLimit = history.getBestSell()
                 * (1.0 + writeConf.getHistogram().getDeviateFromSignChangePct() / 100.0);
         double histogramBuyLimit = history.getBestBuy()
                 * (1.0 - writeConf.getHistogram().getDeviateFromSignChangePct() / 100.0);
 
-        history.setHistogramBuy(buildBuy(buyBids, histogramBuyLimit));
-        history.setHistogramSell(buildSell(sellBids, histogramSellLimit));
-    }
-
-    private AggregatedOrder[] buildSell(List<Bid> sellBids, double histogramSellLimit) {
-        List<Bid> bids = new ArrayList<>();
-        for (Bid sellBid : sellBids) {
-            if (sellBid.getPriceMin() <= histogramSellLimit) {
-                bids.add(sellBid);
-            }
-        }
-        return histogramBuilder.buildHistogram(bids, true);
-    }
-
-    private AggregatedOrder[] buildBuy(List<Bid> buyBids, double histogramBuyLimit) {
-        List<Bid> bids = new ArrayList<>();
-        for (Bid buyBid : buyBids) {
-            if (buyBid.getPriceMax() >= histogramBuyLimit) {
-                bids.add(buyBid);
-            }
-        }
-        return histogramBuilder.buildHistogram(bids, false);
-    }
-
-    private Stat calcStat(Collection<Bid> market) {
-        double bestBuy = Double.MIN_VALUE;
-        double bestSell = Double.MAX_VALUE;
-        double bestBuyAmount = 0.0;
-        double bestSellAmount = 0.0;
-
-        List<Bid> sell = new ArrayList<>(market.size());
-        List<Bid> buy = new ArrayList<>(market.size());
-
-        for (Bid bid : market) {
-
-            if (bid.getAmount() > 0) {
-                buy.add(bid);
-                if (bestBuy < bid.getPriceMax()) {
-                    bestBuy = bid.getPriceMax();
-                    bestBuyAmount = bid.getAmount();
-                }
-            } else {
-                sell.add(bid);
-                if (bestSell > bid.getPriceMin()) {
-                    bestSell = bid.getPriceMin();
-                    bestSellAmount = bid.getAmount();
-                }
-            }
-        }
-
-        return new Stat(bestBuy, bestSell, Math.abs(bestBuyAmount), Math.abs(bestSellAmount), sell, buy);
-    }
-
-    @Getter
-    @RequiredArgsConstructor
-    private static class Stat {
-
-        private final double bestBuy;
-        private final double bestSell;
-        private final double bestBuyAmount;
-        private final double bestSellAmount;
-
-        private final List<Bid> sell;
-        private final List<Bid> buy;
+        history.setHistogramBuy(histogram.buildBuy(buy, histogramBuyLimit));
+        history.setHistogramSell(histogram.buildSell(sell, histogramSellLimit));
     }
 }
@@ -1,13 +1,16 @@
 package com.gtc.provider.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.gtc.meta.TradingCurrency;
+import com.gtc.model.provider.ByClientAndCurrency;
 import com.gtc.model.provider.MarketPrice;
 import com.gtc.model.provider.OrderBook;
 import com.gtc.model.provider.Ticker;
+import com.gtc.provider.config.PublishConf;
 import com.gtc.provider.market.MarketSubsRegistry;
+import com.newrelic.api.agent.NewRelic;
 import lombok.Data;
-import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -15,27 +18,49 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 
+import javax.annotation.PreDestroy;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
 /**
  * Created by Valentyn Berezin on 15.06.18.
+ * Each payload is serialized once and the same message is put to bounded outbound queue of each subscriber,
+ * see {@link SessionOutbound}.
  */
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class SubsRegistry {
 
+    private static final String MESSAGE = "Custom/Subs/";
+
     private final ObjectMapper mapper;
     private final MarketSubsRegistry marketSubsRegistry;
+    private final PublishConf publishConf;
 
     private final Map<String, Set<WebSocketSession>> tickerClientToSessionId = new ConcurrentHashMap<>();
     private final Map<String, Set<WebSocketSession>> bookClientToSessionId = new ConcurrentHashMap<>();
-    private final Map<String, Object> locks = new ConcurrentHashMap<>();
+    private final Map<String, SessionOutbound> outbound = new ConcurrentHashMap<>();
+
+    private final ExecutorService writers;
+
+    public SubsRegistry(ObjectMapper mapper, MarketSubsRegistry marketSubsRegistry, PublishConf publishConf) {
+        this.mapper = mapper;
+        this.marketSubsRegistry = marketSubsRegistry;
+        this.publishConf = publishConf;
+        // each session has at most one writer task queued, so task queue is bounded by session count
+        this.writers = Executors.newFixedThreadPool(
+                publishConf.getWriters(),
+                new ThreadFactoryBuilder().setNameFormat("subs-writer-%d").setDaemon(true).build()
+        );
+    }
 
     public void subscribeTicker(WebSocketSession session, String clientName) {
         tickerClientToSessionId.computeIfAbsent(clientName, id -> ConcurrentHashMap.newKeySet()).add(session);
@@ -52,32 +77,39 @@ public class SubsRegistry {
     public void unsubscribe(WebSocketSession session) {
         tickerClientToSessionId.forEach((k, v) -> v.remove(session));
         bookClientToSessionId.forEach((k, v) -> v.remove(session));
-        locks.remove(session.getId());
+        marketSubsRegistry.unsubscribe(session);
+        SessionOutbound queue = outbound.remove(session.getId());
+        if (null != queue) {
+            queue.discard();
+        }
     }
 
-    @SneakyThrows
     public void publishTicker(Ticker ticker) {
-        String msg = mapper.writeValueAsString(ticker);
-        tickerClientToSessionId
-                .getOrDefault(ticker.getMeta().getClient(), Collections.emptySet())
-                .forEach(it -> doSend(it, msg));
+        ByClientAndCurrency meta = ticker.getMeta();
+        fanOut(
+                tickerClientToSessionId.getOrDefault(meta.getClient(), Collections.emptySet()),
+                "ticker/" + meta.getClient() + "/" + meta.getPair(),
+                ticker
+        );
     }
 
-    @SneakyThrows
     public void publishOrderBook(OrderBook orderBook) {
-        String msg = mapper.writeValueAsString(orderBook);
-        bookClientToSessionId
-                .getOrDefault(orderBook.getMeta().getClient(), Collections.emptySet())
-                .forEach(it -> doSend(it, msg));
+        ByClientAndCurrency meta = orderBook.getMeta();
+        fanOut(
+                bookClientToSessionId.getOrDefault(meta.getClient(), Collections.emptySet()),
+                "book/" + meta.getClient() + "/" + meta.getPair(),
+                orderBook
+        );
     }
 
-    @SneakyThrows
     public void publishMarketPrice(MarketPrice price) {
-        String msg = mapper.writeValueAsString(price);
-        marketSubsRegistry.destinations(price).forEach(it -> doSend(it, msg));
+        fanOut(
+                marketSubsRegistry.destinations(price),
+                "price/" + price.getFrom() + "/" + price.getTo(),
+                price
+        );
     }
 
-    @SneakyThrows
     @Scheduled(fixedRateString = "${app.schedule.pingMs}")
     public void ping() {
         Set<WebSocketSession> sessions = new HashSet<>();
@@ -91,19 +123,58 @@ public class SubsRegistry {
 
         sessions.addAll(marketSubsRegistry.allSessions());
 
-        String msg = mapper.writeValueAsString(new Ping());
-        sessions.forEach(subs -> doSend(subs, msg));
+        fanOut(sessions, "ping", new Ping());
+        reportQueueStats();
+    }
+
+    public List<QueueStat> queueStats() {
+        return outbound.entrySet().stream()
+                .map(it -> new QueueStat(it.getKey(), it.getValue().depth(), it.getValue().sent(),
+                        it.getValue().dropped()))
+                .collect(Collectors.toList());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        writers.shutdownNow();
     }
 
     @SneakyThrows
-    private void doSend(WebSocketSession session, String msg) {
-        synchronized (locks.computeIfAbsent(session.getId(), id -> new Object())) {
-            try {
-                session.sendMessage(new TextMessage(msg));
-            } catch (IllegalStateException ex) {
-                unsubscribe(session);
-            }
+    private void fanOut(Collection<WebSocketSession> sessions, String key, Object payload) {
+        if (sessions.isEmpty()) {
+            return;
         }
+
+        // Jackson reuses its internal buffers, message is immutable and shared by all queues
+        TextMessage message = new TextMessage(mapper.writeValueAsString(payload));
+        sessions.forEach(it -> outbound(it).offer(key, message));
+    }
+
+    private SessionOutbound outbound(WebSocketSession session) {
+        return outbound.computeIfAbsent(session.getId(), id -> new SessionOutbound(
+                session,
+                publishConf.getQueueSize(),
+                publishConf.getSlowConsumerPolicy(),
+                writers,
+                this::unsubscribe)
+        );
+    }
+
+    private void reportQueueStats() {
+        List<QueueStat> stats = queueStats();
+        NewRelic.recordMetric(MESSAGE + "maxQueueDepth",
+                stats.stream().mapToInt(QueueStat::getDepth).max().orElse(0));
+        NewRelic.recordMetric(MESSAGE + "dropped",
+                stats.stream().mapToLong(QueueStat::getDropped).sum());
+    }
+
+    @Data
+    public static class QueueStat {
+
+        private final String sessionId;
+        private final int depth;
+        private final long sent;
+        private final long dropped;
     }
 
     @Data
@@ -0,0 +1,113 @@
+package com.gtc.provider.book;
+
+import com.gtc.model.provider.Bid;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Microbenchmark of price-level book against map of bids keyed by String.valueOf(price) that
+ * clients used before. Simulates depth stream near the top of the book with periodic reads of
+ * best 10 levels. Test will only start if it sees property PERF_TEST == true.
+ */
+@Slf4j
+class PriceLevelBookPerformanceTest {
+
+    private static final int UPDATES = 2_000_000;
+    private static final int READ_EACH_N = 100;
+    private static final int DEPTH = 10;
+    private static final int ROUNDS = 5;
+
+    @Test
+    @EnabledIfEnvironmentVariable(named = "PERF_TEST", matches = "true")
+    void compareWithMapBook() {
+        double[] prices = new double[UPDATES];
+        double[] amounts = new double[UPDATES];
+        generateUpdates(prices, amounts);
+
+        for (int round = 0; round < ROUNDS; ++round) {
+            long mapNs = timeMapBook(prices, amounts);
+            long levelNs = timeLevelBook(prices, amounts);
+            log.info("Round {}: map book {} ns/update, price level book {} ns/update", round,
+                    mapNs / UPDATES, levelNs / UPDATES);
+        }
+    }
+
+    private static long timeMapBook(double[] prices, double[] amounts) {
+        Map<String, Bid> book = new ConcurrentHashMap<>();
+        double sink = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < prices.length; ++i) {
+            String id = String.valueOf(prices[i]);
+            if (0.0 == amounts[i]) {
+                book.remove(id);
+            } else {
+                book.put(id, new Bid(id, amounts[i], prices[i], prices[i]));
+            }
+
+            if (i % READ_EACH_N == 0) {
+                sink += topOfMap(book.values());
+            }
+        }
+        long duration = System.nanoTime() - start;
+        log.debug("Sink {}", sink);
+        return duration;
+    }
+
+    private static long timeLevelBook(double[] prices, double[] amounts) {
+        PriceLevelBook book = new PriceLevelBook();
+        double[] sink = new double[1];
+        long start = System.nanoTime();
+        for (int i = 0; i < prices.length; ++i) {
+            book.update(prices[i], amounts[i]);
+
+            if (i % READ_EACH_N == 0) {
+                book.forEachTop(false, DEPTH, (price, amount, count, timestamp) -> sink[0] += amount);
+                book.forEachTop(true, DEPTH, (price, amount, count, timestamp) -> sink[0] += amount);
+            }
+        }
+        long duration = System.nanoTime() - start;
+        log.debug("Sink {}", sink[0]);
+        return duration;
+    }
+
+    // what consumers had to do to get top of map book - copy and sort
+    private static double topOfMap(Collection<Bid> bids) {
+        List<Bid> buy = new ArrayList<>();
+        List<Bid> sell = new ArrayList<>();
+        for (Bid bid : bids) {
+            (bid.getAmount() > 0 ? buy : sell).add(bid);
+        }
+
+        buy.sort((a, b) -> Double.compare(b.getPriceMax(), a.getPriceMax()));
+        sell.sort((a, b) -> Double.compare(a.getPriceMin(), b.getPriceMin()));
+        double sum = 0;
+        for (int i = 0; i < Math.min(DEPTH, buy.size()); ++i) {
+            sum += buy.get(i).getAmount();
+        }
+        for (int i = 0; i < Math.min(DEPTH, sell.size()); ++i) {
+            sum += sell.get(i).getAmount();
+        }
+        return sum;
+    }
+
+    private static void generateUpdates(double[] prices, double[] amounts) {
+        Random random = new Random(1L);
+        double mid = 1000.0;
+        for (int i = 0; i < prices.length; ++i) {
+            mid += (random.nextInt(3) - 1) * 0.01;
+            // most of the activity is close to the top
+            double distance = Math.abs(random.nextGaussian()) * 0.5;
+            boolean isSell = random.nextBoolean();
+            prices[i] = Math.round((isSell ? mid + 0.01 + distance : mid - distance) * 100.0) / 100.0;
+            amounts[i] = random.nextInt(5) == 0 ? 0.0 : (isSell ? -1 : 1) * (1 + random.nextInt(100)) / 10.0;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.gtc.provider.book;
+
+import com.gtc.model.provider.Bid;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PriceLevelBookTest {
+
+    private final PriceLevelBook book = new PriceLevelBook();
+
+    @Test
+    void bestLevelsComeFirst() {
+        book.update(10.0, 1.0);
+        book.update(12.0, 2.0);
+        book.update(11.0, 3.0);
+        book.update(15.0, -1.0);
+        book.update(13.0, -2.0);
+        book.update(14.0, -3.0);
+
+        assertThat(prices(false, 10)).containsExactly(12.0, 11.0, 10.0);
+        assertThat(prices(true, 10)).containsExactly(13.0, 14.0, 15.0);
+        assertThat(prices(true, 2)).containsExactly(13.0, 14.0);
+        assertThat(book.size()).isEqualTo(6);
+    }
+
+    @Test
+    void updateReplacesLevelAmount() {
+        book.update(10.0, 1.0);
+        book.update(10.0, 5.0);
+
+        assertThat(bestBuyAmount()).isEqualTo(5.0);
+        assertThat(book.size()).isEqualTo(1);
+    }
+
+    @Test
+    void zeroAmountRemovesLevel() {
+        book.update(10.0, 1.0);
+        book.update(11.0, -1.0);
+
+        book.update(10.0, 0.0);
+        book.remove(11.0);
+        book.remove(12.0);
+
+        assertThat(book.size()).isZero();
+    }
+
+    @Test
+    void levelMovesToOtherSideWhenSignChanges() {
+        book.update(10.0, 1.0);
+        book.update(10.0, -2.0);
+
+        assertThat(prices(false, 10)).isEmpty();
+        assertThat(prices(true, 10)).containsExactly(10.0);
+    }
+
+    @Test
+    void ordersAggregateIntoLevels() {
+        book.putOrder(1L, 10.0, 1.0);
+        book.putOrder(2L, 10.0, 2.0);
+        book.putOrder(3L, 11.0, -1.0);
+
+        assertThat(bestBuyAmount()).isEqualTo(3.0);
+        assertThat(bestBuyCount()).isEqualTo(2);
+
+        book.putOrder(2L, 9.0, 2.0);
+        assertThat(prices(false, 10)).containsExactly(10.0, 9.0);
+        assertThat(bestBuyAmount()).isEqualTo(1.0);
+
+        book.removeOrder(1L);
+        book.removeOrder(3L);
+        book.removeOrder(42L);
+        assertThat(prices(false, 10)).containsExactly(9.0);
+        assertThat(prices(true, 10)).isEmpty();
+    }
+
+    @Test
+    void applyAndClear() {
+        book.update(10.0, 1.0);
+
+        book.apply(it -> {
+            it.clear();
+            it.update(20.0, 1.0);
+            it.update(21.0, -1.0);
+        });
+
+        assertThat(prices(false, 10)).containsExactly(20.0);
+        assertThat(prices(true, 10)).containsExactly(21.0);
+    }
+
+    @Test
+    void matchesMapBasedBookOnRandomUpdates() {
+        Random random = new Random(42L);
+        Map<String, Bid> reference = new HashMap<>();
+
+        for (int i = 0; i < 100000; ++i) {
+            double price = 100 + random.nextInt(500) / 10.0;
+            double amount = random.nextInt(10) == 0 ? 0.0 : (price < 125 ? 1 : -1) * random.nextInt(100) / 10.0;
+            String id = String.valueOf(price);
+            if (0.0 == amount) {
+                reference.remove(id);
+            } else {
+                reference.put(id, new Bid(id, amount, price, price));
+            }
+            book.update(price, amount);
+        }
+
+        Map<String, Double> expected = reference.values().stream()
+                .collect(Collectors.toMap(Bid::getId, Bid::getAmount));
+        Map<String, Double> actual = book.toBids().stream()
+                .collect(Collectors.toMap(Bid::getId, Bid::getAmount));
+        assertThat(actual).isEqualTo(expected);
+        assertThat(prices(false, Integer.MAX_VALUE)).isSortedAccordingTo((a, b) -> Double.compare(b, a));
+        assertThat(prices(true, Integer.MAX_VALUE)).isSorted();
+    }
+
+    private double bestBuyAmount() {
+        return book.read((buy, sell) -> buy.amount(0));
+    }
+
+    private int bestBuyCount() {
+        return book.read((buy, sell) -> buy.count(0));
+    }
+
+    private List<Double> prices(boolean isSell, int depth) {
+        List<Double> result = new ArrayList<>();
+        book.forEachTop(isSell, depth, (price, amount, count, timestamp) -> result.add(price));
+        return result;
+    }
+}
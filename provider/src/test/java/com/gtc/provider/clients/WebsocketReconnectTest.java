@@ -0,0 +1,275 @@
+package com.gtc.provider.clients;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableMap;
+import com.gtc.ws.BaseWebsocketClient;
+import com.gtc.ws.ConnectionGuard;
+import com.gtc.ws.ConnectionStatistics;
+import com.gtc.ws.ReconnectPolicy;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs websocket client against local websocket server that drops connections.
+ */
+@Slf4j
+class WebsocketReconnectTest {
+
+    private static final long BASE_MS = 20;
+
+    private final Random random = new Random(1L);
+    private final AtomicInteger received = new AtomicInteger();
+
+    private DroppingServer server;
+    private BaseWebsocketClient client;
+
+    @AfterEach
+    void stop() {
+        if (null != client) {
+            client.disconnect();
+        }
+
+        if (null != server) {
+            server.close();
+        }
+    }
+
+    @Test
+    void reconnectsAfterRandomDrops() {
+        server = new DroppingServer(() -> random.nextDouble() < 0.3, () -> 1 + random.nextInt(5));
+        client = client(policy(0.5, 5, 1000));
+
+        client.connect(ImmutableMap.of());
+        awaitTrue(() -> server.connections.get() >= 15);
+
+        ConnectionStatistics stats = client.statistics();
+        assertThat(server.maxConcurrent.get()).isEqualTo(1);
+        assertThat(received.get()).isPositive();
+        assertThat(stats.getConnects()).isGreaterThanOrEqualTo(14);
+        assertThat(stats.getDisconnects()).isGreaterThanOrEqualTo(13);
+        assertThat(stats.getFailures()).isPositive();
+        assertThat(stats.getMaxTimeToFirstMessageMs()).isLessThan(5000L);
+        assertThat(stats.getBreaker()).isEqualTo(ConnectionGuard.State.CLOSED);
+    }
+
+    @Test
+    void backsOffExponentiallyWhileFailing() {
+        server = new DroppingServer(() -> true, () -> 0);
+        client = client(policy(0.0, 100, 1000));
+
+        client.connect(ImmutableMap.of());
+        awaitTrue(() -> server.connections.get() >= 4);
+
+        List<Long> at = server.acceptedAtMs;
+        // delay after n-th failure is base * 2^n
+        for (int attempt = 1; attempt < 4; ++attempt) {
+            assertThat(at.get(attempt) - at.get(attempt - 1))
+                    .isGreaterThanOrEqualTo((BASE_MS << attempt) - 5);
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    void circuitBreakerStopsAttempts() {
+        server = new DroppingServer(() -> true, () -> 0);
+        client = client(policy(0.0, 3, 1000));
+
+        client.connect(ImmutableMap.of());
+        awaitTrue(() -> ConnectionGuard.State.OPEN == client.statistics().getBreaker());
+        int whenOpened = server.connections.get();
+
+        Thread.sleep(500);
+        client.connect(ImmutableMap.of());
+        assertThat(server.connections.get()).isEqualTo(whenOpened).isEqualTo(3);
+
+        // half-open trial fails and opens breaker again
+        awaitTrue(() -> client.statistics().getBreakerOpens() >= 2);
+        assertThat(server.connections.get()).isEqualTo(4);
+    }
+
+    @Test
+    void guardBacksOffAndBreaksOnClock() {
+        AtomicLong now = new AtomicLong();
+        ConnectionGuard guard = new ConnectionGuard(policy(0.0, 3, 1000), now::get);
+
+        assertThat(guard.delayBeforeAttemptMs()).isZero();
+        guard.failed();
+        assertThat(guard.delayBeforeAttemptMs()).isEqualTo(2 * BASE_MS);
+        guard.failed();
+        assertThat(guard.delayBeforeAttemptMs()).isEqualTo(4 * BASE_MS);
+        guard.failed();
+        assertThat(guard.state()).isEqualTo(ConnectionGuard.State.OPEN);
+        assertThat(guard.delayBeforeAttemptMs()).isEqualTo(1000L);
+
+        now.set(1000L);
+        assertThat(guard.state()).isEqualTo(ConnectionGuard.State.HALF_OPEN);
+        assertThat(guard.delayBeforeAttemptMs()).isZero();
+        guard.succeeded();
+        assertThat(guard.state()).isEqualTo(ConnectionGuard.State.CLOSED);
+        assertThat(guard.failures()).isZero();
+
+        guard.ended();
+        assertThat(guard.delayBeforeAttemptMs()).isEqualTo(BASE_MS);
+        guard.closedByClient();
+        assertThat(guard.delayBeforeAttemptMs()).isZero();
+    }
+
+    private BaseWebsocketClient client(ReconnectPolicy policy) {
+        return new BaseWebsocketClient(
+                new BaseWebsocketClient.Config("ws://127.0.0.1:" + server.port() + "/", "test", 5,
+                        new ObjectMapper(), log, policy),
+                new BaseWebsocketClient.Handlers(conn -> {}, node -> received.incrementAndGet(), node -> {})
+        );
+    }
+
+    private static ReconnectPolicy policy(double jitter, int breakerFailures, long breakerOpenMs) {
+        ReconnectPolicy policy = new ReconnectPolicy();
+        policy.setBaseDelayMs(BASE_MS);
+        policy.setMaxDelayMs(500);
+        policy.setJitter(jitter);
+        policy.setBreakerFailures(breakerFailures);
+        policy.setBreakerOpenMs(breakerOpenMs);
+        return policy;
+    }
+
+    @SneakyThrows
+    private static void awaitTrue(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 20_000L;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.currentTimeMillis()).isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Minimal websocket server - handshake, then either drops connection immediately or sends few messages and
+     * drops connection without close frame.
+     */
+    private static class DroppingServer {
+
+        private static final String GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+
+        private final ServerSocket socket;
+        private final ExecutorService pool = Executors.newCachedThreadPool();
+        private final BooleanSupplier dropImmediately;
+        private final IntSupplier messages;
+
+        private final AtomicInteger connections = new AtomicInteger();
+        private final AtomicInteger concurrent = new AtomicInteger();
+        private final AtomicInteger maxConcurrent = new AtomicInteger();
+        private final List<Long> acceptedAtMs = new CopyOnWriteArrayList<>();
+
+        @SneakyThrows
+        DroppingServer(BooleanSupplier dropImmediately, IntSupplier messages) {
+            this.socket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+            this.dropImmediately = dropImmediately;
+            this.messages = messages;
+            pool.submit(this::acceptLoop);
+        }
+
+        int port() {
+            return socket.getLocalPort();
+        }
+
+        @SneakyThrows
+        void close() {
+            socket.close();
+            pool.shutdownNow();
+        }
+
+        private void acceptLoop() {
+            while (!socket.isClosed()) {
+                try {
+                    Socket conn = socket.accept();
+                    boolean drop;
+                    int count;
+                    synchronized (this) {
+                        drop = dropImmediately.getAsBoolean();
+                        count = messages.getAsInt();
+                    }
+                    pool.submit(() -> serve(conn, drop, count));
+                } catch (IOException ex) {
+                    return;
+                }
+            }
+        }
+
+        private void serve(Socket conn, boolean drop, int count) {
+            try (Socket closing = conn) {
+                handshake(conn);
+                acceptedAtMs.add(System.currentTimeMillis());
+                maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+                connections.incrementAndGet();
+                try {
+                    if (drop) {
+                        return;
+                    }
+
+                    OutputStream out = conn.getOutputStream();
+                    for (int i = 0; i < count; ++i) {
+                        sendText(out, "{\"seq\":" + i + "}");
+                        Thread.sleep(5);
+                    }
+                } finally {
+                    concurrent.decrementAndGet();
+                }
+            } catch (IOException | InterruptedException ex) {
+                // client went away
+            }
+        }
+
+        @SneakyThrows
+        private static void handshake(Socket conn) {
+            BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(conn.getInputStream(), StandardCharsets.ISO_8859_1));
+            String key = null;
+            String line;
+            while (null != (line = reader.readLine()) && !line.isEmpty()) {
+                if (line.toLowerCase().startsWith("sec-websocket-key:")) {
+                    key = line.substring(line.indexOf(':') + 1).trim();
+                }
+            }
+
+            String accept = Base64.getEncoder().encodeToString(MessageDigest.getInstance("SHA-1")
+                    .digest((key + GUID).getBytes(StandardCharsets.ISO_8859_1)));
+            conn.getOutputStream().write(("HTTP/1.1 101 Switching Protocols\r\n"
+                    + "Upgrade: websocket\r\n"
+                    + "Connection: Upgrade\r\n"
+                    + "Sec-WebSocket-Accept: " + accept + "\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+            conn.getOutputStream().flush();
+        }
+
+        private static void sendText(OutputStream out, String text) throws IOException {
+            byte[] payload = text.getBytes(StandardCharsets.UTF_8);
+            out.write(0x81);
+            out.write(payload.length);
+            out.write(payload);
+            out.flush();
+        }
+    }
+}
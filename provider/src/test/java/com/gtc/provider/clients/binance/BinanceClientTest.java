@@ -0,0 +1,150 @@
+package com.gtc.provider.clients.binance;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableList;
+import com.gtc.meta.CurrencyPair;
+import com.gtc.meta.TradingCurrency;
+import com.gtc.provider.book.PriceLevelBook;
+import com.gtc.provider.config.BaseClientConf;
+import com.gtc.provider.config.BinanceConf;
+import com.gtc.provider.config.Symbol;
+import com.gtc.provider.config.WsClientConf;
+import com.gtc.ws.FrameDispatcher;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Streaming (typed decoders) and tree dispatch of Binance frames should build same books.
+ */
+class BinanceClientTest {
+
+    static final String DEPTH_FRAMES = "binance/depth-frames.txt";
+
+    private static final ObjectMapper MAPPER = BinanceClient.newMapper();
+    private static final CurrencyPair ETH_BTC = new CurrencyPair(TradingCurrency.Ethereum, TradingCurrency.Bitcoin);
+
+    @Test
+    void streamingBuildsSameBooksAsTree() {
+        BinanceClient tree = client();
+        BinanceClient streaming = client();
+        FrameDispatcher dispatcher = dispatcher(streaming);
+
+        for (String frame : frames(DEPTH_FRAMES)) {
+            tree.parseEventDto(readTree(frame));
+            dispatcher.dispatch(frame);
+        }
+
+        Map<CurrencyPair, PriceLevelBook> expected = tree.market().getMarket();
+        Map<CurrencyPair, PriceLevelBook> actual = streaming.market().getMarket();
+        assertThat(actual.keySet()).isEqualTo(expected.keySet()).hasSize(3);
+        expected.forEach((pair, book) -> {
+            assertThat(levels(actual.get(pair), false)).isEqualTo(levels(book, false)).isNotEmpty();
+            assertThat(levels(actual.get(pair), true)).isEqualTo(levels(book, true)).isNotEmpty();
+        });
+    }
+
+    @Test
+    void readsLevelsWithTrailingFields() {
+        BinanceClient client = client();
+
+        dispatcher(client).dispatch("{\"stream\":\"ethbtc@depth\",\"data\":{\"e\":\"depthUpdate\",\"s\":\"ETHBTC\","
+                + "\"b\":[[\"0.07\",\"1.5\",[]],[\"0.069\",\"2\",[\"x\"]]],\"a\":[[\"0.071\",\"3\",[]]]}}");
+
+        PriceLevelBook book = client.market().getMarket().get(ETH_BTC);
+        assertThat(levels(book, false)).containsExactly("0.07:1.5", "0.069:2.0");
+        assertThat(levels(book, true)).containsExactly("0.071:-3.0");
+    }
+
+    @Test
+    void decodesTicker() {
+        BinanceClient client = client();
+
+        dispatcher(client).dispatch("{\"stream\":\"ethbtc@ticker\",\"data\":{\"e\":\"24hrTicker\",\"s\":\"ETHBTC\","
+                + "\"o\":\"0.0712\"}}");
+
+        assertThat(client.market().getTicker().get(ETH_BTC).getValue()).isEqualTo(0.0712);
+    }
+
+    @Test
+    void malformedFrameFailsUncheckedAndNextFrameIsHandled() {
+        BinanceClient client = client();
+        FrameDispatcher dispatcher = dispatcher(client);
+
+        // websocket client catches runtime exceptions only, checked one would end the subscription
+        assertThatThrownBy(() -> dispatcher.dispatch("{\"stream\":\"ethbtc@depth\",\"data\":{\"b\":[["))
+                .isInstanceOf(UncheckedIOException.class);
+        assertThatThrownBy(() -> dispatcher.dispatch("{\"result\":"))
+                .isInstanceOf(UncheckedIOException.class);
+        dispatcher.dispatch("{\"stream\":\"ethbtc@depth\",\"data\":{\"e\":\"depthUpdate\",\"s\":\"ETHBTC\","
+                + "\"b\":[[\"0.07\",\"1.5\",[]]],\"a\":[]}}");
+
+        assertThat(levels(client.market().getMarket().get(ETH_BTC), false)).containsExactly("0.07:1.5");
+    }
+
+    @Test
+    void unmatchedFrameGoesToTreeHandlers() {
+        List<JsonNode> objects = new ArrayList<>();
+        List<JsonNode> arrays = new ArrayList<>();
+        BinanceClient client = client();
+        FrameDispatcher dispatcher = new FrameDispatcher(MAPPER, client.decoders(), objects::add,
+                arrays::add);
+
+        dispatcher.dispatch("{\"stream\":\"ethbtc@trade\",\"data\":{}}");
+        dispatcher.dispatch("[1,2]");
+        dispatcher.dispatch("{\"result\":null,\"id\":1}");
+
+        assertThat(objects).hasSize(2);
+        assertThat(arrays).hasSize(1);
+        assertThat(client.market().getMarket()).isEmpty();
+    }
+
+    static BinanceClient client() {
+        Symbol symbol = new Symbol();
+        symbol.setBid(ImmutableList.of("ETHBTC=ETH-BTC", "LTCBTC=LTC-BTC", "XRPBTC=XRP-BTC"));
+        symbol.setTicker(ImmutableList.of("ETHBTC=ETH-BTC"));
+        BaseClientConf.Ws2 ws2 = new BaseClientConf.Ws2();
+        ws2.setRoot("wss://stream.binance.com:9443/stream");
+        BinanceConf conf = new BinanceConf();
+        conf.setSymbol(symbol);
+        conf.setWs2(ws2);
+        return new BinanceClient(conf, new WsClientConf());
+    }
+
+    static FrameDispatcher dispatcher(BinanceClient client) {
+        return new FrameDispatcher(MAPPER, client.decoders(), client::parseEventDto,
+                client::parseArray);
+    }
+
+    @SneakyThrows
+    static JsonNode readTree(String frame) {
+        return MAPPER.readTree(frame);
+    }
+
+    @SneakyThrows
+    static List<String> frames(String resource) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                BinanceClientTest.class.getClassLoader().getResourceAsStream(resource), StandardCharsets.UTF_8))) {
+            return reader.lines().filter(it -> !it.isEmpty()).collect(Collectors.toList());
+        }
+    }
+
+    private static List<String> levels(PriceLevelBook book, boolean isSell) {
+        List<String> levels = new ArrayList<>();
+        book.forEachTop(isSell, Integer.MAX_VALUE, (price, amount, count, timestamp) ->
+                levels.add(price + ":" + amount));
+        return levels;
+    }
+}
@@ -0,0 +1,65 @@
+package com.gtc.provider.clients.binance;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.gtc.ws.FrameDispatcher;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+/**
+ * Microbenchmark of typed streaming decoding of Binance depth frames against tree dispatch (frame is parsed
+ * to JsonNode and then bound again from tree) - throughput and allocated bytes per frame.
+ * Test will only start if it sees property PERF_TEST == true.
+ */
+@Slf4j
+class BinanceDecodingPerformanceTest {
+
+    private static final int PASSES = 500;
+    private static final int ROUNDS = 5;
+
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Test
+    @EnabledIfEnvironmentVariable(named = "PERF_TEST", matches = "true")
+    void compareWithTree() {
+        List<String> frames = BinanceClientTest.frames(BinanceClientTest.DEPTH_FRAMES);
+        BinanceClient tree = BinanceClientTest.client();
+        BinanceClient streaming = BinanceClientTest.client();
+        FrameDispatcher dispatcher = BinanceClientTest.dispatcher(streaming);
+        long total = (long) PASSES * frames.size();
+
+        for (int round = 0; round < ROUNDS; ++round) {
+            long treeBytes = allocated();
+            long treeNs = System.nanoTime();
+            for (int pass = 0; pass < PASSES; ++pass) {
+                for (String frame : frames) {
+                    JsonNode node = BinanceClientTest.readTree(frame);
+                    tree.parseEventDto(node);
+                }
+            }
+            treeNs = System.nanoTime() - treeNs;
+            treeBytes = allocated() - treeBytes;
+
+            long streamBytes = allocated();
+            long streamNs = System.nanoTime();
+            for (int pass = 0; pass < PASSES; ++pass) {
+                for (String frame : frames) {
+                    dispatcher.dispatch(frame);
+                }
+            }
+            streamNs = System.nanoTime() - streamNs;
+            streamBytes = allocated() - streamBytes;
+
+            log.info("Round {}: tree {} ns/frame {} B/frame, streaming {} ns/frame {} B/frame", round,
+                    treeNs / total, treeBytes / total, streamNs / total, streamBytes / total);
+        }
+    }
+
+    private long allocated() {
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
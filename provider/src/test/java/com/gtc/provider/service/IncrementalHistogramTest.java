@@ -0,0 +1,122 @@
+package com.gtc.provider.service;
+
+import com.gtc.model.provider.AggregatedOrder;
+import com.gtc.model.provider.Bid;
+import com.gtc.provider.book.PriceLevelBook;
+import com.gtc.provider.config.WriteConf;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IncrementalHistogramTest {
+
+    private static final double DEVIATE_PCT = 1.0;
+
+    private final PriceLevelBook book = new PriceLevelBook();
+    private final Random random = new Random(1L);
+
+    private HistogramBuilder builder;
+    private IncrementalHistogram histogram;
+
+    @BeforeEach
+    void init() {
+        WriteConf conf = new WriteConf();
+        conf.setHistogram(new WriteConf.Histogram());
+        conf.getHistogram().setResolution(10);
+        conf.getHistogram().setDeviateFromSignChangePct(DEVIATE_PCT);
+        builder = new HistogramBuilder(conf);
+        histogram = builder.newIncrementalHistogram();
+        book.setListener(histogram);
+    }
+
+    @Test
+    void emptyBook() {
+        assertSameAsFullBuild();
+    }
+
+    @Test
+    void singleLevelOnEachSide() {
+        book.update(100.0, 1.0);
+        book.update(101.0, -2.0);
+
+        assertSameAsFullBuild();
+    }
+
+    @Test
+    void sameAsFullBuildOnRandomLevelUpdates() {
+        double mid = 100.0;
+        for (int i = 0; i < 200000; ++i) {
+            mid += (random.nextInt(3) - 1) * 0.01;
+            double price = randomPrice(mid);
+            double amount = 0 == random.nextInt(5) ? 0.0 : (price < mid ? 1 : -1) * random.nextInt(1000) / 100.0;
+            book.update(price, amount);
+
+            if (0 == random.nextInt(50000)) {
+                book.clear();
+            }
+
+            if (0 == i % (1 + random.nextInt(20))) {
+                assertSameAsFullBuild();
+            }
+        }
+    }
+
+    @Test
+    void sameAsFullBuildOnRandomOrderUpdates() {
+        double mid = 100.0;
+        for (int i = 0; i < 100000; ++i) {
+            mid += (random.nextInt(3) - 1) * 0.01;
+            long id = random.nextInt(2000);
+            if (0 == random.nextInt(4)) {
+                book.removeOrder(id);
+            } else {
+                double price = randomPrice(mid);
+                book.putOrder(id, price, (price < mid ? 1 : -1) * (1 + random.nextInt(1000)) / 100.0);
+            }
+
+            if (0 == i % (1 + random.nextInt(20))) {
+                assertSameAsFullBuild();
+            }
+        }
+    }
+
+    private double randomPrice(double mid) {
+        return Math.round((mid + random.nextGaussian() * 1.5) * 100.0) / 100.0;
+    }
+
+    // what StatsReporter did before - filter all bids and build histogram from scratch
+    private void assertSameAsFullBuild() {
+        List<Bid> buy = new ArrayList<>();
+        List<Bid> sell = new ArrayList<>();
+        double bestBuy = Double.MIN_VALUE;
+        double bestSell = Double.MAX_VALUE;
+        for (Bid bid : book.toBids()) {
+            if (bid.getAmount() > 0) {
+                buy.add(bid);
+                bestBuy = Math.max(bestBuy, bid.getPriceMax());
+            } else {
+                sell.add(bid);
+                bestSell = Math.min(bestSell, bid.getPriceMin());
+            }
+        }
+
+        double sellLimit = bestSell * (1.0 + DEVIATE_PCT / 100.0);
+        double buyLimit = bestBuy * (1.0 - DEVIATE_PCT / 100.0);
+        buy.removeIf(it -> it.getPriceMax() < buyLimit);
+        sell.removeIf(it -> it.getPriceMin() > sellLimit);
+
+        AggregatedOrder[] expectedBuy = builder.buildHistogram(buy, false);
+        AggregatedOrder[] expectedSell = builder.buildHistogram(sell, true);
+        AggregatedOrder[] actualBuy = book.read((buySide, sellSide) -> histogram.buildBuy(buySide, buyLimit));
+        AggregatedOrder[] actualSell = book.read((buySide, sellSide) -> histogram.buildSell(sellSide, sellLimit));
+
+        // AggregatedOrder equals compares doubles by bits
+        assertThat(actualBuy).isEqualTo(expectedBuy);
+        assertThat(actualSell).isEqualTo(expectedSell);
+    }
+}
@@ -0,0 +1,247 @@
+package com.gtc.provider.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gtc.meta.CurrencyPair;
+import com.gtc.meta.TradingCurrency;
+import com.gtc.model.provider.ByClientAndCurrency;
+import com.gtc.model.provider.OrderBook;
+import com.gtc.model.provider.Ticker;
+import com.gtc.provider.config.PublishConf;
+import com.gtc.provider.market.MarketSubsRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SubsRegistryTest {
+
+    private static final String CLIENT = "client";
+    private static final CurrencyPair PAIR = new CurrencyPair(TradingCurrency.Bitcoin, TradingCurrency.Usd);
+    private static final CurrencyPair OTHER_PAIR = new CurrencyPair(TradingCurrency.Bitcoin, TradingCurrency.Tether);
+    private static final int QUEUE_SIZE = 4;
+    private static final int PUBLISHES = 1000;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final CountDownLatch stall = new CountDownLatch(1);
+    private final List<String> stalledReceived = new CopyOnWriteArrayList<>();
+    private final BlockingQueue<String> fastReceived = new LinkedBlockingQueue<>();
+
+    private SubsRegistry registry;
+
+    @AfterEach
+    void release() {
+        stall.countDown();
+        registry.shutdown();
+    }
+
+    @Test
+    void stalledSessionDoesNotDelayOthers() throws Exception {
+        init(PublishConf.SlowConsumerPolicy.DROP_OLDEST);
+        WebSocketSession stalled = stalledSession();
+        WebSocketSession fast = session("fast", fastReceived);
+        registry.subscribeBook(stalled, CLIENT);
+        registry.subscribeBook(fast, CLIENT);
+
+        publishAndAwaitFast();
+
+        SubsRegistry.QueueStat stalledStat = stat("stalled");
+        assertThat(stalledStat.getDepth()).isEqualTo(QUEUE_SIZE);
+        assertThat(stalledStat.getDropped()).isEqualTo(PUBLISHES - QUEUE_SIZE - 1L);
+        assertThat(stat("fast").getDropped()).isZero();
+
+        stall.countDown();
+        awaitReceived(stalledReceived, PUBLISHES - 1);
+        assertThat(stalledReceived).hasSize(QUEUE_SIZE + 1);
+    }
+
+    @Test
+    void conflatesLatestPerKey() throws Exception {
+        init(PublishConf.SlowConsumerPolicy.CONFLATE);
+        WebSocketSession stalled = stalledSession();
+        registry.subscribeBook(stalled, CLIENT);
+
+        registry.publishOrderBook(book(PAIR, 0));
+        awaitReceived(stalledReceived, 0);
+        for (int i = 1; i < 10; ++i) {
+            registry.publishOrderBook(book(PAIR, i));
+            registry.publishOrderBook(book(OTHER_PAIR, i));
+        }
+        assertThat(stat("stalled").getDepth()).isEqualTo(2);
+
+        stall.countDown();
+        awaitReceived(stalledReceived, 9);
+        assertThat(stalledReceived).hasSize(3);
+        assertThat(mapper.readValue(stalledReceived.get(1), OrderBook.class).getMeta().getPair()).isEqualTo(PAIR);
+        assertThat(mapper.readValue(stalledReceived.get(2), OrderBook.class).getMeta().getPair())
+                .isEqualTo(OTHER_PAIR);
+        assertThat(stat("stalled").getDropped()).isEqualTo(16L);
+    }
+
+    @Test
+    void disconnectsSlowConsumer() throws Exception {
+        init(PublishConf.SlowConsumerPolicy.DISCONNECT);
+        WebSocketSession stalled = stalledSession();
+        WebSocketSession fast = session("fast", fastReceived);
+        registry.subscribeBook(stalled, CLIENT);
+        registry.subscribeBook(fast, CLIENT);
+
+        publishAndAwaitFast();
+
+        verify(stalled, timeout(5000)).close(CloseStatus.SESSION_NOT_RELIABLE);
+        assertThat(registry.queueStats()).extracting(SubsRegistry.QueueStat::getSessionId).containsExactly("fast");
+    }
+
+    @Test
+    void stalledSessionsHoldAtMostAllWriters() throws Exception {
+        init(PublishConf.SlowConsumerPolicy.CONFLATE, 2);
+        for (int i = 0; i < 3; ++i) {
+            registry.subscribeBook(stalledSession("stalled" + i), CLIENT);
+        }
+
+        registry.publishOrderBook(book(PAIR, 0));
+        awaitCount(stalledReceived, 2);
+        Thread.sleep(100L);
+        assertThat(stalledReceived).hasSize(2);
+
+        stall.countDown();
+        awaitCount(stalledReceived, 3);
+    }
+
+    @Test
+    void busySessionYieldsWriter() throws Exception {
+        init(PublishConf.SlowConsumerPolicy.DROP_OLDEST, 1);
+        List<String> busyReceived = new CopyOnWriteArrayList<>();
+        AtomicInteger busySentBeforeFast = new AtomicInteger();
+        WebSocketSession busy = session("busy", busyReceived);
+        WebSocketSession fast = session("fast", fastReceived);
+        registry.subscribeBook(busy, CLIENT);
+        registry.subscribeTicker(fast, CLIENT);
+
+        // busy queue is refilled while it is being sent
+        doAnswer(invocation -> {
+            busyReceived.add(((TextMessage) invocation.getArguments()[0]).getPayload());
+            if (busyReceived.size() < PUBLISHES) {
+                registry.publishOrderBook(book(PAIR, busyReceived.size()));
+            }
+            return null;
+        }).when(busy).sendMessage(any());
+        doAnswer(invocation -> {
+            busySentBeforeFast.set(busyReceived.size());
+            fastReceived.add(((TextMessage) invocation.getArguments()[0]).getPayload());
+            return null;
+        }).when(fast).sendMessage(any());
+
+        registry.publishOrderBook(book(PAIR, 0));
+        registry.publishTicker(Ticker.builder().meta(new ByClientAndCurrency(CLIENT, PAIR)).price(1.0).build());
+
+        assertThat(fastReceived.poll(5, TimeUnit.SECONDS)).isNotNull();
+        assertThat(busySentBeforeFast.get()).isLessThan(PUBLISHES);
+    }
+
+    // each book reaches fast session while stalled one is stuck sending the first book
+    private void publishAndAwaitFast() throws Exception {
+        for (int i = 0; i < PUBLISHES; ++i) {
+            registry.publishOrderBook(book(PAIR, i));
+            if (0 == i) {
+                awaitReceived(stalledReceived, 0);
+            }
+
+            String received = fastReceived.poll(5, TimeUnit.SECONDS);
+            assertThat(received).isNotNull();
+            assertThat(mapper.readValue(received, OrderBook.class).getBestBuy()).isEqualTo(i);
+        }
+    }
+
+    private void init(PublishConf.SlowConsumerPolicy policy) {
+        init(policy, new PublishConf().getWriters());
+    }
+
+    private void init(PublishConf.SlowConsumerPolicy policy, int writers) {
+        PublishConf conf = new PublishConf();
+        conf.setQueueSize(QUEUE_SIZE);
+        conf.setSlowConsumerPolicy(policy);
+        conf.setWriters(writers);
+        registry = new SubsRegistry(mapper, new MarketSubsRegistry(), conf);
+    }
+
+    private WebSocketSession stalledSession() throws Exception {
+        return stalledSession("stalled");
+    }
+
+    private WebSocketSession stalledSession(String id) throws Exception {
+        WebSocketSession session = session(id, stalledReceived);
+        doAnswer(invocation -> {
+            stalledReceived.add(((TextMessage) invocation.getArguments()[0]).getPayload());
+            stall.await();
+            return null;
+        }).when(session).sendMessage(any());
+        return session;
+    }
+
+    private static WebSocketSession session(String id, Collection<String> received) throws Exception {
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn(id);
+        when(session.isOpen()).thenReturn(true);
+        doAnswer(invocation -> {
+            received.add(((TextMessage) invocation.getArguments()[0]).getPayload());
+            return null;
+        }).when(session).sendMessage(any());
+        return session;
+    }
+
+    private SubsRegistry.QueueStat stat(String sessionId) {
+        return registry.queueStats().stream()
+                .filter(it -> it.getSessionId().equals(sessionId))
+                .findFirst()
+                .orElseThrow(IllegalStateException::new);
+    }
+
+    private static void awaitCount(List<String> received, int count) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000L;
+        while (received.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10L);
+        }
+
+        assertThat(received).hasSize(count);
+    }
+
+    // waits until book with given best buy price is received
+    private void awaitReceived(List<String> received, int bestBuy) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000L;
+        while (System.currentTimeMillis() < deadline) {
+            for (String message : received) {
+                if (mapper.readValue(message, OrderBook.class).getBestBuy() == bestBuy) {
+                    return;
+                }
+            }
+            Thread.sleep(10L);
+        }
+
+        throw new AssertionError("Book " + bestBuy + " was not received");
+    }
+
+    private static OrderBook book(CurrencyPair pair, int bestBuy) {
+        return OrderBook.builder()
+                .meta(new ByClientAndCurrency(CLIENT, pair))
+                .bestBuy(bestBuy)
+                .build();
+    }
+}
@@ -17,12 +17,17 @@ public class Bid {
     private final double amount;
     private final double priceMin;
     private final double priceMax;
-    private final long timestamp = System.currentTimeMillis();
+    private final long timestamp;
+
+    public Bid(String id, double amount, double priceMin, double priceMax) {
+        this(id, amount, priceMin, priceMax, System.currentTimeMillis());
+    }
 
     public Bid(Bid other, double newAmount) {
         this.id = other.id;
         this.amount = newAmount;
         this.priceMin = other.priceMin;
         this.priceMax = other.priceMax;
+        this.timestamp = System.currentTimeMillis();
     }
 }
@@ -9,6 +9,7 @@ import lombok.extern.slf4j.Slf4j;
 import javax.annotation.Nonnull;
 import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.stream.Collectors;
 import java.util.zip.GZIPInputStream;
@@ -36,11 +37,7 @@ public class JacksonSerializer implements ObjectSerializer {
     @Override
     @SneakyThrows
     public Object serialize(@Nonnull byte[] message) {
-        try (BufferedReader reader =
-                     new BufferedReader(new InputStreamReader(
-                             new GZIPInputStream(new ByteArrayInputStream(message))))) {
-            return objectMapper.reader().readTree(reader.lines().collect(Collectors.joining()));
-        }
+        return objectMapper.reader().readTree(unzip(message));
     }
 
     @Nonnull
@@ -60,4 +57,12 @@ public class JacksonSerializer implements ObjectSerializer {
     public boolean isBinary(@Nonnull Object message) {
         return false;
     }
+
+    protected static String unzip(byte[] message) throws IOException {
+        try (BufferedReader reader =
+                     new BufferedReader(new InputStreamReader(
+                             new GZIPInputStream(new ByteArrayInputStream(message))))) {
+            return reader.lines().collect(Collectors.joining());
+        }
+    }
 }
@@ -0,0 +1,29 @@
+package com.gtc.rxsupport;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.SneakyThrows;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Passes inbound frames as text, so that they can be bound directly to DTO, outbound are serialized by Jackson.
+ */
+public class RawFrameSerializer extends JacksonSerializer {
+
+    public RawFrameSerializer(ObjectMapper objectMapper) {
+        super(objectMapper);
+    }
+
+    @Nonnull
+    @Override
+    public Object serialize(@Nonnull String message) {
+        return message;
+    }
+
+    @Nonnull
+    @Override
+    @SneakyThrows
+    public Object serialize(@Nonnull byte[] message) {
+        return unzip(message);
+    }
+}
@@ -10,8 +10,10 @@ import com.appunite.websocket.rx.object.messages.RxObjectEventMessage;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.gtc.rxsupport.JacksonSerializer;
 import com.gtc.rxsupport.MoreObservables;
+import com.gtc.rxsupport.RawFrameSerializer;
 import com.newrelic.api.agent.NewRelic;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
@@ -19,7 +21,6 @@ import lombok.SneakyThrows;
 import lombok.experimental.Delegate;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.Headers;
-import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import org.slf4j.Logger;
 import rx.Observable;
@@ -27,19 +28,34 @@ import rx.functions.Action0;
 import rx.functions.Action1;
 import rx.subjects.BehaviorSubject;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 
 /**
  * Created by Valentyn Berezin on 16.06.18.
+ * Connections share single OkHttp client. After {@link #connect(Map)} client reconnects itself after
+ * disconnects with backoff and circuit breaker of {@link ConnectionGuard} until {@link #disconnect()} is called;
+ * external schedulers calling {@link #connect(Map)} are subject to same guard.
  */
 @Slf4j
-@RequiredArgsConstructor
 public class BaseWebsocketClient {
 
     private static final String CONNECTS = "Custom/Connect/";
+    private static final String DISCONNECTS = "Custom/Disconnect/";
+    private static final String FIRST_MESSAGE = "Custom/FirstMessageMs/";
     private static final String MESSAGE = "Custom/Message/";
+    private static final String BAD_MESSAGE = "Custom/BadMessage/";
+
+    private static final ScheduledExecutorService RECONNECTS = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("ws-reconnect-%d").setDaemon(true).build()
+    );
 
     private final Object lock = new Object();
 
@@ -49,6 +65,16 @@ public class BaseWebsocketClient {
     @Delegate
     private final Handlers handlers;
 
+    private final FrameDispatcher dispatcher;
+    private final ConnectionGuard guard;
+
+    private final AtomicLong attempts = new AtomicLong();
+    private final AtomicLong connects = new AtomicLong();
+    private final AtomicLong disconnects = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong lastTimeToFirstMessageMs = new AtomicLong();
+    private final AtomicLong maxTimeToFirstMessageMs = new AtomicLong();
+
     @Getter
     private long connectedAtTimestamp;
 
@@ -56,59 +82,75 @@ public class BaseWebsocketClient {
     private boolean disconnected = true;
 
     private BehaviorSubject<Boolean> doDisconnect;
+    private Session session;
+    private Map<String, String> lastHeaders;
+    private ScheduledFuture<?> pendingReconnect;
+
+    public BaseWebsocketClient(Config config, Handlers handlers) {
+        this.config = config;
+        this.handlers = handlers;
+        this.dispatcher = new FrameDispatcher(
+                config.getObjectMapper(),
+                handlers.getDecoders(),
+                handlers.getParseJsonObject(),
+                handlers.getParseJsonArray()
+        );
+        this.guard = new ConnectionGuard(config.getReconnectPolicy(), System::currentTimeMillis);
+    }
 
     @SneakyThrows
     public void connect(Map<String, String> headers) {
         synchronized (lock) {
-            if (!disconnected) {
+            lastHeaders = headers;
+            if (!disconnected || (null != session && !session.closed)) {
+                return;
+            }
+
+            long waitMs = guard.delayBeforeAttemptMs();
+            if (waitMs > 0) {
+                getLog().debug("Backing off, next attempt in {} ms, breaker {}", waitMs, guard.state());
+                scheduleReconnect(waitMs);
                 return;
             }
 
-            Action1<Throwable> handleError = err -> {
-                log.info("WS error", err);
-                disconnected = true;
-            };
-
-            Action0 handleDisconnect = () -> disconnected = true;
-
-            getLog().info("Connecting");
-            Request request = new Request.Builder()
-                    .get()
-                    .headers(Headers.of(headers))
-                    .url(getWsPath())
-                    .build();
-
-            Observable<RxObjectEvent> sharedConnection = getConnection(request);
-
-            doDisconnect = BehaviorSubject.create();
-            sharedConnection
-                    .compose(MoreObservables.filterAndMap(RxObjectEventConnected.class))
-                    .takeUntil(doDisconnect)
-                    .subscribe(onConn -> {
-                        NewRelic.incrementCounter(CONNECTS + getName());
-                        disconnected = false;
-                        getLog().info("Connected");
-                        getHandleConnected().accept(onConn);
-                    }, handleError, handleDisconnect);
-
-            sharedConnection
-                    .takeUntil(doDisconnect)
-                    .compose(MoreObservables.filterAndMap(RxObjectEventMessage.class))
-                    .compose(RxObjectEventMessage.filterAndMap(JsonNode.class))
-                    .subscribe(this::handleInboundMessage, handleError, handleDisconnect);
+            doConnect(headers);
         }
     }
 
     public void disconnect() {
         synchronized (lock) {
+            if (null != pendingReconnect) {
+                pendingReconnect.cancel(false);
+            }
+
             if (disconnected) {
                 return;
             }
 
+            if (null != session) {
+                session.closed = true;
+            }
+
+            disconnects.incrementAndGet();
+            NewRelic.incrementCounter(DISCONNECTS + getName());
+            guard.closedByClient();
             doDisconnect.onNext(true);
         }
     }
 
+    public ConnectionStatistics statistics() {
+        return new ConnectionStatistics(
+                attempts.get(),
+                connects.get(),
+                disconnects.get(),
+                failures.get(),
+                guard.breakerOpens(),
+                guard.state(),
+                lastTimeToFirstMessageMs.get(),
+                maxTimeToFirstMessageMs.get()
+        );
+    }
+
     public static void sendIfNotNull(RxObjectEventConnected evt, Object msg) {
         if (null == msg) {
             return;
@@ -119,33 +161,137 @@ public class BaseWebsocketClient {
                 .subscribe();
     }
 
-    private void handleInboundMessage(JsonNode node) {
+    private void doConnect(Map<String, String> headers) {
+        Session current = new Session();
+        session = current;
+        attempts.incrementAndGet();
+
+        Action1<Throwable> handleError = err -> {
+            log.info("WS error", err);
+            disconnected = true;
+        };
+
+        Action0 handleDisconnect = () -> disconnected = true;
+
+        getLog().info("Connecting");
+        Request request = new Request.Builder()
+                .get()
+                .headers(Headers.of(headers))
+                .url(getWsPath())
+                .build();
+
+        Observable<RxObjectEvent> sharedConnection = getConnection(current, request);
+
+        doDisconnect = BehaviorSubject.create();
+        sharedConnection
+                .compose(MoreObservables.filterAndMap(RxObjectEventConnected.class))
+                .takeUntil(doDisconnect)
+                .subscribe(onConn -> {
+                    NewRelic.incrementCounter(CONNECTS + getName());
+                    connects.incrementAndGet();
+                    current.connectedAtNanos = System.nanoTime();
+                    connectedAtTimestamp = System.currentTimeMillis();
+                    disconnected = false;
+                    getLog().info("Connected");
+                    getHandleConnected().accept(onConn);
+                }, handleError, handleDisconnect);
+
+        Observable<RxObjectEventMessage> messages = sharedConnection
+                .takeUntil(doDisconnect)
+                .compose(MoreObservables.filterAndMap(RxObjectEventMessage.class));
+
+        if (dispatcher.isStreaming()) {
+            messages.compose(RxObjectEventMessage.filterAndMap(String.class))
+                    .subscribe(frame -> handleInboundFrame(current, frame), handleError, handleDisconnect);
+        } else {
+            messages.compose(RxObjectEventMessage.filterAndMap(JsonNode.class))
+                    .subscribe(node -> handleInboundMessage(current, node), handleError, handleDisconnect);
+        }
+    }
+
+    private void scheduleReconnect(long delayMs) {
+        if (null != pendingReconnect && !pendingReconnect.isDone()) {
+            return;
+        }
+
+        pendingReconnect = RECONNECTS.schedule(() -> {
+            try {
+                connect(lastHeaders);
+            } catch (RuntimeException ex) {
+                getLog().error("Failed reconnecting", ex);
+            }
+        }, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void handleInboundFrame(Session current, String frame) {
         NewRelic.incrementCounter(MESSAGE + getName());
+        onMessage(current);
         try {
-            if (!node.isArray()) {
-                getParseJsonObject().accept(node);
-            } else if (node.isArray()) {
-                getParseJsonArray().accept(node);
-            }
+            dispatcher.dispatch(frame);
         } catch (RuntimeException ex) {
+            // message is skipped, exception must not reach subscriber - it would stop receiving messages
+            NewRelic.incrementCounter(BAD_MESSAGE + getName());
+            NewRelic.noticeError(ex, ImmutableMap.of("name", getName()));
+            getLog().error("Exception handling {} / {}", frame, ex.getMessage(), ex);
+        }
+    }
+
+    private void handleInboundMessage(Session current, JsonNode node) {
+        NewRelic.incrementCounter(MESSAGE + getName());
+        onMessage(current);
+        try {
+            dispatcher.dispatch(node);
+        } catch (RuntimeException ex) {
+            NewRelic.incrementCounter(BAD_MESSAGE + getName());
             NewRelic.noticeError(ex, ImmutableMap.of("name", getName()));
             getLog().error("Exception handling {} / {}", node, ex.getMessage(), ex);
         }
     }
 
-    private Observable<RxObjectEvent> getConnection(Request request) {
-        ObjectSerializer serializer = new JacksonSerializer(getObjectMapper());
-        return new RxObjectWebSockets(new RxWebSockets(new OkHttpClient(), request), serializer)
+    private void onMessage(Session current) {
+        if (current.hadMessage) {
+            return;
+        }
+
+        current.hadMessage = true;
+        guard.succeeded();
+        long connectedAt = 0L == current.connectedAtNanos ? current.startedAtNanos : current.connectedAtNanos;
+        long tookMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - connectedAt);
+        lastTimeToFirstMessageMs.set(tookMs);
+        maxTimeToFirstMessageMs.accumulateAndGet(tookMs, Math::max);
+        NewRelic.recordMetric(FIRST_MESSAGE + getName(), tookMs);
+    }
+
+    private Observable<RxObjectEvent> getConnection(Session current, Request request) {
+        ObjectSerializer serializer = dispatcher.isStreaming()
+                ? new RawFrameSerializer(getObjectMapper()) : new JacksonSerializer(getObjectMapper());
+        return new RxObjectWebSockets(new RxWebSockets(SharedWsHttpClient.get(), request), serializer)
                 .webSocketObservable()
                 .timeout(getDisconnectIfInactiveS(), TimeUnit.SECONDS)
-                .doOnCompleted(() -> handleDisconnectEvt("Disconnected (completed)", null))
-                .doOnError(throwable -> handleDisconnectEvt("Disconnected (exceptional)", throwable))
+                .doOnCompleted(() -> handleDisconnectEvt(current, "Disconnected (completed)", null))
+                .doOnError(throwable -> handleDisconnectEvt(current, "Disconnected (exceptional)", throwable))
                 .share();
     }
 
-    private void handleDisconnectEvt(String reason, Throwable err) {
+    private void handleDisconnectEvt(Session current, String reason, Throwable err) {
         synchronized (lock) {
+            if (current.closed) {
+                return;
+            }
+
+            current.closed = true;
             disconnected = true;
+            if (0L != current.connectedAtNanos) {
+                disconnects.incrementAndGet();
+                NewRelic.incrementCounter(DISCONNECTS + getName());
+            }
+
+            if (current.hadMessage) {
+                guard.ended();
+            } else {
+                failures.incrementAndGet();
+                guard.failed();
+            }
 
             if (null != err) {
                 NewRelic.noticeError(err, ImmutableMap.of("name", getName()));
@@ -154,17 +300,43 @@ public class BaseWebsocketClient {
                 NewRelic.noticeError(getName());
                 getLog().error(reason);
             }
+
+            if (session == current) {
+                scheduleReconnect(guard.delayBeforeAttemptMs());
+            }
         }
     }
 
     @Getter
-    @RequiredArgsConstructor
     public static class Config {
         private final String wsPath;
         private final String name;
         private final int disconnectIfInactiveS;
         private final ObjectMapper objectMapper;
         private final Logger log;
+        private final ReconnectPolicy reconnectPolicy;
+
+        public Config(String wsPath, String name, int disconnectIfInactiveS, ObjectMapper objectMapper, Logger log) {
+            this(wsPath, name, disconnectIfInactiveS, objectMapper, log, new ReconnectPolicy());
+        }
+
+        public Config(String wsPath, String name, int disconnectIfInactiveS, ObjectMapper objectMapper, Logger log,
+                      ReconnectPolicy reconnectPolicy) {
+            this.wsPath = wsPath;
+            this.name = name;
+            this.disconnectIfInactiveS = disconnectIfInactiveS;
+            this.objectMapper = objectMapper;
+            this.log = log;
+            this.reconnectPolicy = reconnectPolicy;
+        }
+    }
+
+    private static class Session {
+
+        private final long startedAtNanos = System.nanoTime();
+        private volatile long connectedAtNanos;
+        private volatile boolean hadMessage;
+        private volatile boolean closed;
     }
 
     @Getter
@@ -173,5 +345,18 @@ public class BaseWebsocketClient {
         private final Consumer<RxObjectEventConnected> handleConnected;
         private final Consumer<JsonNode> parseJsonObject;
         private final Consumer<JsonNode> parseJsonArray;
+
+        /**
+         * Non-empty enables streaming mode - frames are bound directly by these decoders, frames that no
+         * decoder matches go to tree handlers.
+         */
+        private final List<FrameDecoder<?>> decoders;
+
+        public Handlers(
+                Consumer<RxObjectEventConnected> handleConnected,
+                Consumer<JsonNode> parseJsonObject,
+                Consumer<JsonNode> parseJsonArray) {
+            this(handleConnected, parseJsonObject, parseJsonArray, Collections.emptyList());
+        }
     }
 }
@@ -0,0 +1,95 @@
+package com.gtc.ws;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Decides when websocket client may (re)connect - exponential backoff between failed attempts and circuit breaker
+ * that stops attempts for a while after too many consecutive failures (half-open breaker allows single trial).
+ * Attempt is successful only when first message arrives, so servers that accept and drop immediately back off too.
+ */
+public class ConnectionGuard {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final ReconnectPolicy policy;
+    private final LongSupplier clockMs;
+
+    private int failures;
+    private long nextAttemptAtMs;
+    private long openUntilMs;
+    private boolean open;
+    private long breakerOpens;
+
+    public ConnectionGuard(ReconnectPolicy policy, LongSupplier clockMs) {
+        this.policy = policy;
+        this.clockMs = clockMs;
+    }
+
+    /**
+     * @return 0 if attempt can be made now, otherwise how long to wait
+     */
+    public synchronized long delayBeforeAttemptMs() {
+        long now = clockMs.getAsLong();
+        long allowedAt = open ? Math.max(openUntilMs, nextAttemptAtMs) : nextAttemptAtMs;
+        return Math.max(0L, allowedAt - now);
+    }
+
+    /**
+     * Connection delivered first message.
+     */
+    public synchronized void succeeded() {
+        failures = 0;
+        open = false;
+    }
+
+    /**
+     * Connection attempt failed or was dropped before first message.
+     */
+    public synchronized void failed() {
+        long now = clockMs.getAsLong();
+        failures++;
+        nextAttemptAtMs = now + policy.delayMs(failures);
+
+        if (open || failures >= policy.getBreakerFailures()) {
+            open = true;
+            openUntilMs = now + policy.getBreakerOpenMs();
+            breakerOpens++;
+        }
+    }
+
+    /**
+     * Healthy connection ended.
+     */
+    public synchronized void ended() {
+        failures = 0;
+        open = false;
+        nextAttemptAtMs = clockMs.getAsLong() + policy.delayMs(0);
+    }
+
+    /**
+     * Client closed connection itself, next attempt is allowed immediately.
+     */
+    public synchronized void closedByClient() {
+        nextAttemptAtMs = clockMs.getAsLong();
+    }
+
+    public synchronized State state() {
+        if (!open) {
+            return State.CLOSED;
+        }
+
+        return clockMs.getAsLong() >= openUntilMs ? State.HALF_OPEN : State.OPEN;
+    }
+
+    public synchronized int failures() {
+        return failures;
+    }
+
+    public synchronized long breakerOpens() {
+        return breakerOpens;
+    }
+}
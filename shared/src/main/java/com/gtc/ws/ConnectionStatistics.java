@@ -0,0 +1,19 @@
+package com.gtc.ws;
+
+import lombok.Data;
+
+/**
+ * Snapshot of websocket connection lifecycle counters.
+ */
+@Data
+public class ConnectionStatistics {
+
+    private final long attempts;
+    private final long connects;
+    private final long disconnects;
+    private final long failures;
+    private final long breakerOpens;
+    private final ConnectionGuard.State breaker;
+    private final long lastTimeToFirstMessageMs;
+    private final long maxTimeToFirstMessageMs;
+}
@@ -0,0 +1,59 @@
+package com.gtc.ws;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Typed handler of raw websocket frames - frame that matches is bound straight to DTO by Jackson streaming
+ * parser, without intermediate JsonNode tree. Matching is cheap text peek (prefix or field value), so
+ * non-matching decoders do not parse anything.
+ */
+@Getter
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public final class FrameDecoder<T> {
+
+    private final Predicate<String> matcher;
+    private final Class<T> type;
+    private final Consumer<T> handler;
+
+    public static <T> FrameDecoder<T> byPrefix(String prefix, Class<T> type, Consumer<T> handler) {
+        return new FrameDecoder<>(frame -> frame.startsWith(prefix), type, handler);
+    }
+
+    /**
+     * Matches frames where first occurrence of {@code field} has string value that contains {@code valuePart}.
+     */
+    public static <T> FrameDecoder<T> byField(String field, String valuePart, Class<T> type, Consumer<T> handler) {
+        String fieldToken = '"' + field + '"';
+        return new FrameDecoder<>(frame -> fieldValueContains(frame, fieldToken, valuePart), type, handler);
+    }
+
+    static boolean fieldValueContains(String frame, String fieldToken, String valuePart) {
+        int at = frame.indexOf(fieldToken);
+        if (at < 0) {
+            return false;
+        }
+
+        int pos = at + fieldToken.length();
+        while (pos < frame.length() && (':' == frame.charAt(pos) || Character.isWhitespace(frame.charAt(pos)))) {
+            pos++;
+        }
+
+        if (pos >= frame.length() || '"' != frame.charAt(pos)) {
+            return false;
+        }
+
+        int end = frame.indexOf('"', pos + 1);
+        for (int start = pos + 1; start + valuePart.length() <= end; ++start) {
+            if (frame.startsWith(valuePart, start)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,85 @@
+package com.gtc.ws;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Routes websocket frame to first matching {@link FrameDecoder}, frames that no decoder matched are parsed
+ * to tree and passed to object or array handler. Malformed frame fails with {@link UncheckedIOException}.
+ */
+public class FrameDispatcher {
+
+    private final ObjectMapper mapper;
+    private final List<Bound<?>> decoders;
+    private final Consumer<JsonNode> parseJsonObject;
+    private final Consumer<JsonNode> parseJsonArray;
+
+    public FrameDispatcher(
+            ObjectMapper mapper,
+            List<FrameDecoder<?>> decoders,
+            Consumer<JsonNode> parseJsonObject,
+            Consumer<JsonNode> parseJsonArray) {
+        this.mapper = mapper;
+        this.decoders = decoders.stream().map(it -> new Bound<>(it, mapper)).collect(Collectors.toList());
+        this.parseJsonObject = parseJsonObject;
+        this.parseJsonArray = parseJsonArray;
+    }
+
+    public boolean isStreaming() {
+        return !decoders.isEmpty();
+    }
+
+    public void dispatch(String frame) {
+        for (Bound<?> decoder : decoders) {
+            if (decoder.decoder.getMatcher().test(frame)) {
+                decoder.handle(frame);
+                return;
+            }
+        }
+
+        JsonNode node;
+        try {
+            node = mapper.readTree(frame);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+
+        dispatch(node);
+    }
+
+    public void dispatch(JsonNode node) {
+        if (node.isArray()) {
+            parseJsonArray.accept(node);
+        } else {
+            parseJsonObject.accept(node);
+        }
+    }
+
+    private static class Bound<T> {
+
+        private final FrameDecoder<T> decoder;
+        private final ObjectReader reader;
+
+        Bound(FrameDecoder<T> decoder, ObjectMapper mapper) {
+            this.decoder = decoder;
+            this.reader = mapper.readerFor(decoder.getType());
+        }
+
+        void handle(String frame) {
+            T value;
+            try {
+                value = reader.readValue(frame);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+
+            decoder.getHandler().accept(value);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.gtc.ws;
+
+import lombok.Data;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Exponential reconnect backoff with jitter and circuit breaker thresholds.
+ * Delay after n consecutive failures is random in [(1 - jitter) * d, d], where d = min(max, base * 2^n),
+ * so healthy session that ended waits around base delay.
+ */
+@Data
+public class ReconnectPolicy {
+
+    private long baseDelayMs = 1000;
+    private long maxDelayMs = 60000;
+    private double jitter = 0.5;
+
+    // circuit breaker opens after this many consecutive failures
+    private int breakerFailures = 8;
+    private long breakerOpenMs = 300000;
+
+    public long delayMs(int failures) {
+        double delay = Math.min(maxDelayMs, baseDelayMs * Math.pow(2, failures));
+        double factor = 1.0 - jitter * ThreadLocalRandom.current().nextDouble();
+        return (long) (delay * factor);
+    }
+}
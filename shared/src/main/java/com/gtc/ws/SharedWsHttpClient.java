@@ -0,0 +1,70 @@
+package com.gtc.ws;
+
+import lombok.Data;
+import lombok.experimental.UtilityClass;
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Process-wide OkHttp client for websocket connections, so that dispatcher, connection pool and their threads
+ * survive reconnects. Reconfiguring affects only connections that are opened afterwards, modules configure it
+ * from their {@code app.ws.client} properties on startup. Replaced client stops accepting new calls and drops its
+ * idle connections, already open websockets keep working until they close.
+ */
+@UtilityClass
+public class SharedWsHttpClient {
+
+    private static volatile OkHttpClient client;
+
+    public static OkHttpClient get() {
+        OkHttpClient current = client;
+        if (null != current) {
+            return current;
+        }
+
+        synchronized (SharedWsHttpClient.class) {
+            if (null == client) {
+                client = build(new Cfg());
+            }
+
+            return client;
+        }
+    }
+
+    public static synchronized void configure(Cfg cfg) {
+        OkHttpClient old = client;
+        client = build(cfg);
+        if (null != old) {
+            release(old);
+        }
+    }
+
+    // shutdown() does not interrupt running calls, websocket readers run on dispatcher threads
+    private static void release(OkHttpClient old) {
+        old.dispatcher().executorService().shutdown();
+        old.connectionPool().evictAll();
+    }
+
+    private static OkHttpClient build(Cfg cfg) {
+        return new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(cfg.getMaxIdleConnections(), cfg.getKeepAliveS(), TimeUnit.SECONDS))
+                .connectTimeout(cfg.getConnectTimeoutMs(), TimeUnit.MILLISECONDS)
+                .readTimeout(cfg.getReadTimeoutMs(), TimeUnit.MILLISECONDS)
+                .writeTimeout(cfg.getWriteTimeoutMs(), TimeUnit.MILLISECONDS)
+                .pingInterval(cfg.getPingIntervalMs(), TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    @Data
+    public static class Cfg {
+
+        private int connectTimeoutMs = 10000;
+        private int readTimeoutMs = 10000;
+        private int writeTimeoutMs = 10000;
+        private int pingIntervalMs = 0;
+        private int maxIdleConnections = 5;
+        private int keepAliveS = 300;
+    }
+}
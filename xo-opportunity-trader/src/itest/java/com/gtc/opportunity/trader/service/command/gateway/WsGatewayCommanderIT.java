@@ -0,0 +1,112 @@
+package com.gtc.opportunity.trader.service.command.gateway;
+
+import com.gtc.model.gateway.command.create.CreateOrderCommand;
+import com.gtc.model.gateway.response.create.CreateOrderResponse;
+import com.gtc.opportunity.trader.BaseNnTradeInitialized;
+import com.gtc.opportunity.trader.domain.Trade;
+import com.gtc.opportunity.trader.domain.TradeEvent;
+import com.gtc.opportunity.trader.domain.TradeStatus;
+import com.gtc.opportunity.trader.service.trade.management.TradeStateCache;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.statemachine.service.StateMachineService;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Create that gateway never answered moves its trade to retry, but does not end it - order may be live on exchange.
+ */
+@Transactional(propagation = Propagation.NEVER)
+@TestPropertySource(properties = "app.ack.deadlineMs.create=" + WsGatewayCommanderIT.DEADLINE_MS)
+public class WsGatewayCommanderIT extends BaseNnTradeInitialized {
+
+    static final int DEADLINE_MS = 50;
+
+    @MockBean
+    private WsGatewayClient client;
+
+    @Autowired
+    private WsGatewayCommander commander;
+
+    @Autowired
+    private PendingCommandRegistry registry;
+
+    @Autowired
+    private WsGatewayResponseListener responseListener;
+
+    @Autowired
+    private TradeStateCache stateCache;
+
+    @Autowired
+    private StateMachineService<TradeStatus, TradeEvent> tradeMachineSvc;
+
+    @BeforeEach
+    public void dependencyDone() {
+        tradeMachineSvc.acquireStateMachine(TRADE_ONE).sendEvent(TradeEvent.DEPENDENCY_DONE);
+        tradeMachineSvc.releaseStateMachine(TRADE_ONE);
+    }
+
+    @AfterEach
+    public void cleanup() {
+        tradeMachineSvc.releaseStateMachine(TRADE_ONE, true);
+    }
+
+    @Test
+    @SneakyThrows
+    public void unansweredCreateMovesTradeToRetry() {
+        long timedOut = registry.statistics().getTimedOut();
+        commander.createOrder(create());
+
+        Thread.sleep(DEADLINE_MS * 4L);
+        commander.resendUnanswered();
+        assertThat(stateCache.awaitIdle(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(registry.statistics().getTimedOut()).isEqualTo(timedOut + 1);
+        Trade trade = tradeRepository.findById(TRADE_ONE).get();
+        assertThat(trade.getStatus()).isEqualTo(TradeStatus.NEED_RETRY);
+        assertThat(trade.getLastError()).isEqualTo("No gateway response");
+    }
+
+    @Test
+    @SneakyThrows
+    public void lateAnswerOpensTimedOutTrade() {
+        CreateOrderCommand create = create();
+        commander.createOrder(create);
+        Thread.sleep(DEADLINE_MS * 4L);
+        commander.resendUnanswered();
+
+        responseListener.createOrder(CreateOrderResponse.builder()
+                .clientName(CLIENT)
+                .id("late")
+                .requestOrderId(create.getId())
+                .orderId(TRADE_ONE)
+                .isExecuted(false)
+                .build()
+        );
+        assertThat(stateCache.awaitIdle(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(tradeRepository.findById(TRADE_ONE).map(Trade::getStatus)).contains(TradeStatus.OPENED);
+    }
+
+    private static CreateOrderCommand create() {
+        return CreateOrderCommand.builder()
+                .clientName(CLIENT)
+                .id(TRADE_ONE)
+                .orderId(TRADE_ONE)
+                .currencyFrom(FROM.getCode())
+                .currencyTo(TO.getCode())
+                .amount(BigDecimal.ONE)
+                .price(BigDecimal.ONE)
+                .build();
+    }
+}
@@ -11,6 +11,8 @@ import com.gtc.opportunity.trader.repository.SoftCancelRepository;
 import com.gtc.opportunity.trader.service.command.gateway.WsGatewayCommander;
 import com.gtc.opportunity.trader.service.command.gateway.WsGatewayResponseListener;
 import com.gtc.opportunity.trader.service.scheduled.trade.management.NnSlaveOrderPusher;
+import com.gtc.opportunity.trader.service.trade.management.TradeStateCache;
+import lombok.SneakyThrows;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -25,6 +27,7 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
 
 import static com.gtc.opportunity.trader.config.Const.Common.NN_OPPORTUNITY_PREFIX;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -41,6 +44,9 @@ public class NnAcceptMachineIT extends BaseNnTradeInitialized {
     @Autowired
     private WsGatewayResponseListener responseListener;
 
+    @Autowired
+    private TradeStateCache stateCache;
+
     @Autowired
     private StateMachineService<NnAcceptStatus, AcceptEvent> nnMachineSvc;
 
@@ -235,6 +241,7 @@ public class NnAcceptMachineIT extends BaseNnTradeInitialized {
         return nnMachineSvc.acquireStateMachine(NN_OPPORTUNITY_PREFIX + createdNnTrade.getId(), false);
     }
 
+    @SneakyThrows
     private void doAck(String orderId, OrderStatus status) {
         responseListener.byId(GetOrderResponse.builder()
                 .clientName(CLIENT)
@@ -247,5 +254,6 @@ public class NnAcceptMachineIT extends BaseNnTradeInitialized {
                         .statusString("")
                         .build())
                 .build());
+        assertThat(stateCache.awaitIdle(10, TimeUnit.SECONDS)).isTrue();
     }
 }
@@ -6,12 +6,16 @@ import com.gtc.model.gateway.response.manage.GetOrderResponse;
 import com.gtc.opportunity.trader.BaseInitializedIT;
 import com.gtc.opportunity.trader.domain.Trade;
 import com.gtc.opportunity.trader.service.TradeCreationService;
+import com.gtc.opportunity.trader.service.trade.management.TradeStateCache;
 import com.gtc.opportunity.trader.service.xoopportunity.creation.fastexception.RejectionException;
+import lombok.SneakyThrows;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
 
 import static com.gtc.opportunity.trader.service.xoopportunity.creation.fastexception.Reason.LOW_BAL;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 /**
@@ -22,6 +26,9 @@ public abstract class BaseLockingIT extends BaseInitializedIT {
     @Autowired
     protected TradeCreationService creationService;
 
+    @Autowired
+    protected TradeStateCache stateCache;
+
     protected GetOrderResponse response(String id, OrderStatus status) {
         OrderDto dto = OrderDto.builder()
                 .orderId(id).price(BigDecimal.TEN).size(BigDecimal.ONE).status(status)
@@ -30,6 +37,12 @@ public abstract class BaseLockingIT extends BaseInitializedIT {
         return new GetOrderResponse(CLIENT, id, dto);
     }
 
+    // gateway responses are applied in background
+    @SneakyThrows
+    protected void awaitApplied() {
+        assertThat(stateCache.awaitIdle(10, TimeUnit.SECONDS)).isTrue();
+    }
+
     protected Trade tryCreateAndShouldCreate() {
         return create();
     }
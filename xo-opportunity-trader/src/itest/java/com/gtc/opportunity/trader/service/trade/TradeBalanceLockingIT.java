@@ -55,6 +55,7 @@ public class TradeBalanceLockingIT extends BaseLockingIT {
         String idOne = tryCreateAndShouldCreate().getId();
         tryCreateAndShouldNotCreate();
         doAck.accept(idOne);
+        awaitApplied();
         tryCreateAndShouldCreate();
         tryCreateAndShouldNotCreate();
     }
@@ -8,6 +8,8 @@ import com.gtc.opportunity.trader.service.command.gateway.WsGatewayResponseListe
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.statemachine.service.StateMachineService;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * Creates trade and its dependent. Then tries to create 3,4th trades that should fail due to low balance
@@ -15,6 +17,7 @@ import org.springframework.statemachine.service.StateMachineService;
  * then ack/done master and 4th trade passes and 5th fails (master amount released).
  * then cancels master and 4th trade passes and 5th passes (both amounts are released).
  */
+@Transactional(propagation = Propagation.NEVER)
 public class TradeDependentLockingIT extends BaseLockingIT {
 
     @Autowired
@@ -31,6 +34,7 @@ public class TradeDependentLockingIT extends BaseLockingIT {
         tryCreateAndShouldNotCreate(true);
 
         listener.byId(response(base.getId(), OrderStatus.NEW));
+        awaitApplied();
 
         tryCreateAndShouldCreate();
         tryCreateAndShouldNotCreate(true);
@@ -44,6 +48,7 @@ public class TradeDependentLockingIT extends BaseLockingIT {
         tryCreateAndShouldNotCreate(true);
 
         listener.byId(response(base.getId(), OrderStatus.FILLED));
+        awaitApplied();
 
         tryCreateAndShouldCreate();
         tryCreateAndShouldNotCreate(true);
@@ -57,6 +62,7 @@ public class TradeDependentLockingIT extends BaseLockingIT {
         tryCreateAndShouldNotCreate(true);
 
         listener.byId(response(base.getId(), OrderStatus.CANCELED));
+        awaitApplied();
 
         tryCreateAndShouldCreate();
         tryCreateAndShouldCreate(null, true);
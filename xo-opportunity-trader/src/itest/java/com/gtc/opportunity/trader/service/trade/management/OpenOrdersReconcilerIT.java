@@ -0,0 +1,317 @@
+package com.gtc.opportunity.trader.service.trade.management;
+
+import com.gtc.meta.TradingCurrency;
+import com.gtc.model.gateway.command.manage.GetOrderCommand;
+import com.gtc.model.gateway.command.manage.ListOpenCommand;
+import com.gtc.model.gateway.data.OrderDto;
+import com.gtc.model.gateway.data.OrderStatus;
+import com.gtc.model.gateway.response.manage.ListOpenOrdersResponse;
+import com.gtc.opportunity.trader.BaseNnTradeInitialized;
+import com.gtc.opportunity.trader.domain.Trade;
+import com.gtc.opportunity.trader.domain.TradeEvent;
+import com.gtc.opportunity.trader.domain.TradeStatus;
+import com.gtc.opportunity.trader.service.command.gateway.WsGatewayCommander;
+import com.gtc.opportunity.trader.service.command.gateway.WsGatewayResponseListener;
+import com.gtc.opportunity.trader.service.scheduled.trade.management.OrderUpdater;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.statemachine.service.StateMachineService;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Bulk open orders response is compared with locally open trades, each kind of divergence gets its own
+ * handling and trades that match exchange state are not touched.
+ */
+@Transactional(propagation = Propagation.NEVER)
+public class OpenOrdersReconcilerIT extends BaseNnTradeInitialized {
+
+    private static final String SOURCE = "test";
+    private static final String TRADE_A = "trade-a";
+    private static final String TRADE_B = "trade-b";
+    private static final String TRADE_C = "trade-c";
+
+    @Autowired
+    private OrderUpdater orderUpdater;
+
+    @Autowired
+    private WsGatewayResponseListener responseListener;
+
+    @Autowired
+    private OpenOrdersReconciler reconciler;
+
+    @Autowired
+    private TradeEsbEventHandler esbEventHandler;
+
+    @Autowired
+    private TradeStateCache stateCache;
+
+    @Autowired
+    private StateMachineService<TradeStatus, TradeEvent> tradeMachineSvc;
+
+    @Autowired
+    private TransactionTemplate template;
+
+    @MockBean
+    private WsGatewayCommander commander;
+
+    private final List<String> machines = new ArrayList<>();
+
+    @BeforeEach
+    public void closeNnTrades() {
+        template.execute(tx -> {
+            Trade trade = tradeRepository.findById(TRADE_ONE).get();
+            trade.setStatus(TradeStatus.CLOSED);
+            return tradeRepository.save(trade);
+        });
+    }
+
+    @AfterEach
+    public void cleanup() {
+        machines.forEach(id -> tradeMachineSvc.releaseStateMachine(id, true));
+    }
+
+    @Test
+    public void unknownTradeListedAsOpenIsAcked() {
+        trade(TRADE_A, TradeStatus.UNKNOWN);
+        long transitions = reconciler.statistics().getTransitions();
+
+        respond(bulkUpdate(), order(TRADE_A, OrderStatus.NEW));
+
+        assertThat(status(TRADE_A)).isEqualTo(TradeStatus.OPENED);
+        assertThat(reconciler.statistics().getTransitions()).isEqualTo(transitions + 1);
+    }
+
+    @Test
+    public void needRetryTradeListedAsOpenIsAcked() {
+        trade(TRADE_A, TradeStatus.NEED_RETRY);
+        // retried trades alone do not trigger listing
+        trade(TRADE_B, TradeStatus.OPENED);
+
+        respond(bulkUpdate(), order(TRADE_A, OrderStatus.PARTIALLY_FILLED), order(TRADE_B, OrderStatus.NEW));
+
+        assertThat(status(TRADE_A)).isEqualTo(TradeStatus.OPENED);
+    }
+
+    @Test
+    public void openTradeListedAsOpenIsUnchanged() {
+        trade(TRADE_A, TradeStatus.OPENED);
+        long unchanged = reconciler.statistics().getUnchanged();
+        long events = stateCache.statistics().getEvents();
+
+        respond(bulkUpdate(), order(TRADE_A, OrderStatus.PARTIALLY_FILLED));
+
+        assertThat(status(TRADE_A)).isEqualTo(TradeStatus.OPENED);
+        assertThat(reconciler.statistics().getUnchanged()).isEqualTo(unchanged + 1);
+        assertThat(stateCache.statistics().getEvents()).isEqualTo(events);
+        bulkUpdate();
+        verify(commander, never()).getOrder(any(GetOrderCommand.class));
+    }
+
+    @Test
+    public void differencesOfSymbolAreAppliedInOneBatch() {
+        trade(TRADE_A, TradeStatus.OPENED);
+        trade(TRADE_B, TradeStatus.OPENED);
+        trade(TRADE_C, TradeStatus.UNKNOWN);
+        long batches = stateCache.statistics().getBatches();
+        long events = stateCache.statistics().getEvents();
+
+        respond(
+                bulkUpdate(),
+                order(TRADE_A, OrderStatus.FILLED),
+                order(TRADE_B, OrderStatus.CANCELED),
+                order(TRADE_C, OrderStatus.NEW)
+        );
+
+        assertThat(status(TRADE_A)).isEqualTo(TradeStatus.CLOSED);
+        assertThat(status(TRADE_B)).isEqualTo(TradeStatus.CANCELLED);
+        assertThat(status(TRADE_C)).isEqualTo(TradeStatus.OPENED);
+        assertThat(stateCache.statistics().getEvents()).isEqualTo(events + 3);
+        assertThat(stateCache.statistics().getBatches()).isEqualTo(batches + 1);
+    }
+
+    @Test
+    public void rejectedOrderIsError() {
+        trade(TRADE_A, TradeStatus.OPENED);
+
+        respond(bulkUpdate(), order(TRADE_A, OrderStatus.REJECTED));
+
+        assertThat(status(TRADE_A)).isEqualTo(TradeStatus.GEN_ERR);
+    }
+
+    @Test
+    public void disappearedTradeIsRequestedByIdOnce() {
+        trade(TRADE_A, TradeStatus.OPENED);
+        trade(TRADE_B, TradeStatus.OPENED);
+
+        respond(bulkUpdate(), order(TRADE_B, OrderStatus.NEW));
+
+        assertThat(status(TRADE_A)).isEqualTo(TradeStatus.OPENED);
+        bulkUpdate();
+        ArgumentCaptor<GetOrderCommand> get = ArgumentCaptor.forClass(GetOrderCommand.class);
+        verify(commander).getOrder(get.capture());
+        assertThat(get.getValue().getOrderId()).isEqualTo(TRADE_A);
+        assertThat(get.getValue().getClientName()).isEqualTo(CLIENT);
+
+        clearInvocations(commander);
+        bulkUpdate();
+        verify(commander, never()).getOrder(any(GetOrderCommand.class));
+    }
+
+    @Test
+    public void tradeUpdatedAfterRequestIsNotDisappeared() {
+        trade(TRADE_A, TradeStatus.OPENED);
+        ListOpenCommand command = bulkUpdate();
+        updatedAt(TRADE_A, dbTime.dbNow().plusSeconds(1));
+
+        respond(command);
+
+        assertThat(reconciler.takeDisappeared()).isEmpty();
+    }
+
+    @Test
+    public void unknownExchangeOrderIsOnlyCounted() {
+        trade(TRADE_A, TradeStatus.OPENED);
+        long unknown = reconciler.statistics().getUnknownOrders();
+        long events = stateCache.statistics().getEvents();
+
+        respond(bulkUpdate(), order(TRADE_A, OrderStatus.NEW), order("foreign", OrderStatus.NEW));
+
+        assertThat(reconciler.statistics().getUnknownOrders()).isEqualTo(unknown + 1);
+        assertThat(stateCache.statistics().getEvents()).isEqualTo(events);
+    }
+
+    @Test
+    public void stuckUpdateSkipsReconciledSymbol() {
+        // pair that other tests do not reconcile
+        trade(TRADE_A, TradeStatus.OPENED, TradingCurrency.Usd);
+
+        orderUpdater.stuckUpdateOrderStatus();
+        verify(commander).getOrder(any(GetOrderCommand.class));
+
+        respond(bulkUpdate(), order(TRADE_A, OrderStatus.NEW));
+        clearInvocations(commander);
+        orderUpdater.stuckUpdateOrderStatus();
+        verify(commander, never()).getOrder(any(GetOrderCommand.class));
+    }
+
+    @Test
+    public void unexpectedResponseIsAppliedPerOrder() {
+        trade(TRADE_A, TradeStatus.UNKNOWN);
+        long responses = reconciler.statistics().getResponses();
+
+        responseListener.opened(ListOpenOrdersResponse.builder()
+                .clientName(CLIENT)
+                .id("not-requested")
+                .orders(Arrays.asList(order(TRADE_A, OrderStatus.NEW)))
+                .build()
+        );
+        awaitApplied();
+
+        assertThat(status(TRADE_A)).isEqualTo(TradeStatus.OPENED);
+        assertThat(reconciler.statistics().getResponses()).isEqualTo(responses);
+    }
+
+    private ListOpenCommand bulkUpdate() {
+        clearInvocations(commander);
+        orderUpdater.bulkUpdateOrderStatus();
+        ArgumentCaptor<ListOpenCommand> list = ArgumentCaptor.forClass(ListOpenCommand.class);
+        verify(commander).listOpenOrders(list.capture());
+        return list.getValue();
+    }
+
+    private void respond(ListOpenCommand command, OrderDto... orders) {
+        responseListener.opened(ListOpenOrdersResponse.builder()
+                .clientName(command.getClientName())
+                .id(command.getId())
+                .orders(Arrays.stream(orders).collect(Collectors.toList()))
+                .build()
+        );
+        awaitApplied();
+    }
+
+    @SneakyThrows
+    private void awaitApplied() {
+        assertThat(stateCache.awaitIdle(10, TimeUnit.SECONDS)).isTrue();
+    }
+
+    private void trade(String id, TradeStatus status) {
+        trade(id, status, TO);
+    }
+
+    private void trade(String id, TradeStatus status, TradingCurrency to) {
+        template.execute(tx -> tradeRepository.save(Trade.builder()
+                .id(id)
+                .assignedId(id)
+                .client(clientRepository.findById(CLIENT).get())
+                .currencyFrom(FROM)
+                .currencyTo(to)
+                .openingAmount(BigDecimal.ONE)
+                .openingPrice(BigDecimal.ONE)
+                .amount(BigDecimal.ONE)
+                .price(BigDecimal.ONE)
+                .isSell(false)
+                .statusUpdated(LocalDateTime.now())
+                .expectedReverseAmount(BigDecimal.ONE)
+                .status(TradeStatus.UNKNOWN)
+                .wallet(walletRepository.findById(walletFrom.getId()).get())
+                .build()));
+        machines.add(id);
+        tradeMachineSvc.acquireStateMachine(id).sendEvent(TradeEvent.DEPENDENCY_DONE);
+        tradeMachineSvc.releaseStateMachine(id);
+
+        Trade.EsbKey key = new Trade.EsbKey(id, CLIENT);
+        if (TradeStatus.OPENED == status) {
+            esbEventHandler.ackOrder(key, SOURCE, "NEW", "NEW", BigDecimal.ONE, BigDecimal.ONE);
+        } else if (TradeStatus.NEED_RETRY == status) {
+            esbEventHandler.ackTransientError(key, SOURCE, "Failed");
+        }
+        awaitApplied();
+
+        assertThat(status(id)).isEqualTo(status);
+        // old enough for bulk and stuck updates
+        updatedAt(id, dbTime.dbNow().minusMinutes(1));
+    }
+
+    private void updatedAt(String id, LocalDateTime at) {
+        template.execute(tx -> {
+            Trade trade = tradeRepository.findById(id).get();
+            trade.setStatusUpdated(at);
+            return tradeRepository.save(trade);
+        });
+    }
+
+    private TradeStatus status(String id) {
+        return tradeRepository.findById(id).map(Trade::getStatus).orElse(null);
+    }
+
+    private static OrderDto order(String id, OrderStatus status) {
+        return OrderDto.builder()
+                .orderId(id)
+                .status(status)
+                .statusString(status.name())
+                .size(BigDecimal.ONE)
+                .price(BigDecimal.ONE)
+                .build();
+    }
+}
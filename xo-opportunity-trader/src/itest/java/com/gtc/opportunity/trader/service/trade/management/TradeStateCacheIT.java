@@ -0,0 +1,226 @@
+package com.gtc.opportunity.trader.service.trade.management;
+
+import com.gtc.opportunity.trader.BaseNnTradeInitialized;
+import com.gtc.opportunity.trader.domain.Trade;
+import com.gtc.opportunity.trader.domain.TradeEvent;
+import com.gtc.opportunity.trader.domain.TradeStatus;
+import com.gtc.opportunity.trader.repository.JournaledTradeEventRepository;
+import com.gtc.opportunity.trader.service.statemachine.trade.TradeMessageProcessor;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.statemachine.service.StateMachineService;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doThrow;
+
+/**
+ * Checks that trade cache never runs ahead of DB - process restart (machines lost from memory)
+ * or failed batch commit should resume from persisted state without losing transitions, and that
+ * journaled events survive crash.
+ */
+@Transactional(propagation = Propagation.NEVER)
+public class TradeStateCacheIT extends BaseNnTradeInitialized {
+
+    private static final String SOURCE = "test";
+    private static final String STANDALONE = "standalone-";
+    private static final int WRITERS = 4;
+
+    @Autowired
+    private StateMachineService<TradeStatus, TradeEvent> tradeMachineSvc;
+
+    @Autowired
+    private TransactionTemplate template;
+
+    @Autowired
+    private JournaledTradeEventRepository journal;
+
+    @SpyBean
+    private TradeMessageProcessor processor;
+
+    private final List<String> machines = new ArrayList<>();
+    private final List<TradeStateCache> caches = new ArrayList<>();
+
+    @AfterEach
+    @SneakyThrows
+    public void cleanup() {
+        for (TradeStateCache cache : caches) {
+            cache.shutdown();
+        }
+
+        machines.forEach(id -> tradeMachineSvc.releaseStateMachine(id, true));
+        tradeMachineSvc.releaseStateMachine(TRADE_TWO, true);
+    }
+
+    @Test
+    @SneakyThrows
+    public void restartResumesFromPersistedState() {
+        dependencyDone(TRADE_ONE);
+        TradeStateCache beforeCrash = cache(WRITERS);
+        new TradeEsbEventHandler(beforeCrash).ackOrder(key(TRADE_ONE), SOURCE, "NEW", "NEW", BigDecimal.ONE,
+                BigDecimal.ONE);
+        assertThat(beforeCrash.awaitIdle(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(beforeCrash.statistics().getActiveMachines()).isEqualTo(1L);
+
+        // crash - everything in memory is lost
+        beforeCrash.shutdown();
+        tradeMachineSvc.releaseStateMachine(TRADE_ONE);
+        assertThat(status(TRADE_ONE)).isEqualTo(TradeStatus.OPENED);
+        assertThat(machineState(TRADE_ONE)).isEqualTo(TradeStatus.OPENED);
+        tradeMachineSvc.releaseStateMachine(TRADE_ONE);
+
+        TradeStateCache afterCrash = cache(WRITERS);
+        new TradeEsbEventHandler(afterCrash).ackDone(key(TRADE_ONE), SOURCE, "FILLED", "FILLED");
+        assertThat(afterCrash.awaitIdle(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(status(TRADE_ONE)).isEqualTo(TradeStatus.CLOSED);
+        assertThat(machineState(TRADE_ONE)).isEqualTo(TradeStatus.CLOSED);
+        assertThat(afterCrash.statistics().getActiveMachines()).isZero();
+    }
+
+    @Test
+    @SneakyThrows
+    public void failedBatchIsReplayedWithoutLosingTransitions() {
+        String failing = standaloneTrade(0);
+        dependencyDone(TRADE_ONE);
+        doThrow(new IllegalStateException("Simulated failure")).doCallRealMethod().when(processor)
+                .acceptAndGet(argThat(state -> failing.equals(state.getStateMachine().getId())), any());
+
+        TradeStateCache cache = cache(WRITERS);
+        TradeEsbEventHandler handler = new TradeEsbEventHandler(cache);
+        handler.ackOrder(key(TRADE_ONE), SOURCE, "NEW", "NEW", BigDecimal.ONE, BigDecimal.ONE);
+        handler.ackCancel(key(failing), SOURCE, "CANCELED", "CANCELED");
+        assertThat(cache.awaitIdle(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(cache.statistics().getReplayedEvents()).isPositive();
+        assertThat(status(TRADE_ONE)).isEqualTo(TradeStatus.OPENED);
+        assertThat(machineState(TRADE_ONE)).isEqualTo(TradeStatus.OPENED);
+        assertThat(status(failing)).isEqualTo(TradeStatus.CANCELLED);
+        assertThat(machineState(failing)).isEqualTo(TradeStatus.CANCELLED);
+    }
+
+    @Test
+    @SneakyThrows
+    public void crashWithUncommittedEventsLosesNothingAcknowledged() {
+        String crashing = standaloneTrade(0);
+        dependencyDone(TRADE_ONE);
+        TradeStatus beforeCrash = status(TRADE_ONE);
+        doThrow(new Crash()).doCallRealMethod().when(processor)
+                .acceptAndGet(argThat(state -> crashing.equals(state.getStateMachine().getId())), any());
+
+        // single writer, so both events share the batch that dies
+        TradeStateCache crashed = cache(1);
+        crashed.submitAll(events(crashing));
+        assertThat(crashed.awaitIdle(1, TimeUnit.SECONDS)).isFalse();
+        assertThat(status(TRADE_ONE)).isEqualTo(beforeCrash);
+        assertThat(status(crashing)).isEqualTo(TradeStatus.UNKNOWN);
+        assertThat(machineState(TRADE_ONE)).isEqualTo(beforeCrash);
+        assertThat(journal.count()).isEqualTo(2L);
+        tradeMachineSvc.releaseStateMachine(TRADE_ONE);
+
+        // nothing is delivered again, restarted cache applies what was journaled
+        TradeStateCache restarted = cache(WRITERS);
+        restarted.recover();
+        assertThat(restarted.awaitIdle(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(status(TRADE_ONE)).isEqualTo(TradeStatus.OPENED);
+        assertThat(machineState(TRADE_ONE)).isEqualTo(TradeStatus.OPENED);
+        assertThat(status(crashing)).isEqualTo(TradeStatus.CANCELLED);
+        assertThat(restarted.statistics().getQueueDepth()).isZero();
+        assertThat(journal.count()).isZero();
+    }
+
+    @Test
+    @SneakyThrows
+    public void batchesKeepPerTradeOrder() {
+        int count = 20;
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < count; ++i) {
+            ids.add(standaloneTrade(i));
+        }
+
+        TradeStateCache cache = cache(WRITERS);
+        TradeEsbEventHandler handler = new TradeEsbEventHandler(cache);
+        // ERROR before ACK would end in ERR_OPEN
+        ids.forEach(id -> handler.ackOrder(key(id), SOURCE, "NEW", "NEW", BigDecimal.ONE, BigDecimal.ONE));
+        ids.forEach(id -> handler.ackError(key(id), SOURCE, "Failed"));
+        assertThat(cache.awaitIdle(10, TimeUnit.SECONDS)).isTrue();
+
+        ids.forEach(id -> assertThat(status(id)).isEqualTo(TradeStatus.GEN_ERR));
+        assertThat(cache.statistics().getEvents()).isEqualTo(2L * count);
+        assertThat(cache.statistics().getBatches()).isLessThan(2L * count);
+        assertThat(cache.statistics().getReplayedEvents()).isZero();
+    }
+
+    private TradeStateCache cache(int writers) {
+        TradeStateCache cache = new TradeStateCache(tradeMachineSvc, tradeRepository, journal, template, writers, 50,
+                100);
+        caches.add(cache);
+        return cache;
+    }
+
+    private static List<TradeStateCache.PendingEvent> events(String cancelled) {
+        return Arrays.asList(
+                TradeStateCache.PendingEvent.order(key(TRADE_ONE), SOURCE, "NEW", "NEW", BigDecimal.ONE,
+                        BigDecimal.ONE),
+                TradeStateCache.PendingEvent.cancel(key(cancelled), SOURCE, "CANCELED", "CANCELED")
+        );
+    }
+
+    private String standaloneTrade(int index) {
+        String id = STANDALONE + index;
+        template.execute(tx -> tradeRepository.save(Trade.builder()
+                .id(id)
+                .assignedId(id)
+                .client(clientRepository.findById(CLIENT).get())
+                .currencyFrom(FROM)
+                .currencyTo(TO)
+                .openingAmount(BigDecimal.ONE)
+                .openingPrice(BigDecimal.ONE)
+                .amount(BigDecimal.ONE)
+                .price(BigDecimal.ONE)
+                .isSell(false)
+                .statusUpdated(LocalDateTime.now())
+                .expectedReverseAmount(BigDecimal.ONE)
+                .status(TradeStatus.UNKNOWN)
+                .wallet(walletRepository.findById(walletFrom.getId()).get())
+                .build()));
+        dependencyDone(id);
+        return id;
+    }
+
+    private void dependencyDone(String id) {
+        machines.add(id);
+        tradeMachineSvc.acquireStateMachine(id).sendEvent(TradeEvent.DEPENDENCY_DONE);
+        tradeMachineSvc.releaseStateMachine(id);
+    }
+
+    private TradeStatus status(String id) {
+        return tradeRepository.findById(id).map(Trade::getStatus).orElse(null);
+    }
+
+    private TradeStatus machineState(String id) {
+        return tradeMachineSvc.acquireStateMachine(id).getState().getId();
+    }
+
+    private static Trade.EsbKey key(String id) {
+        return new Trade.EsbKey(id, CLIENT);
+    }
+
+    private static class Crash extends Error {
+    }
+}
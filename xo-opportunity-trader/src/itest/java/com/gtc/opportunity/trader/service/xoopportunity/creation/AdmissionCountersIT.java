@@ -0,0 +1,303 @@
+package com.gtc.opportunity.trader.service.xoopportunity.creation;
+
+import com.gtc.meta.TradingCurrency;
+import com.gtc.opportunity.trader.BaseInitializedIT;
+import com.gtc.opportunity.trader.domain.AcceptedXoTrade;
+import com.gtc.opportunity.trader.domain.Trade;
+import com.gtc.opportunity.trader.domain.TradeEvent;
+import com.gtc.opportunity.trader.domain.TradeStatus;
+import com.gtc.opportunity.trader.domain.XoAcceptStatus;
+import com.gtc.opportunity.trader.repository.AcceptedXoTradeRepository;
+import com.gtc.opportunity.trader.repository.TradeRepository;
+import com.gtc.opportunity.trader.service.CurrentTimestamp;
+import com.gtc.opportunity.trader.service.TradeCreationService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.statemachine.service.StateMachineService;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * In-memory counters answer same as database queries they replace for random sequences of trade creation, status
+ * changes and accepted cross-market trades, some of which are rolled back.
+ */
+@Transactional(propagation = Propagation.NEVER)
+public class AdmissionCountersIT extends BaseInitializedIT {
+
+    private static final long[] SEEDS = {1L, 7L, 42L};
+    private static final int STEPS = 60;
+    private static final int MAX_WINDOW_MS = 1500;
+    private static final int THREADS = 8;
+    private static final TradingCurrency[] PAIRS_TO = {TO, TradingCurrency.Usd};
+    private static final TradeEvent[] EVENTS = {
+            TradeEvent.DEPENDENCY_DONE, TradeEvent.ACK, TradeEvent.DONE, TradeEvent.CANCELLED, TradeEvent.ERROR,
+            TradeEvent.TRANSIENT_ERR, TradeEvent.TIMEOUT
+    };
+
+    @Autowired
+    private AdmissionCounters counters;
+
+    @Autowired
+    private TradeCreationService creationService;
+
+    @Autowired
+    private TradeRepository tradeRepository;
+
+    @Autowired
+    private AcceptedXoTradeRepository xoTradeRepository;
+
+    @Autowired
+    private CurrentTimestamp currentTimestamp;
+
+    @Autowired
+    private StateMachineService<TradeStatus, TradeEvent> tradeMachineSvc;
+
+    @Autowired
+    private TransactionTemplate template;
+
+    private final List<String> trades = new ArrayList<>();
+
+    @BeforeEach
+    public void rebuild() {
+        counters.rebuild();
+    }
+
+    @AfterEach
+    public void cleanup() {
+        trades.forEach(id -> tradeMachineSvc.releaseStateMachine(id, true));
+    }
+
+    @Test
+    public void matchesDatabaseOnRandomSequences() {
+        for (long seed : SEEDS) {
+            Random random = new Random(seed);
+            for (int step = 0; step < STEPS; ++step) {
+                switch (random.nextInt(3)) {
+                    case 0:
+                        createTrade(random);
+                        break;
+                    case 1:
+                        changeStatus(random);
+                        break;
+                    default:
+                        acceptXo(random);
+                }
+
+                assertMatchesDatabase(random);
+            }
+        }
+    }
+
+    @Test
+    public void reconcileRepairsDrift() {
+        createTrade(new Random(1L));
+        // change committed without its row
+        template.execute(tx -> {
+            counters.tradeChanged(Trade.builder()
+                    .client(createdClient)
+                    .currencyFrom(FROM)
+                    .currencyTo(TO)
+                    .openingAmount(BigDecimal.TEN)
+                    .status(TradeStatus.OPENED)
+                    .build(), null);
+            return null;
+        });
+        assertThat(counters.sideBalance(CLIENT, FROM, TO)).isNotEqualByComparingTo(dbSideBalance());
+
+        counters.reconcile();
+
+        assertMatchesDatabase(new Random(1L));
+    }
+
+    @Test
+    public void reconcileRepairsAcceptedDrift() {
+        LocalDateTime now = currentTimestamp.dbNow();
+        // acceptance committed without its row
+        Boolean accepted = template.execute(tx -> counters.tryAccept(CLIENT, CLIENT, FROM, TO, now, MAX_WINDOW_MS));
+        assertThat(accepted).isTrue();
+        assertThat(counters.acceptedSince(CLIENT, CLIENT, FROM, TO, now)).isEqualTo(1);
+
+        counters.reconcile();
+
+        assertThat(counters.acceptedSince(CLIENT, CLIENT, FROM, TO, now)).isEqualTo(0);
+    }
+
+    @Test
+    public void reconcileKeepsUncommittedAcceptance() {
+        template.execute(tx -> {
+            LocalDateTime now = currentTimestamp.dbNow();
+            assertThat(counters.tryAccept(CLIENT, CLIENT, FROM, TO, now, MAX_WINDOW_MS)).isTrue();
+
+            CompletableFuture.runAsync(counters::reconcile).join();
+
+            assertThat(counters.tryAccept(CLIENT, CLIENT, FROM, TO, now, MAX_WINDOW_MS)).isFalse();
+            xoTradeRepository.save(acceptedXo(TO, now));
+            return null;
+        });
+
+        assertMatchesDatabase(new Random(1L));
+    }
+
+    @Test
+    public void reconcileKeepsUncommittedSideChange() {
+        Trade trade = template.execute(tx -> {
+            Trade created = creationService.createTradeNoSideValidation(
+                    null, createdConfig, BigDecimal.ONE, BigDecimal.ONE, true, false
+            ).getTrade();
+            BigDecimal withTrade = counters.sideBalance(CLIENT, FROM, TO);
+
+            CompletableFuture.runAsync(counters::reconcile).join();
+
+            assertThat(counters.sideBalance(CLIENT, FROM, TO)).isEqualByComparingTo(withTrade);
+            return created;
+        });
+        trades.add(trade.getId());
+
+        assertMatchesDatabase(new Random(1L));
+    }
+
+    @Test
+    public void concurrentReservationsDoNotExceedSideLimit() throws Exception {
+        BigDecimal balance = dbSideBalance();
+        BigDecimal amount = balance.signum() < 0 ? BigDecimal.ONE.negate() : BigDecimal.ONE;
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> reserved = new ArrayList<>();
+        try {
+            for (int i = 0; i < THREADS; ++i) {
+                reserved.add(pool.submit(() -> {
+                    start.await();
+                    return counters.tryReserve(Trade.builder()
+                            .client(createdClient)
+                            .currencyFrom(FROM)
+                            .currencyTo(TO)
+                            .amount(amount)
+                            .openingAmount(amount)
+                            .status(TradeStatus.UNKNOWN)
+                            .build(), balance.abs());
+                }));
+            }
+
+            start.countDown();
+            int passed = 0;
+            for (Future<Boolean> future : reserved) {
+                passed += future.get(10, TimeUnit.SECONDS) ? 1 : 0;
+            }
+
+            assertThat(passed).isEqualTo(1);
+            assertThat(counters.sideBalance(CLIENT, FROM, TO)).isEqualByComparingTo(balance.add(amount));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private void createTrade(Random random) {
+        Trade dependsOn = !trades.isEmpty() && random.nextInt(4) == 0 ? trade(random) : null;
+        BigDecimal amount = BigDecimal.valueOf(1 + random.nextInt(100)).movePointLeft(2);
+        boolean isSell = random.nextBoolean();
+        boolean rollback = random.nextInt(5) == 0;
+
+        Trade trade = template.execute(tx -> {
+            Trade created = creationService.createTradeNoSideValidation(
+                    dependsOn, createdConfig, BigDecimal.ONE, amount, isSell, false
+            ).getTrade();
+
+            if (rollback) {
+                tx.setRollbackOnly();
+            }
+
+            return created;
+        });
+
+        trades.add(trade.getId());
+        if (rollback) {
+            // machine was cached within rolled back transaction
+            tradeMachineSvc.releaseStateMachine(trade.getId(), true);
+            trades.remove(trade.getId());
+        }
+    }
+
+    private void changeStatus(Random random) {
+        if (trades.isEmpty()) {
+            return;
+        }
+
+        Trade trade = trade(random);
+        tradeMachineSvc.acquireStateMachine(trade.getId()).sendEvent(EVENTS[random.nextInt(EVENTS.length)]);
+        tradeMachineSvc.releaseStateMachine(trade.getId());
+    }
+
+    private void acceptXo(Random random) {
+        TradingCurrency to = PAIRS_TO[random.nextInt(PAIRS_TO.length)];
+        long windowMs = random.nextInt(MAX_WINDOW_MS);
+        boolean rollback = random.nextInt(5) == 0;
+
+        template.execute(tx -> {
+            LocalDateTime now = currentTimestamp.dbNow();
+            if (!counters.tryAccept(CLIENT, CLIENT, FROM, to, now, windowMs)) {
+                return null;
+            }
+
+            xoTradeRepository.save(acceptedXo(to, now));
+
+            if (rollback) {
+                tx.setRollbackOnly();
+            }
+
+            return null;
+        });
+    }
+
+    private AcceptedXoTrade acceptedXo(TradingCurrency to, LocalDateTime now) {
+        return AcceptedXoTrade.builder()
+                .clientFrom(createdClient)
+                .clientTo(createdClient)
+                .currencyFrom(FROM)
+                .currencyTo(to)
+                .amount(BigDecimal.ONE)
+                .priceFromBuy(BigDecimal.ONE)
+                .priceToSell(BigDecimal.ONE)
+                .expectedProfit(BigDecimal.ZERO)
+                .expectedProfitPct(BigDecimal.ZERO)
+                .status(XoAcceptStatus.UNCONFIRMED)
+                .opportunityOpenedOn(now)
+                .recordedOn(now)
+                .build();
+    }
+
+    private void assertMatchesDatabase(Random random) {
+        assertThat(counters.sideBalance(CLIENT, FROM, TO)).isEqualByComparingTo(dbSideBalance());
+
+        LocalDateTime now = currentTimestamp.dbNow();
+        for (TradingCurrency to : PAIRS_TO) {
+            LocalDateTime since = now.minusNanos(random.nextInt(2 * MAX_WINDOW_MS) * 1000000L);
+            assertThat(counters.acceptedSince(CLIENT, CLIENT, FROM, to, since))
+                    .isEqualTo(xoTradeRepository.countByKeyOlderThan(CLIENT, CLIENT, FROM, to, since));
+        }
+    }
+
+    private BigDecimal dbSideBalance() {
+        return tradeRepository.tradeBalanceWithSide(createdClient, FROM, TO, AdmissionCounters.SIDE_LIMITED);
+    }
+
+    private Trade trade(Random random) {
+        return tradeRepository.findById(trades.get(random.nextInt(trades.size()))).get();
+    }
+}
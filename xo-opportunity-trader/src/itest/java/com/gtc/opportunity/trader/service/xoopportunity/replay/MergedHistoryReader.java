@@ -0,0 +1,72 @@
+package com.gtc.opportunity.trader.service.xoopportunity.replay;
+
+import com.gtc.meta.CurrencyPair;
+import com.gtc.model.provider.OrderBook;
+import com.gtc.opportunity.trader.service.nnopportunity.global.HistoryBookReader;
+import lombok.RequiredArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.stream.Collectors;
+
+/**
+ * Reads history of several clients as one stream ordered by book timestamp, books with the same timestamp
+ * are ordered by client name. Like {@link HistoryBookReader} throws {@link NoSuchElementException} when done.
+ */
+class MergedHistoryReader implements AutoCloseable {
+
+    private final List<HistoryBookReader> readers;
+    private final PriorityQueue<Head> heads = new PriorityQueue<>(Comparator
+            .<Head>comparingLong(it -> it.book.getMeta().getTimestamp())
+            .thenComparing(it -> it.book.getMeta().getClient())
+    );
+
+    private boolean initialized;
+
+    MergedHistoryReader(String historyFolder, List<String> clients, CurrencyPair pair,
+                        LocalDateTime min, LocalDateTime max) {
+        this.readers = clients.stream()
+                .map(it -> new HistoryBookReader(historyFolder, it, pair, min, max))
+                .collect(Collectors.toList());
+    }
+
+    OrderBook read() {
+        if (!initialized) {
+            readers.forEach(this::advance);
+            initialized = true;
+        }
+
+        Head head = heads.poll();
+        if (null == head) {
+            throw new NoSuchElementException();
+        }
+
+        advance(head.reader);
+        return head.book;
+    }
+
+    @Override
+    public void close() throws Exception {
+        for (HistoryBookReader reader : readers) {
+            reader.close();
+        }
+    }
+
+    private void advance(HistoryBookReader reader) {
+        try {
+            heads.add(new Head(reader, reader.read()));
+        } catch (NoSuchElementException ex) {
+            // this client is done
+        }
+    }
+
+    @RequiredArgsConstructor
+    private static final class Head {
+
+        private final HistoryBookReader reader;
+        private final OrderBook book;
+    }
+}
@@ -0,0 +1,132 @@
+package com.gtc.opportunity.trader.service.xoopportunity.replay;
+
+import com.gtc.model.gateway.command.create.CreateOrderCommand;
+import com.gtc.model.gateway.command.create.MultiOrderCreateCommand;
+import com.gtc.model.gateway.data.OrderDto;
+import com.gtc.model.gateway.data.OrderStatus;
+import com.gtc.model.gateway.response.create.CreateOrderResponse;
+import com.gtc.model.gateway.response.manage.GetOrderResponse;
+import com.gtc.model.provider.OrderBook;
+import com.gtc.opportunity.trader.service.command.gateway.WsGatewayResponseListener;
+import com.gtc.opportunity.trader.service.trade.management.TradeStateCache;
+import lombok.RequiredArgsConstructor;
+import lombok.SneakyThrows;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exchanges of replayed history: order is acknowledged by first book of its client and pair that comes at least
+ * {@code latencyMs} after order was sent and is filled completely at its limit price by first book (including
+ * acknowledging one) that crosses it - buy when best sell is not above its price, sell when best buy is
+ * not below it. Responses go through {@link WsGatewayResponseListener} same way as from real gateway and are
+ * applied before next book is replayed.
+ */
+@RequiredArgsConstructor
+class SimulatedExchange {
+
+    private final WsGatewayResponseListener responseListener;
+    private final TradeStateCache stateCache;
+    private final long latencyMs;
+
+    private final List<Order> orders = new ArrayList<>();
+    private long messageId;
+    private long filled;
+
+    void accept(MultiOrderCreateCommand command, long nowMs) {
+        // command set has no stable order
+        command.getCommands().stream()
+                .sorted(Comparator.comparing(CreateOrderCommand::getClientName))
+                .forEach(it -> orders.add(new Order(it, nowMs + latencyMs)));
+    }
+
+    @SneakyThrows
+    void onBook(OrderBook book, long nowMs) {
+        Iterator<Order> iter = orders.iterator();
+        while (iter.hasNext()) {
+            Order order = iter.next();
+            if (!isSameMarket(order.command, book) || order.ackOn > nowMs) {
+                continue;
+            }
+
+            if (!order.acked) {
+                ack(order.command);
+                order.acked = true;
+            }
+
+            if (crosses(order.command, book)) {
+                fill(order.command);
+                iter.remove();
+            }
+        }
+
+        if (!stateCache.awaitIdle(1, TimeUnit.MINUTES)) {
+            throw new IllegalStateException("Trade events were not applied in time");
+        }
+    }
+
+    long filled() {
+        return filled;
+    }
+
+    long open() {
+        return orders.size();
+    }
+
+    private void ack(CreateOrderCommand command) {
+        responseListener.createOrder(CreateOrderResponse.builder()
+                .clientName(command.getClientName())
+                .id(nextId())
+                .requestOrderId(command.getId())
+                .orderId(command.getOrderId())
+                .isExecuted(false)
+                .build()
+        );
+    }
+
+    private void fill(CreateOrderCommand command) {
+        filled++;
+        responseListener.byId(GetOrderResponse.builder()
+                .clientName(command.getClientName())
+                .id(nextId())
+                .order(OrderDto.builder()
+                        .orderId(command.getOrderId())
+                        .size(command.getAmount())
+                        .price(command.getPrice())
+                        .status(OrderStatus.FILLED)
+                        .statusString(OrderStatus.FILLED.name())
+                        .build()
+                ).build()
+        );
+    }
+
+    private String nextId() {
+        return "replay-" + messageId++;
+    }
+
+    private static boolean isSameMarket(CreateOrderCommand command, OrderBook book) {
+        return command.getClientName().equals(book.getMeta().getClient())
+                && command.getCurrencyFrom().equals(book.getMeta().getPair().getFrom().getCode())
+                && command.getCurrencyTo().equals(book.getMeta().getPair().getTo().getCode());
+    }
+
+    private static boolean crosses(CreateOrderCommand command, OrderBook book) {
+        double price = command.getPrice().doubleValue();
+        if (command.getAmount().signum() < 0) {
+            return book.getBestBuy() >= price;
+        }
+
+        return book.getBestSell() <= price;
+    }
+
+    @RequiredArgsConstructor
+    private static final class Order {
+
+        private final CreateOrderCommand command;
+        private final long ackOn;
+        private boolean acked;
+    }
+}
@@ -0,0 +1,76 @@
+package com.gtc.opportunity.trader.service.xoopportunity.replay;
+
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
+import org.mockito.stubbing.Answer;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+
+/**
+ * Wall time spent in each pipeline stage, stages nest - i.e. search includes analysis of found opportunities.
+ */
+@Slf4j
+class StageTimings {
+
+    private static final double NANOS_IN_MS = 1e6;
+
+    private final Map<String, DescriptiveStatistics> stages = new TreeMap<>();
+
+    @SneakyThrows
+    <T> T time(String stage, Callable<T> action) {
+        long start = System.nanoTime();
+        try {
+            return action.call();
+        } finally {
+            record(stage, start);
+        }
+    }
+
+    void time(String stage, Runnable action) {
+        time(stage, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * Times calls of spied method.
+     */
+    <T> Answer<T> timed(String stage) {
+        return invocation -> {
+            long start = System.nanoTime();
+            try {
+                @SuppressWarnings("unchecked")
+                T result = (T) invocation.callRealMethod();
+                return result;
+            } finally {
+                record(stage, start);
+            }
+        };
+    }
+
+    synchronized long count(String stage) {
+        DescriptiveStatistics stats = stages.get(stage);
+        return null == stats ? 0 : stats.getN();
+    }
+
+    synchronized void logStats() {
+        stages.forEach((stage, stats) -> log.info(
+                "Stage {}: count {} total {}ms mean {}ms p99 {}ms max {}ms",
+                stage,
+                stats.getN(),
+                String.format("%.1f", stats.getSum()),
+                String.format("%.3f", stats.getMean()),
+                String.format("%.3f", stats.getPercentile(99)),
+                String.format("%.3f", stats.getMax())
+        ));
+    }
+
+    private synchronized void record(String stage, long startNanos) {
+        stages.computeIfAbsent(stage, id -> new DescriptiveStatistics())
+                .addValue((System.nanoTime() - startNanos) / NANOS_IN_MS);
+    }
+}
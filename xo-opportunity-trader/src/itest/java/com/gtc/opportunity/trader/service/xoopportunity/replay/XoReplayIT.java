@@ -0,0 +1,447 @@
+package com.gtc.opportunity.trader.service.xoopportunity.replay;
+
+import com.google.common.base.Splitter;
+import com.gtc.meta.CurrencyPair;
+import com.gtc.meta.TradingCurrency;
+import com.gtc.model.gateway.command.create.MultiOrderCreateCommand;
+import com.gtc.model.provider.OrderBook;
+import com.gtc.opportunity.trader.BaseIT;
+import com.gtc.opportunity.trader.config.AdmissionConfig;
+import com.gtc.opportunity.trader.domain.AcceptedXoTrade;
+import com.gtc.opportunity.trader.domain.Client;
+import com.gtc.opportunity.trader.domain.ClientConfig;
+import com.gtc.opportunity.trader.domain.FeeSystem;
+import com.gtc.opportunity.trader.domain.Trade;
+import com.gtc.opportunity.trader.domain.TradeStatus;
+import com.gtc.opportunity.trader.domain.Wallet;
+import com.gtc.opportunity.trader.domain.XoAcceptStatus;
+import com.gtc.opportunity.trader.domain.XoConfig;
+import com.gtc.opportunity.trader.repository.AcceptedXoTradeRepository;
+import com.gtc.opportunity.trader.repository.ClientConfigRepository;
+import com.gtc.opportunity.trader.repository.ClientRepository;
+import com.gtc.opportunity.trader.repository.TradeRepository;
+import com.gtc.opportunity.trader.repository.WalletRepository;
+import com.gtc.opportunity.trader.repository.XoConfigRepository;
+import com.gtc.opportunity.trader.service.CurrentTimestamp;
+import com.gtc.opportunity.trader.service.command.gateway.WsGatewayCommander;
+import com.gtc.opportunity.trader.service.command.gateway.WsGatewayResponseListener;
+import com.gtc.opportunity.trader.service.compute.BalanceChange;
+import com.gtc.opportunity.trader.service.compute.TradeBalanceChange;
+import com.gtc.opportunity.trader.service.compute.TradeDesc;
+import com.gtc.opportunity.trader.service.nnopportunity.solver.time.LocalTime;
+import com.gtc.opportunity.trader.service.scheduled.trade.management.OrderUpdater;
+import com.gtc.opportunity.trader.service.stat.xo.RejectedTradeStatService;
+import com.gtc.opportunity.trader.service.trade.management.TradeStateCache;
+import com.gtc.opportunity.trader.service.xoopportunity.creation.AdmissionCounters;
+import com.gtc.opportunity.trader.service.xoopportunity.creation.CreateTradesService;
+import com.gtc.opportunity.trader.service.xoopportunity.creation.fastexception.Reason;
+import com.gtc.opportunity.trader.service.xoopportunity.creation.fastexception.RejectionException;
+import com.gtc.opportunity.trader.service.xoopportunity.creation.precision.XoTransactionCalculator;
+import com.gtc.opportunity.trader.service.xoopportunity.finder.BookRepository;
+import com.gtc.opportunity.trader.service.xoopportunity.finder.OpportunityAcceptor;
+import com.gtc.opportunity.trader.service.xoopportunity.finder.OpportunitySearcher;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.mockito.stubbing.Answer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.context.ApplicationContext;
+import org.springframework.scheduling.annotation.ScheduledAnnotationBeanPostProcessor;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+/**
+ * Replays persisted order book history of several clients through real cross-market pipeline: book repository,
+ * opportunity search, analysis, amount calculation and trade creation, with database in H2. Time is book time -
+ * both local and database clocks are replaced, search runs each {@code app.schedule.opportunitySearchMs} of book
+ * time and solver is limited by steps, so that the same history gives the same trades. Spring scheduling is off
+ * in tests, periodic tasks that change trades (order timeouter, admission counter reconciliation) are run by replay
+ * loop each their period of book time.
+ * Orders are filled by {@link SimulatedExchange}. Reports opportunities, rejections, trades, balance change
+ * of filled orders and time spent in each stage. Checks that rate limit does not reject trades once admission
+ * counters forgot first of them ({@code app.admission.rateRetentionS} of book time later).
+ *
+ * Test will only start if it sees property XO_REPLAY_TEST == true.
+ * Uses env. vars or (defaults):
+ * HISTORY_DIR (/mnt/storage-box/bid/history)
+ * CLIENTS (binance,huobi) - comma separated
+ * FROM (EOS)
+ * TO (BTC)
+ * START (2018-07-27T00:00:00)
+ * END (2018-07-28T00:00:00)
+ * LATENCY_MS (500) - order is acknowledged by exchange after it
+ * CHARGE_RATE_PCT (0.1)
+ * FEE_SYSTEM (FEE_AFTER)
+ * SCALE_AMOUNT (2)
+ * SCALE_PRICE (7)
+ * MIN_ORDER (1)
+ * MAX_ORDER (10)
+ * WALLET_FROM (100)
+ * WALLET_TO (1)
+ * MIN_PROFITABILITY_PCT (0.1)
+ * REQUIRED_PROFITABILITY_PCT (0.1)
+ * SAFETY_MARGIN_AMOUNT_PCT (10)
+ * SAFETY_MARGIN_PRICE_PCT (0.05)
+ * XO_RATE_PER_S (0.1)
+ * MAX_SOLVE_RATE_PER_S (1)
+ * STALE_BOOK_THRESHOLD_MS (10000)
+ * SINGLE_SIDE_TRADE_LIMIT (100)
+ */
+@Slf4j
+@EnabledIfEnvironmentVariable(named = "XO_REPLAY_TEST", matches = "true")
+@TestPropertySource(properties = "app.solver.stepLimit=" + XoReplayIT.SOLVER_STEP_LIMIT)
+public class XoReplayIT extends BaseIT {
+
+    static final int SOLVER_STEP_LIMIT = 1000;
+
+    private static final int LOG_STATS_EACH_N = 100000;
+    // not used while solver is step limited
+    private static final int MAX_SOLVE_TIME_MS = 75;
+
+    private final EnvContainer env = new EnvContainer();
+    private final AtomicLong bookTimestamp = new AtomicLong();
+    private final StageTimings timings = new StageTimings();
+    private final Map<Reason, Long> rejections = new EnumMap<>(Reason.class);
+    private final List<Long> createdOn = new ArrayList<>();
+    private final Map<Reason, Long> lastRejectedOn = new EnumMap<>(Reason.class);
+
+    @Value("${app.schedule.opportunitySearchMs}")
+    private long searchEachMs;
+
+    @Value("#{${app.schedule.order.timedOutCheckS} * 1000}")
+    private long timeoutEachMs;
+
+    @Value("#{${app.schedule.admission.reconcileS} * 1000}")
+    private long reconcileEachMs;
+
+    @Autowired
+    private AdmissionConfig admissionConfig;
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private OpportunitySearcher searcher;
+
+    @Autowired
+    private OrderUpdater orderUpdater;
+
+    @Autowired
+    private AdmissionCounters admissionCounters;
+
+    @Autowired
+    private WsGatewayResponseListener responseListener;
+
+    @Autowired
+    private TradeStateCache stateCache;
+
+    @Autowired
+    private ClientRepository clientRepository;
+
+    @Autowired
+    private ClientConfigRepository configRepository;
+
+    @Autowired
+    private XoConfigRepository xoConfigRepository;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private TradeRepository tradeRepository;
+
+    @Autowired
+    private AcceptedXoTradeRepository xoTradeRepository;
+
+    @Autowired
+    private TradeBalanceChange balanceChange;
+
+    @Autowired
+    private TransactionTemplate template;
+
+    @MockBean
+    private LocalTime localTime;
+
+    @MockBean
+    private CurrentTimestamp currentTimestamp;
+
+    @MockBean
+    private WsGatewayCommander commander;
+
+    @SpyBean
+    private OpportunityAcceptor acceptor;
+
+    @SpyBean
+    private XoTransactionCalculator calculator;
+
+    @SpyBean
+    private CreateTradesService createTradesService;
+
+    @SpyBean
+    private RejectedTradeStatService rejectedStatService;
+
+    private SimulatedExchange exchange;
+
+    @BeforeEach
+    public void init() {
+        // wall-clock scheduled tasks would make replay depend on its speed
+        assertThat(context.getBeanNamesForType(ScheduledAnnotationBeanPostProcessor.class)).isEmpty();
+
+        when(localTime.timestampMs()).thenAnswer(inv -> bookTimestamp.get());
+        when(currentTimestamp.dbNow()).thenAnswer(inv -> toDateTime(bookTimestamp.get()));
+
+        exchange = new SimulatedExchange(responseListener, stateCache, env.getLatencyMs());
+        doAnswer(inv -> {
+            exchange.accept(inv.getArgument(0), bookTimestamp.get());
+            return null;
+        }).when(commander).createOrders(any(MultiOrderCreateCommand.class));
+
+        doAnswer(timings.timed("analyze")).when(acceptor).ackCreateOrOpenOpportunity(any());
+        doAnswer(timings.timed("close")).when(acceptor).ackCloseOpportunity(any());
+        doAnswer(timings.timed("calculate")).when(calculator).calculate(any());
+        Answer<Object> createTrades = timings.timed("createTrades");
+        doAnswer(inv -> {
+            Object result = createTrades.answer(inv);
+            createdOn.add(bookTimestamp.get());
+            return result;
+        }).when(createTradesService).createTrades(any(), any(), any(), any());
+        doAnswer(inv -> {
+            RejectionException ex = inv.getArgument(0);
+            rejections.merge(ex.getReason(), 1L, Long::sum);
+            lastRejectedOn.put(ex.getReason(), bookTimestamp.get());
+            return inv.callRealMethod();
+        }).when(rejectedStatService).ackRejection(any(), any());
+
+        // xo config shares id with client config, so they are saved together
+        env.getClients().forEach(it -> template.execute(tx -> createClient(it)));
+    }
+
+    @Test
+    public void replay() throws Exception {
+        long books = 0;
+        long searchOn = Long.MIN_VALUE;
+        long timeoutOn = Long.MIN_VALUE;
+        long reconcileOn = Long.MIN_VALUE;
+        double lastPrice = Double.NaN;
+        try (MergedHistoryReader reader = reader()) {
+            while (true) {
+                OrderBook book = reader.read();
+                long now = book.getMeta().getTimestamp();
+                bookTimestamp.set(now);
+                books++;
+                lastPrice = (book.getBestBuy() + book.getBestSell()) / 2.0;
+
+                timings.time("addBook", () -> bookRepository.addOrderBook(book));
+                timings.time("exchange", () -> exchange.onBook(book, now));
+                searchOn = runEach(now, searchOn, searchEachMs, "search", searcher::searchForOpportunities);
+                timeoutOn = runEach(now, timeoutOn, timeoutEachMs, "timeout", orderUpdater::orderTimeouter);
+                reconcileOn = runEach(now, reconcileOn, reconcileEachMs, "reconcile", admissionCounters::reconcile);
+
+                if (books % LOG_STATS_EACH_N == 0) {
+                    logStats(books, lastPrice);
+                }
+            }
+        } catch (NoSuchElementException ex) {
+            // NOP
+        } finally {
+            logStats(books, lastPrice);
+        }
+
+        assertThat(books).isPositive();
+        assertAcceptedAfterRetention();
+    }
+
+    private void assertAcceptedAfterRetention() {
+        if (createdOn.isEmpty()) {
+            return;
+        }
+
+        long forgottenOn = createdOn.get(0) + admissionConfig.getRateRetentionS() * 1000L;
+        if (bookTimestamp.get() < forgottenOn + reconcileEachMs) {
+            log.warn("Replay is shorter than admission retention, trades after it were not checked");
+            return;
+        }
+
+        LocalDateTime lastBook = toDateTime(bookTimestamp.get());
+        template.execute(tx -> {
+            xoTradeRepository.findAll().forEach(it -> assertThat(it.getRecordedOn()).isBeforeOrEqualTo(lastBook));
+            return null;
+        });
+        // other limits (i.e. side limit) can stop trading, but rate limit should not outlive retention
+        if (createdOn.stream().noneMatch(it -> it >= forgottenOn)) {
+            assertThat(lastRejectedOn.getOrDefault(Reason.RATE_TOO_HIGH, Long.MIN_VALUE)).isLessThan(forgottenOn);
+        }
+    }
+
+    // returns book time of next run
+    private long runEach(long now, long runOn, long eachMs, String stage, Runnable task) {
+        if (now < runOn) {
+            return runOn;
+        }
+
+        timings.time(stage, task);
+        return now + eachMs;
+    }
+
+    private MergedHistoryReader reader() {
+        return new MergedHistoryReader(
+                env.getHistoryDir(),
+                env.getClients(),
+                new CurrencyPair(env.getFrom(), env.getTo()),
+                env.getStart(),
+                env.getEnd()
+        );
+    }
+
+    private Client createClient(String name) {
+        Client client = clientRepository.save(new Client(name, true, null, null));
+        ClientConfig config = ClientConfig.builder()
+                .client(client)
+                .currency(env.getFrom())
+                .currencyTo(env.getTo())
+                .tradeChargeRatePct(env.getChargeRatePct())
+                .minOrder(env.getMinOrder())
+                .maxOrder(env.getMaxOrder())
+                .scalePrice(env.getScalePrice())
+                .scaleAmount(env.getScaleAmount())
+                .build();
+        config.setFeeSystem(env.getFeeSystem());
+        config = configRepository.save(config);
+
+        config.setXoConfig(xoConfigRepository.save(XoConfig.builder()
+                .clientCfg(config)
+                .minProfitabilityPct(env.getMinProfitabilityPct())
+                .requiredProfitablityPct(env.getRequiredProfitabilityPct())
+                .safetyMarginAmountPct(env.getSafetyMarginAmountPct())
+                .safetyMarginPricePct(env.getSafetyMarginPricePct())
+                .xoRatePerSec(env.getXoRatePerS())
+                .maxSolveTimeMs(MAX_SOLVE_TIME_MS)
+                .maxSolveRatePerS(env.getMaxSolveRatePerS())
+                .staleBookThresholdMS(env.getStaleBookThresholdMs())
+                .singleSideTradeLimit(env.getSingleSideTradeLimit())
+                .enabled(true)
+                .build()
+        ));
+
+        walletRepository.save(Wallet.builder().client(client).currency(env.getFrom()).balance(env.getWalletFrom())
+                .build());
+        walletRepository.save(Wallet.builder().client(client).currency(env.getTo()).balance(env.getWalletTo())
+                .build());
+        return client;
+    }
+
+    private void logStats(long books, double lastPrice) {
+        log.info("Replayed {} books of {} up to {}", books, env.getClients(), toDateTime(bookTimestamp.get()));
+        log.info("Opportunities analyzed {} closed {}, rejections {}",
+                timings.count("analyze"), timings.count("close"), rejections);
+        log.info("Orders filled {} open {}", exchange.filled(), exchange.open());
+        template.execute(tx -> {
+            logTrades(lastPrice);
+            return null;
+        });
+        timings.logStats();
+    }
+
+    private void logTrades(double lastPrice) {
+        Map<XoAcceptStatus, Long> xoByStatus = StreamSupport.stream(xoTradeRepository.findAll().spliterator(), false)
+                .collect(Collectors.groupingBy(AcceptedXoTrade::getStatus, TreeMap::new, Collectors.counting()));
+        List<Trade> trades = tradeRepository.findByXoOrderNotNull();
+        Map<TradeStatus, Long> byStatus = trades.stream()
+                .collect(Collectors.groupingBy(Trade::getStatus, TreeMap::new, Collectors.counting()));
+
+        BigDecimal from = BigDecimal.ZERO;
+        BigDecimal to = BigDecimal.ZERO;
+        for (Trade trade : trades) {
+            if (TradeStatus.CLOSED != trade.getStatus()) {
+                continue;
+            }
+
+            BalanceChange change = balanceChange.compute(
+                    env.getFeeSystem(),
+                    env.getChargeRatePct(),
+                    new TradeDesc(trade.getOpeningPrice(), trade.getOpeningAmount(), trade.isSell())
+            );
+            from = from.add(change.getFrom());
+            to = to.add(change.getTo());
+        }
+
+        log.info("XO trades {}, trades {}", xoByStatus, byStatus);
+        log.info("Balance change of filled orders {} {} {} {}, worth {} {} at last price {}",
+                from.stripTrailingZeros().toPlainString(), env.getFrom(),
+                to.stripTrailingZeros().toPlainString(), env.getTo(),
+                to.doubleValue() + from.doubleValue() * lastPrice, env.getTo(), lastPrice);
+    }
+
+    private static LocalDateTime toDateTime(long timestampMs) {
+        return Instant.ofEpochMilli(timestampMs).atZone(ZoneId.systemDefault()).toLocalDateTime();
+    }
+
+    @Data
+    static class EnvContainer {
+        // Are set via env:
+        private String historyDir = get("HISTORY_DIR", "/mnt/storage-box/bid/history");
+        private List<String> clients = Splitter.on(',').trimResults().omitEmptyStrings()
+                .splitToList(get("CLIENTS", "binance,huobi"));
+        private TradingCurrency from = TradingCurrency.fromCode(get("FROM", "EOS"));
+        private TradingCurrency to = TradingCurrency.fromCode(get("TO", "BTC"));
+
+        private LocalDateTime start = LocalDateTime.parse(
+                get("START", "2018-07-27T00:00:00"), DateTimeFormatter.ISO_LOCAL_DATE_TIME
+        );
+
+        private LocalDateTime end = LocalDateTime.parse(
+                get("END", "2018-07-28T00:00:00"), DateTimeFormatter.ISO_LOCAL_DATE_TIME
+        );
+
+        private long latencyMs = Long.valueOf(get("LATENCY_MS", "500"));
+        private BigDecimal chargeRatePct = new BigDecimal(get("CHARGE_RATE_PCT", "0.1"));
+        private FeeSystem feeSystem = FeeSystem.valueOf(get("FEE_SYSTEM", "FEE_AFTER"));
+        private int scaleAmount = Integer.valueOf(get("SCALE_AMOUNT", "2"));
+        private int scalePrice = Integer.valueOf(get("SCALE_PRICE", "7"));
+        private BigDecimal minOrder = new BigDecimal(get("MIN_ORDER", "1"));
+        private BigDecimal maxOrder = new BigDecimal(get("MAX_ORDER", "10"));
+        private BigDecimal walletFrom = new BigDecimal(get("WALLET_FROM", "100"));
+        private BigDecimal walletTo = new BigDecimal(get("WALLET_TO", "1"));
+
+        private BigDecimal minProfitabilityPct = new BigDecimal(get("MIN_PROFITABILITY_PCT", "0.1"));
+        private BigDecimal requiredProfitabilityPct = new BigDecimal(get("REQUIRED_PROFITABILITY_PCT", "0.1"));
+        private BigDecimal safetyMarginAmountPct = new BigDecimal(get("SAFETY_MARGIN_AMOUNT_PCT", "10"));
+        private BigDecimal safetyMarginPricePct = new BigDecimal(get("SAFETY_MARGIN_PRICE_PCT", "0.05"));
+        private double xoRatePerS = Double.valueOf(get("XO_RATE_PER_S", "0.1"));
+        private int maxSolveRatePerS = Integer.valueOf(get("MAX_SOLVE_RATE_PER_S", "1"));
+        private int staleBookThresholdMs = Integer.valueOf(get("STALE_BOOK_THRESHOLD_MS", "10000"));
+        private BigDecimal singleSideTradeLimit = new BigDecimal(get("SINGLE_SIDE_TRADE_LIMIT", "100"));
+
+        private static String get(String name, String defaultVal) {
+            return System.getenv().getOrDefault(name, defaultVal);
+        }
+    }
+}
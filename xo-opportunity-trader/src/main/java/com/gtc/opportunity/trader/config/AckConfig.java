@@ -0,0 +1,28 @@
+package com.gtc.opportunity.trader.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.gtc.opportunity.trader.config.Const.Ack.ACK;
+import static com.gtc.opportunity.trader.config.Const.CONF_ROOT_CHILD;
+
+/**
+ * Deadlines of gateway commands acknowledgement.
+ */
+@Data
+@Configuration
+@ConfigurationProperties(CONF_ROOT_CHILD + ACK)
+public class AckConfig {
+
+    private Map<String, Integer> deadlineMs = new HashMap<>();
+    private int defaultDeadlineMs = 10000;
+    private int maxResends = 2;
+
+    public int deadlineMs(String type) {
+        return deadlineMs.getOrDefault(type, defaultDeadlineMs);
+    }
+}
@@ -0,0 +1,20 @@
+package com.gtc.opportunity.trader.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import static com.gtc.opportunity.trader.config.Const.Admission.ADMISSION;
+import static com.gtc.opportunity.trader.config.Const.CONF_ROOT_CHILD;
+
+/**
+ * In-memory admission counters of cross-market trades.
+ */
+@Data
+@Configuration
+@ConfigurationProperties(CONF_ROOT_CHILD + ADMISSION)
+public class AdmissionConfig {
+
+    // accepted trades older than this are forgotten, so rate windows must be shorter
+    private int rateRetentionS = 3600;
+}
@@ -37,6 +37,19 @@ public final class Const {
         public static final String WS_RECONNECT_S = "#{${app.schedule.wsReconnectS} * 1000}";
     }
 
+    @UtilityClass
+    public static final class Ack {
+
+        public static final String ACK = "ack";
+        public static final String ACK_CHECK_MS = "${app.ack.checkMs}";
+    }
+
+    @UtilityClass
+    public static final class Admission {
+
+        public static final String ADMISSION = "admission";
+    }
+
     @UtilityClass
     public static final class Opportunity {
 
@@ -1,9 +1,13 @@
 package com.gtc.opportunity.trader.config;
 
+import com.gtc.ws.ReconnectPolicy;
+import com.gtc.ws.SharedWsHttpClient;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import javax.annotation.PostConstruct;
+
 import static com.gtc.opportunity.trader.config.Const.CONF_ROOT_CHILD;
 import static com.gtc.opportunity.trader.config.Const.Ws.WS;
 
@@ -18,4 +22,12 @@ public class WsConfig {
     private String market;
     private String gateway;
     private int disconnectIfInactiveS;
+    private int dispatchWorkers = 2;
+    private SharedWsHttpClient.Cfg client = new SharedWsHttpClient.Cfg();
+    private ReconnectPolicy reconnect = new ReconnectPolicy();
+
+    @PostConstruct
+    public void configureClient() {
+        SharedWsHttpClient.configure(client);
+    }
 }
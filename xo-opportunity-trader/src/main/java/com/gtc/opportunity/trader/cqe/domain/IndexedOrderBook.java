@@ -1,7 +1,5 @@
 package com.gtc.opportunity.trader.cqe.domain;
 
-import com.googlecode.cqengine.attribute.SimpleAttribute;
-import com.gtc.meta.CurrencyPair;
 import com.gtc.model.provider.OrderBook;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -11,8 +9,6 @@ import lombok.experimental.Delegate;
 
 import java.util.concurrent.atomic.AtomicLong;
 
-import static com.googlecode.cqengine.query.QueryFactory.attribute;
-
 /**
  * Created by Valentyn Berezin on 16.06.18.
  */
@@ -24,36 +20,15 @@ public class IndexedOrderBook {
 
     private static final AtomicLong VERSION_GENERATOR = new AtomicLong();
 
-    public static final SimpleAttribute<IndexedOrderBook, String> A_ID = attribute("id", IndexedOrderBook::getId);
-    public static final SimpleAttribute<IndexedOrderBook, String> CLIENT = attribute(
-            "client", o -> o.getMeta().getClient()
-    );
-
-    public static final SimpleAttribute<IndexedOrderBook, CurrencyPair> CURRENCY_PAIR = attribute(
-            "currencyPair", o -> o.getMeta().getPair()
-    );
-
-    public static final SimpleAttribute<IndexedOrderBook, Double> BEST_BUY = attribute(
-            "bestBuy", IndexedOrderBook::getBestBuy
-    );
-
-    public static final SimpleAttribute<IndexedOrderBook, Double> BEST_SELL = attribute(
-            "bestSell", IndexedOrderBook::getBestSell
-    );
-
-    public static final SimpleAttribute<IndexedOrderBook, Long> REC_ON = attribute(
-            "recordedOn", IndexedOrderBook::getRecordedOn
-    );
-
     private final long version = VERSION_GENERATOR.getAndIncrement();
 
-    private final long recordedOn = System.currentTimeMillis();
-
     private final String id;
 
     @Delegate
     private final OrderBook book;
 
+    private final long recordedOn;
+
     public static String calculateId(OrderBook orderBook) {
         return orderBook.getMeta().getClient()
                 + orderBook.getMeta().getPair().getFrom()
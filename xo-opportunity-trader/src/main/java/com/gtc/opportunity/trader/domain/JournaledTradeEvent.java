@@ -0,0 +1,45 @@
+package com.gtc.opportunity.trader.domain;
+
+import lombok.*;
+import org.hibernate.annotations.DynamicInsert;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+import java.io.Serializable;
+import java.math.BigDecimal;
+
+/**
+ * Gateway response that was received, but not yet applied to its trade.
+ */
+@Entity
+@Getter
+@Setter
+@Builder
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(of = "id")
+@DynamicInsert
+public class JournaledTradeEvent implements Serializable {
+
+    @Id
+    @GeneratedValue
+    private long id;
+
+    @NotNull
+    private String type;
+
+    @NotNull
+    private String clientName;
+
+    @NotNull
+    private String assignedId;
+
+    private String requestId;
+    private String source;
+    private String status;
+    private String nativeStatus;
+    private BigDecimal amount;
+    private BigDecimal price;
+    private String data;
+}
@@ -2,12 +2,14 @@ package com.gtc.opportunity.trader.repository;
 
 import com.gtc.meta.TradingCurrency;
 import com.gtc.opportunity.trader.domain.AcceptedXoTrade;
+import com.gtc.opportunity.trader.repository.dto.AcceptedAt;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * Created by Valentyn Berezin on 25.02.18.
@@ -24,4 +26,9 @@ public interface AcceptedXoTradeRepository extends CrudRepository<AcceptedXoTrad
                              @Param("currencyFrom") TradingCurrency currencyFrom,
                              @Param("currencyTo") TradingCurrency currencyTo,
                              @Param("recordedOn") LocalDateTime recordedOn);
+
+    @Query("SELECT new com.gtc.opportunity.trader.repository.dto.AcceptedAt("
+            + "xo.clientFrom.name, xo.clientTo.name, xo.currencyFrom, xo.currencyTo, xo.recordedOn) "
+            + "FROM AcceptedXoTrade xo WHERE xo.recordedOn >= :recordedOn")
+    List<AcceptedAt> findAcceptedSince(@Param("recordedOn") LocalDateTime recordedOn);
 }
@@ -0,0 +1,21 @@
+package com.gtc.opportunity.trader.repository;
+
+import com.gtc.opportunity.trader.domain.JournaledTradeEvent;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface JournaledTradeEventRepository extends CrudRepository<JournaledTradeEvent, Long> {
+
+    List<JournaledTradeEvent> findAllByOrderByIdAsc();
+
+    @Modifying
+    @Query("DELETE FROM JournaledTradeEvent ev WHERE ev.id IN :ids")
+    int deleteByIds(@Param("ids") Collection<Long> ids);
+}
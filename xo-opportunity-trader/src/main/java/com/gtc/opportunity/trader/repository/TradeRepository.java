@@ -3,6 +3,7 @@ package com.gtc.opportunity.trader.repository;
 import com.gtc.meta.TradingCurrency;
 import com.gtc.opportunity.trader.domain.*;
 import com.gtc.opportunity.trader.repository.dto.ByClientAndPair;
+import com.gtc.opportunity.trader.repository.dto.SideBalance;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
@@ -67,6 +68,13 @@ public interface TradeRepository extends CrudRepository<Trade, String> {
             @Param("lastUpdate") LocalDateTime lastUpdate,
             @Param("clientEnabled") boolean clientEnabled);
 
+    @Query("SELECT t FROM Trade t WHERE t.client.name = :clientName "
+            + "AND t.currencyFrom = :currencyFrom AND t.currencyTo = :currencyTo AND t.status IN (:statuses)")
+    List<Trade> findBySymbolAndStatusIn(@Param("clientName") String clientName,
+                                        @Param("currencyFrom") TradingCurrency currencyFrom,
+                                        @Param("currencyTo") TradingCurrency currencyTo,
+                                        @Param("statuses") Collection<TradeStatus> statuses);
+
     long countAllByStatusEquals(TradeStatus status);
 
     long countAllByStatusNotIn(Collection<TradeStatus> status);
@@ -79,6 +87,12 @@ public interface TradeRepository extends CrudRepository<Trade, String> {
                                     @Param("currencyTo") TradingCurrency currencyTo,
                                     @Param("statuses") Set<TradeStatus> statuses);
 
+    @Query("SELECT new com.gtc.opportunity.trader.repository.dto.SideBalance("
+            + "t.client.name, t.currencyFrom, t.currencyTo, COALESCE(SUM(t.openingAmount), 0)) FROM Trade t "
+            + "WHERE t.status IN (:statuses) AND t.ignoreAsSideLimit = FALSE "
+            + "GROUP BY t.client.name, t.currencyFrom, t.currencyTo")
+    List<SideBalance> tradeBalancesWithSide(@Param("statuses") Set<TradeStatus> statuses);
+
     @Query("SELECT COALESCE(SUM(t.openingAmount * t.openingPrice), 0) FROM Trade t WHERE "
             + "t.wallet = :wallet AND t.status IN (:statuses) AND t.openingAmount > 0")
     BigDecimal lockedByBuyTradesWithStatus(@Param("wallet") Wallet wallet, @Param("statuses") Set<TradeStatus> statuses);
@@ -0,0 +1,19 @@
+package com.gtc.opportunity.trader.repository.dto;
+
+import com.gtc.meta.TradingCurrency;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * When cross-market trade between clients and currency pair was accepted.
+ */
+@Data
+public class AcceptedAt {
+
+    private final String clientFrom;
+    private final String clientTo;
+    private final TradingCurrency from;
+    private final TradingCurrency to;
+    private final LocalDateTime recordedOn;
+}
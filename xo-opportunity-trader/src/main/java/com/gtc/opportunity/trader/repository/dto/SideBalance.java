@@ -0,0 +1,18 @@
+package com.gtc.opportunity.trader.repository.dto;
+
+import com.gtc.meta.TradingCurrency;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * Signed sum of trade amounts of client and currency pair.
+ */
+@Data
+public class SideBalance {
+
+    private final String client;
+    private final TradingCurrency from;
+    private final TradingCurrency to;
+    private final BigDecimal balance;
+}
@@ -98,7 +98,9 @@ public class TradeCreationService {
         }
 
         // side limiting rejections can apply only to cross-market trades
-        if (validateSingleSide && !amountTradeLimiter.canProceed(trade)) {
+        if (!validateSingleSide) {
+            amountTradeLimiter.proceed(trade);
+        } else if (!amountTradeLimiter.tryReserve(trade)) {
             throw new RejectionException(Reason.SIDE_LIMIT);
         }
 
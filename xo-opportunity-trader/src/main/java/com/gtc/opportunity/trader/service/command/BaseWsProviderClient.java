@@ -46,7 +46,8 @@ public abstract class BaseWsProviderClient<T> {
                         wsConfig.getMarket(),
                         name,
                         wsConfig.getDisconnectIfInactiveS(),
-                        objectMapper, log
+                        objectMapper, log,
+                        wsConfig.getReconnect()
                 ),
                 new BaseWebsocketClient.Handlers(
                         this::subscribeOnConnect,
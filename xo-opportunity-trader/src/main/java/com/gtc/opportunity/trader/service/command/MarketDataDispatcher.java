@@ -0,0 +1,219 @@
+package com.gtc.opportunity.trader.service.command;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.gtc.meta.CurrencyPair;
+import com.gtc.model.provider.OrderBook;
+import com.gtc.opportunity.trader.config.WsConfig;
+import com.newrelic.api.agent.NewRelic;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import static com.gtc.opportunity.trader.config.Const.Scheduled.PUSH_STAT;
+
+/**
+ * Moves order book processing off websocket thread. Each (market data client, exchange client, currency pair)
+ * key has single slot that holds only the newest book - if consumer can't keep up, books that were not picked up
+ * yet are replaced (conflated) by newer ones, so consumer always works on the latest book and never on a backlog.
+ * Keys are drained by small shared worker pool, at most one worker handles given key at a time, so books
+ * of the same key are delivered in arrival order; book older than already delivered one is dropped.
+ * Worker delivers one book per turn and re-queues key if it has newer one, so busy keys don't starve others.
+ */
+@Slf4j
+@Service
+public class MarketDataDispatcher {
+
+    private static final String CONFLATED = "Custom/MarketData/Conflated/";
+    private static final String DROPPED = "Custom/MarketData/Dropped/";
+
+    private final Map<Key, Slot> slots = new ConcurrentHashMap<>();
+    private final ExecutorService workers;
+
+    public MarketDataDispatcher(WsConfig wsConfig) {
+        this.workers = Executors.newFixedThreadPool(
+                wsConfig.getDispatchWorkers(),
+                new ThreadFactoryBuilder().setNameFormat("market-data-%d").setDaemon(true).build()
+        );
+    }
+
+    /**
+     * Wraps {@code consumer} so that books it receives are conflated per exchange client and currency pair.
+     */
+    public Consumer<OrderBook> conflating(String name, Consumer<OrderBook> consumer) {
+        return book -> dispatch(name, book, consumer);
+    }
+
+    public void dispatch(String name, OrderBook book, Consumer<OrderBook> consumer) {
+        Key key = new Key(name, book.getMeta().getClient(), book.getMeta().getPair());
+        Slot slot = slots.get(key);
+        if (null == slot) {
+            slot = slots.computeIfAbsent(key, id -> new Slot(id, consumer));
+        }
+
+        slot.offer(book);
+    }
+
+    public List<KeyStatistics> statistics() {
+        return slots.values().stream().map(Slot::statistics).collect(Collectors.toList());
+    }
+
+    @Scheduled(fixedRateString = PUSH_STAT)
+    public void reportStatistics() {
+        slots.values().forEach(Slot::report);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        workers.shutdownNow();
+        workers.awaitTermination(1, TimeUnit.SECONDS);
+    }
+
+    @Data
+    public static class KeyStatistics {
+
+        private final String name;
+        private final String client;
+        private final CurrencyPair pair;
+        private final long received;
+        private final long delivered;
+        private final long conflated;
+        private final long dropped;
+        private final long failed;
+    }
+
+    @EqualsAndHashCode
+    @RequiredArgsConstructor
+    private static final class Key {
+
+        private final String name;
+        private final String client;
+        private final CurrencyPair pair;
+
+        @Override
+        public String toString() {
+            return name + "/" + client + "/" + pair.getFrom() + "-" + pair.getTo();
+        }
+    }
+
+    private final class Slot implements Runnable {
+
+        private final Key key;
+        private final Consumer<OrderBook> consumer;
+
+        private final AtomicReference<OrderBook> latest = new AtomicReference<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        private final AtomicLong received = new AtomicLong();
+        private final AtomicLong delivered = new AtomicLong();
+        private final AtomicLong conflated = new AtomicLong();
+        private final AtomicLong dropped = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+
+        // worker-only, scheduled flag hands it over between workers
+        private long lastTimestamp = Long.MIN_VALUE;
+
+        private long reportedConflated;
+        private long reportedDropped;
+
+        Slot(Key key, Consumer<OrderBook> consumer) {
+            this.key = key;
+            this.consumer = consumer;
+        }
+
+        void offer(OrderBook book) {
+            received.incrementAndGet();
+            if (null != latest.getAndSet(book)) {
+                conflated.incrementAndGet();
+            }
+
+            if (scheduled.compareAndSet(false, true)) {
+                submit();
+            }
+        }
+
+        @Override
+        public void run() {
+            OrderBook book = latest.getAndSet(null);
+            if (null != book) {
+                deliver(book);
+            }
+
+            if (null != latest.get()) {
+                submit();
+                return;
+            }
+
+            scheduled.set(false);
+            // book could have arrived while flag was still set
+            if (null != latest.get() && scheduled.compareAndSet(false, true)) {
+                submit();
+            }
+        }
+
+        KeyStatistics statistics() {
+            return new KeyStatistics(
+                    key.name,
+                    key.client,
+                    key.pair,
+                    received.get(),
+                    delivered.get(),
+                    conflated.get(),
+                    dropped.get(),
+                    failed.get()
+            );
+        }
+
+        synchronized void report() {
+            long conflatedNow = conflated.get();
+            long droppedNow = dropped.get();
+            NewRelic.incrementCounter(CONFLATED + key, (int) (conflatedNow - reportedConflated));
+            NewRelic.incrementCounter(DROPPED + key, (int) (droppedNow - reportedDropped));
+            reportedConflated = conflatedNow;
+            reportedDropped = droppedNow;
+        }
+
+        private void deliver(OrderBook book) {
+            long timestamp = book.getMeta().getTimestamp();
+            if (timestamp < lastTimestamp) {
+                dropped.incrementAndGet();
+                return;
+            }
+
+            lastTimestamp = timestamp;
+            try {
+                consumer.accept(book);
+                delivered.incrementAndGet();
+            } catch (RuntimeException ex) {
+                failed.incrementAndGet();
+                log.error("Failed processing book {}", key, ex);
+            }
+        }
+
+        private void submit() {
+            try {
+                workers.execute(this);
+            } catch (RejectedExecutionException ex) {
+                // shutting down
+                scheduled.set(false);
+                log.warn("Book {} was not dispatched", key);
+            }
+        }
+    }
+}
@@ -22,6 +22,7 @@ public class NnWsMarketDataClient extends BaseWsProviderClient<OrderBook> {
     public NnWsMarketDataClient(
             WsConfig wsConfig,
             ObjectMapper objectMapper,
+            MarketDataDispatcher dispatcher,
             NnConfigRepository configs,
             NnDispatcher disptacher) {
         super(
@@ -33,7 +34,7 @@ public class NnWsMarketDataClient extends BaseWsProviderClient<OrderBook> {
                                 ProviderSubsDto.Mode.BOOK,
                                 it.getClientCfg().getClient().getName()))
                         .collect(Collectors.toList()),
-                disptacher::acceptOrderBook,
+                dispatcher.conflating("nnMarket", disptacher::acceptOrderBook),
                 OrderBook.class
         );
     }
@@ -24,6 +24,7 @@ public class XoWsMarketDataClient extends BaseWsProviderClient<OrderBook> {
     public XoWsMarketDataClient(
             WsConfig wsConfig,
             ObjectMapper objectMapper,
+            MarketDataDispatcher dispatcher,
             ClientRepository clientRepository,
             BookRepository bookRepository) {
         super(
@@ -35,7 +36,7 @@ public class XoWsMarketDataClient extends BaseWsProviderClient<OrderBook> {
                                 ProviderSubsDto.Mode.BOOK,
                                 it.getName()))
                         .collect(Collectors.toList()),
-                bookRepository::addOrderBook,
+                dispatcher.conflating("xoMarket", bookRepository::addOrderBook),
                 OrderBook.class
         );
     }
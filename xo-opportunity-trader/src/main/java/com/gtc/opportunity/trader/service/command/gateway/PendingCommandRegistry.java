@@ -0,0 +1,184 @@
+package com.gtc.opportunity.trader.service.command.gateway;
+
+import com.google.common.collect.ImmutableSet;
+import com.gtc.model.gateway.BaseMessage;
+import com.gtc.model.gateway.command.account.GetAllBalancesCommand;
+import com.gtc.model.gateway.command.create.CreateOrderCommand;
+import com.gtc.model.gateway.command.create.MultiOrderCreateCommand;
+import com.gtc.model.gateway.command.manage.CancelOrderCommand;
+import com.gtc.model.gateway.command.manage.GetOrderCommand;
+import com.gtc.model.gateway.command.manage.ListOpenCommand;
+import com.gtc.opportunity.trader.config.AckConfig;
+import com.gtc.opportunity.trader.domain.TradeEvent;
+import com.gtc.opportunity.trader.domain.TradeStatus;
+import com.gtc.opportunity.trader.service.trade.management.TradeEsbEventHandler;
+import com.newrelic.api.agent.NewRelic;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.gtc.opportunity.trader.config.Const.Scheduled.PUSH_STAT;
+
+/**
+ * Gateway commands that were sent but not answered yet, keyed by command id. Gateway answers with message having
+ * same id as command ({@link com.gtc.model.gateway.response.ErrorResponse#getOnMessageId()} for errors), orders
+ * of multi-order command are answered one by one, so they are tracked separately.
+ * Command that has no answer within deadline of its type is re-sent if that is safe (it does not create orders),
+ * otherwise, or once re-sends are exhausted, it times out. Trade of unanswered create gets {@link TradeEvent#TIMEOUT}
+ * that moves it to {@link TradeStatus#NEED_RETRY} - it is not final, order may be live on exchange (some gateway
+ * paths never answer creates, some retry them longer than deadline), so order status polling still acks it.
+ */
+@Slf4j
+@Service
+public class PendingCommandRegistry {
+
+    private static final String IN_FLIGHT = "Custom/Gateway/InFlight";
+    private static final String ACK_LATENCY = "Custom/Gateway/AckLatency";
+    private static final String RESENT = "Custom/Gateway/Resent";
+    private static final String TIMED_OUT = "Custom/Gateway/TimedOut";
+
+    private static final Set<String> IDEMPOTENT = ImmutableSet.of(
+            GetAllBalancesCommand.TYPE, ListOpenCommand.TYPE, GetOrderCommand.TYPE, CancelOrderCommand.TYPE
+    );
+
+    private final AckConfig config;
+    private final TradeEsbEventHandler esbEventHandler;
+
+    private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+    private final AtomicLong acked = new AtomicLong();
+    private final AtomicLong ackLatencyMsSum = new AtomicLong();
+    private final AtomicLong resent = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+    private final AtomicLong unknownAcks = new AtomicLong();
+
+    public PendingCommandRegistry(AckConfig config, TradeEsbEventHandler esbEventHandler) {
+        this.config = config;
+        this.esbEventHandler = esbEventHandler;
+    }
+
+    public void register(BaseMessage command) {
+        if (command instanceof MultiOrderCreateCommand) {
+            ((MultiOrderCreateCommand) command).getCommands().forEach(this::register);
+            return;
+        }
+
+        int deadlineMs = config.deadlineMs(command.type());
+        if (deadlineMs <= 0) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        pending.put(command.getId(), new Pending(command, now, now + deadlineMs));
+    }
+
+    /**
+     * Marks command as answered, answers to unknown or already timed out commands are only counted.
+     */
+    public void ack(String commandId) {
+        Pending answered = null == commandId ? null : pending.remove(commandId);
+        if (null == answered) {
+            unknownAcks.incrementAndGet();
+            return;
+        }
+
+        long latencyMs = System.currentTimeMillis() - answered.sentAt;
+        acked.incrementAndGet();
+        ackLatencyMsSum.addAndGet(latencyMs);
+        NewRelic.recordResponseTimeMetric(ACK_LATENCY, latencyMs);
+    }
+
+    /**
+     * Times out overdue commands that can't be re-sent.
+     * @return overdue commands that should be sent again, their deadline is already extended
+     */
+    public List<BaseMessage> overdue() {
+        long now = System.currentTimeMillis();
+        List<BaseMessage> toResend = new ArrayList<>();
+        pending.forEach((id, cmd) -> {
+            if (now < cmd.deadline) {
+                return;
+            }
+
+            String type = cmd.command.type();
+            if (IDEMPOTENT.contains(type) && cmd.resends < config.getMaxResends()) {
+                cmd.resends++;
+                cmd.sentAt = now;
+                cmd.deadline = now + config.deadlineMs(type);
+                resent.incrementAndGet();
+                toResend.add(cmd.command);
+                return;
+            }
+
+            // answer could have come concurrently
+            if (pending.remove(id, cmd)) {
+                timeout(cmd);
+            }
+        });
+
+        return toResend;
+    }
+
+    public AckStatistics statistics() {
+        long ackCount = acked.get();
+        return new AckStatistics(
+                pending.size(),
+                ackCount,
+                0 == ackCount ? 0 : ackLatencyMsSum.get() / ackCount,
+                resent.get(),
+                timedOut.get(),
+                unknownAcks.get()
+        );
+    }
+
+    @Scheduled(fixedRateString = PUSH_STAT)
+    public void reportStatistics() {
+        AckStatistics stats = statistics();
+        NewRelic.recordMetric(IN_FLIGHT, stats.getInFlight());
+        NewRelic.recordMetric(RESENT, stats.getResent());
+        NewRelic.recordMetric(TIMED_OUT, stats.getTimedOut());
+    }
+
+    private void timeout(Pending cmd) {
+        timedOut.incrementAndGet();
+        log.warn("No gateway response to {} after {} re-sends", cmd.command, cmd.resends);
+        if (!(cmd.command instanceof CreateOrderCommand)) {
+            return;
+        }
+
+        CreateOrderCommand create = (CreateOrderCommand) cmd.command;
+        esbEventHandler.ackTimeout(create.getOrderId(), create.getClientName(), create.getId(), "No gateway response");
+    }
+
+    @Data
+    public static class AckStatistics {
+
+        private final int inFlight;
+        private final long acked;
+        private final long meanAckLatencyMs;
+        private final long resent;
+        private final long timedOut;
+        private final long unknownAcks;
+    }
+
+    private static class Pending {
+
+        private final BaseMessage command;
+        private volatile long sentAt;
+        private volatile long deadline;
+        private volatile int resends;
+
+        Pending(BaseMessage command, long sentAt, long deadline) {
+            this.command = command;
+            this.sentAt = sentAt;
+            this.deadline = deadline;
+        }
+    }
+}
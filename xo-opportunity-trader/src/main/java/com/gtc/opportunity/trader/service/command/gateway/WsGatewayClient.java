@@ -38,6 +38,7 @@ public class WsGatewayClient {
     private final AtomicReference<RxObjectEventConnected> connected = new AtomicReference<>();
     private final BaseWebsocketClient client;
     private final ObjectMapper mapper;
+    private final PendingCommandRegistry pendingCommands;
 
     private final Map<String, Consumer<JsonNode>> handlers;
     private final Map<String, Consumer<ErrorResponse>> errorHandlers;
@@ -45,15 +46,17 @@ public class WsGatewayClient {
     private final Map<String, ObjectReader> readers = new ConcurrentHashMap<>();
 
     public WsGatewayClient(WsConfig wsConfig, ObjectMapper objectMapper, WsGatewayResponseListener respListener,
-                           WsGatewayErrorResponseListener errListener) {
+                           WsGatewayErrorResponseListener errListener, PendingCommandRegistry pendingCommands) {
         this.mapper = objectMapper;
+        this.pendingCommands = pendingCommands;
         this.client = new BaseWebsocketClient(
                 new BaseWebsocketClient.Config(
                         wsConfig.getGateway(),
                         "gateway",
                         wsConfig.getDisconnectIfInactiveS(),
                         objectMapper,
-                        log
+                        log,
+                        wsConfig.getReconnect()
                 ),
                 new BaseWebsocketClient.Handlers(
                         this::handleConnected,
@@ -102,8 +105,12 @@ public class WsGatewayClient {
     }
 
     @SneakyThrows
-    private void handleMessage(JsonNode node) {
+    void handleMessage(JsonNode node) {
         BaseMessage message = mapper.readValue(node.traverse(), BaseMessage.class);
+        if (!ErrorResponse.TYPE.equals(message.getType())) {
+            pendingCommands.ack(message.getId());
+        }
+
         Consumer<JsonNode> handler = handlers.get(message.getType());
         if (null != handler) {
             handler.accept(node);
@@ -112,6 +119,7 @@ public class WsGatewayClient {
 
     @SneakyThrows
     private void handleError(ErrorResponse response) {
+        pendingCommands.ack(response.getOnMessageId());
         Consumer<ErrorResponse> handler = errorHandlers.get(response.getOccurredOnType());
         if (null != handler) {
             handler.accept(response);
@@ -9,10 +9,13 @@ import com.gtc.model.gateway.command.manage.GetOrderCommand;
 import com.gtc.model.gateway.command.manage.ListOpenCommand;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import javax.validation.Valid;
 
+import static com.gtc.opportunity.trader.config.Const.Ack.ACK_CHECK_MS;
+
 /**
  * Created by Valentyn Berezin on 23.02.18.
  */
@@ -22,36 +25,50 @@ import javax.validation.Valid;
 public class WsGatewayCommander {
 
     private final WsGatewayClient client;
+    private final PendingCommandRegistry pendingCommands;
 
     public void createOrder(@Valid CreateOrderCommand command) {
         log.info("Requesting to create order {}", command);
         command.setPriority(BaseMessage.HIGH_PRIO);
-        client.sendCommand(command);
+        send(command);
     }
 
     public void createOrders(@Valid MultiOrderCreateCommand command) {
         log.info("Requesting to create composite order {}", command);
         command.setPriority(BaseMessage.HIGH_PRIO);
-        client.sendCommand(command);
+        send(command);
     }
 
     public void listOpenOrders(@Valid ListOpenCommand command) {
         log.info("Requesting to list open orders {}", command);
-        client.sendCommand(command);
+        send(command);
     }
 
     public void getOrder(@Valid GetOrderCommand command) {
         log.info("Requesting to get order {}", command);
-        client.sendCommand(command);
+        send(command);
     }
 
     public void getBalances(@Valid GetAllBalancesCommand command) {
         log.info("Requesting to get balances {}", command);
-        client.sendCommand(command);
+        send(command);
     }
 
     public void cancel(@Valid CancelOrderCommand command) {
         log.info("Requesting to cancel {}", command);
+        send(command);
+    }
+
+    @Scheduled(fixedDelayString = ACK_CHECK_MS)
+    public void resendUnanswered() {
+        pendingCommands.overdue().forEach(command -> {
+            log.info("Re-sending unanswered {}", command);
+            client.sendCommand(command);
+        });
+    }
+
+    private void send(BaseMessage command) {
+        pendingCommands.register(command);
         client.sendCommand(command);
     }
 }
@@ -10,6 +10,7 @@ import com.gtc.model.gateway.response.manage.CancelOrderResponse;
 import com.gtc.model.gateway.response.manage.GetOrderResponse;
 import com.gtc.model.gateway.response.manage.ListOpenOrdersResponse;
 import com.gtc.opportunity.trader.domain.Trade;
+import com.gtc.opportunity.trader.service.trade.management.OpenOrdersReconciler;
 import com.gtc.opportunity.trader.service.trade.management.TradeEsbEventHandler;
 import com.gtc.opportunity.trader.service.trade.management.WalletEsbEventHandler;
 import com.newrelic.api.agent.Trace;
@@ -39,6 +40,7 @@ public class WsGatewayResponseListener {
 
     private final WalletEsbEventHandler walletEsbEventHandler;
     private final TradeEsbEventHandler esbEventHandler;
+    private final OpenOrdersReconciler reconciler;
 
     @Trace(dispatcher = true)
     public void createOrder(CreateOrderResponse create) {
@@ -65,6 +67,10 @@ public class WsGatewayResponseListener {
 
     @Trace(dispatcher = true)
     public void opened(ListOpenOrdersResponse response) {
+        if (reconciler.reconcile(response)) {
+            return;
+        }
+
         response.getOrders().forEach(it -> manageHandlers.get(it.getStatus()).accept(response, it));
     }
 
@@ -0,0 +1,121 @@
+package com.gtc.opportunity.trader.service.nnopportunity.repository;
+
+import com.gtc.opportunity.trader.service.dto.FlatOrderBook;
+
+/**
+ * Fixed-capacity ring buffer of books that also tracks extremum (max or min) of one of book prices
+ * using monotonic deque, so that both adding book and reading extremum are amortized O(1).
+ * Not thread-safe.
+ */
+final class FutureWindow {
+
+    private final FlatOrderBook[] books;
+    private final boolean trackMax;
+    private final boolean trackBestBuy;
+
+    private int head;
+    private int size;
+    // sequence number of book at head
+    private long headSeq;
+
+    // monotonic deque of (sequence number, price), ring buffer too
+    private final long[] extremumSeq;
+    private final float[] extremumPrice;
+    private int extremumHead;
+    private int extremumSize;
+
+    /**
+     * @param trackMax true - track max price, false - min price
+     * @param trackBestBuy true - track {@link FlatOrderBook#getBestBuy()}, false - {@link FlatOrderBook#getBestSell()}
+     */
+    FutureWindow(int capacity, boolean trackMax, boolean trackBestBuy) {
+        this.books = new FlatOrderBook[capacity];
+        this.extremumSeq = new long[capacity];
+        this.extremumPrice = new float[capacity];
+        this.trackMax = trackMax;
+        this.trackBestBuy = trackBestBuy;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int capacity() {
+        return books.length;
+    }
+
+    boolean isFull() {
+        return size == books.length;
+    }
+
+    void add(FlatOrderBook book) {
+        if (isFull()) {
+            throw new IllegalStateException("Window is full");
+        }
+
+        long seq = headSeq + size;
+        books[(head + size) % books.length] = book;
+        size++;
+
+        float price = price(book);
+        while (extremumSize > 0 && !isBetter(extremumPrice[extremumTail()], price)) {
+            extremumSize--;
+        }
+
+        int pos = (extremumHead + extremumSize) % extremumSeq.length;
+        extremumSeq[pos] = seq;
+        extremumPrice[pos] = price;
+        extremumSize++;
+    }
+
+    FlatOrderBook poll() {
+        if (0 == size) {
+            return null;
+        }
+
+        FlatOrderBook book = books[head];
+        books[head] = null;
+        head = (head + 1) % books.length;
+        size--;
+
+        if (extremumSize > 0 && extremumSeq[extremumHead] == headSeq) {
+            extremumHead = (extremumHead + 1) % extremumSeq.length;
+            extremumSize--;
+        }
+
+        headSeq++;
+        return book;
+    }
+
+    /**
+     * @param pos position from the oldest book
+     */
+    FlatOrderBook get(int pos) {
+        if (pos < 0 || pos >= size) {
+            throw new IndexOutOfBoundsException("Position " + pos + " size " + size);
+        }
+
+        return books[(head + pos) % books.length];
+    }
+
+    /**
+     * @return max or min price across books in window, 0 if window is empty
+     */
+    float extremum() {
+        return 0 == extremumSize ? 0.0f : extremumPrice[extremumHead];
+    }
+
+    private int extremumTail() {
+        return (extremumHead + extremumSize - 1) % extremumSeq.length;
+    }
+
+    // Float.compare ordering to match boxed comparison
+    private boolean isBetter(float existing, float candidate) {
+        int cmp = Float.compare(existing, candidate);
+        return trackMax ? cmp > 0 : cmp < 0;
+    }
+
+    private float price(FlatOrderBook book) {
+        return trackBestBuy ? book.getBestBuy() : book.getBestSell();
+    }
+}
@@ -0,0 +1,72 @@
+package com.gtc.opportunity.trader.service.nnopportunity.repository;
+
+import java.util.AbstractQueue;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded queue that evicts its head when full. Expects single writer (adding), readers may iterate
+ * concurrently (weakly consistent iteration) without any locking.
+ */
+class LabelQueue<T> extends AbstractQueue<T> {
+
+    private final Queue<T> delegate = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final int capacity;
+
+    LabelQueue(int capacity) {
+        this.capacity = capacity;
+    }
+
+    @Override
+    public boolean offer(T value) {
+        if (0 == capacity) {
+            return true;
+        }
+
+        delegate.offer(value);
+        if (size.incrementAndGet() > capacity) {
+            poll();
+        }
+
+        return true;
+    }
+
+    @Override
+    public T poll() {
+        T value = delegate.poll();
+        if (null != value) {
+            size.decrementAndGet();
+        }
+
+        return value;
+    }
+
+    @Override
+    public T peek() {
+        return delegate.peek();
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        Iterator<T> iterator = delegate.iterator();
+        return new Iterator<T>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public T next() {
+                return iterator.next();
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return size.get();
+    }
+}
@@ -1,6 +1,5 @@
 package com.gtc.opportunity.trader.service.nnopportunity.repository;
 
-import com.google.common.collect.EvictingQueue;
 import com.google.common.collect.ImmutableList;
 import com.gtc.opportunity.trader.domain.NnConfig;
 import com.gtc.opportunity.trader.service.dto.FlatOrderBook;
@@ -8,12 +7,10 @@ import com.gtc.opportunity.trader.service.dto.FlatOrderBookWithHistory;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.*;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.function.BiFunction;
-import java.util.function.Function;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 /**
  * Created by Valentyn Berezin on 29.07.18.
@@ -22,8 +19,9 @@ import java.util.stream.Stream;
 class StrategyData {
 
     private final AtomicLong lastBookTimestamp = new AtomicLong();
-    private final List<FlatOrderBook> booksInFuture = new ArrayList<>();
+    private final FutureWindow booksInFuture;
 
+    // written only under addBook lock
     @Getter
     private final Queue<FlatOrderBookWithHistory> noopLabel;
 
@@ -32,10 +30,7 @@ class StrategyData {
 
     private final NnConfig cfg;
     private final float gainNoopThreshold;
-    private final Function<FlatOrderBook, Float> getFirstPrice;
-    private final Function<FlatOrderBook, Float> getSecondPrice;
-    private final BiFunction<Float, Float, Float> gainOnFirstSecond;
-    private final Function<Stream<Float>, Float> futurePriceDesiredBound;
+    private final boolean buyLowSellHigh;
 
     @Getter
     private final int collectNlabels;
@@ -45,19 +40,18 @@ class StrategyData {
         this.gainNoopThreshold = config.getNoopThreshold().floatValue();
 
         this.collectNlabels = cfg.getCollectNlabeled();
-        noopLabel = EvictingQueue.create(collectNlabels);
-        actLabel = EvictingQueue.create(collectNlabels);
+        noopLabel = new LabelQueue<>(collectNlabels);
+        actLabel = new LabelQueue<>(collectNlabels);
 
+        int capacity = Math.max(1, cfg.getFutureNwindow());
         if (strategy == Strategy.BUY_LOW_SELL_HIGH) {
-            getFirstPrice = FlatOrderBook::getBestSell;
-            getSecondPrice = FlatOrderBook::getBestBuy;
-            futurePriceDesiredBound = vals -> vals.max(Float::compareTo).orElse(0.0f);
-            gainOnFirstSecond = (first, second) -> second / first;
+            // buy at best sell now, sell at max of future best buy
+            buyLowSellHigh = true;
+            booksInFuture = new FutureWindow(capacity, true, true);
         } else if (strategy == Strategy.SELL_HIGH_BUY_LOW) {
-            getFirstPrice = FlatOrderBook::getBestBuy;
-            getSecondPrice = FlatOrderBook::getBestSell;
-            futurePriceDesiredBound = vals -> vals.min(Float::compareTo).orElse(0.0f);
-            gainOnFirstSecond = (first, second) -> first / second;
+            // sell at best buy now, buy at min of future best sell
+            buyLowSellHigh = false;
+            booksInFuture = new FutureWindow(capacity, false, false);
         } else {
             throw new IllegalStateException("Unknown strategy " + strategy.name());
         }
@@ -71,15 +65,14 @@ class StrategyData {
         return (double) booksInFuture.size() / cfg.getFutureNwindow();
     }
 
-    Optional<FlatOrderBookWithHistory> addBook(FlatOrderBook book) {
-        synchronized (booksInFuture) {
-            booksInFuture.add(book);
-            if (booksInFuture.size() < cfg.getFutureNwindow()) {
-                return Optional.empty();
-            }
-            FlatOrderBook mature = booksInFuture.remove(0);
-            return labelIfCompliantAndStore(mature);
+    synchronized Optional<FlatOrderBookWithHistory> addBook(FlatOrderBook book) {
+        booksInFuture.add(book);
+        if (booksInFuture.size() < cfg.getFutureNwindow()) {
+            return Optional.empty();
         }
+
+        FlatOrderBook mature = booksInFuture.poll();
+        return labelIfCompliantAndStore(mature);
     }
 
     private Optional<FlatOrderBookWithHistory> labelIfCompliantAndStore(FlatOrderBook book) {
@@ -89,20 +82,13 @@ class StrategyData {
 
         lastBookTimestamp.set(book.getTimestamp());
 
-        Set<Float> futurePrices = booksInFuture.stream()
-                .map(getSecondPrice)
-                .collect(Collectors.toSet());
-
-        float bestFuture = futurePriceDesiredBound.apply(futurePrices.stream());
+        float bestFuture = booksInFuture.extremum();
+        float gain = buyLowSellHigh ? bestFuture / book.getBestSell() : book.getBestBuy() / bestFuture;
         FlatOrderBookWithHistory result = new FlatOrderBookWithHistory(book, readCurrentHistory());
-        if (gainOnFirstSecond.apply(getFirstPrice.apply(book), bestFuture) <= gainNoopThreshold) {
-            synchronized (noopLabel) {
-                noopLabel.add(result);
-            }
+        if (gain <= gainNoopThreshold) {
+            noopLabel.add(result);
         } else {
-            synchronized (actLabel) {
-                actLabel.add(result);
-            }
+            actLabel.add(result);
         }
 
         return Optional.of(result);
@@ -0,0 +1,158 @@
+package com.gtc.opportunity.trader.service.nnopportunity.solver;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
+import org.apache.commons.math3.stat.descriptive.SynchronizedDescriptiveStatistics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+
+/**
+ * Trains models on dedicated pool of {@code app.nn.train.threads} threads, at most one training per key is
+ * queued or running, so queue is bounded by number of keys. Keys whose current model is the oldest are trained
+ * first. Each training gets deadline ({@code app.nn.train.deadlineS} since scheduling) - training that did not
+ * start before deadline is dropped, running one should stop once deadline is reached.
+ */
+@Slf4j
+@Service
+public class ModelTrainer {
+
+    private static final int STATS_WINDOW = 100;
+
+    private final long deadlineNanos;
+    private final ThreadPoolExecutor executor;
+    private final Map<Object, Task> scheduled = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicLong expired = new AtomicLong();
+    private final DescriptiveStatistics durationsS = new SynchronizedDescriptiveStatistics(STATS_WINDOW);
+
+    public ModelTrainer(@Value("${app.nn.train.threads}") int threads,
+                        @Value("${app.nn.train.deadlineS}") long deadlineS) {
+        this.deadlineNanos = TimeUnit.SECONDS.toNanos(deadlineS);
+        this.executor = new ThreadPoolExecutor(
+                threads,
+                threads,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<>(),
+                new ThreadFactoryBuilder().setNameFormat("nn-train-%d").setDaemon(true).build()
+        );
+    }
+
+    /**
+     * Schedules training for {@code key} unless it is already queued or running.
+     * @param modelTimestamp creation timestamp of current model, older ones are trained first
+     * @param training receives deadline in {@link System#nanoTime()} terms
+     * @return true if training was scheduled
+     */
+    boolean schedule(Object key, long modelTimestamp, LongConsumer training) {
+        Task task = new Task(
+                key, modelTimestamp, sequence.getAndIncrement(), System.nanoTime() + deadlineNanos, training
+        );
+
+        if (null != scheduled.putIfAbsent(key, task)) {
+            return false;
+        }
+
+        executor.execute(task);
+        return true;
+    }
+
+    public TrainingStatistics statistics() {
+        return new TrainingStatistics(
+                executor.getQueue().size(),
+                active.get(),
+                expired.get(),
+                durationsS.getMean(),
+                durationsS.getMax()
+        );
+    }
+
+    /**
+     * Waits until all scheduled trainings are done.
+     */
+    public boolean awaitIdle(long timeout, TimeUnit unit) throws InterruptedException {
+        long until = System.nanoTime() + unit.toNanos(timeout);
+        while (!scheduled.isEmpty()) {
+            if (System.nanoTime() - until > 0) {
+                return false;
+            }
+
+            Thread.sleep(10L);
+        }
+
+        return true;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Data
+    public static class TrainingStatistics {
+
+        private final int queueDepth;
+        private final int activeTrainings;
+        private final long expiredTrainings;
+        private final double meanDurationS;
+        private final double maxDurationS;
+    }
+
+    @RequiredArgsConstructor
+    private class Task implements Runnable, Comparable<Task> {
+
+        private final Object key;
+        private final long modelTimestamp;
+        private final long seq;
+        private final long deadline;
+        private final LongConsumer training;
+
+        @Override
+        public void run() {
+            try {
+                if (System.nanoTime() - deadline >= 0) {
+                    expired.incrementAndGet();
+                    log.warn("Training of {} missed its deadline while queued", key);
+                    return;
+                }
+
+                train();
+            } finally {
+                scheduled.remove(key, this);
+            }
+        }
+
+        @Override
+        public int compareTo(Task other) {
+            int byAge = Long.compare(modelTimestamp, other.modelTimestamp);
+            return 0 != byAge ? byAge : Long.compare(seq, other.seq);
+        }
+
+        private void train() {
+            active.incrementAndGet();
+            long start = System.nanoTime();
+            try {
+                training.accept(deadline);
+            } catch (RuntimeException ex) {
+                log.error("Training of {} failed", key, ex);
+            } finally {
+                durationsS.addValue((System.nanoTime() - start) / 1e9);
+                active.decrementAndGet();
+            }
+        }
+    }
+}
@@ -24,12 +24,10 @@ import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.math.MathContext;
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Stream;
 
 /**
  * Created by Valentyn Berezin on 27.07.18.
@@ -48,6 +46,7 @@ public class NnSolver {
     private final ConfigCache cfgCache;
     private final ModelFactory factory;
     private final NnDataRepository repository;
+    private final ModelTrainer trainer;
 
     Optional<StrategyDetails> findStrategy(OrderBook book, Map<Strategy, FlatOrderBookWithHistory> candidates) {
         Map<Double, StrategyDetails> votes = new HashMap<>();
@@ -62,17 +61,21 @@ public class NnSolver {
         );
     }
 
+    /**
+     * Schedules (re)training of all models on {@link ModelTrainer}, snapshot of data is taken when training
+     * starts.
+     */
     @Trace(dispatcher = true)
     @Scheduled(fixedDelayString = "#{${app.nn.schedule.createModelsEachS} * 1000}")
     public void createModels() {
         try {
-            Arrays.stream(Strategy.values()).forEach(strategy ->
-                    repository.getModellable().stream()
-                            .map(it -> repository.getDataToAnalyze(it, strategy))
-                            .flatMap(o -> o.map(Stream::of).orElseGet(Stream::empty))
-                            .filter(it -> !oldData(it))
-                            .forEach(it -> createPredictor(strategy, it))
-            );
+            for (Strategy strategy : Strategy.values()) {
+                repository.getModellable().forEach(key -> trainer.schedule(
+                        key(key, strategy),
+                        modelTimestamp(key, strategy),
+                        deadline -> createPredictor(key, strategy, deadline)
+                ));
+            }
         } catch (RuntimeException ex) {
             log.error("Failed creating models", ex);
         }
@@ -107,7 +110,17 @@ public class NnSolver {
         return predict.computeStrategyIfPossible(strategy, flatBook);
     }
 
-    private void createPredictor(Strategy strategy, Snapshot snapshot) {
+    private long modelTimestamp(Key key, Strategy strategy) {
+        NnModelPredict current = predictors.get(key(key, strategy));
+        return null == current ? Long.MIN_VALUE : current.getCreationTimestamp();
+    }
+
+    private void createPredictor(Key key, Strategy strategy, long deadlineNanos) {
+        Optional<Snapshot> snapshot = repository.getDataToAnalyze(key, strategy).filter(it -> !oldData(it));
+        snapshot.ifPresent(it -> createPredictor(strategy, it, deadlineNanos));
+    }
+
+    private void createPredictor(Strategy strategy, Snapshot snapshot, long deadlineNanos) {
         String oldName = Thread.currentThread().getName();
         Thread.currentThread().setName(String.format(
                 "Build model %s-%s->%s",
@@ -117,8 +130,11 @@ public class NnSolver {
 
         log.info("Create(train) predictor for {}", snapshot.getKey());
         try {
-            NnModelPredict predict = factory.buildModel(snapshot);
-            predictors.put(key(snapshot.getKey(), strategy), predict);
+            NnModelPredict predict = factory.buildModel(snapshot, deadlineNanos);
+            // model is complete here, swap is single map update; never replace with older one
+            predictors.merge(key(snapshot.getKey(), strategy), predict, (old, fresh) ->
+                    fresh.getCreationTimestamp() >= old.getCreationTimestamp() ? fresh : old
+            );
         } catch (NnModelPredict.TrainingFailed ex) {
             log.warn("Training failed for {}", snapshot.getKey());
         } catch (Exception ex) {
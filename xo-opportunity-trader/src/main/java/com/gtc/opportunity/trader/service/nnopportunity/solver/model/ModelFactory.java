@@ -17,7 +17,10 @@ public class ModelFactory {
     private final FeatureMapper mapper;
     private final ConfigCache cache;
 
-    public NnModelPredict buildModel(Snapshot snapshot) throws NnModelPredict.TrainingFailed {
-        return new NnModelPredict(localTime, cache.requireConfig(snapshot), snapshot, mapper);
+    /**
+     * @param deadlineNanos training is aborted once {@link System#nanoTime()} reaches it
+     */
+    public NnModelPredict buildModel(Snapshot snapshot, long deadlineNanos) throws NnModelPredict.TrainingFailed {
+        return new NnModelPredict(localTime, cache.requireConfig(snapshot), snapshot, mapper, deadlineNanos);
     }
 }
@@ -37,7 +37,8 @@ public class NnModelPredict {
     private final int avgNoopLabelAgeS;
     private final int avgActLabelAgeS;
 
-    NnModelPredict(LocalTime localTime, NnConfig config, Snapshot snapshot, FeatureMapper mapper) throws TrainingFailed {
+    NnModelPredict(LocalTime localTime, NnConfig config, Snapshot snapshot, FeatureMapper mapper,
+                   long deadlineNanos) throws TrainingFailed {
         this.localTime = localTime;
         this.nnConfig = config;
         this.model = new MultiLayerNetwork(buildModelConfig(config));
@@ -45,7 +46,7 @@ public class NnModelPredict {
         this.featureMapper = mapper;
         this.creationTimestamp = localTime.timestampMs();
         Splitter split = new Splitter(config, snapshot);
-        trainModel(split);
+        trainModel(split, deadlineNanos);
         assesModel(split);
         long timestamp = localTime.timestampMs();
         avgNoopLabelAgeS = (int) (split.getNoopTrain().stream()
@@ -72,10 +73,15 @@ public class NnModelPredict {
     }
 
     @SneakyThrows
-    private void trainModel(Splitter splitter) {
+    private void trainModel(Splitter splitter, long deadlineNanos) throws TrainingFailed {
         log.info("Training model");
         DataSet trainData = featureMapper.extract(splitter.getProceedTrain(), splitter.getNoopTrain());
         for (int i = 0; i < nnConfig.getNTrainIterations(); ++i) {
+            if (System.nanoTime() - deadlineNanos >= 0) {
+                log.info("Training deadline reached after {} iterations", i);
+                throw new TrainingFailed();
+            }
+
             model.fit(trainData);
         }
         log.info("Done training model");
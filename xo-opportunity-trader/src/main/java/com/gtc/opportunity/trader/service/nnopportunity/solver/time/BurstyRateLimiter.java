@@ -0,0 +1,44 @@
+package com.gtc.opportunity.trader.service.nnopportunity.solver.time;
+
+/**
+ * Same permits as Guava {@code RateLimiter.create(permitsPerS)} gives, but on {@link LocalTime}: permits unused
+ * while idle are stored (up to 1 second worth of them) and can be taken at once, permit taken without
+ * stored one makes next caller wait for full interval.
+ */
+public class BurstyRateLimiter {
+
+    private static final double MAX_BURST_S = 1.0;
+    private static final long MICROS_IN_MS = 1000L;
+
+    private final Object lock = new Object();
+
+    private final double intervalMicros;
+    private final double maxStoredPermits;
+    private final LocalTime time;
+
+    private double storedPermits;
+    private long nextFreeMicros;
+
+    public BurstyRateLimiter(double permitsPerS, LocalTime time) {
+        this.intervalMicros = MICROS_IN_MS * 1000.0 / permitsPerS;
+        this.maxStoredPermits = MAX_BURST_S * permitsPerS;
+        this.time = time;
+        this.nextFreeMicros = time.timestampMs() * MICROS_IN_MS;
+    }
+
+    public boolean tryAcquire() {
+        synchronized (lock) {
+            long nowMicros = time.timestampMs() * MICROS_IN_MS;
+            if (nextFreeMicros > nowMicros) {
+                return false;
+            }
+
+            storedPermits = Math.min(maxStoredPermits, storedPermits + (nowMicros - nextFreeMicros) / intervalMicros);
+            double fromStored = Math.min(1.0, storedPermits);
+            storedPermits -= fromStored;
+            // rounding is the same as Guava does
+            nextFreeMicros = nowMicros + (long) ((1.0 - fromStored) * intervalMicros);
+            return true;
+        }
+    }
+}
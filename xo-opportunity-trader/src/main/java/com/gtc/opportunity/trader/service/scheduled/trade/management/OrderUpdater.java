@@ -1,6 +1,7 @@
 package com.gtc.opportunity.trader.service.scheduled.trade.management;
 
 import com.google.common.collect.ImmutableSet;
+import com.gtc.meta.TradingCurrency;
 import com.gtc.model.gateway.command.manage.GetOrderCommand;
 import com.gtc.model.gateway.command.manage.ListOpenCommand;
 import com.gtc.opportunity.trader.domain.TradeEvent;
@@ -10,6 +11,7 @@ import com.gtc.opportunity.trader.repository.dto.ByClientAndPair;
 import com.gtc.opportunity.trader.service.CurrentTimestamp;
 import com.gtc.opportunity.trader.service.UuidGenerator;
 import com.gtc.opportunity.trader.service.command.gateway.WsGatewayCommander;
+import com.gtc.opportunity.trader.service.trade.management.OpenOrdersReconciler;
 import com.newrelic.api.agent.Trace;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
@@ -44,6 +46,7 @@ public class OrderUpdater {
     private static final Set<TradeStatus> UPDATE_ELIGIBLE = ImmutableSet.of(UNKNOWN, OPENED);
 
     private final WsGatewayCommander commander;
+    private final OpenOrdersReconciler reconciler;
     private final TradeRepository tradeRepository;
     private final CurrentTimestamp currentTimestamp;
     private final StateMachineService<TradeStatus, TradeEvent> stateMachineService;
@@ -64,7 +67,17 @@ public class OrderUpdater {
     @Scheduled(fixedRateString = BULK_UPDATE_STATUS_MS)
     @Transactional(readOnly = true)
     public void bulkUpdateOrderStatus() {
-        LocalDateTime before = currentTimestamp.dbNow().minus(bulkUpdateMS, ChronoUnit.MILLIS);
+        // trades that previous list responses did not contain anymore
+        reconciler.takeDisappeared().stream()
+                .map(key -> GetOrderCommand.builder()
+                        .id(UuidGenerator.get())
+                        .clientName(key.getClientName())
+                        .orderId(key.getAssignedId())
+                        .build()
+                ).forEach(commander::getOrder);
+
+        LocalDateTime now = currentTimestamp.dbNow();
+        LocalDateTime before = now.minus(bulkUpdateMS, ChronoUnit.MILLIS);
         List<ByClientAndPair> symbols = new ArrayList<>(
                 tradeRepository.findSymbols(UPDATE_ELIGIBLE, before, true)
         );
@@ -79,16 +92,23 @@ public class OrderUpdater {
                         .currencyTo(sym.getTo().getCode())
                         .id(UuidGenerator.get())
                         .build()
-                ).forEach(commander::listOpenOrders);
+                ).forEach(command -> {
+                    reconciler.expect(command.getId(), command.getClientName(),
+                            TradingCurrency.fromCode(command.getCurrencyFrom()),
+                            TradingCurrency.fromCode(command.getCurrencyTo()), now);
+                    commander.listOpenOrders(command);
+                });
     }
 
-    // tries to update selected orders which were stuck some time ago
+    // tries to update selected orders which were stuck some time ago and were not reconciled by bulk update since
     @Trace(dispatcher = true)
     @Scheduled(initialDelayString = STUCK_UPDATE_STATUS_MS, fixedRateString = STUCK_UPDATE_STATUS_MS)
     @Transactional(readOnly = true)
     public void stuckUpdateOrderStatus() {
         LocalDateTime before = currentTimestamp.dbNow().minus(stuckUpdateMS, ChronoUnit.MILLIS);
         tradeRepository.findByStatusInAndStatusUpdatedBefore(UPDATE_ELIGIBLE, before, true).stream()
+                .filter(it -> !reconciler.reconciledSince(
+                        it.getClient().getName(), it.getCurrencyFrom(), it.getCurrencyTo(), before))
                 .collect(Collectors.groupingBy(it -> it.getClient().getName()))
                 .forEach((client, orders) -> {
                     // shuffle so that in case of rate-limiting we get a change to get response
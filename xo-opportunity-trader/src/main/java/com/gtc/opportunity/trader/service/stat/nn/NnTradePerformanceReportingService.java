@@ -4,6 +4,7 @@ import com.gtc.opportunity.trader.domain.Trade;
 import com.gtc.opportunity.trader.repository.TradeRepository;
 import com.gtc.opportunity.trader.service.nnopportunity.repository.ContainerStatistics;
 import com.gtc.opportunity.trader.service.nnopportunity.repository.NnDataRepository;
+import com.gtc.opportunity.trader.service.nnopportunity.solver.ModelTrainer;
 import com.gtc.opportunity.trader.service.nnopportunity.solver.NnSolver;
 import com.gtc.opportunity.trader.service.stat.TradePerformanceCalculator;
 import com.newrelic.api.agent.NewRelic;
@@ -31,8 +32,14 @@ public class NnTradePerformanceReportingService {
     private static final String ACT_AGE = "Custom/NN/Label/Act/Max/AgeS";
     private static final String CACHE_FULLNESS = "Custom/NN/Cache/Fullness/Min";
     private static final String LABEL_FULLNESS = "Custom/NN/Label/Fullness/Min";
+    private static final String TRAIN_QUEUE = "Custom/NN/Train/QueueDepth";
+    private static final String TRAIN_ACTIVE = "Custom/NN/Train/Active";
+    private static final String TRAIN_EXPIRED = "Custom/NN/Train/Expired";
+    private static final String TRAIN_DURATION_MEAN = "Custom/NN/Train/Mean/DurationS";
+    private static final String TRAIN_DURATION_MAX = "Custom/NN/Train/Max/DurationS";
 
     private final NnSolver solver;
+    private final ModelTrainer trainer;
     private final NnDataRepository dataRepository;
     private final TradePerformanceCalculator performanceCalculator;
     private final TradeRepository tradeRepository;
@@ -58,6 +65,13 @@ public class NnTradePerformanceReportingService {
         NewRelic.recordMetric(CACHE_FULLNESS, (float) minCacheFull);
         NewRelic.recordMetric(LABEL_FULLNESS, (float) minLabelFull);
 
+        ModelTrainer.TrainingStatistics training = trainer.statistics();
+        NewRelic.recordMetric(TRAIN_QUEUE, training.getQueueDepth());
+        NewRelic.recordMetric(TRAIN_ACTIVE, training.getActiveTrainings());
+        NewRelic.recordMetric(TRAIN_EXPIRED, training.getExpiredTrainings());
+        NewRelic.recordMetric(TRAIN_DURATION_MEAN, (float) training.getMeanDurationS());
+        NewRelic.recordMetric(TRAIN_DURATION_MAX, (float) training.getMaxDurationS());
+
         TradePerformanceCalculator.Performance performance =
                 performanceCalculator.calculateOnGroupedByPair(tradeRepository.findByNnOrderNotNull(), Trade::getNnOrder);
         performanceCalculator.reportPerformance("NN", performance);
@@ -5,6 +5,7 @@ import com.gtc.opportunity.trader.domain.TradeEvent;
 import com.gtc.opportunity.trader.domain.TradeStatus;
 import com.gtc.opportunity.trader.repository.TradeRepository;
 import com.gtc.opportunity.trader.service.CurrentTimestamp;
+import com.gtc.opportunity.trader.service.xoopportunity.creation.AdmissionCounters;
 import lombok.RequiredArgsConstructor;
 import org.springframework.statemachine.StateContext;
 import org.springframework.stereotype.Service;
@@ -25,6 +26,7 @@ public class TradeMessageProcessor {
 
     private final TradeRepository tradeRepository;
     private final CurrentTimestamp timestamp;
+    private final AdmissionCounters counters;
 
     @Transactional
     public Optional<Trade> acceptAndGet(StateContext<TradeStatus, TradeEvent> state,
@@ -38,9 +40,11 @@ public class TradeMessageProcessor {
             header(STATUS, state).ifPresent(it -> processData.accept(trade, it));
             header(NATIVE_STATUS, state).ifPresent(it -> processData.accept(trade, it));
             header(ASSIGNED_ID, state).ifPresent(trade::setAssignedId);
+            TradeStatus before = trade.getStatus();
             trade.setStatusUpdated(timestamp.dbNow());
             trade.setStatus(state.getTarget().getId());
             tradeRepository.save(trade);
+            counters.tradeChanged(trade, before);
         });
 
         return returnTrade;
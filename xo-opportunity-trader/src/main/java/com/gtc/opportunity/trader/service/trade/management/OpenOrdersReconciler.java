@@ -0,0 +1,225 @@
+package com.gtc.opportunity.trader.service.trade.management;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.gtc.meta.TradingCurrency;
+import com.gtc.model.gateway.data.OrderDto;
+import com.gtc.model.gateway.response.manage.ListOpenOrdersResponse;
+import com.gtc.opportunity.trader.domain.Trade;
+import com.gtc.opportunity.trader.domain.TradeStatus;
+import com.gtc.opportunity.trader.repository.TradeRepository;
+import com.gtc.opportunity.trader.service.trade.management.TradeStateCache.PendingEvent;
+import com.newrelic.api.agent.NewRelic;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static com.gtc.opportunity.trader.config.Const.Scheduled.PUSH_STAT;
+
+/**
+ * Reconciles open orders that exchange reports for client and currency pair with trades we consider open there.
+ * Only differences produce trade events - exchange order that is in other state than its trade - and events of
+ * one response are submitted together, so they share as few {@link TradeStateCache} batches as possible.
+ * Trade that is open for us, but is not listed by exchange (filled or cancelled meanwhile) is remembered, so that
+ * its status can be requested by id; exchange orders without trade are only counted.
+ */
+@Slf4j
+@Service
+public class OpenOrdersReconciler {
+
+    private static final String TRANSITIONS = "Custom/Reconcile/Transitions";
+    private static final String DISAPPEARED = "Custom/Reconcile/Disappeared";
+    private static final String UNKNOWN_ORDERS = "Custom/Reconcile/UnknownOrders";
+
+    private static final Set<TradeStatus> LOCALLY_OPEN = EnumSet.of(
+            TradeStatus.UNKNOWN, TradeStatus.NEED_RETRY, TradeStatus.OPENED
+    );
+    private static final Set<TradeStatus> CAN_DISAPPEAR = EnumSet.of(TradeStatus.UNKNOWN, TradeStatus.OPENED);
+
+    private static final long REQUEST_LIVE_M = 5;
+
+    private final TradeRepository tradeRepository;
+    private final TradeStateCache stateCache;
+
+    private final Cache<String, Request> requests = CacheBuilder.newBuilder()
+            .expireAfterWrite(REQUEST_LIVE_M, TimeUnit.MINUTES)
+            .build();
+    private final Map<Symbol, LocalDateTime> reconciledAt = new ConcurrentHashMap<>();
+    private final Set<Trade.EsbKey> disappeared = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong responses = new AtomicLong();
+    private final AtomicLong unchanged = new AtomicLong();
+    private final AtomicLong transitions = new AtomicLong();
+    private final AtomicLong disappearedCount = new AtomicLong();
+    private final AtomicLong unknownOrders = new AtomicLong();
+
+    public OpenOrdersReconciler(TradeRepository tradeRepository, TradeStateCache stateCache) {
+        this.tradeRepository = tradeRepository;
+        this.stateCache = stateCache;
+    }
+
+    /**
+     * Remembers what list open orders command asks for.
+     * @param requestedAt database time of request, trades updated after it are never considered disappeared
+     */
+    public void expect(String commandId, String clientName, TradingCurrency from, TradingCurrency to,
+                       LocalDateTime requestedAt) {
+        requests.put(commandId, new Request(new Symbol(clientName, from, to), requestedAt));
+    }
+
+    /**
+     * @return false if response is not for command registered by {@link #expect}
+     */
+    public boolean reconcile(ListOpenOrdersResponse response) {
+        Request request = requests.getIfPresent(response.getId());
+        if (null == request) {
+            return false;
+        }
+
+        requests.invalidate(response.getId());
+        Symbol symbol = request.getSymbol();
+        Map<String, Trade> local = tradeRepository
+                .findBySymbolAndStatusIn(symbol.clientName, symbol.from, symbol.to, LOCALLY_OPEN).stream()
+                .collect(Collectors.toMap(Trade::getAssignedId, Function.identity(), (one, other) -> one));
+
+        List<PendingEvent> events = new ArrayList<>();
+        Set<String> listed = new HashSet<>();
+        for (OrderDto order : response.getOrders()) {
+            Trade trade = local.get(order.getOrderId());
+            if (null == trade) {
+                unknownOrders.incrementAndGet();
+                log.warn("Exchange order {} of {} has no open trade", order, symbol);
+                continue;
+            }
+
+            listed.add(order.getOrderId());
+            PendingEvent event = diff(response.getClientName(), response.getId(), trade, order);
+            if (null == event) {
+                unchanged.incrementAndGet();
+            } else {
+                events.add(event);
+            }
+        }
+
+        local.values().stream()
+                .filter(it -> !listed.contains(it.getAssignedId()))
+                .filter(it -> CAN_DISAPPEAR.contains(it.getStatus()))
+                .filter(it -> !it.getStatusUpdated().isAfter(request.getRequestedAt()))
+                .forEach(it -> {
+                    disappearedCount.incrementAndGet();
+                    disappeared.add(new Trade.EsbKey(it.getAssignedId(), symbol.clientName));
+                });
+
+        responses.incrementAndGet();
+        transitions.addAndGet(events.size());
+        stateCache.submitAll(events);
+        reconciledAt.merge(symbol, request.getRequestedAt(), (old, upd) -> upd.isAfter(old) ? upd : old);
+        return true;
+    }
+
+    /**
+     * @return trades that were open for us but were not listed by exchange since last call
+     */
+    public List<Trade.EsbKey> takeDisappeared() {
+        List<Trade.EsbKey> result = new ArrayList<>(disappeared);
+        disappeared.removeAll(result);
+        return result;
+    }
+
+    /**
+     * @return true if open orders of client and currency pair were reconciled with request sent after {@code since}
+     */
+    public boolean reconciledSince(String clientName, TradingCurrency from, TradingCurrency to,
+                                   LocalDateTime since) {
+        LocalDateTime at = reconciledAt.get(new Symbol(clientName, from, to));
+        return null != at && !at.isBefore(since);
+    }
+
+    public ReconcileStatistics statistics() {
+        return new ReconcileStatistics(
+                responses.get(),
+                unchanged.get(),
+                transitions.get(),
+                disappearedCount.get(),
+                unknownOrders.get()
+        );
+    }
+
+    @Scheduled(fixedRateString = PUSH_STAT)
+    public void reportStatistics() {
+        ReconcileStatistics stats = statistics();
+        NewRelic.recordMetric(TRANSITIONS, stats.getTransitions());
+        NewRelic.recordMetric(DISAPPEARED, stats.getDisappeared());
+        NewRelic.recordMetric(UNKNOWN_ORDERS, stats.getUnknownOrders());
+    }
+
+    // same mapping as for single order responses, order that is open on both sides is unchanged
+    private static PendingEvent diff(String clientName, String source, Trade trade, OrderDto order) {
+        Trade.EsbKey key = new Trade.EsbKey(order.getOrderId(), clientName);
+        String status = order.getStatus().name();
+        switch (order.getStatus()) {
+            case NEW:
+            case PARTIALLY_FILLED:
+                if (TradeStatus.OPENED == trade.getStatus()) {
+                    return null;
+                }
+
+                return PendingEvent.order(key, source, status, order.getStatusString(), order.getSize(),
+                        order.getPrice());
+            case FILLED:
+                return PendingEvent.done(key, source, status, order.getStatusString());
+            case CANCELED:
+            case EXPIRED:
+                return PendingEvent.cancel(key, source, status, order.getStatusString());
+            default:
+                return PendingEvent.error(key, source, status + "/" + order.getStatusString());
+        }
+    }
+
+    @Data
+    public static class ReconcileStatistics {
+
+        private final long responses;
+        private final long unchanged;
+        private final long transitions;
+        private final long disappeared;
+        private final long unknownOrders;
+    }
+
+    @Data
+    private static class Request {
+
+        private final Symbol symbol;
+        private final LocalDateTime requestedAt;
+    }
+
+    @EqualsAndHashCode
+    @RequiredArgsConstructor
+    private static final class Symbol {
+
+        private final String clientName;
+        private final TradingCurrency from;
+        private final TradingCurrency to;
+
+        @Override
+        public String toString() {
+            return clientName + "/" + from + "/" + to;
+        }
+    }
+}
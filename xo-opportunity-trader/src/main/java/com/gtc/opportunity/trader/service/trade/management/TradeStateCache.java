@@ -0,0 +1,575 @@
+package com.gtc.opportunity.trader.service.trade.management;
+
+import com.gtc.opportunity.trader.domain.JournaledTradeEvent;
+import com.gtc.opportunity.trader.domain.LongMessageLimiter;
+import com.gtc.opportunity.trader.domain.Trade;
+import com.gtc.opportunity.trader.domain.TradeEvent;
+import com.gtc.opportunity.trader.domain.TradeStatus;
+import com.gtc.opportunity.trader.repository.JournaledTradeEventRepository;
+import com.gtc.opportunity.trader.repository.TradeRepository;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.Builder;
+import lombok.Data;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.statemachine.StateMachine;
+import org.springframework.statemachine.service.StateMachineService;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static com.gtc.opportunity.trader.config.Const.Common.NN_OPPORTUNITY_PREFIX;
+import static com.gtc.opportunity.trader.config.Const.Common.XO_OPPORTUNITY_PREFIX;
+
+/**
+ * Cache of active trades and their state machines for gateway responses.
+ * Each event is written to journal ({@link JournaledTradeEvent}) before submit returns, so acknowledged response
+ * survives crash - journal rows that were not applied yet are replayed on startup ({@link #recover()}).
+ * Events are applied in background by writer lanes ({@code app.trade.events.writers}), lane is chosen by order
+ * group (trade or accepted xo/nn order it belongs to) when event is journaled, so events of one trade and of trades
+ * of one order are applied by single writer in submission order. Events queued in lane are grouped into batches
+ * (up to {@code app.trade.events.batchSize}) that share one transaction - trade updates, state machine contexts
+ * and removal of applied journal rows of the whole batch are committed at once. State machines of active trades
+ * stay acquired between batches and are released once trade reaches final state.
+ * Batch never holds two events of the same order group (trade or accepted xo/nn order it belongs to), because
+ * higher level machines interact with trades in their own transactions.
+ * In-memory state never runs ahead of DB: if batch commit fails, touched machines are released (so they get
+ * restored from DB on next acquire) and batch events are replayed one by one with transaction per action,
+ * replayed event is removed from journal after it was applied, so crash in between applies it once more.
+ */
+@Slf4j
+@Service
+public class TradeStateCache {
+
+    private static final Set<TradeStatus> FINAL = EnumSet.of(
+            TradeStatus.CLOSED, TradeStatus.CANCELLED, TradeStatus.ERR_OPEN, TradeStatus.GEN_ERR,
+            TradeStatus.DONE_MAN
+    );
+
+    private static final long POLL_MS = 100L;
+
+    private final StateMachineService<TradeStatus, TradeEvent> stateMachineService;
+    private final TradeRepository tradeRepository;
+    private final JournaledTradeEventRepository journal;
+    private final TransactionTemplate template;
+    private final TransactionTemplate journalTemplate;
+    private final int batchSize;
+
+    private final AtomicLong inFlight = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong events = new AtomicLong();
+    private final AtomicLong replayed = new AtomicLong();
+
+    private final Cache<Trade.EsbKey, String> idByKey;
+    private final Cache<String, Trade.EsbKey> keyById;
+    private final Cache<String, String> groupById;
+    private final Cache<String, Boolean> activeMachines;
+
+    private final List<BlockingQueue<Journaled>> lanes;
+    private final ExecutorService writers;
+    private volatile boolean running = true;
+
+    public TradeStateCache(StateMachineService<TradeStatus, TradeEvent> stateMachineService,
+                           TradeRepository tradeRepository,
+                           JournaledTradeEventRepository journal,
+                           TransactionTemplate template,
+                           @Value("${app.trade.events.writers}") int writers,
+                           @Value("${app.trade.events.batchSize}") int batchSize,
+                           @Value("${app.trade.events.activeTrades}") int activeTrades) {
+        this.stateMachineService = stateMachineService;
+        this.tradeRepository = tradeRepository;
+        this.journal = journal;
+        this.template = template;
+        this.journalTemplate = new TransactionTemplate(template.getTransactionManager());
+        this.journalTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.batchSize = batchSize;
+        this.idByKey = CacheBuilder.newBuilder().maximumSize(activeTrades).build();
+        this.keyById = CacheBuilder.newBuilder().maximumSize(activeTrades).build();
+        this.groupById = CacheBuilder.newBuilder().maximumSize(activeTrades).build();
+        this.activeMachines = CacheBuilder.newBuilder()
+                .maximumSize(activeTrades)
+                .removalListener((RemovalListener<String, Boolean>) evicted -> {
+                    if (evicted.wasEvicted()) {
+                        stateMachineService.releaseStateMachine(evicted.getKey());
+                    }
+                }).build();
+
+        this.lanes = new ArrayList<>(writers);
+        this.writers = Executors.newFixedThreadPool(
+                writers,
+                new ThreadFactoryBuilder().setNameFormat("trade-events-%d").setDaemon(true).build()
+        );
+        for (int i = 0; i < writers; ++i) {
+            BlockingQueue<Journaled> lane = new LinkedBlockingQueue<>();
+            lanes.add(lane);
+            this.writers.execute(() -> flushLoop(lane));
+        }
+    }
+
+    /**
+     * Queues events that were journaled, but not applied before last shutdown.
+     */
+    @PostConstruct
+    public void recover() {
+        List<Journaled> recovered = template.execute(tx -> journal.findAllByOrderByIdAsc().stream()
+                .map(it -> journaled(it.getId(), PendingEvent.fromJournal(it)))
+                .collect(Collectors.toList())
+        );
+
+        if (!recovered.isEmpty()) {
+            log.info("Recovering {} journaled trade events", recovered.size());
+            enqueue(recovered);
+        }
+    }
+
+    /**
+     * Journals event and queues it for writer, event is applied in background.
+     */
+    public void submit(PendingEvent event) {
+        submitAll(Collections.singletonList(event));
+    }
+
+    /**
+     * Same as {@link #submit(PendingEvent)}, but events are journaled in one transaction and queued together, so
+     * that they are applied in as few batches as batch size and order groups allow.
+     */
+    public void submitAll(List<PendingEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+
+        List<Journaled> journaled = journalTemplate.execute(tx -> events.stream()
+                .map(it -> journaled(journal.save(it.toJournal()).getId(), it))
+                .collect(Collectors.toList())
+        );
+        enqueue(journaled);
+    }
+
+    public CacheStatistics statistics() {
+        return new CacheStatistics(
+                lanes.stream().mapToInt(Queue::size).sum(),
+                activeMachines.size(),
+                batches.get(),
+                events.get(),
+                replayed.get()
+        );
+    }
+
+    /**
+     * Waits until all submitted events are applied.
+     */
+    public boolean awaitIdle(long timeout, TimeUnit unit) throws InterruptedException {
+        long until = System.nanoTime() + unit.toNanos(timeout);
+        while (0 != inFlight.get()) {
+            if (System.nanoTime() - until > 0) {
+                return false;
+            }
+
+            Thread.sleep(10L);
+        }
+
+        return true;
+    }
+
+    /**
+     * Writers drain their lanes before stopping, whatever they did not apply stays in journal.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        writers.shutdown();
+        writers.awaitTermination(POLL_MS * 10, TimeUnit.MILLISECONDS);
+    }
+
+    private Journaled journaled(long id, PendingEvent event) {
+        // later responses are looked up by assigned key, they must find same lane before create is applied
+        if (null != event.learnedKey()) {
+            rememberKey(event.learnedKey(), event.getRequestId());
+        }
+
+        String group = resolveId(event).flatMap(this::resolveGroup)
+                .orElseGet(() -> event.getKey().getClientName() + "/" + event.getKey().getAssignedId());
+        return new Journaled(id, event, lanes.get(Math.floorMod(group.hashCode(), lanes.size())));
+    }
+
+    private void enqueue(List<Journaled> journaled) {
+        inFlight.addAndGet(journaled.size());
+        Map<BlockingQueue<Journaled>, List<Journaled>> byLane = journaled.stream()
+                .collect(Collectors.groupingBy(Journaled::getLane, LinkedHashMap::new, Collectors.toList()));
+        byLane.forEach((lane, laneEvents) -> {
+            synchronized (lane) {
+                lane.addAll(laneEvents);
+            }
+        });
+    }
+
+    private void flushLoop(BlockingQueue<Journaled> lane) {
+        while (running || !lane.isEmpty()) {
+            try {
+                Journaled first = lane.poll(POLL_MS, TimeUnit.MILLISECONDS);
+                if (null == first) {
+                    continue;
+                }
+
+                List<Journaled> batch = new ArrayList<>(batchSize);
+                batch.add(first);
+                synchronized (lane) {
+                    lane.drainTo(batch, batchSize - 1);
+                }
+                flush(batch);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException ex) {
+                log.error("Failed flushing trade events", ex);
+            } catch (Error ex) {
+                // lane stops, its events stay journaled until restart
+                log.error("Trade events writer died", ex);
+                throw ex;
+            }
+        }
+    }
+
+    private void flush(List<Journaled> toFlush) {
+        int from = 0;
+        while (from < toFlush.size()) {
+            int flushed = flushBatch(toFlush.subList(from, toFlush.size()));
+            inFlight.addAndGet(-flushed);
+            from += flushed;
+        }
+    }
+
+    private int flushBatch(List<Journaled> toFlush) {
+        Batch batch = new Batch();
+        try {
+            template.execute(tx -> {
+                for (Journaled event : toFlush) {
+                    if (!batch.apply(event.getEvent())) {
+                        break;
+                    }
+                }
+                journal.deleteByIds(toFlush.subList(0, batch.consumed).stream()
+                        .map(Journaled::getId)
+                        .collect(Collectors.toList())
+                );
+                return null;
+            });
+        } catch (RuntimeException ex) {
+            // event that failed before it was counted is replayed too, so that we always progress
+            int failed = Math.max(1, batch.consumed);
+            log.warn("Batch of {} trade events failed, replaying them one by one", failed, ex);
+            batch.machines.keySet().forEach(this::evictMachine);
+            toFlush.subList(0, failed).forEach(this::replay);
+            replayed.addAndGet(failed);
+            return failed;
+        } catch (Error ex) {
+            // nothing was committed, events stay journaled
+            batch.machines.keySet().forEach(this::evictMachine);
+            throw ex;
+        }
+
+        batches.incrementAndGet();
+        events.addAndGet(batch.consumed);
+        batch.machines.forEach(this::cacheOrRelease);
+        return batch.consumed;
+    }
+
+    private void cacheOrRelease(String id, StateMachine<TradeStatus, TradeEvent> machine) {
+        if (null != machine.getState() && !FINAL.contains(machine.getState().getId())) {
+            activeMachines.put(id, Boolean.TRUE);
+            return;
+        }
+
+        evictMachine(id);
+        groupById.invalidate(id);
+        Trade.EsbKey key = keyById.getIfPresent(id);
+        if (null != key) {
+            keyById.invalidate(id);
+            idByKey.invalidate(key);
+        }
+    }
+
+    private void rememberKey(Trade.EsbKey key, String id) {
+        idByKey.put(key, id);
+        keyById.put(id, key);
+    }
+
+    private void evictMachine(String id) {
+        activeMachines.invalidate(id);
+        stateMachineService.releaseStateMachine(id);
+    }
+
+    // old per-event path, each action runs in its own transaction
+    private void replay(Journaled journaled) {
+        PendingEvent event = journaled.getEvent();
+        try {
+            Optional<String> id = template.execute(tx -> resolveId(event).filter(it -> resolveGroup(it).isPresent()));
+            id.ifPresent(tradeId -> {
+                StateMachine<TradeStatus, TradeEvent> machine = stateMachineService.acquireStateMachine(tradeId);
+                event.messages(tradeId).forEach(machine::sendEvent);
+                stateMachineService.releaseStateMachine(tradeId);
+            });
+        } catch (RuntimeException ex) {
+            log.error("Failed replaying trade event {}", event, ex);
+        }
+
+        template.execute(tx -> journal.deleteByIds(Collections.singletonList(journaled.getId())));
+    }
+
+    private Optional<String> resolveId(PendingEvent event) {
+        if (null != event.getRequestId()) {
+            return Optional.of(event.getRequestId());
+        }
+
+        String id = idByKey.getIfPresent(event.getKey());
+        if (null != id) {
+            return Optional.of(id);
+        }
+
+        Optional<Trade> trade = tradeRepository.findByAssignedId(event.getKey());
+        trade.ifPresent(it -> {
+            rememberKey(event.getKey(), it.getId());
+            groupById.put(it.getId(), group(it));
+        });
+        return trade.map(Trade::getId);
+    }
+
+    private Optional<String> resolveGroup(String id) {
+        String group = groupById.getIfPresent(id);
+        if (null != group) {
+            return Optional.of(group);
+        }
+
+        Optional<String> loaded = tradeRepository.findById(id).map(TradeStateCache::group);
+        loaded.ifPresent(it -> groupById.put(id, it));
+        return loaded;
+    }
+
+    private static String group(Trade trade) {
+        if (null != trade.getXoOrder()) {
+            return XO_OPPORTUNITY_PREFIX + trade.getXoOrder().getId();
+        }
+
+        if (null != trade.getNnOrder()) {
+            return NN_OPPORTUNITY_PREFIX + trade.getNnOrder().getId();
+        }
+
+        return trade.getId();
+    }
+
+    @Data
+    public static class CacheStatistics {
+
+        private final int queueDepth;
+        private final long activeMachines;
+        private final long batches;
+        private final long events;
+        private final long replayedEvents;
+    }
+
+    /**
+     * Gateway response to be applied to trade found either by its id or by exchange-assigned key.
+     */
+    @Getter
+    @Builder
+    public static class PendingEvent {
+
+        private final Type type;
+        private final Trade.EsbKey key;
+        private final String requestId;
+        private final String source;
+        private final String status;
+        private final String nativeStatus;
+        private final BigDecimal amount;
+        private final BigDecimal price;
+        private final String data;
+
+        public static PendingEvent error(Trade.EsbKey key, String source, String error) {
+            return builder().type(Type.ERROR).key(key).source(source).data(error).build();
+        }
+
+        public static PendingEvent transientError(Trade.EsbKey key, String source, String error) {
+            return builder().type(Type.TRANSIENT_ERROR).key(key).source(source).data(error).build();
+        }
+
+        /**
+         * Exchange assigned nothing to trade yet, so its key holds trade id.
+         */
+        public static PendingEvent timeout(String requestId, String clientName, String source, String error) {
+            return builder().type(Type.TIMEOUT).requestId(requestId).key(new Trade.EsbKey(requestId, clientName))
+                    .source(source).data(error).build();
+        }
+
+        public static PendingEvent order(Trade.EsbKey key, String source, String status, String nativeStatus,
+                                         BigDecimal amount, BigDecimal price) {
+            return builder().type(Type.ORDER).key(key).source(source).status(status).nativeStatus(nativeStatus)
+                    .amount(amount).price(price).build();
+        }
+
+        public static PendingEvent done(Trade.EsbKey key, String source, String status, String nativeStatus) {
+            return builder().type(Type.DONE).key(key).source(source).status(status).nativeStatus(nativeStatus)
+                    .build();
+        }
+
+        public static PendingEvent cancel(Trade.EsbKey key, String source, String status, String nativeStatus) {
+            return builder().type(Type.CANCEL).key(key).source(source).status(status).nativeStatus(nativeStatus)
+                    .build();
+        }
+
+        /**
+         * Key exchange assigned to trade is cached once event is journaled.
+         */
+        public static PendingEvent create(String requestId, String source, String status, String nativeStatus,
+                                          Trade.EsbKey key) {
+            return builder().type(Type.CREATE).requestId(requestId).key(key).source(source).status(status)
+                    .nativeStatus(nativeStatus).build();
+        }
+
+        public static PendingEvent createAndDone(String requestId, String source, String status,
+                                                 String nativeStatus, Trade.EsbKey key) {
+            return builder().type(Type.CREATE_AND_DONE).requestId(requestId).key(key).source(source).status(status)
+                    .nativeStatus(nativeStatus).build();
+        }
+
+        static PendingEvent fromJournal(JournaledTradeEvent event) {
+            return builder()
+                    .type(Type.valueOf(event.getType()))
+                    .key(new Trade.EsbKey(event.getAssignedId(), event.getClientName()))
+                    .requestId(event.getRequestId())
+                    .source(event.getSource())
+                    .status(event.getStatus())
+                    .nativeStatus(event.getNativeStatus())
+                    .amount(event.getAmount())
+                    .price(event.getPrice())
+                    .data(event.getData())
+                    .build();
+        }
+
+        JournaledTradeEvent toJournal() {
+            return JournaledTradeEvent.builder()
+                    .type(type.name())
+                    .clientName(key.getClientName())
+                    .assignedId(key.getAssignedId())
+                    .requestId(requestId)
+                    .source(source)
+                    .status(status)
+                    .nativeStatus(nativeStatus)
+                    .amount(amount)
+                    .price(price)
+                    .data(null == data ? null : LongMessageLimiter.trunc(data))
+                    .build();
+        }
+
+        Trade.EsbKey learnedKey() {
+            return Type.CREATE == type ? key : null;
+        }
+
+        List<Message<TradeEvent>> messages(String tradeId) {
+            switch (type) {
+                case ERROR:
+                    return single(message(TradeEvent.ERROR).setHeader(TradeEvent.DATA, data));
+                case TRANSIENT_ERROR:
+                    return single(message(TradeEvent.TRANSIENT_ERR).setHeader(TradeEvent.DATA, data));
+                case TIMEOUT:
+                    return single(message(TradeEvent.TIMEOUT).setHeader(TradeEvent.DATA, data));
+                case ORDER:
+                    return single(withStatus(TradeEvent.ACK)
+                            .setHeader(TradeEvent.AMOUNT, amount)
+                            .setHeader(TradeEvent.PRICE, price));
+                case DONE:
+                    return single(withStatus(TradeEvent.DONE).setHeader(TradeEvent.AMOUNT, BigDecimal.ZERO));
+                case CANCEL:
+                    return single(withStatus(TradeEvent.CANCELLED));
+                case CREATE:
+                    return single(withStatus(TradeEvent.ACK).setHeader(TradeEvent.ASSIGNED_ID, key.getAssignedId()));
+                case CREATE_AND_DONE:
+                    return Arrays.asList(
+                            withStatus(TradeEvent.ACK)
+                                    .setHeader(TradeEvent.ASSIGNED_ID, key.getAssignedId() + "." + tradeId)
+                                    .build(),
+                            withStatus(TradeEvent.DONE).build()
+                    );
+                default:
+                    throw new IllegalStateException("Unknown event type " + type);
+            }
+        }
+
+        private MessageBuilder<TradeEvent> message(TradeEvent event) {
+            return MessageBuilder
+                    .withPayload(event)
+                    .setHeader(TradeEvent.MSG_ID, source);
+        }
+
+        private MessageBuilder<TradeEvent> withStatus(TradeEvent event) {
+            return message(event)
+                    .setHeader(TradeEvent.STATUS, status)
+                    .setHeader(TradeEvent.NATIVE_STATUS, nativeStatus);
+        }
+
+        private static List<Message<TradeEvent>> single(MessageBuilder<TradeEvent> message) {
+            return Collections.singletonList(message.build());
+        }
+
+        @Override
+        public String toString() {
+            return type + " " + (null != requestId ? requestId : key.getClientName() + "/" + key.getAssignedId());
+        }
+
+        enum Type {
+            ERROR, TRANSIENT_ERROR, TIMEOUT, ORDER, DONE, CANCEL, CREATE, CREATE_AND_DONE
+        }
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    private static class Journaled {
+
+        private final long id;
+        private final PendingEvent event;
+        private final BlockingQueue<Journaled> lane;
+    }
+
+    private class Batch {
+
+        private final Set<String> groups = new HashSet<>();
+        private final Map<String, StateMachine<TradeStatus, TradeEvent>> machines = new LinkedHashMap<>();
+        private int consumed;
+
+        /**
+         * @return false if event conflicts with the batch and should go to the next one
+         */
+        private boolean apply(PendingEvent event) {
+            Optional<String> id = resolveId(event);
+            Optional<String> group = id.flatMap(TradeStateCache.this::resolveGroup);
+            if (group.isPresent() && !groups.add(group.get())) {
+                return false;
+            }
+
+            consumed++;
+            if (!group.isPresent()) {
+                return true;
+            }
+
+            String tradeId = id.get();
+            StateMachine<TradeStatus, TradeEvent> machine = stateMachineService.acquireStateMachine(tradeId);
+            machines.put(tradeId, machine);
+            event.messages(tradeId).forEach(machine::sendEvent);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.gtc.opportunity.trader.service.xoopportunity.common;
+
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.optaplanner.core.api.solver.Solver;
+import org.optaplanner.core.api.solver.SolverFactory;
+import org.optaplanner.core.config.localsearch.LocalSearchPhaseConfig;
+import org.optaplanner.core.config.phase.PhaseConfig;
+import org.optaplanner.core.config.solver.SolverConfig;
+import org.optaplanner.core.config.solver.termination.TerminationConfig;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Keeps ready-to-use solvers, so that solver config is parsed once per config name and solver is built once
+ * per config name and solve time (termination override) instead of on each solve.
+ * Each key holds at most {@code poolSize} idle solvers; if all of them are busy new one is built and
+ * dropped after the solve if pool is full. Solver that threw is discarded.
+ * Positive {@code stepLimit} replaces solve time with step count, so that solution does not depend on machine
+ * speed (solver random is seeded) - for replays only, as solve time is then unbounded.
+ */
+@Slf4j
+@Component
+public class SolverPool {
+
+    private final int poolSize;
+    private final int stepLimit;
+
+    private final Map<String, SolverFactory<?>> factories = new ConcurrentHashMap<>();
+    private final Map<Key, Queue<Solver<?>>> solvers = new ConcurrentHashMap<>();
+
+    public SolverPool(int poolSize) {
+        this(poolSize, 0);
+    }
+
+    @Autowired
+    public SolverPool(@Value("${app.solver.poolSize}") int poolSize, @Value("${app.solver.stepLimit}") int stepLimit) {
+        this.poolSize = poolSize;
+        this.stepLimit = stepLimit;
+    }
+
+    /**
+     * @param configName unique name of {@code config}
+     * @param config solver configuration, called once per {@code configName}
+     * @param solveForMs overrides {@link TerminationConfig#getMillisecondsSpentLimit()}
+     * @param problem problem to solve
+     * @return best solution
+     */
+    public <S> S solve(String configName, Supplier<SolverFactory<S>> config, long solveForMs, S problem) {
+        Queue<Solver<?>> pool = solvers.computeIfAbsent(
+                new Key(configName, solveForMs),
+                id -> new ArrayBlockingQueue<>(poolSize)
+        );
+
+        @SuppressWarnings("unchecked")
+        Solver<S> solver = (Solver<S>) pool.poll();
+        if (null == solver) {
+            solver = buildSolver(configName, config, solveForMs);
+        }
+
+        S solved = solver.solve(problem);
+        pool.offer(solver);
+        return solved;
+    }
+
+    private <S> Solver<S> buildSolver(String configName, Supplier<SolverFactory<S>> config, long solveForMs) {
+        log.info("Building solver {} with solve time {}ms", configName, solveForMs);
+        @SuppressWarnings("unchecked")
+        SolverFactory<S> parsed = (SolverFactory<S>) factories.computeIfAbsent(configName, id -> parse(config));
+
+        SolverFactory<S> factory;
+        synchronized (parsed) {
+            factory = parsed.cloneSolverFactory();
+        }
+
+        SolverConfig cfg = factory.getSolverConfig();
+        if (null == cfg.getTerminationConfig()) {
+            cfg.setTerminationConfig(new TerminationConfig());
+        }
+
+        if (stepLimit > 0) {
+            limitLocalSearchSteps(cfg);
+        } else {
+            cfg.getTerminationConfig().setMillisecondsSpentLimit(solveForMs);
+        }
+        return factory.buildSolver();
+    }
+
+    // step count can only terminate phase, not solver
+    private void limitLocalSearchSteps(SolverConfig cfg) {
+        for (PhaseConfig phase : cfg.getPhaseConfigList()) {
+            if (phase instanceof LocalSearchPhaseConfig) {
+                TerminationConfig termination = new TerminationConfig();
+                termination.setStepCountLimit(stepLimit);
+                phase.setTerminationConfig(termination);
+            }
+        }
+    }
+
+    private static <S> SolverFactory<S> parse(Supplier<SolverFactory<S>> config) {
+        SolverFactory<S> factory = config.get();
+        // xml factories parse config lazily
+        factory.getSolverConfig();
+        return factory;
+    }
+
+    @Data
+    private static final class Key {
+
+        private final String configName;
+        private final long solveForMs;
+    }
+}
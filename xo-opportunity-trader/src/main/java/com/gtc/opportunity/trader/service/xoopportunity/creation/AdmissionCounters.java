@@ -0,0 +1,406 @@
+package com.gtc.opportunity.trader.service.xoopportunity.creation;
+
+import com.google.common.collect.ImmutableSet;
+import com.gtc.meta.TradingCurrency;
+import com.gtc.opportunity.trader.config.AdmissionConfig;
+import com.gtc.opportunity.trader.domain.Trade;
+import com.gtc.opportunity.trader.domain.TradeStatus;
+import com.gtc.opportunity.trader.repository.AcceptedXoTradeRepository;
+import com.gtc.opportunity.trader.repository.TradeRepository;
+import com.gtc.opportunity.trader.repository.dto.AcceptedAt;
+import com.gtc.opportunity.trader.repository.dto.SideBalance;
+import com.gtc.opportunity.trader.service.CurrentTimestamp;
+import com.newrelic.api.agent.NewRelic;
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import static com.gtc.opportunity.trader.domain.TradeStatus.CLOSED;
+import static com.gtc.opportunity.trader.domain.TradeStatus.DONE_MAN;
+import static com.gtc.opportunity.trader.domain.TradeStatus.OPENED;
+import static com.gtc.opportunity.trader.domain.TradeStatus.UNKNOWN;
+
+/**
+ * In-memory answers to 'how many cross-market trades were accepted recently' and 'what is single side balance'
+ * that otherwise are database queries for each opportunity. Loaded from database on first use, changed within
+ * transaction that changes underlying rows - and reverted if it rolls back, periodically compared with database
+ * that wins on mismatch. Counters with changes that are not committed yet or were made while database was read
+ * are left to next comparison.
+ */
+@Slf4j
+@Service
+public class AdmissionCounters {
+
+    public static final Set<TradeStatus> SIDE_LIMITED = ImmutableSet.of(UNKNOWN, OPENED, CLOSED, DONE_MAN);
+
+    private static final String RECONCILE_MS = "#{${app.schedule.admission.reconcileS} * 1000}";
+    private static final String RATE_MISMATCH = "Custom/Admission/RateMismatch";
+    private static final String SIDE_MISMATCH = "Custom/Admission/SideMismatch";
+
+    private final AdmissionConfig config;
+    private final CurrentTimestamp currentTimestamp;
+    private final AcceptedXoTradeRepository xoTradeRepository;
+    private final TradeRepository tradeRepository;
+
+    private final Map<RateKey, Accepted> accepted = new ConcurrentHashMap<>();
+    private final Map<SideKey, Side> sides = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+
+    public AdmissionCounters(AdmissionConfig config, CurrentTimestamp currentTimestamp,
+                             AcceptedXoTradeRepository xoTradeRepository, TradeRepository tradeRepository) {
+        this.config = config;
+        this.currentTimestamp = currentTimestamp;
+        this.xoTradeRepository = xoTradeRepository;
+        this.tradeRepository = tradeRepository;
+    }
+
+    /**
+     * Registers trade accepted at {@code now} if there were no other accepted trades within window before it.
+     */
+    public boolean tryAccept(String clientFrom, String clientTo, TradingCurrency from, TradingCurrency to,
+                             LocalDateTime now, long windowMs) {
+        ensureLoaded();
+        Accepted acc = accepted.computeIfAbsent(
+                new RateKey(clientFrom, clientTo, from, to), id -> new Accepted(new TreeMap<>())
+        );
+        boolean inTransaction = TransactionSynchronizationManager.isSynchronizationActive();
+
+        synchronized (acc) {
+            acc.times.headMap(now.minusSeconds(config.getRateRetentionS())).clear();
+            if (count(acc.times, now.minus(windowMs, ChronoUnit.MILLIS)) > 0) {
+                return false;
+            }
+
+            acc.times.merge(now, 1, Integer::sum);
+            acc.version++;
+            if (inTransaction) {
+                acc.uncommitted++;
+            }
+        }
+
+        if (inTransaction) {
+            afterCompletion(committed -> {
+                synchronized (acc) {
+                    if (!committed) {
+                        acc.times.computeIfPresent(now, (time, cnt) -> cnt > 1 ? cnt - 1 : null);
+                    }
+
+                    acc.uncommitted--;
+                    acc.version++;
+                }
+            });
+        }
+
+        return true;
+    }
+
+    public int acceptedSince(String clientFrom, String clientTo, TradingCurrency from, TradingCurrency to,
+                             LocalDateTime since) {
+        ensureLoaded();
+        Accepted acc = accepted.get(new RateKey(clientFrom, clientTo, from, to));
+        if (null == acc) {
+            return 0;
+        }
+
+        synchronized (acc) {
+            return count(acc.times, since);
+        }
+    }
+
+    /**
+     * Same as {@link TradeRepository#tradeBalanceWithSide} with {@link #SIDE_LIMITED} statuses.
+     */
+    public BigDecimal sideBalance(String client, TradingCurrency from, TradingCurrency to) {
+        ensureLoaded();
+        Side side = sides.get(new SideKey(client, from, to));
+        if (null == side) {
+            return BigDecimal.ZERO;
+        }
+
+        synchronized (side) {
+            return side.balance;
+        }
+    }
+
+    /**
+     * Should be called when trade is persisted with new status, {@code before} is null for new trades.
+     */
+    public void tradeChanged(Trade trade, TradeStatus before) {
+        BigDecimal delta = sideAmount(trade, trade.getStatus()).subtract(sideAmount(trade, before));
+        if (0 == delta.signum()) {
+            return;
+        }
+
+        ensureLoaded();
+        change(side(trade), delta);
+    }
+
+    /**
+     * Registers new trade if side balance is within {@code limit} or trade decreases it, same as
+     * {@link #sideBalance} check followed by {@link #tradeChanged} but concurrent trades can't pass check together.
+     */
+    public boolean tryReserve(Trade trade, BigDecimal limit) {
+        ensureLoaded();
+        Side side = side(trade);
+        synchronized (side) {
+            BigDecimal newBalance = side.balance.add(trade.getAmount());
+            boolean decreases = newBalance.abs().compareTo(side.balance.abs()) < 0;
+            if (!decreases && limit.compareTo(side.balance.abs()) < 0) {
+                return false;
+            }
+
+            BigDecimal delta = sideAmount(trade, trade.getStatus());
+            if (0 != delta.signum()) {
+                change(side, delta);
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Replaces counters with database values, i.e. after database was changed bypassing this class.
+     */
+    public synchronized void rebuild() {
+        LocalDateTime now = currentTimestamp.dbNow();
+        accepted.clear();
+        loadAccepted(now).forEach((key, times) -> accepted.put(key, new Accepted(times)));
+        sides.clear();
+        loadSides().forEach((key, balance) -> sides.put(key, new Side(balance)));
+        loaded = true;
+    }
+
+    // counter changes of transactions that commit during reconciliation can show up as mismatches, next run fixes them
+    @Scheduled(fixedDelayString = RECONCILE_MS)
+    public synchronized void reconcile() {
+        if (!loaded) {
+            rebuild();
+            return;
+        }
+
+        LocalDateTime now = currentTimestamp.dbNow();
+        LocalDateTime retained = now.minusSeconds(config.getRateRetentionS());
+        Map<RateKey, Long> versions = new HashMap<>();
+        accepted.forEach((key, acc) -> {
+            synchronized (acc) {
+                versions.put(key, acc.version);
+            }
+        });
+
+        Map<RateKey, NavigableMap<LocalDateTime, Integer>> dbAccepted = loadAccepted(now);
+        int rateMismatches = 0;
+        for (RateKey key : union(versions.keySet(), dbAccepted.keySet())) {
+            NavigableMap<LocalDateTime, Integer> db = dbAccepted.getOrDefault(key, new TreeMap<>());
+            Accepted memory = accepted.computeIfAbsent(key, id -> new Accepted(new TreeMap<>()));
+            synchronized (memory) {
+                // database read could have missed registrations that are not committed or committed while reading
+                if (memory.uncommitted > 0 || memory.version != versions.getOrDefault(key, 0L)) {
+                    continue;
+                }
+
+                int memoryCount = count(memory.times, retained);
+                if (memoryCount != count(db, retained)) {
+                    rateMismatches++;
+                    log.warn("Accepted trades of {} are {} in memory and {} in database", key, memoryCount,
+                            count(db, retained));
+                    memory.times.clear();
+                    memory.times.putAll(db);
+                    memory.version++;
+                }
+            }
+        }
+
+        Map<SideKey, Long> sideVersions = new HashMap<>();
+        sides.forEach((key, side) -> {
+            synchronized (side) {
+                sideVersions.put(key, side.version);
+            }
+        });
+
+        Map<SideKey, BigDecimal> dbSides = loadSides();
+        int sideMismatches = 0;
+        for (SideKey key : union(sideVersions.keySet(), dbSides.keySet())) {
+            BigDecimal db = dbSides.getOrDefault(key, BigDecimal.ZERO);
+            Side memory = sides.computeIfAbsent(key, id -> new Side(BigDecimal.ZERO));
+            synchronized (memory) {
+                if (memory.uncommitted > 0 || memory.version != sideVersions.getOrDefault(key, 0L)) {
+                    continue;
+                }
+
+                if (0 != memory.balance.compareTo(db)) {
+                    sideMismatches++;
+                    log.warn("Side balance of {} is {} in memory and {} in database", key, memory.balance, db);
+                    memory.balance = db;
+                    memory.version++;
+                }
+            }
+        }
+
+        NewRelic.recordMetric(RATE_MISMATCH, rateMismatches);
+        NewRelic.recordMetric(SIDE_MISMATCH, sideMismatches);
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+
+        synchronized (this) {
+            if (!loaded) {
+                rebuild();
+            }
+        }
+    }
+
+    private Map<RateKey, NavigableMap<LocalDateTime, Integer>> loadAccepted(LocalDateTime now) {
+        Map<RateKey, NavigableMap<LocalDateTime, Integer>> result = new HashMap<>();
+        for (AcceptedAt at : xoTradeRepository.findAcceptedSince(now.minusSeconds(config.getRateRetentionS()))) {
+            result.computeIfAbsent(
+                    new RateKey(at.getClientFrom(), at.getClientTo(), at.getFrom(), at.getTo()),
+                    id -> new TreeMap<>()
+            ).merge(at.getRecordedOn(), 1, Integer::sum);
+        }
+
+        return result;
+    }
+
+    private Map<SideKey, BigDecimal> loadSides() {
+        Map<SideKey, BigDecimal> result = new HashMap<>();
+        for (SideBalance balance : tradeRepository.tradeBalancesWithSide(SIDE_LIMITED)) {
+            result.put(new SideKey(balance.getClient(), balance.getFrom(), balance.getTo()), balance.getBalance());
+        }
+
+        return result;
+    }
+
+    private Side side(Trade trade) {
+        return sides.computeIfAbsent(
+                new SideKey(trade.getClient().getName(), trade.getCurrencyFrom(), trade.getCurrencyTo()),
+                id -> new Side(BigDecimal.ZERO)
+        );
+    }
+
+    private static void change(Side side, BigDecimal delta) {
+        boolean inTransaction = TransactionSynchronizationManager.isSynchronizationActive();
+
+        synchronized (side) {
+            side.balance = side.balance.add(delta);
+            side.version++;
+            if (inTransaction) {
+                side.uncommitted++;
+            }
+        }
+
+        if (inTransaction) {
+            afterCompletion(committed -> {
+                synchronized (side) {
+                    if (!committed) {
+                        side.balance = side.balance.subtract(delta);
+                    }
+
+                    side.uncommitted--;
+                    side.version++;
+                }
+            });
+        }
+    }
+
+    private static int count(NavigableMap<LocalDateTime, Integer> times, LocalDateTime since) {
+        return times.tailMap(since, true).values().stream().mapToInt(Integer::intValue).sum();
+    }
+
+    private static BigDecimal sideAmount(Trade trade, TradeStatus status) {
+        if (null == status || trade.isIgnoreAsSideLimit() || !SIDE_LIMITED.contains(status)) {
+            return BigDecimal.ZERO;
+        }
+
+        return trade.getOpeningAmount();
+    }
+
+    private static <T> Set<T> union(Set<T> one, Set<T> other) {
+        Set<T> result = new HashSet<>(one);
+        result.addAll(other);
+        return result;
+    }
+
+    // without transaction change is final
+    private static void afterCompletion(Consumer<Boolean> onCompletion) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCompletion(int status) {
+                onCompletion.accept(TransactionSynchronization.STATUS_COMMITTED == status);
+            }
+        });
+    }
+
+    // accepted on -> trade count, guarded by itself
+    @RequiredArgsConstructor
+    private static final class Accepted {
+
+        private final NavigableMap<LocalDateTime, Integer> times;
+        private int uncommitted;
+        private long version;
+    }
+
+    // single side balance, guarded by itself
+    private static final class Side {
+
+        private BigDecimal balance;
+        private int uncommitted;
+        private long version;
+
+        Side(BigDecimal balance) {
+            this.balance = balance;
+        }
+    }
+
+    @EqualsAndHashCode
+    @RequiredArgsConstructor
+    private static final class RateKey {
+
+        private final String clientFrom;
+        private final String clientTo;
+        private final TradingCurrency from;
+        private final TradingCurrency to;
+
+        @Override
+        public String toString() {
+            return clientFrom + "/" + clientTo + "/" + from + "/" + to;
+        }
+    }
+
+    @EqualsAndHashCode
+    @RequiredArgsConstructor
+    private static final class SideKey {
+
+        private final String client;
+        private final TradingCurrency from;
+        private final TradingCurrency to;
+
+        @Override
+        public String toString() {
+            return client + "/" + from + "/" + to;
+        }
+    }
+}
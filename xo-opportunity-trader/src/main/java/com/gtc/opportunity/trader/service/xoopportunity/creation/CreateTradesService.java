@@ -8,6 +8,7 @@ import com.gtc.opportunity.trader.domain.ClientConfig;
 import com.gtc.opportunity.trader.domain.XoAcceptStatus;
 import com.gtc.opportunity.trader.repository.AcceptedXoTradeRepository;
 import com.gtc.opportunity.trader.repository.TradeRepository;
+import com.gtc.opportunity.trader.service.CurrentTimestamp;
 import com.gtc.opportunity.trader.service.UuidGenerator;
 import com.gtc.opportunity.trader.service.command.gateway.WsGatewayCommander;
 import com.gtc.opportunity.trader.service.dto.PreciseXoAmountDto;
@@ -34,6 +35,7 @@ public class CreateTradesService {
     private final AcceptedXoTradeRepository xoTradeRepository;
     private final OpportunityMapperFactory mapperFactory;
     private final WsGatewayCommander commander;
+    private final CurrentTimestamp currentTimestamp;
 
     @Transactional
     public void createTrades(FullCrossMarketOpportunity opp, PreciseXoAmountDto amount, ClientConfig cfgFrom,
@@ -80,6 +82,8 @@ public class CreateTradesService {
                 .opportunityBestSellPrice(opp.marketToBestSellPrice())
                 .opportunityBestBuyPrice(opp.marketFromBestBuyPrice())
                 .opportunityProfitPct(opp.profitPct())
+                // admission counters are reconciled by it, DB default would be wall-clock time in replays
+                .recordedOn(currentTimestamp.dbNow())
                 .build();
     }
 }
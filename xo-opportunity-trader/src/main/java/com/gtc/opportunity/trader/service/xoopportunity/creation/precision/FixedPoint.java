@@ -0,0 +1,96 @@
+package com.gtc.opportunity.trader.service.xoopportunity.creation.precision;
+
+import lombok.experimental.UtilityClass;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Conversion of double to scaled long that gives same result as
+ * {@code BigDecimal.valueOf(value).setScale(scale, mode).movePointRight(scale)} without allocating.
+ * Double is treated as its shortest decimal representation (same as BigDecimal.valueOf does): nearest integer
+ * {@code m} of {@code value * 10^scale} is mapped back and compared with {@code value} - if it round-trips decimal is
+ * exactly {@code m}, otherwise rounding monotonicity tells on which side of {@code m} decimal lies.
+ * This holds while scaled magnitude is below {@link #MAX_EXACT} (so that double error of scaled value stays well
+ * below half of unit), larger values and half-* rounding modes are reported as {@link #INEXACT} so that caller
+ * can use BigDecimal.
+ */
+@UtilityClass
+public final class FixedPoint {
+
+    public static final long INEXACT = Long.MIN_VALUE;
+    public static final double MAX_EXACT = 1L << 50;
+
+    private static final double MAX_DOUBLE_INT = 1L << 52;
+    private static final double[] POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /**
+     * Scaled value, falls back to BigDecimal if it can't be computed exactly in double.
+     * @throws ArithmeticException if result does not fit into long
+     */
+    public static long fixed(double value, int scale, RoundingMode mode) {
+        long result = tryFixed(value, scale, mode);
+        if (INEXACT != result) {
+            return result;
+        }
+
+        return BigDecimal.valueOf(value).setScale(scale, mode).movePointRight(scale).longValueExact();
+    }
+
+    /**
+     * Scaled value or {@link #INEXACT}.
+     */
+    public static long tryFixed(double value, int scale, RoundingMode mode) {
+        if (!Double.isFinite(value) || Math.abs(scale) >= POW10.length) {
+            return INEXACT;
+        }
+
+        double scaled = scale >= 0 ? value * POW10[scale] : value / POW10[-scale];
+        if (!(Math.abs(scaled) < MAX_EXACT)) {
+            return INEXACT;
+        }
+
+        double nearest = Math.rint(scaled);
+        double back = scale >= 0 ? nearest / POW10[scale] : nearest * POW10[-scale];
+        long m = (long) nearest;
+        if (back == value) {
+            return m;
+        }
+
+        // rounding is monotonic, so decimal is above m if m maps below value; it is within half unit from m
+        boolean above = back < value;
+        switch (mode) {
+            case FLOOR:
+                return above ? m : m - 1;
+            case CEILING:
+                return above ? m + 1 : m;
+            case DOWN:
+                return value > 0 ? (above ? m : m - 1) : (above ? m + 1 : m);
+            case UP:
+                return value > 0 ? (above ? m + 1 : m) : (above ? m : m - 1);
+            default:
+                return INEXACT;
+        }
+    }
+
+    /**
+     * Double value of {@code val * 10^-scale}, same as BigDecimal.doubleValue.
+     */
+    public static double toDouble(long val, int scale) {
+        if (Math.abs(scale) < POW10.length && Math.abs((double) val) < MAX_DOUBLE_INT) {
+            return scale >= 0 ? val / POW10[scale] : val * POW10[-scale];
+        }
+
+        return BigDecimal.valueOf(val, scale).doubleValue();
+    }
+
+    /**
+     * 10^pow as double, exact for 0 <= pow <= 22.
+     */
+    public static double pow10(int pow) {
+        return pow >= 0 && pow < POW10.length ? POW10[pow] : Math.pow(10, pow);
+    }
+}
@@ -2,18 +2,29 @@ package com.gtc.opportunity.trader.service.xoopportunity.creation.precision;
 
 import com.gtc.opportunity.trader.cqe.domain.FullCrossMarketOpportunity;
 import com.gtc.opportunity.trader.service.xoopportunity.creation.precision.dto.IntegratedHistogram;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Created by Valentyn Berezin on 07.04.18.
+ * Cumulative amounts are summed in fixed point with {@code GUARD_DIGITS} extra digits (flooring each bucket there)
+ * and floored to amount scale. Every bucket that is not exact at guard scale loses less than one unit there,
+ * so if flooring both sum and sum + number of such buckets gives same value it is the exact one. Otherwise, or if
+ * values don't fit into fixed point, histogram is integrated in BigDecimal.
  */
+@Slf4j
 @Service
 public class HistogramIntegrator {
 
+    private static final int GUARD_DIGITS = 4;
+
+    private final AtomicLong exactFallbacks = new AtomicLong();
+
     // typically we use scale provided by exchange here, also amount sign will be discarded
     // integrated histogram is ordered from min to max
     // also order of histogram will be reversed - from best buy/sell prices
@@ -28,16 +39,74 @@ public class HistogramIntegrator {
         double origStep = (max - min) / histogram.length;
 
         double[] inOrder = new double[histogram.length];
+        double total = 0.0;
         for (FullCrossMarketOpportunity.Histogram entry : histogram) {
             int pos = (int) (((entry.getMinPrice() + entry.getMaxPrice()) / 2.0 - min) / origStep);
             inOrder[pos] = Math.abs(entry.getAmount());
+            total += inOrder[pos];
         }
 
-        long[] asLong = new long[histogram.length];
-        long step = RoundingUtil.longVal(BigDecimal.valueOf(origStep), priceScale, RoundingMode.CEILING);
+        long[] asLong = integrateFixed(inOrder, total, amountScale, isMarketSell);
+        if (null == asLong) {
+            exactFallbacks.incrementAndGet();
+            log.debug("Histogram does not fit fixed point at scale {}, using BigDecimal", amountScale);
+            asLong = integrateExact(inOrder, amountScale, isMarketSell);
+        }
+
+        long step = FixedPoint.fixed(origStep, priceScale, RoundingMode.CEILING);
+        long minLong = FixedPoint.fixed(min, priceScale, RoundingMode.FLOOR);
+        long maxLong = Math.addExact(minLong, Math.multiplyExact(step, histogram.length));
+        return new IntegratedHistogram(step, minLong, maxLong, !isMarketSell, priceScale, asLong);
+    }
+
+    /**
+     * Number of histograms that could not be integrated in fixed point.
+     */
+    public long exactFallbacks() {
+        return exactFallbacks.get();
+    }
+
+    // null if result can't be proven exact
+    private static long[] integrateFixed(double[] inOrder, double total, int amountScale, boolean isMarketSell) {
+        int guard = GUARD_DIGITS;
+        while (guard > 0 && !(total * FixedPoint.pow10(amountScale + guard) < FixedPoint.MAX_EXACT)) {
+            guard--;
+        }
+
+        int fineScale = amountScale + guard;
+        long unit = (long) FixedPoint.pow10(guard);
+        long[] asLong = new long[inOrder.length];
+        long summ = 0;
+        long inexact = 0;
+        int last = inOrder.length - 1;
+        for (int i = 0; i < inOrder.length; ++i) {
+            int pos = isMarketSell ? i : last - i;
+            long part = FixedPoint.tryFixed(inOrder[pos], fineScale, RoundingMode.FLOOR);
+            if (FixedPoint.INEXACT == part) {
+                return null;
+            }
+
+            if (FixedPoint.toDouble(part, fineScale) != inOrder[pos]) {
+                inexact++;
+            }
+
+            summ = Math.addExact(summ, part);
+            long floored = Math.floorDiv(summ, unit);
+            if (floored != Math.floorDiv(summ + inexact - (0 == inexact ? 0 : 1), unit)) {
+                return null;
+            }
+
+            asLong[i] = floored;
+        }
+
+        return asLong;
+    }
+
+    private static long[] integrateExact(double[] inOrder, int amountScale, boolean isMarketSell) {
+        long[] asLong = new long[inOrder.length];
         BigDecimal summ = BigDecimal.ZERO;
-        int start = isMarketSell ? 0 : histogram.length - 1;
-        int end = isMarketSell ? histogram.length : 0;
+        int start = isMarketSell ? 0 : inOrder.length - 1;
+        int end = isMarketSell ? inOrder.length : 0;
         int iStep = isMarketSell ? 1 : -1;
 
         for (int i = start; isMarketSell ?  i < end : i >= 0; i += iStep) {
@@ -45,9 +114,7 @@ public class HistogramIntegrator {
             asLong[isMarketSell ? i : start - i] = RoundingUtil.longVal(summ, amountScale, RoundingMode.FLOOR);
         }
 
-        long minLong = RoundingUtil.longVal(BigDecimal.valueOf(min), priceScale, RoundingMode.FLOOR);
-        long maxLong = minLong + step * histogram.length;
-        return new IntegratedHistogram(step, minLong, maxLong, !isMarketSell, priceScale, asLong);
+        return asLong;
     }
 
     private static double minPrice(FullCrossMarketOpportunity.Histogram[] histogram) {
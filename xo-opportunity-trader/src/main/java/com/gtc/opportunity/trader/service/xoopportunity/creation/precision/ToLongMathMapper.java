@@ -35,24 +35,24 @@ public class ToLongMathMapper {
     }
 
     private static AsFixed fromAmount(double amount, XoTradeCondition condition) {
-        return new AsFixed(stepped(amount, condition.getStepFromAmountPow10(), RoundingMode.FLOOR));
+        return stepped(amount, condition.getStepFromAmountPow10(), RoundingMode.FLOOR);
     }
 
     private static AsFixed toAmount(double amount, XoTradeCondition condition) {
-        return new AsFixed(stepped(amount, condition.getStepToAmountPow10(), RoundingMode.FLOOR));
+        return stepped(amount, condition.getStepToAmountPow10(), RoundingMode.FLOOR);
     }
 
     private static AsFixed fromPrice(double price, XoTradeCondition condition) {
-        return new AsFixed(stepped(price, condition.getStepFromPricePow10(), RoundingMode.FLOOR));
+        return stepped(price, condition.getStepFromPricePow10(), RoundingMode.FLOOR);
     }
 
     private static AsFixed toPrice(double price, XoTradeCondition condition) {
-        return new AsFixed(stepped(price, condition.getStepToPricePow10(), RoundingMode.CEILING));
+        return stepped(price, condition.getStepToPricePow10(), RoundingMode.CEILING);
     }
 
-    private static BigDecimal stepped(double amount, BigDecimal pow10step, RoundingMode mode) {
+    private static AsFixed stepped(double amount, BigDecimal pow10step, RoundingMode mode) {
         int scale = pow10step.stripTrailingZeros().scale();
-        return BigDecimal.valueOf(amount).setScale(scale, mode);
+        return AsFixed.of(FixedPoint.fixed(amount, scale, mode), scale);
     }
 
     static BigDecimal fromAmount(long amount, XoTradeCondition condition) {
@@ -1,9 +1,11 @@
 package com.gtc.opportunity.trader.service.xoopportunity.creation.precision;
 
 import com.google.common.collect.ImmutableList;
-import com.google.common.util.concurrent.RateLimiter;
 import com.gtc.opportunity.trader.cqe.domain.FullCrossMarketOpportunity;
 import com.gtc.opportunity.trader.service.dto.PreciseXoAmountDto;
+import com.gtc.opportunity.trader.service.nnopportunity.solver.time.BurstyRateLimiter;
+import com.gtc.opportunity.trader.service.nnopportunity.solver.time.LocalTime;
+import com.gtc.opportunity.trader.service.xoopportunity.common.SolverPool;
 import com.gtc.opportunity.trader.service.xoopportunity.creation.fastexception.Reason;
 import com.gtc.opportunity.trader.service.xoopportunity.creation.fastexception.RejectionException;
 import com.gtc.opportunity.trader.service.xoopportunity.creation.precision.dto.AsFixed;
@@ -16,7 +18,6 @@ import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.optaplanner.core.api.domain.valuerange.CountableValueRange;
-import org.optaplanner.core.api.solver.Solver;
 import org.optaplanner.core.api.solver.SolverFactory;
 import org.optaplanner.core.impl.domain.valuerange.buildin.collection.ListValueRange;
 import org.optaplanner.core.impl.domain.valuerange.buildin.primlong.LongValueRange;
@@ -38,10 +39,12 @@ public class XoTransactionCalculator {
 
     private static final String SOLVER_CONFIG_LOCATION = "optaplan/config/xo/solver.xml";
 
-    private final Map<String, RateLimiter> limiters = new ConcurrentHashMap<>();
+    private final Map<String, BurstyRateLimiter> limiters = new ConcurrentHashMap<>();
 
     private final ToLongMathMapper mapper;
     private final HistogramIntegrator integrator;
+    private final SolverPool solverPool;
+    private final LocalTime localTime;
 
     /**
      * Inverting market condition in {@param condition} into client trades terms.
@@ -52,12 +55,16 @@ public class XoTransactionCalculator {
      * @return distributed transaction that will satisfy both.
      */
     public PreciseXoAmountDto calculate(XoTradeCondition condition) {
-        if (!limiters.computeIfAbsent(condition.getKey(), id -> RateLimiter.create(condition.getPermits()))
-                .tryAcquire()) {
+        BurstyRateLimiter limiter = limiters.computeIfAbsent(
+                condition.getKey(),
+                id -> new BurstyRateLimiter(condition.getPermits(), localTime)
+        );
+
+        if (!limiter.tryAcquire()) {
             throw new RejectionException(Reason.TOO_FREQUENT_SOLVE);
         }
 
-        XoTradeBalance bal = calculate(SOLVER_CONFIG_LOCATION, condition);
+        XoTradeBalance bal = solve(condition);
 
         if (!bal.getScore().isFeasible()) {
             log.info("Hard constraint not met {}", bal);
@@ -70,10 +77,20 @@ public class XoTransactionCalculator {
         return result;
     }
 
-    private XoTradeBalance calculate(String confPath, XoTradeCondition condition) {
+    private XoTradeBalance solve(XoTradeCondition condition) {
         log.info("Solving for {}", condition);
-        Solver<XoTradeBalance> solver = buildSolver(confPath, condition.getMaxSolveTimeMs());
+        XoTradeBalance problem = buildProblem(condition);
+        log.info("Solving for problem {}", problem);
+
+        return solverPool.solve(
+                SOLVER_CONFIG_LOCATION,
+                () -> SolverFactory.createFromXmlResource(SOLVER_CONFIG_LOCATION),
+                condition.getMaxSolveTimeMs(),
+                problem
+        );
+    }
 
+    XoTradeBalance buildProblem(XoTradeCondition condition) {
         XoClientTradeConditionAsLong fitted = mapper.map(condition);
         XoTradeBalance problem = new XoTradeBalance(
                 fitted,
@@ -89,9 +106,7 @@ public class XoTransactionCalculator {
         );
 
         problem.setScore(new XoBalanceScore().calculateScore(problem));
-        log.info("Solving for problem {}", problem);
-
-        return solver.solve(problem);
+        return problem;
     }
 
     private PreciseXoAmountDto mapToResult(XoTradeCondition condition, XoTradeBalance solved) {
@@ -126,23 +141,19 @@ public class XoTransactionCalculator {
     }
 
     private XoTrade initial(XoClientTradeConditionAsLong condition) {
-        double gain = condition.getMaxFromSellPrice().value().doubleValue() /
-                condition.getMinToBuyPrice().value().doubleValue();
-        BigDecimal minSellAmount = condition.getMinFromSellAmount().value();
-        BigDecimal maxSellAmount = condition.getMaxFromSellAmount().value();
-        BigDecimal minBuyAmount = condition.getMinToBuyAmount().value();
-        BigDecimal maxBuyAmount = condition.getMaxToBuyAmount().value();
+        double gain = condition.getMaxFromSellPrice().getApprox() / condition.getMinToBuyPrice().getApprox();
 
-        double sell = maxSellAmount.doubleValue();
-        double buy = maxBuyAmount.doubleValue();
+        double sell = condition.getMaxFromSellAmount().getApprox();
+        double buy = condition.getMaxToBuyAmount().getApprox();
 
         double sellAmount;
         double buyAmount;
 
-        if (0 == minSellAmount.compareTo(maxSellAmount)) {
+        // min and max amounts share scale
+        if (condition.getMinFromSellAmount().getVal() == condition.getMaxFromSellAmount().getVal()) {
             sellAmount = sell;
             buyAmount = sell * gain;
-        } else if (0 == minBuyAmount.compareTo(maxBuyAmount)) {
+        } else if (condition.getMinToBuyAmount().getVal() == condition.getMaxToBuyAmount().getVal()) {
             sellAmount = buy / gain;
             buyAmount = buy;
         } else {
@@ -163,27 +174,28 @@ public class XoTransactionCalculator {
 
     private IniAmounts initialSellBuyAmount(double amount, double gain, XoClientTradeConditionAsLong condition) {
         if (AsFixed.scaleGreater(condition.getMinToBuyAmount(), condition.getMinFromSellAmount())) {
-            double sellAmount = BigDecimal.valueOf(amount / gain)
-                    .subtract(condition.getMinFromSellAmount().scaleStep())
-                    .setScale(condition.getMinFromSellAmount().getScale(), RoundingMode.FLOOR).doubleValue();
+            double sellAmount = oneStepBelow(amount / gain, condition.getMinFromSellAmount());
             return new IniAmounts(
                     sellAmount,
-                    sellAmount * gain - condition.getMinToBuyAmount().scaleStep().doubleValue()
+                    sellAmount * gain - scaleStep(condition.getMinToBuyAmount())
             );
         }
 
-        double buyAmount = BigDecimal.valueOf(amount).subtract(condition.getMinToBuyAmount().scaleStep())
-                .setScale(condition.getMinToBuyAmount().getScale(), RoundingMode.FLOOR).doubleValue();
+        double buyAmount = oneStepBelow(amount, condition.getMinToBuyAmount());
         return new IniAmounts(
-                buyAmount / gain - condition.getMinToBuyAmount().scaleStep().doubleValue(),
+                buyAmount / gain - scaleStep(condition.getMinToBuyAmount()),
                 buyAmount
         );
     }
 
-    private Solver<XoTradeBalance> buildSolver(String configPath, int solveForMs) {
-        SolverFactory<XoTradeBalance> factory = SolverFactory.createFromXmlResource(configPath);
-        factory.getSolverConfig().getTerminationConfig().setMillisecondsSpentLimit((long) solveForMs);
-        return factory.buildSolver();
+    // (amount - step) floored to scale of step, floor(x - 1) = floor(x) - 1
+    private static double oneStepBelow(double amount, AsFixed scaleOf) {
+        return FixedPoint.toDouble(
+                FixedPoint.fixed(amount, scaleOf.getScale(), RoundingMode.FLOOR) - 1, scaleOf.getScale());
+    }
+
+    private static double scaleStep(AsFixed scaleOf) {
+        return FixedPoint.toDouble(1, scaleOf.getScale());
     }
 
     private static CountableValueRange<Long> range(long min, long max) {
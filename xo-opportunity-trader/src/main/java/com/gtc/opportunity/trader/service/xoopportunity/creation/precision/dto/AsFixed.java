@@ -1,5 +1,6 @@
 package com.gtc.opportunity.trader.service.xoopportunity.creation.precision.dto;
 
+import com.gtc.opportunity.trader.service.xoopportunity.creation.precision.FixedPoint;
 import lombok.Data;
 
 import java.math.BigDecimal;
@@ -33,6 +34,14 @@ public class AsFixed {
         this.negativeScale = negativeScale;
     }
 
+    /**
+     * Same as {@code new AsFixed(BigDecimal.valueOf(val, scale))}.
+     */
+    public static AsFixed of(long val, int scale) {
+        long scaleVal = (long) Math.pow(10, Math.abs(scale));
+        return new AsFixed(FixedPoint.toDouble(val, scale), val, (short) scale, scaleVal, scale < 0);
+    }
+
     public BigDecimal scale(long value) {
         return BigDecimal.valueOf(value).movePointLeft(scale);
     }
@@ -46,27 +55,39 @@ public class AsFixed {
     }
 
     public AsFixed valueOf(double amount, RoundingMode mode) {
-        return new AsFixed(BigDecimal.valueOf(amount).setScale(scale, mode));
+        return of(FixedPoint.fixed(amount, scale, mode), scale);
     }
 
     public AsFixed ceil(double amount) {
-        if (negativeScale) {
-            double div = Math.ceil(amount / scaleVal);
-            return new AsFixed(div * scaleVal, (long) div, scale, scaleVal, true);
-        }
-
-        double div = Math.ceil(amount * scaleVal);
-        return new AsFixed(div / scaleVal, (long) div, scale, scaleVal, false);
+        long div = ceilVal(amount);
+        return new AsFixed(approxOf(div), div, scale, scaleVal, negativeScale);
     }
 
     public AsFixed floor(double amount) {
-        if (negativeScale) {
-            double div = Math.floor(amount / scaleVal);
-            return new AsFixed(div * scaleVal, (long) div, scale, scaleVal, true);
-        }
+        long div = floorVal(amount);
+        return new AsFixed(approxOf(div), div, scale, scaleVal, negativeScale);
+    }
+
+    /**
+     * Same as {@code ceil(amount).getVal()} without allocating.
+     */
+    public long ceilVal(double amount) {
+        return (long) (negativeScale ? Math.ceil(amount / scaleVal) : Math.ceil(amount * scaleVal));
+    }
+
+    /**
+     * Same as {@code floor(amount).getVal()} without allocating.
+     */
+    public long floorVal(double amount) {
+        return (long) (negativeScale ? Math.floor(amount / scaleVal) : Math.floor(amount * scaleVal));
+    }
 
-        double div = Math.floor(amount * scaleVal);
-        return new AsFixed(div / scaleVal, (long) div, scale, scaleVal, false);
+    /**
+     * Approximate value of {@code val} having this scale, same as {@code ceil(amount).getApprox()}
+     * for {@code val = ceilVal(amount)}.
+     */
+    public double approxOf(long val) {
+        return negativeScale ? (double) val * scaleVal : (double) val / scaleVal;
     }
 
     public static boolean scaleGreater(AsFixed one, AsFixed two) {
@@ -0,0 +1,181 @@
+package com.gtc.opportunity.trader.service.xoopportunity.creation.precision.optaplan;
+
+import com.gtc.opportunity.trader.service.xoopportunity.creation.precision.dto.XoClientTradeConditionAsLong;
+import org.optaplanner.core.api.score.buildin.hardsoftlong.HardSoftLongScore;
+import org.optaplanner.core.impl.score.director.incremental.IncrementalScoreCalculator;
+
+import static com.gtc.opportunity.trader.service.xoopportunity.creation.precision.optaplan.XoBalanceScore.calculateHasProfit;
+import static com.gtc.opportunity.trader.service.xoopportunity.creation.precision.optaplan.XoBalanceScore.calculateNoLoss;
+import static com.gtc.opportunity.trader.service.xoopportunity.creation.precision.optaplan.XoBalanceScore.calculateProfit;
+import static com.gtc.opportunity.trader.service.xoopportunity.creation.precision.optaplan.XoBalanceScore.hasCorrectMaxSellPrice;
+import static com.gtc.opportunity.trader.service.xoopportunity.creation.precision.optaplan.XoBalanceScore.hasCorrectMinBuyPrice;
+import static com.gtc.opportunity.trader.service.xoopportunity.creation.precision.optaplan.XoBalanceScore.histogramHasAmount;
+
+/**
+ * Same score as {@link XoBalanceScore}, but each term is kept and recomputed only when variable it depends on
+ * has changed - histogram lookup is done only when price changes, coefficients are built once per
+ * working solution instead of being looked up by (deep-hashed) constraint on each move.
+ * Solver is selecting it with {@code incrementalScoreCalculatorClass} in solver.xml.
+ */
+public class XoBalanceIncrementalScore implements IncrementalScoreCalculator<XoTradeBalance> {
+
+    private static final String SELL_AMOUNT = "sellAmountFrom";
+    private static final String BUY_AMOUNT = "buyAmountTo";
+    private static final String SELL_PRICE = "sellPriceFrom";
+    private static final String BUY_PRICE = "buyPriceTo";
+
+    private XoClientTradeConditionAsLong constraint;
+    private XoBalanceScore.Coeffs coef;
+    private long maxSellPrice;
+    private long minBuyPrice;
+
+    private long sellAmount;
+    private long buyAmount;
+    private long sellPrice;
+    private long buyPrice;
+
+    private long profit;
+    private long noLoss;
+    private long hasSellAmount;
+    private long hasBuyAmount;
+    private long hasMaxSellPrice;
+    private long hasMinBuyPrice;
+
+    @Override
+    public void resetWorkingSolution(XoTradeBalance bal) {
+        // problem facts are not cloned, so same condition means same coefficients
+        if (bal.getConstraint() != constraint) {
+            constraint = bal.getConstraint();
+            coef = new XoBalanceScore.Coeffs(
+                    constraint,
+                    constraint.getMarketBuyFrom(),
+                    constraint.getMarketSellTo(),
+                    bal.getIntegrator()
+            );
+            maxSellPrice = constraint.getMaxFromSellPrice().getVal();
+            minBuyPrice = constraint.getMinToBuyPrice().getVal();
+        }
+
+        reset(bal.getTrade());
+    }
+
+    @Override
+    public void beforeEntityAdded(Object entity) {
+        // NOP
+    }
+
+    @Override
+    public void afterEntityAdded(Object entity) {
+        reset((XoTrade) entity);
+    }
+
+    @Override
+    public void beforeVariableChanged(Object entity, String variableName) {
+        // NOP
+    }
+
+    @Override
+    public void afterVariableChanged(Object entity, String variableName) {
+        XoTrade trade = (XoTrade) entity;
+        switch (variableName) {
+            case SELL_AMOUNT:
+                updateSellAmount(trade.getSellAmountFrom());
+                return;
+            case BUY_AMOUNT:
+                updateBuyAmount(trade.getBuyAmountTo());
+                return;
+            case SELL_PRICE:
+                updateSellPrice(trade.getSellPriceFrom());
+                return;
+            case BUY_PRICE:
+                updateBuyPrice(trade.getBuyPriceTo());
+                return;
+            default:
+                throw new IllegalArgumentException("Unknown variable " + variableName);
+        }
+    }
+
+    @Override
+    public void beforeEntityRemoved(Object entity) {
+        // NOP
+    }
+
+    @Override
+    public void afterEntityRemoved(Object entity) {
+        // NOP
+    }
+
+    @Override
+    public HardSoftLongScore calculateScore() {
+        return HardSoftLongScore.valueOf(
+                noLoss + calculateHasProfit(profit) + hasSellAmount + hasBuyAmount + hasMaxSellPrice + hasMinBuyPrice,
+                profit
+        );
+    }
+
+    private void reset(XoTrade trade) {
+        sellAmount = trade.getSellAmountFrom();
+        buyAmount = trade.getBuyAmountTo();
+        sellPrice = trade.getSellPriceFrom();
+        buyPrice = trade.getBuyPriceTo();
+
+        profit = calculateProfit(sellAmount, buyAmount, coef);
+        noLoss = calculateNoLoss(sellAmount, sellPrice, buyAmount, buyPrice, coef);
+        hasSellAmount = sellAvailable();
+        hasBuyAmount = buyAvailable();
+        hasMaxSellPrice = hasCorrectMaxSellPrice(sellPrice, maxSellPrice);
+        hasMinBuyPrice = hasCorrectMinBuyPrice(buyPrice, minBuyPrice);
+    }
+
+    private void updateSellAmount(long value) {
+        if (value == sellAmount) {
+            return;
+        }
+
+        sellAmount = value;
+        profit = calculateProfit(sellAmount, buyAmount, coef);
+        noLoss = calculateNoLoss(sellAmount, sellPrice, buyAmount, buyPrice, coef);
+        hasSellAmount = sellAvailable();
+    }
+
+    private void updateBuyAmount(long value) {
+        if (value == buyAmount) {
+            return;
+        }
+
+        buyAmount = value;
+        profit = calculateProfit(sellAmount, buyAmount, coef);
+        noLoss = calculateNoLoss(sellAmount, sellPrice, buyAmount, buyPrice, coef);
+        hasBuyAmount = buyAvailable();
+    }
+
+    private void updateSellPrice(long value) {
+        if (value == sellPrice) {
+            return;
+        }
+
+        sellPrice = value;
+        noLoss = calculateNoLoss(sellAmount, sellPrice, buyAmount, buyPrice, coef);
+        hasSellAmount = sellAvailable();
+        hasMaxSellPrice = hasCorrectMaxSellPrice(sellPrice, maxSellPrice);
+    }
+
+    private void updateBuyPrice(long value) {
+        if (value == buyPrice) {
+            return;
+        }
+
+        buyPrice = value;
+        noLoss = calculateNoLoss(sellAmount, sellPrice, buyAmount, buyPrice, coef);
+        hasBuyAmount = buyAvailable();
+        hasMinBuyPrice = hasCorrectMinBuyPrice(buyPrice, minBuyPrice);
+    }
+
+    private long sellAvailable() {
+        return histogramHasAmount(sellPrice, sellAmount * coef.getAmountSafetyFromCoef(), coef.getSellFrom());
+    }
+
+    private long buyAvailable() {
+        return histogramHasAmount(buyPrice, buyAmount * coef.getAmountSafetyToCoef(), coef.getBuyTo());
+    }
+}
@@ -45,21 +45,23 @@ public class XoBalanceScore implements EasyScoreCalculator<XoTradeBalance> {
                         bal.getIntegrator())
         );
 
-        long profit = calculateProfit(bal, coef);
-        long noLoss = calculateNoLoss(bal, coef);
+        XoTrade trade = bal.getTrade();
+        long profit = calculateProfit(trade.getSellAmountFrom(), trade.getBuyAmountTo(), coef);
+        long noLoss = calculateNoLoss(
+                trade.getSellAmountFrom(), trade.getSellPriceFrom(), trade.getBuyAmountTo(), trade.getBuyPriceTo(), coef);
         long profitPositive = calculateHasProfit(profit);
         long hasSellAmount = histogramHasAmount(
-                bal.getTrade().getSellPriceFrom(), bal.getTrade().getSellAmountFrom() * coef.getAmountSafetyFromCoef(),
+                trade.getSellPriceFrom(), trade.getSellAmountFrom() * coef.getAmountSafetyFromCoef(),
                 coef.getSellFrom());
         long hasBuyAmount = histogramHasAmount(
-                bal.getTrade().getBuyPriceTo(), bal.getTrade().getBuyAmountTo() * coef.getAmountSafetyToCoef(),
+                trade.getBuyPriceTo(), trade.getBuyAmountTo() * coef.getAmountSafetyToCoef(),
                 coef.getBuyTo());
         long hasMaxSellPrice = hasCorrectMaxSellPrice(
-                bal.getTrade().getSellPriceFrom(),
+                trade.getSellPriceFrom(),
                 bal.getConstraint().getMaxFromSellPrice().getVal()
         );
         long hasMinBuyPrice = hasCorrectMinBuyPrice(
-                bal.getTrade().getBuyPriceTo(),
+                trade.getBuyPriceTo(),
                 bal.getConstraint().getMinToBuyPrice().getVal()
         );
 
@@ -69,29 +71,29 @@ public class XoBalanceScore implements EasyScoreCalculator<XoTradeBalance> {
         );
     }
 
-    private long calculateNoLoss(XoTradeBalance bal, Coeffs coef) {
-        long loss = bal.getTrade().getSellAmountFrom() * bal.getTrade().getSellPriceFrom() * coef.getLossFromEq2()
-                - bal.getTrade().getBuyAmountTo() * bal.getTrade().getBuyPriceTo() * coef.getScaleCoefEq2();
+    // score terms are shared with XoBalanceIncrementalScore
+
+    static long calculateNoLoss(long sellAmount, long sellPrice, long buyAmount, long buyPrice, Coeffs coef) {
+        long loss = sellAmount * sellPrice * coef.getLossFromEq2() - buyAmount * buyPrice * coef.getScaleCoefEq2();
 
         return loss > 0 ? 0 : loss;
     }
 
-    private long calculateHasProfit(long profit) {
+    static long calculateHasProfit(long profit) {
         return profit > 0 ? 0 : profit;
     }
 
-    private long calculateProfit(XoTradeBalance bal, Coeffs coef) {
-        return bal.getTrade().getBuyAmountTo() * coef.getLossToEq1()
-                - bal.getTrade().getSellAmountFrom() * coef.getProfitCoefEq1();
+    static long calculateProfit(long sellAmount, long buyAmount, Coeffs coef) {
+        return buyAmount * coef.getLossToEq1() - sellAmount * coef.getProfitCoefEq1();
     }
 
-    private long histogramHasAmount(long price, long amount, IntegratedHistogram histogram) {
+    static long histogramHasAmount(long price, long amount, IntegratedHistogram histogram) {
         long avail = histogram.amount(price);
         long missing = avail - amount;
         return missing > 0 ? 0 : missing;
     }
 
-    private long hasCorrectMaxSellPrice(long sellPrice, long maxPrice) {
+    static long hasCorrectMaxSellPrice(long sellPrice, long maxPrice) {
         if (sellPrice <= maxPrice) {
             return 0;
         }
@@ -100,7 +102,7 @@ public class XoBalanceScore implements EasyScoreCalculator<XoTradeBalance> {
         return delta > MIN_VAL ? delta : MIN_VAL;
     }
 
-    private long hasCorrectMinBuyPrice(long buyPrice, long minPrice) {
+    static long hasCorrectMinBuyPrice(long buyPrice, long minPrice) {
         if (buyPrice >= minPrice) {
             return 0;
         }
@@ -110,7 +112,7 @@ public class XoBalanceScore implements EasyScoreCalculator<XoTradeBalance> {
     }
 
     @Getter
-    private static class Coeffs {
+    static class Coeffs {
 
         private final long lossToEq1;
         private final long profitCoefEq1; // scaled (1 + profit)
@@ -3,17 +3,20 @@ package com.gtc.opportunity.trader.service.xoopportunity.creation.precision.opta
 import com.google.common.collect.ImmutableList;
 import com.gtc.opportunity.trader.cqe.domain.FullCrossMarketOpportunity;
 import com.gtc.opportunity.trader.service.xoopportunity.creation.precision.dto.AsFixed;
+import com.gtc.opportunity.trader.service.xoopportunity.creation.precision.dto.XoClientTradeConditionAsLong;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.optaplanner.core.impl.heuristic.move.AbstractMove;
 import org.optaplanner.core.impl.heuristic.move.Move;
 import org.optaplanner.core.impl.heuristic.selector.move.factory.MoveIteratorFactory;
 import org.optaplanner.core.impl.score.director.ScoreDirector;
 
-import java.util.*;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Random;
 
 /**
  * Generates moves along 'ideal' double solution.
@@ -27,10 +30,17 @@ import java.util.concurrent.LinkedBlockingQueue;
  *  2. Approx. buyToAmount from soft +/- round with noise
  *  3. Random sellFromPrice -> round it
  *  4. Approx. buyToPrice from hard +/- round with noise
+ *
+ * Moves are drawn directly from solver working random (in same order streams over it did) into fixed size pack.
+ * Moves are immutable because forager keeps accepted moves until step ends, each undo move is created on its own
+ * (it is kept by step scope and can be read by undo-move based acceptors).
  */
 @Slf4j
 public class XoMoveIteratorFactory implements MoveIteratorFactory<XoTradeBalance> {
 
+    // iterator is created on each step, bounds do not change during solve
+    private Bounds bounds;
+
     @Override
     public long getSize(ScoreDirector<XoTradeBalance> scoreDirector) {
         return Integer.MAX_VALUE - 1L;
@@ -45,66 +55,87 @@ public class XoMoveIteratorFactory implements MoveIteratorFactory<XoTradeBalance
     public Iterator<? extends Move<XoTradeBalance>> createRandomMoveIterator(
             ScoreDirector<XoTradeBalance> scoreDirector,
             Random workingRandom) {
-        return new RandomIterator(scoreDirector.getWorkingSolution(), workingRandom);
+        XoTradeBalance solution = scoreDirector.getWorkingSolution();
+        if (null == bounds || bounds.constraint != solution.getConstraint()) {
+            bounds = new Bounds(solution.getConstraint());
+        }
+
+        return new RandomIterator(solution.getTrade(), bounds, workingRandom);
     }
 
-    private static class RandomIterator implements Iterator<Move<XoTradeBalance>> {
+    private static class Bounds {
 
-        private static final int STEP_RANGE = 100;
         private static final double DOUBLE_EPS = 1e-12;
 
-        private static final int DISTORT_RANGE = 10;
-        private static final int N_DISTORT = 10;
+        private final XoClientTradeConditionAsLong constraint;
+        private final boolean sellDriven;
+
+        private final double sellFromAmountMin;
+        private final double sellFromAmountMax;
+        private final double sellFromPriceMin;
+        private final double sellFromPriceMax;
+        private final double buyToAmountMin;
+        private final double buyToAmountMax;
+        private final double buyToPriceMin;
+        private final double buyToPriceMax;
 
-        private final XoTradeBalance solution;
-        private final Iterator<Double> sellFromAmountRandom;
-        private final Iterator<Double> sellFromPriceRandom;
-        private final Iterator<Double> buyToAmountRandom;
-        private final Iterator<Double> buyToPriceRandom;
-        private final Iterator<Integer> dice;
-        private final Iterator<Integer> distort;
         private final double profitCoef;
         private final double lossFrom;
         private final double lossTo;
 
-        private final Queue<XoMove> moves = new LinkedBlockingQueue<>();
+        Bounds(XoClientTradeConditionAsLong constraint) {
+            this.constraint = constraint;
+            sellDriven = AsFixed.scaleGreater(constraint.getMinFromSellAmount(), constraint.getMinToBuyAmount());
+
+            double sellAmountFrom = constraint.getMinFromSellAmount().getApprox() - DOUBLE_EPS;
+            double sellAmountTo = constraint.getMaxFromSellAmount().getApprox();
+            sellFromAmountMin = Math.min(sellAmountFrom, sellAmountTo);
+            sellFromAmountMax = Math.max(sellAmountFrom, sellAmountTo);
+
+            double sellPriceFrom = Arrays.stream(constraint.getMarketBuyFrom())
+                    .mapToDouble(FullCrossMarketOpportunity.Histogram::getMinPrice)
+                    .min().orElse(0.0) - DOUBLE_EPS;
+            double sellPriceTo = constraint.getMaxFromSellPrice().getApprox();
+            sellFromPriceMin = Math.min(sellPriceFrom, sellPriceTo);
+            sellFromPriceMax = Math.max(sellPriceFrom, sellPriceTo);
+
+            double buyAmountFrom = constraint.getMinToBuyAmount().getApprox() - DOUBLE_EPS;
+            double buyAmountTo = constraint.getMaxToBuyAmount().getApprox();
+            buyToAmountMin = Math.min(buyAmountFrom, buyAmountTo);
+            buyToAmountMax = Math.max(buyAmountFrom, buyAmountTo);
+
+            double buyPriceFrom = constraint.getMinToBuyPrice().getApprox() - DOUBLE_EPS;
+            double buyPriceTo = Arrays.stream(constraint.getMarketSellTo())
+                    .mapToDouble(FullCrossMarketOpportunity.Histogram::getMaxPrice)
+                    .max().orElse(0.0);
+            buyToPriceMin = Math.min(buyPriceFrom, buyPriceTo);
+            buyToPriceMax = Math.max(buyPriceFrom, buyPriceTo);
+
+            profitCoef = constraint.getMinProfitCoef().getApprox();
+            lossFrom = constraint.getLossFromCoef().getApprox();
+            lossTo = constraint.getLossToCoef().getApprox();
+        }
+    }
 
-        RandomIterator(XoTradeBalance solution, Random workingRandom) {
-            this.solution = solution;
-            sellFromAmountRandom = buildStream(
-                    workingRandom,
-                    solution.getConstraint().getMinFromSellAmount().getApprox() - DOUBLE_EPS,
-                    solution.getConstraint().getMaxFromSellAmount().getApprox()
-            );
+    private static class RandomIterator implements Iterator<Move<XoTradeBalance>> {
 
-            sellFromPriceRandom = buildStream(
-                    workingRandom,
-                    Arrays.stream(solution.getConstraint().getMarketBuyFrom())
-                            .mapToDouble(FullCrossMarketOpportunity.Histogram::getMinPrice)
-                            .min().orElse(0.0) - DOUBLE_EPS,
-                    solution.getConstraint().getMaxFromSellPrice().getApprox()
-            );
+        private static final int STEP_RANGE = 100;
 
-            buyToAmountRandom = buildStream(
-                    workingRandom,
-                    solution.getConstraint().getMinToBuyAmount().getApprox()- DOUBLE_EPS,
-                    solution.getConstraint().getMaxToBuyAmount().getApprox()
-            );
+        private static final int DISTORT_RANGE = 10;
+        private static final int N_DISTORT = 10;
 
-            buyToPriceRandom = buildStream(
-                    workingRandom,
-                    solution.getConstraint().getMinToBuyPrice().getApprox() - DOUBLE_EPS,
-                    Arrays.stream(solution.getConstraint().getMarketSellTo())
-                            .mapToDouble(FullCrossMarketOpportunity.Histogram::getMaxPrice)
-                            .max().orElse(0.0)
-            );
+        private final XoTrade trade;
+        private final Bounds bounds;
+        private final Random random;
 
-            dice = workingRandom.ints(-STEP_RANGE, STEP_RANGE).iterator();
-            distort = workingRandom.ints(-DISTORT_RANGE, DISTORT_RANGE).iterator();
+        private final XoMove[] pack = new XoMove[1 + N_DISTORT];
+        private int packSize;
+        private int packPos;
 
-            profitCoef = solution.getConstraint().getMinProfitCoef().getApprox();
-            lossFrom = solution.getConstraint().getLossFromCoef().getApprox();
-            lossTo = solution.getConstraint().getLossToCoef().getApprox();
+        RandomIterator(XoTrade trade, Bounds bounds, Random random) {
+            this.trade = trade;
+            this.bounds = bounds;
+            this.random = random;
         }
 
         @Override
@@ -114,125 +145,163 @@ public class XoMoveIteratorFactory implements MoveIteratorFactory<XoTradeBalance
 
         @Override
         public Move<XoTradeBalance> next() {
-            if (moves.isEmpty()) {
-                moves.addAll(buildPack());
+            if (packPos == packSize) {
+                buildPack();
             }
 
-            return moves.poll();
+            return pack[packPos++];
         }
 
-        private static Iterator<Double> buildStream(Random workingRandom, double min, double max) {
-            return workingRandom.doubles(Math.min(min, max), Math.max(min, max)).iterator();
-        }
-
-        private List<XoMove> buildPack() {
-            XoMove ini = AsFixed.scaleGreater(
-                    solution.getConstraint().getMinFromSellAmount(),
-                    solution.getConstraint().getMinToBuyAmount()
-            ) ?  buildMoveSellDriven() : buildMoveBuyDriven();
-
-            Set<XoMove> pack = new HashSet<>();
-            pack.add(ini);
+        private void buildPack() {
+            XoMove ini = bounds.sellDriven ? buildMoveSellDriven() : buildMoveBuyDriven();
+            packPos = 0;
+            packSize = 0;
+            pack[packSize++] = ini;
 
             for (int i = 0; i < N_DISTORT; i++) {
-                XoMove distorted = new XoMove(
-                        ini.getEntity(),
-                        ini.getSellAmountFrom() + distort.next(),
-                        ini.getBuyAmountTo() + distort.next(),
-                        ini.getSellPriceFrom() + distort.next(),
-                        ini.getBuyPriceTo() + distort.next()
-                );
-
-                if (distorted.isDoable()) {
-                    pack.add(distorted);
+                long sellAmountFrom = ini.getSellAmountFrom() + distort();
+                long buyAmountTo = ini.getBuyAmountTo() + distort();
+                long sellPriceFrom = ini.getSellPriceFrom() + distort();
+                long buyPriceTo = ini.getBuyPriceTo() + distort();
+
+                if (isDoable(sellAmountFrom, buyAmountTo, sellPriceFrom, buyPriceTo)
+                        && !inPack(sellAmountFrom, buyAmountTo, sellPriceFrom, buyPriceTo)) {
+                    pack[packSize++] = new XoMove(trade, sellAmountFrom, buyAmountTo, sellPriceFrom, buyPriceTo);
+                }
+            }
+        }
+
+        private boolean inPack(long sellAmountFrom, long buyAmountTo, long sellPriceFrom, long buyPriceTo) {
+            for (int i = 0; i < packSize; ++i) {
+                if (pack[i].sameValues(sellAmountFrom, buyAmountTo, sellPriceFrom, buyPriceTo)) {
+                    return true;
                 }
             }
 
-            return new ArrayList<>(pack);
+            return false;
         }
 
         private XoMove buildMoveSellDriven() {
-            AsFixed sellFromAmount = randomRound(
-                    sellFromAmountRandom.next(),
-                    solution.getConstraint().getMinFromSellAmount()
+            XoClientTradeConditionAsLong constraint = bounds.constraint;
+            long sellFromAmount = randomRound(
+                    uniform(bounds.sellFromAmountMin, bounds.sellFromAmountMax),
+                    constraint.getMinFromSellAmount()
             );
+            double sellFromAmountApprox = constraint.getMinFromSellAmount().approxOf(sellFromAmount);
 
-            AsFixed buyToAmount = solution.getConstraint().getMinToBuyAmount().ceil(
-                    sellFromAmount.getApprox() * profitCoef / lossTo
+            long buyToAmount = constraint.getMinToBuyAmount().ceilVal(
+                    sellFromAmountApprox * bounds.profitCoef / bounds.lossTo
             );
 
-            AsFixed sellFromPrice = randomRound(
-                    sellFromPriceRandom.next(),
-                    solution.getConstraint().getMaxFromSellPrice()
+            long sellFromPrice = randomRound(
+                    uniform(bounds.sellFromPriceMin, bounds.sellFromPriceMax),
+                    constraint.getMaxFromSellPrice()
             );
 
-            AsFixed buyToPrice = solution.getConstraint().getMinToBuyPrice().floor(
-                    sellFromAmount.getApprox() * sellFromPrice.getApprox() * lossFrom / buyToAmount.getApprox()
+            long buyToPrice = constraint.getMinToBuyPrice().floorVal(
+                    sellFromAmountApprox * constraint.getMaxFromSellPrice().approxOf(sellFromPrice) * bounds.lossFrom
+                            / constraint.getMinToBuyAmount().approxOf(buyToAmount)
             );
 
-            return new XoMove(
-                    solution.getTrade(),
-                    sellFromAmount.getVal(),
-                    buyToAmount.getVal(),
-                    sellFromPrice.getVal(),
-                    buyToPrice.getVal()
-            );
+            return new XoMove(trade, sellFromAmount, buyToAmount, sellFromPrice, buyToPrice);
         }
 
         private XoMove buildMoveBuyDriven() {
-            AsFixed buyToAmount = randomRound(
-                    buyToAmountRandom.next(),
-                    solution.getConstraint().getMinToBuyAmount()
+            XoClientTradeConditionAsLong constraint = bounds.constraint;
+            long buyToAmount = randomRound(
+                    uniform(bounds.buyToAmountMin, bounds.buyToAmountMax),
+                    constraint.getMinToBuyAmount()
             );
+            double buyToAmountApprox = constraint.getMinToBuyAmount().approxOf(buyToAmount);
 
-            AsFixed sellFromAmount = solution.getConstraint().getMinFromSellAmount().floor(
-                    buyToAmount.getApprox() / profitCoef * lossTo
+            long sellFromAmount = constraint.getMinFromSellAmount().floorVal(
+                    buyToAmountApprox / bounds.profitCoef * bounds.lossTo
             );
 
-            AsFixed buyToPrice = randomRound(
-                    buyToPriceRandom.next(),
-                    solution.getConstraint().getMinToBuyPrice()
+            long buyToPrice = randomRound(
+                    uniform(bounds.buyToPriceMin, bounds.buyToPriceMax),
+                    constraint.getMinToBuyPrice()
             );
 
-            AsFixed sellFromPrice = solution.getConstraint().getMaxFromSellPrice().ceil(
-                    buyToPrice.getApprox() / (sellFromAmount.getApprox() * lossFrom / buyToAmount.getApprox())
+            long sellFromPrice = constraint.getMaxFromSellPrice().ceilVal(
+                    constraint.getMinToBuyPrice().approxOf(buyToPrice)
+                            / (constraint.getMinFromSellAmount().approxOf(sellFromAmount) * bounds.lossFrom
+                            / buyToAmountApprox)
             );
 
-            return new XoMove(
-                    solution.getTrade(),
-                    sellFromAmount.getVal(),
-                    buyToAmount.getVal(),
-                    sellFromPrice.getVal(),
-                    buyToPrice.getVal()
-            );
+            return new XoMove(trade, sellFromAmount, buyToAmount, sellFromPrice, buyToPrice);
         }
 
-        AsFixed randomRound(double value, AsFixed orig) {
-            AsFixed jumped = withJump(value, orig);
+        private long randomRound(double value, AsFixed orig) {
+            long jumped = withJump(value, orig);
 
-            if (0 == jumped.getVal()) {
-                return orig.ceil(value);
+            if (0 == jumped) {
+                return orig.ceilVal(value);
             }
 
             return jumped;
         }
 
-        AsFixed withJump(double value, AsFixed orig) {
-            if (dice.next() <= 0) {
-                return orig.ceil(value);
+        private long withJump(double value, AsFixed orig) {
+            if (dice() <= 0) {
+                return orig.ceilVal(value);
             }
 
-            AsFixed pre = orig.floor(value);
-            if (0 == pre.getVal()) {
-                return orig.ceil(value);
+            long pre = orig.floorVal(value);
+            if (0 == pre) {
+                return orig.ceilVal(value);
             }
 
             return pre;
         }
+
+        // same as Random.doubles(min, max) element
+        private double uniform(double min, double max) {
+            double value = random.nextDouble();
+            if (min < max) {
+                value = value * (max - min) + min;
+                if (value >= max) {
+                    value = Math.nextDown(max);
+                }
+            }
+
+            return value;
+        }
+
+        // same as Random.ints(-STEP_RANGE, STEP_RANGE) element
+        private int dice() {
+            return random.nextInt(2 * STEP_RANGE) - STEP_RANGE;
+        }
+
+        private int distort() {
+            return random.nextInt(2 * DISTORT_RANGE) - DISTORT_RANGE;
+        }
+    }
+
+    private static boolean isDoable(long sellAmountFrom, long buyAmountTo, long sellPriceFrom, long buyPriceTo) {
+        return sellAmountFrom > 0 && buyAmountTo > 0 && sellPriceFrom > 0 && buyPriceTo > 0;
+    }
+
+    private static void apply(ScoreDirector<XoTradeBalance> scoreDirector, XoTrade entity, long sellAmountFrom,
+                              long buyAmountTo, long sellPriceFrom, long buyPriceTo) {
+        scoreDirector.beforeVariableChanged(entity, "sellAmountFrom");
+        entity.setSellAmountFrom(sellAmountFrom);
+        scoreDirector.afterVariableChanged(entity, "sellAmountFrom");
+
+        scoreDirector.beforeVariableChanged(entity, "buyAmountTo");
+        entity.setBuyAmountTo(buyAmountTo);
+        scoreDirector.afterVariableChanged(entity, "buyAmountTo");
+
+        scoreDirector.beforeVariableChanged(entity, "sellPriceFrom");
+        entity.setSellPriceFrom(sellPriceFrom);
+        scoreDirector.afterVariableChanged(entity, "sellPriceFrom");
+
+        scoreDirector.beforeVariableChanged(entity, "buyPriceTo");
+        entity.setBuyPriceTo(buyPriceTo);
+        scoreDirector.afterVariableChanged(entity, "buyPriceTo");
     }
 
     @Getter
-    @RequiredArgsConstructor
     @EqualsAndHashCode(callSuper = false)
     public static class XoMove extends AbstractMove<XoTradeBalance> {
 
@@ -242,38 +311,93 @@ public class XoMoveIteratorFactory implements MoveIteratorFactory<XoTradeBalance
         private final long sellPriceFrom;
         private final long buyPriceTo;
 
+        public XoMove(XoTrade entity, long sellAmountFrom, long buyAmountTo, long sellPriceFrom, long buyPriceTo) {
+            this.entity = entity;
+            this.sellAmountFrom = sellAmountFrom;
+            this.buyAmountTo = buyAmountTo;
+            this.sellPriceFrom = sellPriceFrom;
+            this.buyPriceTo = buyPriceTo;
+        }
+
         @Override
         protected AbstractMove<XoTradeBalance> createUndoMove(ScoreDirector<XoTradeBalance> scoreDirector) {
-            return new XoMove(entity, entity.getSellAmountFrom(), entity.getBuyAmountTo(),
-                    entity.getSellPriceFrom(), entity.getBuyPriceTo());
+            return XoUndoMove.capture(entity);
         }
 
         @Override
         protected void doMoveOnGenuineVariables(ScoreDirector<XoTradeBalance> scoreDirector) {
-            scoreDirector.beforeVariableChanged(entity, "sellAmountFrom");
-            entity.setSellAmountFrom(sellAmountFrom);
-            scoreDirector.afterVariableChanged(entity, "sellAmountFrom");
+            apply(scoreDirector, entity, sellAmountFrom, buyAmountTo, sellPriceFrom, buyPriceTo);
+        }
 
-            scoreDirector.beforeVariableChanged(entity, "buyAmountTo");
-            entity.setBuyAmountTo(buyAmountTo);
-            scoreDirector.afterVariableChanged(entity, "buyAmountTo");
+        boolean isDoable() {
+            return XoMoveIteratorFactory.isDoable(sellAmountFrom, buyAmountTo, sellPriceFrom, buyPriceTo);
+        }
 
-            scoreDirector.beforeVariableChanged(entity, "sellPriceFrom");
-            entity.setSellPriceFrom(sellPriceFrom);
-            scoreDirector.afterVariableChanged(entity, "sellPriceFrom");
+        boolean sameValues(long sellAmountFrom, long buyAmountTo, long sellPriceFrom, long buyPriceTo) {
+            return this.sellAmountFrom == sellAmountFrom && this.buyAmountTo == buyAmountTo
+                    && this.sellPriceFrom == sellPriceFrom && this.buyPriceTo == buyPriceTo;
+        }
 
-            scoreDirector.beforeVariableChanged(entity, "buyPriceTo");
-            entity.setBuyPriceTo(buyPriceTo);
-            scoreDirector.afterVariableChanged(entity, "buyPriceTo");
+        @Override
+        public boolean isMoveDoable(ScoreDirector<XoTradeBalance> scoreDirector) {
+            return isDoable();
         }
 
-        boolean isDoable() {
-            return sellAmountFrom > 0 && buyAmountTo > 0 && sellPriceFrom > 0 && buyPriceTo > 0;
+        @Override
+        public Collection<?> getPlanningEntities() {
+            return Collections.singleton(entity);
+        }
+
+        @Override
+        public Collection<?> getPlanningValues() {
+            return ImmutableList.of(sellAmountFrom, buyAmountTo, sellPriceFrom, buyPriceTo);
+        }
+    }
+
+    /**
+     * Restores entity values captured before move.
+     */
+    @Getter
+    public static class XoUndoMove extends AbstractMove<XoTradeBalance> {
+
+        private final XoTrade entity;
+        private final long sellAmountFrom;
+        private final long buyAmountTo;
+        private final long sellPriceFrom;
+        private final long buyPriceTo;
+
+        private XoUndoMove(XoTrade entity, long sellAmountFrom, long buyAmountTo, long sellPriceFrom,
+                           long buyPriceTo) {
+            this.entity = entity;
+            this.sellAmountFrom = sellAmountFrom;
+            this.buyAmountTo = buyAmountTo;
+            this.sellPriceFrom = sellPriceFrom;
+            this.buyPriceTo = buyPriceTo;
+        }
+
+        static XoUndoMove capture(XoTrade entity) {
+            return new XoUndoMove(
+                    entity,
+                    entity.getSellAmountFrom(),
+                    entity.getBuyAmountTo(),
+                    entity.getSellPriceFrom(),
+                    entity.getBuyPriceTo()
+            );
+        }
+
+        @Override
+        protected AbstractMove<XoTradeBalance> createUndoMove(ScoreDirector<XoTradeBalance> scoreDirector) {
+            return capture(entity);
+        }
+
+        @Override
+        protected void doMoveOnGenuineVariables(ScoreDirector<XoTradeBalance> scoreDirector) {
+            apply(scoreDirector, entity, sellAmountFrom, buyAmountTo, sellPriceFrom, buyPriceTo);
         }
 
         @Override
         public boolean isMoveDoable(ScoreDirector<XoTradeBalance> scoreDirector) {
-            return isDoable();
+            return true;
         }
 
         @Override
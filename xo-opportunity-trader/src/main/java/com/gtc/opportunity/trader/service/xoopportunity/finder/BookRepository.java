@@ -1,14 +1,5 @@
 package com.gtc.opportunity.trader.service.xoopportunity.finder;
 
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
-import com.googlecode.cqengine.IndexedCollection;
-import com.googlecode.cqengine.TransactionalIndexedCollection;
-import com.googlecode.cqengine.index.hash.HashIndex;
-import com.googlecode.cqengine.index.navigable.NavigableIndex;
-import com.googlecode.cqengine.index.support.CloseableIterator;
-import com.googlecode.cqengine.index.unique.UniqueIndex;
-import com.googlecode.cqengine.resultset.ResultSet;
 import com.gtc.meta.CurrencyPair;
 import com.gtc.model.provider.AggregatedOrder;
 import com.gtc.model.provider.OrderBook;
@@ -17,117 +8,183 @@ import com.gtc.opportunity.trader.cqe.domain.FullCrossMarketOpportunity;
 import com.gtc.opportunity.trader.cqe.domain.IndexedOrderBook;
 import com.gtc.opportunity.trader.cqe.domain.Statistic;
 import com.gtc.opportunity.trader.domain.XoConfig;
+import com.gtc.opportunity.trader.service.nnopportunity.solver.time.LocalTime;
 import com.gtc.opportunity.trader.service.xoopportunity.creation.ConfigCache;
-import lombok.SneakyThrows;
+import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.*;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
-
-import static com.googlecode.cqengine.query.QueryFactory.*;
 
 /**
- * Created by Valentyn Berezin on 16.06.18.
+ * Latest order book per client and currency pair. Books of each pair live in immutable snapshot that keeps them
+ * sorted by best sell (ascending) and by best buy (descending); update copies snapshot, replaces book of the
+ * same client, drops expired ones and swaps snapshot in with CAS - readers never lock and never see partial update.
+ * Book expires when it is older than {@link XoConfig#getStaleBookThresholdMS()} of its client and pair, threshold
+ * is resolved on write and re-read from config once per {@code TTL_REFRESH_MS}. Time comes from {@link LocalTime},
+ * so that recorded books can be replayed.
  */
 @Component
 public class BookRepository {
 
     private static final int DEFAULT_EXPIRY_MS = 1000;
+    private static final long TTL_REFRESH_MS = 60_000L;
 
-    private final HashIndex<CurrencyPair, IndexedOrderBook> currencyPairIndex;
-    private final IndexedCollection<IndexedOrderBook> books;
+    private final Map<CurrencyPair, AtomicReference<PairBooks>> books = new ConcurrentHashMap<>();
+    private final Map<String, Ttl> ttlById = new ConcurrentHashMap<>();
     private final ConfigCache cfgCache;
+    private final LocalTime localTime;
 
-    private final Cache<String, Integer> bookExpiryThreshold = CacheBuilder.newBuilder()
-            .expireAfterWrite(60, TimeUnit.SECONDS)
-            .build();
-
-    public BookRepository(ConfigCache cfgCache) {
+    public BookRepository(ConfigCache cfgCache, LocalTime localTime) {
         this.cfgCache = cfgCache;
-        this.books = new TransactionalIndexedCollection<>(IndexedOrderBook.class);
-        this.books.addIndex(UniqueIndex.onAttribute((IndexedOrderBook.A_ID)));
-        currencyPairIndex = HashIndex.onAttribute(IndexedOrderBook.CURRENCY_PAIR);
-        this.books.addIndex(currencyPairIndex);
-        this.books.addIndex(HashIndex.onAttribute(IndexedOrderBook.CLIENT));
-        this.books.addIndex(NavigableIndex.onAttribute(IndexedOrderBook.BEST_BUY));
-        this.books.addIndex(NavigableIndex.onAttribute(IndexedOrderBook.BEST_SELL));
+        this.localTime = localTime;
     }
 
     public void addOrderBook(OrderBook orderBook) {
-        IndexedOrderBook newIndexed = new IndexedOrderBook(IndexedOrderBook.calculateId(orderBook), orderBook);
+        long now = localTime.timestampMs();
+        IndexedOrderBook newIndexed = new IndexedOrderBook(IndexedOrderBook.calculateId(orderBook), orderBook, now);
+        Entry entry = new Entry(newIndexed, now + ttlMs(newIndexed, now));
 
-        Optional<IndexedOrderBook> toRemove = Optional.empty();
-        try (ResultSet<IndexedOrderBook> res = books.retrieve(equal(IndexedOrderBook.A_ID, newIndexed.getId()))) {
-            if (res.isNotEmpty()) {
-                toRemove = Optional.of(res.uniqueResult());
-            }
+        AtomicReference<PairBooks> forPair = books.get(orderBook.getMeta().getPair());
+        if (null == forPair) {
+            forPair = books.computeIfAbsent(
+                    orderBook.getMeta().getPair(), id -> new AtomicReference<>(PairBooks.EMPTY));
         }
 
-        toRemove.ifPresent(books::remove);
-        books.add(newIndexed);
+        PairBooks current;
+        do {
+            current = forPair.get();
+        } while (!forPair.compareAndSet(current, current.with(entry, now)));
+    }
+
+    /**
+     * Not expired books of {@code pair}, sorted by best sell ascending.
+     */
+    public List<IndexedOrderBook> findByPair(CurrencyPair pair) {
+        return snapshot(pair).bySellBelow(Double.POSITIVE_INFINITY, localTime.timestampMs());
     }
 
-    public Set<FullCrossMarketOpportunity> findOpportunities() {
+    /**
+     * Not expired books of {@code pair} that have best sell below {@code price}, sorted by best sell ascending.
+     */
+    public List<IndexedOrderBook> findByPairWithBestSellBelow(CurrencyPair pair, double price) {
+        return snapshot(pair).bySellBelow(price, localTime.timestampMs());
+    }
+
+    /**
+     * Finds opportunities that give at least {@code minGain} and re-evaluates {@code tracked} ones so that
+     * they can be closed.
+     */
+    public Set<FullCrossMarketOpportunity> findOpportunities(
+            double minGain, Collection<FullCrossMarketOpportunity> tracked) {
         Set<FullCrossMarketOpportunity> result = new HashSet<>();
+        Map<CurrencyPair, List<FullCrossMarketOpportunity>> trackedByPair = tracked.stream()
+                .collect(Collectors.groupingBy(it -> new CurrencyPair(it.getCurrencyFrom(), it.getCurrencyTo())));
 
-        try (CloseableIterator<CurrencyPair> pair = currencyPairIndex.getDistinctKeys(noQueryOptions()).iterator()) {
-            while (pair.hasNext()) {
-                result.addAll(findOpportunitiesForPair(pair.next()));
-            }
-        }
+        long timestamp = localTime.timestampMs();
+        books.forEach((pair, forPair) -> findOpportunitiesForPair(
+                forPair.get(),
+                timestamp,
+                minGain,
+                trackedByPair.getOrDefault(pair, Collections.emptyList()),
+                result
+        ));
 
         return result;
     }
 
-    private Set<FullCrossMarketOpportunity> findOpportunitiesForPair(CurrencyPair pair) {
-        Set<FullCrossMarketOpportunity> result = new HashSet<>();
-        long timestamp = System.currentTimeMillis();
-        int expiryMax =
-                bookExpiryThreshold.asMap().values().stream().mapToInt(it -> it).max().orElse(DEFAULT_EXPIRY_MS);
-        long notOlderThan = timestamp - expiryMax;
-        List<IndexedOrderBook> forPair = findByPair(pair, notOlderThan);
-        for (IndexedOrderBook candidateFrom : forPair) {
-            if (checkExpired(candidateFrom, timestamp, expiryMax)) {
-                continue;
-            }
+    /**
+     * Sort-and-sweep: books we sell to are visited by best sell ascending, books we buy from - by best buy
+     * descending. Gain from.bestBuy / to.bestSell is monotonic in both prices (for positive best sell), so inner
+     * sweep stops at the first book below gain and outer one stops when even the best book to buy from
+     * gives no gain. Only pairs that give gain are materialized.
+     */
+    private void findOpportunitiesForPair(PairBooks forPair, long timestamp, double minGain,
+                                          List<FullCrossMarketOpportunity> tracked,
+                                          Set<FullCrossMarketOpportunity> result) {
+        IndexedOrderBook[] byBestSell = forPair.bySell(timestamp);
+        if (byBestSell.length < 2) {
+            return;
+        }
 
-            for (IndexedOrderBook candidateTo : forPair) {
-                if (candidateTo.equals(candidateFrom) || checkExpired(candidateTo, timestamp, expiryMax)) {
-                    continue;
+        IndexedOrderBook[] byBestBuy = forPair.byBuy(timestamp);
+        Set<String> found = new HashSet<>();
+        for (IndexedOrderBook candidateTo : byBestSell) {
+            // division is monotonic only for positive denominator
+            boolean canStop = candidateTo.getBestSell() > 0.0;
+            int visited = 0;
+            for (IndexedOrderBook candidateFrom : byBestBuy) {
+                boolean isGain = candidateFrom.getBestBuy() / candidateTo.getBestSell() >= minGain;
+                if (!isGain && canStop) {
+                    break;
+                }
+
+                visited++;
+                if (isGain && !candidateTo.equals(candidateFrom)) {
+                    result.add(buildCrossMarketOpportunity(candidateFrom, candidateTo, timestamp));
+                    found.add(candidateFrom.getId() + candidateTo.getId());
                 }
+            }
 
-                result.add(buildCrossMarketOpportunity(candidateFrom, candidateTo));
+            if (0 == visited && canStop && byBestBuy[0].getBestBuy() >= 0.0) {
+                break;
             }
         }
 
-        return result;
+        addTracked(byBestSell, timestamp, tracked, found, result);
     }
 
-    @SneakyThrows
-    private boolean checkExpired(IndexedOrderBook orderBook, long timestamp, int defaultExpiry) {
-        long ttl = bookExpiryThreshold.get(
-                orderBook.getMeta().getClient(),
-                () -> cfgCache.getXoCfg(
-                        orderBook.getMeta().getClient(),
-                        orderBook.getMeta().getPair().getFrom(),
-                        orderBook.getMeta().getPair().getTo()
-                ).map(XoConfig::getStaleBookThresholdMS).orElse(defaultExpiry)
-        );
-        return orderBook.getRecordedOn() < timestamp - ttl;
+    // tracked opportunities that are below gain now, they need to be closed
+    private void addTracked(IndexedOrderBook[] forPair, long timestamp, List<FullCrossMarketOpportunity> tracked,
+                            Set<String> found, Set<FullCrossMarketOpportunity> result) {
+        if (tracked.isEmpty()) {
+            return;
+        }
+
+        Map<String, IndexedOrderBook> byClient = new HashMap<>();
+        for (IndexedOrderBook book : forPair) {
+            byClient.put(book.getMeta().getClient(), book);
+        }
+
+        for (FullCrossMarketOpportunity opportunity : tracked) {
+            IndexedOrderBook from = byClient.get(opportunity.getClientFrom());
+            IndexedOrderBook to = byClient.get(opportunity.getClientTo());
+            if (null == from || null == to || from.equals(to) || found.contains(from.getId() + to.getId())) {
+                continue;
+            }
+
+            result.add(buildCrossMarketOpportunity(from, to, timestamp));
+        }
+    }
+
+    private PairBooks snapshot(CurrencyPair pair) {
+        AtomicReference<PairBooks> forPair = books.get(pair);
+        return null == forPair ? PairBooks.EMPTY : forPair.get();
     }
 
-    private List<IndexedOrderBook> findByPair(CurrencyPair pair, long notOlderThan) {
-        try (ResultSet<IndexedOrderBook> res = books.retrieve(and(
-                equal(IndexedOrderBook.CURRENCY_PAIR, pair),
-                greaterThanOrEqualTo(IndexedOrderBook.REC_ON, notOlderThan)))) {
-            return StreamSupport.stream(res.spliterator(), false).collect(Collectors.toList());
+    private long ttlMs(IndexedOrderBook book, long now) {
+        Ttl ttl = ttlById.get(book.getId());
+        if (null == ttl || now - ttl.resolvedOn > TTL_REFRESH_MS) {
+            int ms = cfgCache.getXoCfg(
+                    book.getMeta().getClient(),
+                    book.getMeta().getPair().getFrom(),
+                    book.getMeta().getPair().getTo()
+            ).map(XoConfig::getStaleBookThresholdMS).orElse(DEFAULT_EXPIRY_MS);
+            ttl = new Ttl(ms, now);
+            ttlById.put(book.getId(), ttl);
         }
+
+        return ttl.ms;
     }
 
-    private FullCrossMarketOpportunity buildCrossMarketOpportunity(IndexedOrderBook from, IndexedOrderBook to) {
+    static FullCrossMarketOpportunity buildCrossMarketOpportunity(IndexedOrderBook from, IndexedOrderBook to,
+                                                                  long timestamp) {
+        LocalDateTime now = LocalDateTime.ofInstant(Instant.ofEpochMilli(timestamp), ZoneId.systemDefault());
         CrossMarketOpportunity xo = CrossMarketOpportunity.builder()
                 .uuid(UUID.randomUUID().toString())
                 .clientFrom(from.getMeta().getClient())
@@ -139,8 +196,8 @@ public class BookRepository {
                 .marketFromBestBuyPrice(new Statistic(from.getBestBuy()))
                 .marketToBestSellAmount(new Statistic(to.getAmountBestSell()))
                 .marketToBestSellPrice(new Statistic(to.getBestSell()))
-                .openedOn(LocalDateTime.now())
-                .updatedOn(LocalDateTime.now())
+                .openedOn(now)
+                .updatedOn(now)
                 .eventCount(1)
                 .build();
 
@@ -157,4 +214,99 @@ public class BookRepository {
                 .map(it -> new FullCrossMarketOpportunity.Histogram(it.getMinPrice(), it.getMaxPrice(), it.getAmount()))
                 .toArray(FullCrossMarketOpportunity.Histogram[]::new);
     }
+
+    @RequiredArgsConstructor
+    private static final class Ttl {
+
+        private final long ms;
+        private final long resolvedOn;
+    }
+
+    @RequiredArgsConstructor
+    private static final class Entry {
+
+        private final IndexedOrderBook book;
+        private final long expiresOn;
+    }
+
+    /**
+     * Immutable, arrays are never modified after construction.
+     */
+    @RequiredArgsConstructor
+    private static final class PairBooks {
+
+        private static final PairBooks EMPTY = new PairBooks(new Entry[0], new Entry[0]);
+
+        private static final Comparator<Entry> BY_SELL = Comparator.comparingDouble(it -> it.book.getBestSell());
+        private static final Comparator<Entry> BY_BUY =
+                Comparator.<Entry>comparingDouble(it -> it.book.getBestBuy()).reversed();
+
+        private final Entry[] bySell;
+        private final Entry[] byBuy;
+
+        PairBooks with(Entry entry, long now) {
+            return new PairBooks(replace(bySell, entry, now, BY_SELL), replace(byBuy, entry, now, BY_BUY));
+        }
+
+        IndexedOrderBook[] bySell(long now) {
+            return live(bySell, now);
+        }
+
+        IndexedOrderBook[] byBuy(long now) {
+            return live(byBuy, now);
+        }
+
+        List<IndexedOrderBook> bySellBelow(double price, long now) {
+            int to = 0;
+            int from = bySell.length;
+            // first book with best sell >= price
+            while (to < from) {
+                int mid = (to + from) >>> 1;
+                if (bySell[mid].book.getBestSell() < price) {
+                    to = mid + 1;
+                } else {
+                    from = mid;
+                }
+            }
+
+            return Arrays.asList(live(Arrays.copyOf(bySell, to), now));
+        }
+
+        private static IndexedOrderBook[] live(Entry[] entries, long now) {
+            IndexedOrderBook[] result = new IndexedOrderBook[entries.length];
+            int size = 0;
+            for (Entry entry : entries) {
+                if (entry.expiresOn >= now) {
+                    result[size++] = entry.book;
+                }
+            }
+
+            return size == result.length ? result : Arrays.copyOf(result, size);
+        }
+
+        // copy without old book of the same client and expired ones, new entry inserted in sort order
+        private static Entry[] replace(Entry[] entries, Entry entry, long now, Comparator<Entry> order) {
+            Entry[] result = new Entry[entries.length + 1];
+            int size = 0;
+            boolean inserted = false;
+            for (Entry existing : entries) {
+                if (existing.expiresOn < now || existing.book.getId().equals(entry.book.getId())) {
+                    continue;
+                }
+
+                if (!inserted && order.compare(entry, existing) <= 0) {
+                    result[size++] = entry;
+                    inserted = true;
+                }
+
+                result[size++] = existing;
+            }
+
+            if (!inserted) {
+                result[size++] = entry;
+            }
+
+            return size == result.length ? result : Arrays.copyOf(result, size);
+        }
+    }
 }
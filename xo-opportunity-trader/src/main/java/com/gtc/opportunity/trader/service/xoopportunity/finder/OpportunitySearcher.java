@@ -7,8 +7,10 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.util.Comparator;
+import java.util.List;
 import java.util.Optional;
-import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * Created by Valentyn Berezin on 18.06.18.
@@ -18,6 +20,11 @@ import java.util.Set;
 @RequiredArgsConstructor
 public class OpportunitySearcher {
 
+    // best gain is accepted first, ties are broken by id - so that replay of the same books accepts same trades
+    private static final Comparator<FullCrossMarketOpportunity> BEST_FIRST = Comparator
+            .<FullCrossMarketOpportunity>comparingDouble(it -> it.getHistWin().getCurr()).reversed()
+            .thenComparing(FullCrossMarketOpportunity::getId);
+
     private final SeenOpportunitiesRepository opportunitiesRepository;
     private final OpportunityConfig config;
     private final BookRepository bookRepository;
@@ -25,7 +32,10 @@ public class OpportunitySearcher {
 
     @Scheduled(fixedDelayString = "${app.schedule.opportunitySearchMs}")
     public void searchForOpportunities() {
-        Set<FullCrossMarketOpportunity> opportunities = bookRepository.findOpportunities();
+        List<FullCrossMarketOpportunity> opportunities = bookRepository.findOpportunities(
+                config.getMinGain(),
+                opportunitiesRepository.allOpportunities()
+        ).stream().sorted(BEST_FIRST).collect(Collectors.toList());
 
         opportunities.stream()
                 .filter(it -> it.getHistWin().getCurr() >= config.getMinGain())
@@ -8,6 +8,8 @@ import com.gtc.opportunity.trader.cqe.domain.FullCrossMarketOpportunity;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.Optional;
 
@@ -56,6 +58,10 @@ public class SeenOpportunitiesRepository {
         }
     }
 
+    public Collection<FullCrossMarketOpportunity> allOpportunities() {
+        return new ArrayList<>(opportunities);
+    }
+
     private FullCrossMarketOpportunity joinOpportunities(
             FullCrossMarketOpportunity newOpp, FullCrossMarketOpportunity oldOpp, boolean doClose) {
 
@@ -5,6 +5,7 @@ import com.gtc.opportunity.trader.domain.ClientConfig;
 import com.gtc.opportunity.trader.service.dto.PreciseReplenishAmountDto;
 import com.gtc.opportunity.trader.service.dto.SatisfyReplenishAmountDto;
 import com.gtc.opportunity.trader.service.xoopportunity.common.FitterService;
+import com.gtc.opportunity.trader.service.xoopportunity.common.SolverPool;
 import com.gtc.opportunity.trader.service.xoopportunity.common.dto.FittedReplenish;
 import com.gtc.opportunity.trader.service.xoopportunity.replenishment.precision.optaplan.XoBalanceScore;
 import com.gtc.opportunity.trader.service.xoopportunity.replenishment.precision.optaplan.XoReplenishPrice;
@@ -14,7 +15,6 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.optaplanner.core.api.domain.valuerange.CountableValueRange;
 import org.optaplanner.core.api.score.buildin.hardsoftbigdecimal.HardSoftBigDecimalScore;
-import org.optaplanner.core.api.solver.Solver;
 import org.optaplanner.core.api.solver.SolverFactory;
 import org.optaplanner.core.config.constructionheuristic.ConstructionHeuristicPhaseConfig;
 import org.optaplanner.core.config.constructionheuristic.ConstructionHeuristicType;
@@ -38,18 +38,16 @@ import java.math.BigDecimal;
 @RequiredArgsConstructor
 public class PreciseReplenishmentCalculator {
 
+    private static final String SOLVER_CONFIG_NAME = "replenish";
+
     private final FitterService fit;
+    private final SolverPool solverPool;
 
     @Transactional
     public PreciseReplenishAmountDto searchPrecisely(SatisfyReplenishAmountDto sat) {
         FittedReplenish fittedXo = fit.fit(sat);
         log.info("Solving for {} replenish as {}", sat, fittedXo);
 
-        Solver<XoTradeBalance> solver = buildSolver(Math.min(
-                sat.getFrom().getXoConfig().getMaxSolveReplenishTimeMs(),
-                sat.getTo().getXoConfig().getMaxSolveReplenishTimeMs())
-        );
-
         XoTradeBalance problem = new XoTradeBalance(
                 buildTradePrice(fittedXo, sat.getFrom(), sat.getTo()),
                 new XoTrade(fittedXo.getMinBuyAmount(), fittedXo.getMinSellAmount(),
@@ -62,7 +60,15 @@ public class PreciseReplenishmentCalculator {
         );
         problem.setScore((HardSoftBigDecimalScore) new XoBalanceScore().calculateScore(problem));
 
-        XoTradeBalance solved = solver.solve(problem);
+        XoTradeBalance solved = solverPool.solve(
+                SOLVER_CONFIG_NAME,
+                PreciseReplenishmentCalculator::buildSolverFactory,
+                Math.min(
+                        sat.getFrom().getXoConfig().getMaxSolveReplenishTimeMs(),
+                        sat.getTo().getXoConfig().getMaxSolveReplenishTimeMs()
+                ),
+                problem
+        );
 
         if (solved.getScore().getHardScore().compareTo(BigDecimal.ZERO) != 0) {
             log.info("Hard constrained not met {}", solved);
@@ -81,13 +87,12 @@ public class PreciseReplenishmentCalculator {
         );
     }
 
-    private Solver<XoTradeBalance> buildSolver(int solveForMs) {
+    private static SolverFactory<XoTradeBalance> buildSolverFactory() {
         SolverFactory<XoTradeBalance> solverFactory = SolverFactory.createEmpty();
         SolverConfig cfg = solverFactory.getSolverConfig();
         cfg.setSolutionClass(XoTradeBalance.class);
         cfg.setEntityClassList(ImmutableList.of(XoTrade.class));
         cfg.setTerminationConfig(new TerminationConfig());
-        cfg.getTerminationConfig().setMillisecondsSpentLimit((long) solveForMs);
         cfg.setScoreDirectorFactoryConfig(new ScoreDirectorFactoryConfig());
         cfg.getScoreDirectorFactoryConfig().setEasyScoreCalculatorClass(XoBalanceScore.class);
         ConstructionHeuristicPhaseConfig constr = new ConstructionHeuristicPhaseConfig();
@@ -96,7 +101,7 @@ public class PreciseReplenishmentCalculator {
         localCfg.setLocalSearchType(LocalSearchType.LATE_ACCEPTANCE);
         cfg.setPhaseConfigList(ImmutableList.of(constr, localCfg));
 
-        return solverFactory.buildSolver();
+        return solverFactory;
     }
 
     private XoReplenishPrice buildTradePrice(FittedReplenish fittedXo,
@@ -0,0 +1,17 @@
+CREATE TABLE journaled_trade_event
+(
+  id            BIGINT PRIMARY KEY AUTO_INCREMENT NOT NULL,
+  type          VARCHAR(32)                       NOT NULL,
+  client_name   VARCHAR(64)                       NOT NULL,
+  assigned_id   VARCHAR(64)                       NOT NULL,
+  request_id    VARCHAR(36),
+  source        VARCHAR(64),
+  status        VARCHAR(64),
+  native_status VARCHAR(64),
+  amount        NUMERIC(40, 20),
+  price         NUMERIC(40, 20),
+  data          VARCHAR(512),
+  recorded_on   TIMESTAMP                         NOT NULL DEFAULT CURRENT_TIMESTAMP
+)
+  ENGINE = InnoDB
+  DEFAULT CHARSET = utf8mb4;
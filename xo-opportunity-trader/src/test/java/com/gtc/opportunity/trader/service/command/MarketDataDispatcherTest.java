@@ -0,0 +1,228 @@
+package com.gtc.opportunity.trader.service.command;
+
+import com.gtc.meta.CurrencyPair;
+import com.gtc.meta.TradingCurrency;
+import com.gtc.model.provider.ByClientAndCurrency;
+import com.gtc.model.provider.OrderBook;
+import com.gtc.opportunity.trader.config.WsConfig;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that consumer sees only the newest book per key, in order, and that slow key doesn't hold back others.
+ */
+class MarketDataDispatcherTest {
+
+    private static final String NAME = "test";
+    private static final String SLOW = "slow";
+    private static final String FAST = "fast";
+    private static final CurrencyPair PAIR = new CurrencyPair(TradingCurrency.Bitcoin, TradingCurrency.Usd);
+
+    private final Map<String, List<Long>> seen = new ConcurrentHashMap<>();
+
+    private MarketDataDispatcher dispatcher;
+
+    @BeforeEach
+    void init() {
+        WsConfig cfg = new WsConfig();
+        cfg.setDispatchWorkers(2);
+        dispatcher = new MarketDataDispatcher(cfg);
+    }
+
+    @AfterEach
+    @SneakyThrows
+    void shutdown() {
+        dispatcher.shutdown();
+    }
+
+    @Test
+    @SneakyThrows
+    void deliversNewestBookWhileConsumerIsBusy() {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Consumer<OrderBook> consumer = dispatcher.conflating(NAME, book -> {
+            started.countDown();
+            await(release);
+            record(book);
+        });
+
+        consumer.accept(book(SLOW, 0));
+        assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+        for (int i = 1; i <= 10; ++i) {
+            consumer.accept(book(SLOW, i));
+        }
+        release.countDown();
+
+        awaitDelivered(2);
+        assertThat(seen.get(SLOW)).containsExactly(0L, 10L);
+        assertThat(single().getReceived()).isEqualTo(11L);
+        assertThat(single().getConflated()).isEqualTo(9L);
+        assertThat(single().getDropped()).isZero();
+    }
+
+    @Test
+    @SneakyThrows
+    void slowConsumerDoesNotHoldBackOtherKeys() {
+        Consumer<OrderBook> consumer = dispatcher.conflating(NAME, book -> {
+            if (SLOW.equals(book.getMeta().getClient())) {
+                sleep(20);
+            }
+            record(book);
+        });
+
+        int count = 200;
+        for (int i = 0; i < count; ++i) {
+            consumer.accept(book(SLOW, i));
+            consumer.accept(book(FAST, i));
+            sleep(1);
+        }
+
+        awaitLast(SLOW, count - 1);
+        awaitLast(FAST, count - 1);
+        awaitAccounted(count);
+        MarketDataDispatcher.KeyStatistics slow = byClient(SLOW);
+        MarketDataDispatcher.KeyStatistics fast = byClient(FAST);
+        assertThat(slow.getConflated()).isPositive();
+        assertThat(slow.getDelivered() + slow.getConflated()).isEqualTo(count);
+        assertThat(fast.getDelivered()).isGreaterThan(slow.getDelivered());
+        assertThat(fast.getDelivered() + fast.getConflated()).isEqualTo(count);
+        assertThat(seen.get(SLOW)).isSorted().doesNotHaveDuplicates();
+        assertThat(seen.get(FAST)).isSorted().doesNotHaveDuplicates();
+    }
+
+    @Test
+    void keepsPerKeyOrderAcrossWorkers() {
+        Consumer<OrderBook> consumer = dispatcher.conflating(NAME, this::record);
+        int keys = 8;
+        int count = 5000;
+        for (int i = 0; i < count; ++i) {
+            for (int key = 0; key < keys; ++key) {
+                consumer.accept(book("client-" + key, i));
+            }
+        }
+
+        for (int key = 0; key < keys; ++key) {
+            awaitLast("client-" + key, count - 1);
+            assertThat(seen.get("client-" + key)).isSorted().doesNotHaveDuplicates();
+        }
+        awaitAccounted(count);
+        assertThat(dispatcher.statistics()).hasSize(keys);
+    }
+
+    @Test
+    void dropsBookOlderThanDelivered() {
+        Consumer<OrderBook> consumer = dispatcher.conflating(NAME, this::record);
+
+        consumer.accept(book(SLOW, 5));
+        awaitDelivered(1);
+        consumer.accept(book(SLOW, 3));
+        consumer.accept(book(SLOW, 6));
+
+        awaitLast(SLOW, 6);
+        assertThat(seen.get(SLOW)).doesNotContain(3L);
+        assertThat(single().getDropped() + single().getConflated()).isEqualTo(1L);
+    }
+
+    @Test
+    void continuesAfterConsumerFailure() {
+        Consumer<OrderBook> consumer = dispatcher.conflating(NAME, book -> {
+            if (0 == book.getMeta().getTimestamp()) {
+                throw new IllegalStateException("Simulated failure");
+            }
+            record(book);
+        });
+
+        consumer.accept(book(SLOW, 0));
+        awaitFailed();
+        consumer.accept(book(SLOW, 1));
+
+        awaitLast(SLOW, 1);
+        awaitDelivered(1);
+        assertThat(single().getFailed()).isEqualTo(1L);
+        assertThat(single().getDelivered()).isEqualTo(1L);
+    }
+
+    private void record(OrderBook book) {
+        seen.computeIfAbsent(book.getMeta().getClient(), id -> Collections.synchronizedList(new ArrayList<>()))
+                .add(book.getMeta().getTimestamp());
+    }
+
+    private MarketDataDispatcher.KeyStatistics single() {
+        assertThat(dispatcher.statistics()).hasSize(1);
+        return dispatcher.statistics().get(0);
+    }
+
+    private MarketDataDispatcher.KeyStatistics byClient(String client) {
+        return dispatcher.statistics().stream().filter(it -> client.equals(it.getClient())).findFirst().get();
+    }
+
+    private void awaitDelivered(long count) {
+        waitUntil(() -> dispatcher.statistics().stream().mapToLong(it -> it.getDelivered() + it.getDropped()).sum()
+                >= count);
+    }
+
+    // book is recorded before it is counted as delivered
+    private void awaitAccounted(long perKey) {
+        waitUntil(() -> dispatcher.statistics().stream()
+                .allMatch(it -> it.getDelivered() + it.getConflated() == perKey));
+    }
+
+    private void awaitFailed() {
+        waitUntil(() -> dispatcher.statistics().stream().mapToLong(MarketDataDispatcher.KeyStatistics::getFailed)
+                .sum() > 0);
+    }
+
+    private void awaitLast(String client, long timestamp) {
+        waitUntil(() -> {
+            List<Long> values = seen.get(client);
+            if (null == values) {
+                return false;
+            }
+
+            synchronized (values) {
+                return !values.isEmpty() && timestamp == values.get(values.size() - 1);
+            }
+        });
+    }
+
+    @SneakyThrows
+    private static void waitUntil(BooleanSupplier condition) {
+        long until = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime() - until).as("Timed out").isNegative();
+            Thread.sleep(1L);
+        }
+    }
+
+    @SneakyThrows
+    private static void await(CountDownLatch latch) {
+        latch.await(10, TimeUnit.SECONDS);
+    }
+
+    @SneakyThrows
+    private static void sleep(long ms) {
+        Thread.sleep(ms);
+    }
+
+    private static OrderBook book(String client, long timestamp) {
+        return OrderBook.builder()
+                .meta(new ByClientAndCurrency(client, PAIR, timestamp))
+                .bestBuy(1.0)
+                .bestSell(1.0)
+                .build();
+    }
+}
@@ -0,0 +1,326 @@
+package com.gtc.opportunity.trader.service.command.gateway;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableSet;
+import com.gtc.model.gateway.BaseMessage;
+import com.gtc.model.gateway.command.create.CreateOrderCommand;
+import com.gtc.model.gateway.command.create.MultiOrderCreateCommand;
+import com.gtc.model.gateway.command.manage.CancelOrderCommand;
+import com.gtc.model.gateway.response.ErrorResponse;
+import com.gtc.model.gateway.response.create.CreateOrderResponse;
+import com.gtc.model.gateway.response.manage.CancelOrderResponse;
+import com.gtc.opportunity.trader.BaseMockitoTest;
+import com.gtc.opportunity.trader.config.AckConfig;
+import com.gtc.opportunity.trader.config.WsConfig;
+import com.gtc.opportunity.trader.service.trade.management.TradeEsbEventHandler;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Runs commander against in-process gateway stub that answers, drops or delays commands, answers go through
+ * same {@link WsGatewayClient} message handling as websocket ones.
+ */
+class WsGatewayCommanderTest extends BaseMockitoTest {
+
+    private static final String CLIENT = "binance";
+    private static final int DEADLINE_MS = 150;
+    private static final int MAX_RESENDS = 2;
+    private static final long WAIT_MS = 5000L;
+
+    @Mock
+    private WsGatewayResponseListener respListener;
+
+    @Mock
+    private WsGatewayErrorResponseListener errListener;
+
+    @Mock
+    private TradeEsbEventHandler esbEventHandler;
+
+    private final ObjectMapper mapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private GatewayStub gateway;
+    private PendingCommandRegistry registry;
+    private WsGatewayCommander commander;
+
+    @BeforeEach
+    void init() {
+        AckConfig config = new AckConfig();
+        config.setDefaultDeadlineMs(DEADLINE_MS);
+        config.setMaxResends(MAX_RESENDS);
+        registry = new PendingCommandRegistry(config, esbEventHandler);
+
+        WsConfig wsConfig = new WsConfig();
+        wsConfig.setGateway("ws://localhost:1/api/ws");
+        gateway = new GatewayStub();
+        WsGatewayClient client = new WsGatewayClient(wsConfig, mapper, respListener, errListener, registry) {
+            @Override
+            public void sendCommand(BaseMessage command) {
+                command.setType(command.type());
+                gateway.receive(this, command);
+            }
+        };
+
+        commander = new WsGatewayCommander(client, registry);
+    }
+
+    @AfterEach
+    void shutdown() {
+        gateway.shutdown();
+    }
+
+    @Test
+    void answeredCommandsAreNotPending() {
+        CreateOrderCommand create = create("1");
+        CancelOrderCommand cancel = cancel("2");
+
+        commander.createOrder(create);
+        commander.cancel(cancel);
+
+        verify(respListener, timeout(WAIT_MS)).createOrder(any(CreateOrderResponse.class));
+        verify(respListener, timeout(WAIT_MS)).cancelled(any(CancelOrderResponse.class));
+        awaitTrue(() -> 0 == registry.statistics().getInFlight());
+        assertThat(registry.statistics().getAcked()).isEqualTo(2L);
+        assertThat(registry.overdue()).isEmpty();
+    }
+
+    @Test
+    void droppedIdempotentCommandIsResentUntilAnswered() {
+        CancelOrderCommand cancel = cancel("1");
+        gateway.plan(cancel.getId(), Action.DROP, Action.ANSWER);
+
+        commander.cancel(cancel);
+        sleepPastDeadline();
+        commander.resendUnanswered();
+
+        verify(respListener, timeout(WAIT_MS)).cancelled(any(CancelOrderResponse.class));
+        assertThat(gateway.received(cancel.getId())).isEqualTo(2);
+        awaitTrue(() -> 1 == registry.statistics().getAcked());
+        assertThat(registry.statistics().getResent()).isEqualTo(1L);
+        assertThat(registry.statistics().getTimedOut()).isZero();
+    }
+
+    @Test
+    void resendsAreBounded() {
+        CancelOrderCommand cancel = cancel("1");
+        gateway.plan(cancel.getId(), Action.DROP, Action.DROP, Action.DROP, Action.DROP);
+
+        commander.cancel(cancel);
+        for (int i = 0; i <= MAX_RESENDS + 1; ++i) {
+            sleepPastDeadline();
+            commander.resendUnanswered();
+        }
+
+        assertThat(gateway.received(cancel.getId())).isEqualTo(1 + MAX_RESENDS);
+        assertThat(registry.statistics().getTimedOut()).isEqualTo(1L);
+        assertThat(registry.statistics().getInFlight()).isZero();
+        verify(esbEventHandler, never()).ackTimeout(anyString(), anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void droppedCreateIsNotResentAndTimesOutTrade() {
+        CreateOrderCommand create = create("1");
+        gateway.plan(create.getId(), Action.DROP);
+
+        commander.createOrder(create);
+        sleepPastDeadline();
+        commander.resendUnanswered();
+
+        assertThat(gateway.received(create.getId())).isEqualTo(1);
+        verify(esbEventHandler).ackTimeout(eq(create.getOrderId()), eq(CLIENT), eq(create.getId()), anyString());
+        assertThat(registry.statistics().getTimedOut()).isEqualTo(1L);
+        assertThat(registry.statistics().getInFlight()).isZero();
+    }
+
+    @Test
+    void lateAnswerAfterTimeoutIsStillDelivered() {
+        CreateOrderCommand create = create("1");
+        gateway.plan(create.getId(), Action.DELAY);
+
+        commander.createOrder(create);
+        sleepPastDeadline();
+        commander.resendUnanswered();
+
+        verify(esbEventHandler).ackTimeout(eq(create.getOrderId()), eq(CLIENT), eq(create.getId()), anyString());
+        verify(respListener, timeout(WAIT_MS)).createOrder(any(CreateOrderResponse.class));
+        awaitTrue(() -> 1 == registry.statistics().getUnknownAcks());
+        assertThat(registry.statistics().getAcked()).isZero();
+    }
+
+    @Test
+    void multiOrderIsTrackedPerOrder() {
+        CreateOrderCommand answered = create("1");
+        CreateOrderCommand dropped = create("2");
+        gateway.plan(dropped.getId(), Action.DROP);
+
+        commander.createOrders(MultiOrderCreateCommand.builder()
+                .clientName(CLIENT)
+                .id("multi")
+                .commands(ImmutableSet.of(answered, dropped))
+                .build()
+        );
+        verify(respListener, timeout(WAIT_MS)).createOrder(any(CreateOrderResponse.class));
+        sleepPastDeadline();
+        commander.resendUnanswered();
+
+        verify(esbEventHandler).ackTimeout(eq(dropped.getOrderId()), eq(CLIENT), eq(dropped.getId()), anyString());
+        verify(esbEventHandler, never()).ackTimeout(eq(answered.getOrderId()), anyString(), anyString(), anyString());
+        assertThat(registry.statistics().getAcked()).isEqualTo(1L);
+        assertThat(registry.statistics().getInFlight()).isZero();
+    }
+
+    @Test
+    void errorAnswersCommand() {
+        CreateOrderCommand create = create("1");
+        gateway.plan(create.getId(), Action.ERROR);
+
+        commander.createOrder(create);
+
+        verify(errListener, timeout(WAIT_MS)).createOrderError(any(ErrorResponse.class));
+        awaitTrue(() -> 1 == registry.statistics().getAcked());
+        sleepPastDeadline();
+        commander.resendUnanswered();
+        verify(esbEventHandler, never()).ackTimeout(anyString(), anyString(), anyString(), anyString());
+    }
+
+    private static CreateOrderCommand create(String id) {
+        return CreateOrderCommand.builder()
+                .clientName(CLIENT)
+                .id(id)
+                .orderId(id)
+                .currencyFrom("BTC")
+                .currencyTo("USD")
+                .amount(BigDecimal.ONE)
+                .price(BigDecimal.TEN)
+                .build();
+    }
+
+    private static CancelOrderCommand cancel(String id) {
+        return new CancelOrderCommand(CLIENT, id, "assigned-" + id);
+    }
+
+    @SneakyThrows
+    private static void sleepPastDeadline() {
+        Thread.sleep(DEADLINE_MS * 2);
+    }
+
+    @SneakyThrows
+    private static void awaitTrue(BooleanSupplier condition) {
+        long until = System.currentTimeMillis() + WAIT_MS;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < until) {
+            Thread.sleep(10L);
+        }
+
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+
+    private enum Action {
+        ANSWER,
+        DROP,
+        DELAY,
+        ERROR
+    }
+
+    private class GatewayStub {
+
+        private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        private final Map<String, Deque<Action>> plans = new ConcurrentHashMap<>();
+        private final Map<String, AtomicInteger> received = new ConcurrentHashMap<>();
+
+        void plan(String commandId, Action... actions) {
+            plans.put(commandId, new ArrayDeque<>(Arrays.asList(actions)));
+        }
+
+        int received(String commandId) {
+            return received.getOrDefault(commandId, new AtomicInteger()).get();
+        }
+
+        void receive(WsGatewayClient client, BaseMessage command) {
+            if (command instanceof MultiOrderCreateCommand) {
+                ((MultiOrderCreateCommand) command).getCommands().forEach(it -> {
+                    it.setType(it.type());
+                    receive(client, it);
+                });
+                return;
+            }
+
+            received.computeIfAbsent(command.getId(), id -> new AtomicInteger()).incrementAndGet();
+            Deque<Action> plan = plans.get(command.getId());
+            Action action = null == plan || plan.isEmpty() ? Action.ANSWER : plan.poll();
+            switch (action) {
+                case DROP:
+                    return;
+                case DELAY:
+                    executor.schedule(() -> answer(client, command, false), DEADLINE_MS * 4, TimeUnit.MILLISECONDS);
+                    return;
+                case ERROR:
+                    executor.execute(() -> answer(client, command, true));
+                    return;
+                default:
+                    executor.execute(() -> answer(client, command, false));
+            }
+        }
+
+        void shutdown() {
+            executor.shutdownNow();
+        }
+
+        private void answer(WsGatewayClient client, BaseMessage command, boolean isError) {
+            BaseMessage response = isError ? error(command) : response(command);
+            response.setType(response.type());
+            client.handleMessage(mapper.valueToTree(response));
+        }
+
+        private BaseMessage response(BaseMessage command) {
+            if (command instanceof CreateOrderCommand) {
+                return CreateOrderResponse.builder()
+                        .clientName(command.getClientName())
+                        .id(command.getId())
+                        .requestOrderId(command.getId())
+                        .orderId("assigned-" + command.getId())
+                        .build();
+            }
+
+            return CancelOrderResponse.builder()
+                    .clientName(command.getClientName())
+                    .id(command.getId())
+                    .orderId(((CancelOrderCommand) command).getOrderId())
+                    .build();
+        }
+
+        private ErrorResponse error(BaseMessage command) {
+            ErrorResponse error = new ErrorResponse();
+            error.setClientName(command.getClientName());
+            error.setId("error-" + command.getId());
+            error.setOnMessageId(command.getId());
+            error.setOccurredOn(command.toString());
+            error.setOccurredOnType(command.getType());
+            error.setErrorCause("Failed");
+            return error;
+        }
+    }
+}
@@ -23,6 +23,7 @@ import com.gtc.opportunity.trader.service.nnopportunity.creation.fitter.FeeFitte
 import com.gtc.opportunity.trader.service.nnopportunity.creation.fitter.impl.BuyLowSellHighFitter;
 import com.gtc.opportunity.trader.service.nnopportunity.creation.fitter.impl.SellHighBuyLowFitter;
 import com.gtc.opportunity.trader.service.nnopportunity.repository.NnDataRepository;
+import com.gtc.opportunity.trader.service.nnopportunity.solver.ModelTrainer;
 import com.gtc.opportunity.trader.service.nnopportunity.solver.NnAnalyzer;
 import com.gtc.opportunity.trader.service.nnopportunity.solver.NnSolver;
 import com.gtc.opportunity.trader.service.nnopportunity.solver.model.FeatureMapper;
@@ -44,6 +45,7 @@ import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 import static org.mockito.ArgumentMatchers.anyBoolean;
@@ -89,6 +91,7 @@ public class GlobalNnPerformanceTest extends BaseMockitoTest {
     private NnDataRepository repository;
     private FeatureMapper mapper;
     private ModelFactory modelFactory;
+    private ModelTrainer trainer;
     private NnSolver solver;
     private NnCreateTradesService createTradesService;
     private NnAnalyzer nnAnalyzer;
@@ -108,7 +111,8 @@ public class GlobalNnPerformanceTest extends BaseMockitoTest {
         repository = new NnDataRepository(configs);
         mapper = new FeatureMapper();
         modelFactory = new ModelFactory(localTime, mapper, configs);
-        solver = new NnSolver(localTime, configs, modelFactory, repository);
+        trainer = new ModelTrainer(1, TimeUnit.DAYS.toSeconds(1));
+        solver = new NnSolver(localTime, configs, modelFactory, repository, trainer);
         createTradesService = tradesService();
         nnAnalyzer = new NnAnalyzer(solver, createTradesService);
         latestPrices = new LatestMarketPrices();
@@ -146,12 +150,14 @@ public class GlobalNnPerformanceTest extends BaseMockitoTest {
         testTradeRepository.logStats();
     }
 
+    @SneakyThrows
     private void createModelsIfNeeded(long pointIndex, HistoryBookReader toSkipOn) {
         if (pointIndex % env.getRebuildModelEachN() != 0) {
             return;
         }
         long st = System.currentTimeMillis();
         solver.createModels();
+        trainer.awaitIdle(1, TimeUnit.DAYS);
         long en = System.currentTimeMillis();
 
         // it is not what happens in reality, since old model will accept point while new is absent
@@ -53,7 +53,9 @@ public class HistoryBookReader implements AutoCloseable {
 
     @Override
     public void close() throws Exception {
-        parser.close();
+        if (null != parser) {
+            parser.close();
+        }
     }
 
     private void initializeStreamIfNeeded() {
@@ -0,0 +1,222 @@
+package com.gtc.opportunity.trader.service.nnopportunity.repository;
+
+import com.google.common.collect.EvictingQueue;
+import com.google.common.collect.ImmutableList;
+import com.gtc.meta.CurrencyPair;
+import com.gtc.meta.TradingCurrency;
+import com.gtc.opportunity.trader.domain.NnConfig;
+import com.gtc.opportunity.trader.service.dto.FlatOrderBook;
+import com.gtc.opportunity.trader.service.dto.FlatOrderBookWithHistory;
+import com.gtc.opportunity.trader.service.nnopportunity.global.HistoryBookReader;
+import com.gtc.opportunity.trader.service.nnopportunity.util.BookFlattener;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Labels must be same as ones produced by list-based implementation (kept here as {@link ListStrategyData}).
+ */
+@Slf4j
+public class StrategyDataTest {
+
+    @Test
+    public void labelsMatchListImplementationOnRandomWalk() {
+        for (Strategy strategy : Strategy.values()) {
+            Random random = new Random(42L);
+            NnConfig cfg = config(500, 100, "0.5");
+            long[] timestamp = {0L};
+            float[] mid = {1.0f};
+
+            assertSameLabels(strategy, cfg, 50000, () -> {
+                timestamp[0] += 100;
+                // coarse price grid, so that there are many equal prices in window
+                mid[0] = Math.max(0.01f, mid[0] + (random.nextInt(3) - 1) * 0.001f);
+                float spread = random.nextInt(3) * 0.001f;
+                return book(timestamp[0], mid[0] + spread, mid[0]);
+            });
+        }
+    }
+
+    @Test
+    public void labelsMatchListImplementationOnTinyWindows() {
+        for (Strategy strategy : Strategy.values()) {
+            for (int window = 2; window < 6; ++window) {
+                Random random = new Random(window);
+                long[] timestamp = {0L};
+                assertSameLabels(strategy, config(window, 10, "0"), 1000, () -> {
+                    timestamp[0] += 100;
+                    float price = 1.0f + random.nextInt(10) * 0.001f;
+                    return book(timestamp[0], price + 0.001f, price);
+                });
+            }
+        }
+    }
+
+    /**
+     * Replays same history GlobalNnPerformanceTest uses, with same env vars.
+     */
+    @Test
+    @EnabledIfEnvironmentVariable(named = "GLOBAL_NN_TEST", matches = "true")
+    public void labelsMatchListImplementationOnReplayData() throws Exception {
+        NnConfig cfg = config(
+                Integer.valueOf(env("FUTURE_N_WINDOW", "36000")),
+                Integer.valueOf(env("COLLECT_N_LABELED", "1000")),
+                "1"
+        );
+        cfg.setNoopThreshold(new BigDecimal(env("NOOP_THRESHOLD", "1.002")));
+
+        for (Strategy strategy : Strategy.values()) {
+            try (HistoryBookReader reader = new HistoryBookReader(
+                    env("HISTORY_DIR", "/mnt/storage-box/bid/history"),
+                    env("CLIENT_NAME", "binance"),
+                    new CurrencyPair(
+                            TradingCurrency.fromCode(env("FROM", "EOS")),
+                            TradingCurrency.fromCode(env("TO", "BTC"))),
+                    time(env("START", "2018-07-27T00:00:00")),
+                    time(env("END", "2018-07-31T08:00:00")))) {
+                assertSameLabels(strategy, cfg, Integer.MAX_VALUE, () -> {
+                    try {
+                        return BookFlattener.simplify(reader.read());
+                    } catch (NoSuchElementException ex) {
+                        return null;
+                    }
+                });
+            }
+        }
+    }
+
+    private static void assertSameLabels(Strategy strategy, NnConfig cfg, int maxBooks,
+                                         Supplier<FlatOrderBook> books) {
+        StrategyData data = new StrategyData(strategy, cfg);
+        ListStrategyData expected = new ListStrategyData(strategy, cfg);
+
+        int labeled = 0;
+        for (int i = 0; i < maxBooks; ++i) {
+            FlatOrderBook book = books.get();
+            if (null == book) {
+                break;
+            }
+
+            Optional<FlatOrderBookWithHistory> expectedLabel = expected.addBook(book);
+            Optional<FlatOrderBookWithHistory> label = data.addBook(book);
+
+            assertThat(label).isEqualTo(expectedLabel);
+            assertThat(data.fullness()).isEqualTo(expected.fullness());
+            labeled += label.isPresent() ? 1 : 0;
+        }
+
+        assertThat(new ArrayList<>(data.getNoopLabel())).isEqualTo(new ArrayList<>(expected.noopLabel));
+        assertThat(new ArrayList<>(data.getActLabel())).isEqualTo(new ArrayList<>(expected.actLabel));
+        log.info("{} labeled {} books, noop {} act {}", strategy, labeled, data.getNoopLabel().size(),
+                data.getActLabel().size());
+    }
+
+    private static NnConfig config(int window, int collect, String dtS) {
+        NnConfig cfg = new NnConfig();
+        cfg.setFutureNwindow(window);
+        cfg.setCollectNlabeled(collect);
+        cfg.setNoopThreshold(new BigDecimal("1.001"));
+        cfg.setAverageDtSBetweenLabels(new BigDecimal(dtS));
+        return cfg;
+    }
+
+    private static FlatOrderBook book(long timestamp, float bestSell, float bestBuy) {
+        return new FlatOrderBook(timestamp, bestSell, bestBuy, 0.0f, 0.0f, new float[0], new float[0]);
+    }
+
+    private static LocalDateTime time(String value) {
+        return LocalDateTime.parse(value, DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+    }
+
+    private static String env(String name, String defaultVal) {
+        return System.getenv().getOrDefault(name, defaultVal);
+    }
+
+    // list-based implementation that StrategyData used before
+    private static class ListStrategyData {
+
+        private long lastBookTimestamp;
+        private final List<FlatOrderBook> booksInFuture = new ArrayList<>();
+        private final Queue<FlatOrderBookWithHistory> noopLabel;
+        private final Queue<FlatOrderBookWithHistory> actLabel;
+        private final NnConfig cfg;
+        private final float gainNoopThreshold;
+        private final Function<FlatOrderBook, Float> getFirstPrice;
+        private final Function<FlatOrderBook, Float> getSecondPrice;
+        private final BiFunction<Float, Float, Float> gainOnFirstSecond;
+        private final Function<Stream<Float>, Float> futurePriceDesiredBound;
+
+        ListStrategyData(Strategy strategy, NnConfig config) {
+            this.cfg = config;
+            this.gainNoopThreshold = config.getNoopThreshold().floatValue();
+            noopLabel = EvictingQueue.create(cfg.getCollectNlabeled());
+            actLabel = EvictingQueue.create(cfg.getCollectNlabeled());
+
+            if (strategy == Strategy.BUY_LOW_SELL_HIGH) {
+                getFirstPrice = FlatOrderBook::getBestSell;
+                getSecondPrice = FlatOrderBook::getBestBuy;
+                futurePriceDesiredBound = vals -> vals.max(Float::compareTo).orElse(0.0f);
+                gainOnFirstSecond = (first, second) -> second / first;
+            } else {
+                getFirstPrice = FlatOrderBook::getBestBuy;
+                getSecondPrice = FlatOrderBook::getBestSell;
+                futurePriceDesiredBound = vals -> vals.min(Float::compareTo).orElse(0.0f);
+                gainOnFirstSecond = (first, second) -> first / second;
+            }
+        }
+
+        double fullness() {
+            return (double) booksInFuture.size() / cfg.getFutureNwindow();
+        }
+
+        Optional<FlatOrderBookWithHistory> addBook(FlatOrderBook book) {
+            booksInFuture.add(book);
+            if (booksInFuture.size() < cfg.getFutureNwindow()) {
+                return Optional.empty();
+            }
+
+            FlatOrderBook mature = booksInFuture.remove(0);
+            if (mature.getTimestamp() - lastBookTimestamp < cfg.getAverageDtSBetweenLabels().doubleValue() * 1000) {
+                return Optional.empty();
+            }
+
+            lastBookTimestamp = mature.getTimestamp();
+            Set<Float> futurePrices = booksInFuture.stream().map(getSecondPrice).collect(Collectors.toSet());
+            float bestFuture = futurePriceDesiredBound.apply(futurePrices.stream());
+            FlatOrderBookWithHistory result = new FlatOrderBookWithHistory(mature, ImmutableList.of(
+                    getAt(10.0), getAt(50.0), getAt(100.0)
+            ));
+
+            if (gainOnFirstSecond.apply(getFirstPrice.apply(mature), bestFuture) <= gainNoopThreshold) {
+                noopLabel.add(result);
+            } else {
+                actLabel.add(result);
+            }
+
+            return Optional.of(result);
+        }
+
+        private FlatOrderBook getAt(double percentile) {
+            int pos = (int) ((booksInFuture.size() - 1) * percentile / 100.0);
+            return booksInFuture.get(pos >= booksInFuture.size() ? booksInFuture.size() - 1 : pos);
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.gtc.opportunity.trader.service.nnopportunity.solver;
+
+import com.gtc.meta.CurrencyPair;
+import com.gtc.meta.TradingCurrency;
+import com.gtc.model.provider.ByClientAndCurrency;
+import com.gtc.model.provider.OrderBook;
+import com.gtc.opportunity.trader.BaseMockitoTest;
+import com.gtc.opportunity.trader.domain.NnConfig;
+import com.gtc.opportunity.trader.service.dto.FlatOrderBookWithHistory;
+import com.gtc.opportunity.trader.service.nnopportunity.dto.Snapshot;
+import com.gtc.opportunity.trader.service.nnopportunity.repository.NnDataRepository;
+import com.gtc.opportunity.trader.service.nnopportunity.repository.Strategy;
+import com.gtc.opportunity.trader.service.nnopportunity.repository.StrategyDetails;
+import com.gtc.opportunity.trader.service.nnopportunity.solver.model.ModelFactory;
+import com.gtc.opportunity.trader.service.nnopportunity.solver.model.NnModelPredict;
+import com.gtc.opportunity.trader.service.nnopportunity.solver.time.LocalTime;
+import com.gtc.opportunity.trader.service.xoopportunity.creation.ConfigCache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Trains stubbed models to check {@link ModelTrainer} limits and that {@link NnSolver} swaps models atomically.
+ */
+public class NnSolverTest extends BaseMockitoTest {
+
+    private static final int THREADS = 2;
+
+    @Mock
+    private LocalTime localTime;
+
+    @Mock
+    private ConfigCache cfgCache;
+
+    @Mock
+    private ModelFactory factory;
+
+    @Mock
+    private NnDataRepository repository;
+
+    private final AtomicLong time = new AtomicLong();
+    private final Set<Key> keys = new LinkedHashSet<>();
+
+    private ModelTrainer trainer;
+    private NnSolver solver;
+
+    @BeforeEach
+    public void init() {
+        NnConfig config = new NnConfig();
+        config.setOldThresholdM(Integer.MAX_VALUE / 60000);
+        config.setBookTestForOpenPerS(new BigDecimal("1000"));
+
+        when(localTime.timestampMs()).thenAnswer(invocation -> time.addAndGet(1000L));
+        when(cfgCache.requireConfig(any(Snapshot.class))).thenReturn(config);
+        when(cfgCache.requireConfig(any(OrderBook.class))).thenReturn(config);
+        when(repository.getModellable()).thenReturn(keys);
+        when(repository.getDataToAnalyze(any(Key.class), any(Strategy.class))).thenReturn(Optional.empty());
+
+        trainer = new ModelTrainer(THREADS, TimeUnit.MINUTES.toSeconds(1));
+        solver = new NnSolver(localTime, cfgCache, factory, repository, trainer);
+    }
+
+    @AfterEach
+    public void shutdown() {
+        trainer.shutdown();
+    }
+
+    @Test
+    public void trainsAtMostConfiguredNumberOfModelsInParallel() throws Exception {
+        for (int i = 0; i < 8; ++i) {
+            withData(key("client" + i));
+        }
+
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        when(factory.buildModel(any(Snapshot.class), anyLong())).thenAnswer(invocation -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            Thread.sleep(50L);
+            running.decrementAndGet();
+            return model(time.get(), 0.9);
+        });
+
+        solver.createModels();
+        assertThat(trainer.statistics().getQueueDepth()).isPositive();
+        assertThat(trainer.awaitIdle(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(maxRunning.get()).isEqualTo(THREADS);
+        verify(factory, times(8)).buildModel(any(Snapshot.class), anyLong());
+        assertThat(trainer.statistics().getMaxDurationS()).isGreaterThanOrEqualTo(0.05);
+    }
+
+    @Test
+    public void doesNotScheduleSameKeyTwice() throws Exception {
+        Key key = withData(key("client"));
+        CountDownLatch release = new CountDownLatch(1);
+        when(factory.buildModel(any(Snapshot.class), anyLong())).thenAnswer(invocation -> {
+            release.await();
+            return model(time.get(), 0.9);
+        });
+
+        solver.createModels();
+        solver.createModels();
+        release.countDown();
+        assertThat(trainer.awaitIdle(10, TimeUnit.SECONDS)).isTrue();
+
+        verify(factory).buildModel(eq(snapshot(key)), anyLong());
+    }
+
+    @Test
+    public void servesOldModelUntilNewOneIsTrained() throws Exception {
+        Key key = withData(key("client"));
+        NnModelPredict first = model(time.get(), 0.7);
+        NnModelPredict second = model(time.get() + 1, 0.8);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(factory.buildModel(any(Snapshot.class), anyLong()))
+                .thenReturn(first)
+                .thenAnswer(invocation -> {
+                    started.countDown();
+                    release.await();
+                    return second;
+                });
+
+        solver.createModels();
+        assertThat(trainer.awaitIdle(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(confidence(key)).isEqualTo(0.7);
+
+        solver.createModels();
+        assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(confidence(key)).isEqualTo(0.7);
+
+        release.countDown();
+        assertThat(trainer.awaitIdle(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(confidence(key)).isEqualTo(0.8);
+    }
+
+    @Test
+    public void trainsStalestModelsFirst() throws Exception {
+        ModelTrainer single = new ModelTrainer(1, TimeUnit.MINUTES.toSeconds(1));
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        try {
+            single.schedule("blocker", Long.MIN_VALUE, deadline -> await(release));
+            single.schedule("fresh", 300L, deadline -> order.add("fresh"));
+            single.schedule("stale", 100L, deadline -> order.add("stale"));
+            single.schedule("never", Long.MIN_VALUE, deadline -> order.add("never"));
+            single.schedule("middle", 200L, deadline -> order.add("middle"));
+
+            assertThat(single.statistics().getQueueDepth()).isEqualTo(4);
+            release.countDown();
+            assertThat(single.awaitIdle(10, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            single.shutdown();
+        }
+
+        assertThat(order).containsExactly("never", "stale", "middle", "fresh");
+    }
+
+    @Test
+    public void dropsTrainingThatMissedDeadline() throws Exception {
+        ModelTrainer expiring = new ModelTrainer(1, 0L);
+        NnSolver expiringSolver = new NnSolver(localTime, cfgCache, factory, repository, expiring);
+        withData(key("client"));
+        try {
+            expiringSolver.createModels();
+            assertThat(expiring.awaitIdle(10, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            expiring.shutdown();
+        }
+
+        verify(factory, never()).buildModel(any(Snapshot.class), anyLong());
+        // one per strategy
+        assertThat(expiring.statistics().getExpiredTrainings()).isEqualTo(Strategy.values().length);
+    }
+
+    private double confidence(Key key) {
+        OrderBook book = OrderBook.builder()
+                .meta(new ByClientAndCurrency(key.getClient(), key.getPair(), time.addAndGet(1000L)))
+                .build();
+        Map<Strategy, FlatOrderBookWithHistory> candidates = new EnumMap<>(Strategy.class);
+        candidates.put(Strategy.BUY_LOW_SELL_HIGH, mock(FlatOrderBookWithHistory.class));
+
+        return solver.findStrategy(book, candidates).map(StrategyDetails::getConfidence).orElse(-1.0);
+    }
+
+    private Key withData(Key key) {
+        keys.add(key);
+        when(repository.getDataToAnalyze(key, Strategy.BUY_LOW_SELL_HIGH)).thenReturn(Optional.of(snapshot(key)));
+        return key;
+    }
+
+    private static Snapshot snapshot(Key key) {
+        return new Snapshot(key, Collections.emptyList(), Collections.emptyList());
+    }
+
+    private static Key key(String client) {
+        return new Key(client, new CurrencyPair(TradingCurrency.EOS, TradingCurrency.Bitcoin));
+    }
+
+    private static NnModelPredict model(long creationTimestamp, double confidence) {
+        NnModelPredict model = mock(NnModelPredict.class);
+        when(model.getCreationTimestamp()).thenReturn(creationTimestamp);
+        when(model.computeStrategyIfPossible(any(Strategy.class), any(FlatOrderBookWithHistory.class)))
+                .thenReturn(Optional.of(new StrategyDetails(Strategy.BUY_LOW_SELL_HIGH, confidence, 0, 0, 0)));
+        return model;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.gtc.opportunity.trader.service.nnopportunity.solver.time;
+
+import com.gtc.opportunity.trader.BaseMockitoTest;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BurstyRateLimiterTest extends BaseMockitoTest {
+
+    private static final long INIT_MS = System.currentTimeMillis();
+
+    @Test
+    void tryAcquireEachInterval() {
+        LocalTime time = mock(LocalTime.class);
+        when(time.timestampMs()).thenReturn(INIT_MS);
+        BurstyRateLimiter limiter = new BurstyRateLimiter(2.0, time);
+
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isFalse();
+
+        when(time.timestampMs()).thenReturn(INIT_MS + 499);
+        assertThat(limiter.tryAcquire()).isFalse();
+
+        when(time.timestampMs()).thenReturn(INIT_MS + 500);
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isFalse();
+    }
+
+    @Test
+    void storesUpToOneSecondOfPermitsWhileIdle() {
+        LocalTime time = mock(LocalTime.class);
+        when(time.timestampMs()).thenReturn(INIT_MS);
+        BurstyRateLimiter limiter = new BurstyRateLimiter(2.0, time);
+        assertThat(limiter.tryAcquire()).isTrue();
+
+        when(time.timestampMs()).thenReturn(INIT_MS + 10000);
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isTrue();
+        // stored permits are exhausted, this one is paid by waiting for interval
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isFalse();
+
+        when(time.timestampMs()).thenReturn(INIT_MS + 10499);
+        assertThat(limiter.tryAcquire()).isFalse();
+
+        when(time.timestampMs()).thenReturn(INIT_MS + 10500);
+        assertThat(limiter.tryAcquire()).isTrue();
+    }
+
+    @Test
+    void slowRateAllowsFirstThenWaitsWholeInterval() {
+        LocalTime time = mock(LocalTime.class);
+        when(time.timestampMs()).thenReturn(INIT_MS);
+        BurstyRateLimiter limiter = new BurstyRateLimiter(0.1, time);
+
+        assertThat(limiter.tryAcquire()).isTrue();
+
+        when(time.timestampMs()).thenReturn(INIT_MS + 9999);
+        assertThat(limiter.tryAcquire()).isFalse();
+
+        when(time.timestampMs()).thenReturn(INIT_MS + 10000);
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isFalse();
+    }
+}
@@ -0,0 +1,97 @@
+package com.gtc.opportunity.trader.service.xoopportunity.creation.precision;
+
+import com.gtc.opportunity.trader.cqe.domain.FullCrossMarketOpportunity;
+import com.gtc.opportunity.trader.service.xoopportunity.creation.precision.dto.AsFixed;
+import com.gtc.opportunity.trader.service.xoopportunity.creation.precision.dto.IntegratedHistogram;
+import com.gtc.opportunity.trader.service.xoopportunity.creation.precision.dto.XoClientTradeConditionAsLong;
+import com.gtc.opportunity.trader.service.xoopportunity.creation.precision.dto.XoTradeCondition;
+import lombok.experimental.UtilityClass;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * BigDecimal histogram integration and condition mapping (what precision path did before fixed point),
+ * primitive one must give exactly same values.
+ */
+@UtilityClass
+public final class BigDecimalReference {
+
+    private static final int MAX_SCALE = 14;
+
+    public void assertSameAsBigDecimal(XoTradeCondition condition) {
+        XoClientTradeConditionAsLong mapped = new ToLongMathMapper().map(condition);
+        assertThat(mapped.getMinToBuyAmount()).isEqualTo(stepped(condition.getMinToSellAmount(),
+                condition.getStepToAmountPow10(), RoundingMode.FLOOR));
+        assertThat(mapped.getMaxToBuyAmount()).isEqualTo(stepped(condition.getMaxToSellAmount(),
+                condition.getStepToAmountPow10(), RoundingMode.FLOOR));
+        assertThat(mapped.getMinFromSellAmount()).isEqualTo(stepped(condition.getMinFromBuyAmount(),
+                condition.getStepFromAmountPow10(), RoundingMode.FLOOR));
+        assertThat(mapped.getMaxFromSellAmount()).isEqualTo(stepped(condition.getMaxFromBuyAmount(),
+                condition.getStepFromAmountPow10(), RoundingMode.FLOOR));
+        assertThat(mapped.getMinToBuyPrice()).isEqualTo(stepped(condition.getMinToSellPrice(),
+                condition.getStepToPricePow10(), RoundingMode.CEILING));
+        assertThat(mapped.getMaxFromSellPrice()).isEqualTo(stepped(condition.getMaxFromBuyPrice(),
+                condition.getStepFromPricePow10(), RoundingMode.FLOOR));
+
+        HistogramIntegrator integrator = new HistogramIntegrator();
+        for (int priceScale = 0; priceScale <= MAX_SCALE; ++priceScale) {
+            for (int amountScale = 0; amountScale <= MAX_SCALE; ++amountScale) {
+                assertSameIntegral(integrator, condition.getBuyFrom(), priceScale, amountScale, false);
+                assertSameIntegral(integrator, condition.getSellTo(), priceScale, amountScale, true);
+            }
+        }
+    }
+
+    public void assertSameIntegral(HistogramIntegrator integrator, FullCrossMarketOpportunity.Histogram[] histogram,
+                                   int priceScale, int amountScale, boolean isMarketSell) {
+        assertThat(integrator.integrate(histogram, priceScale, amountScale, isMarketSell))
+                .as("Price scale %d amount scale %d", priceScale, amountScale)
+                .isEqualTo(integrate(histogram, priceScale, amountScale, isMarketSell));
+    }
+
+    public IntegratedHistogram integrate(FullCrossMarketOpportunity.Histogram[] histogram, int priceScale,
+                                         int amountScale, boolean isMarketSell) {
+        double min = Arrays.stream(histogram)
+                .mapToDouble(FullCrossMarketOpportunity.Histogram::getMinPrice).min().orElse(0.0);
+        double max = Arrays.stream(histogram)
+                .mapToDouble(FullCrossMarketOpportunity.Histogram::getMaxPrice).max().orElse(0.0);
+        double origStep = (max - min) / histogram.length;
+
+        double[] inOrder = new double[histogram.length];
+        for (FullCrossMarketOpportunity.Histogram entry : histogram) {
+            int pos = (int) (((entry.getMinPrice() + entry.getMaxPrice()) / 2.0 - min) / origStep);
+            inOrder[pos] = Math.abs(entry.getAmount());
+        }
+
+        long[] asLong = new long[histogram.length];
+        long step = longVal(BigDecimal.valueOf(origStep), priceScale, RoundingMode.CEILING);
+        BigDecimal summ = BigDecimal.ZERO;
+        int start = isMarketSell ? 0 : histogram.length - 1;
+        int end = isMarketSell ? histogram.length : 0;
+        int iStep = isMarketSell ? 1 : -1;
+
+        for (int i = start; isMarketSell ?  i < end : i >= 0; i += iStep) {
+            summ = summ.add(BigDecimal.valueOf(inOrder[i]));
+            asLong[isMarketSell ? i : start - i] = longVal(summ, amountScale, RoundingMode.FLOOR);
+        }
+
+        long minLong = longVal(BigDecimal.valueOf(min), priceScale, RoundingMode.FLOOR);
+        long maxLong = minLong + step * histogram.length;
+        return new IntegratedHistogram(step, minLong, maxLong, !isMarketSell, priceScale, asLong);
+    }
+
+    public AsFixed stepped(double amount, BigDecimal pow10step, RoundingMode mode) {
+        int scale = pow10step.stripTrailingZeros().scale();
+        return new AsFixed(BigDecimal.valueOf(amount).setScale(scale, mode));
+    }
+
+    private long longVal(BigDecimal value, int scale, RoundingMode mode) {
+        return value.movePointRight(scale)
+                .setScale(0, mode)
+                .longValueExact();
+    }
+}
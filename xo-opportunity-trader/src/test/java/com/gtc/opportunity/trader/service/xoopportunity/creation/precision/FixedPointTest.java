@@ -0,0 +1,84 @@
+package com.gtc.opportunity.trader.service.xoopportunity.creation.precision;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FixedPointTest {
+
+    private static final RoundingMode[] MODES = {
+            RoundingMode.FLOOR, RoundingMode.CEILING, RoundingMode.DOWN, RoundingMode.UP
+    };
+
+    @Test
+    void sameAsBigDecimalOnDecimalLiterals() {
+        assertSame(1.1, 2);
+        assertSame(0.0032569, 7);
+        assertSame(0.0032569, 6);
+        assertSame(400.59000000000003, 8);
+        assertSame(-0.30690191721627685, 10);
+        assertSame(123456.0, -2);
+        assertSame(0.0, 5);
+        assertSame(-1e-12, 3);
+    }
+
+    @Test
+    void sameAsBigDecimalOnRandomValues() {
+        Random random = new Random(42L);
+        for (int i = 0; i < 200_000; ++i) {
+            int scale = random.nextInt(20) - 4;
+            assertSame(randomValue(random), scale);
+        }
+    }
+
+    @Test
+    void reportsValuesThatDoNotFitDouble() {
+        assertThat(FixedPoint.tryFixed(1e10, 8, RoundingMode.FLOOR)).isEqualTo(FixedPoint.INEXACT);
+        assertThat(FixedPoint.tryFixed(1.5, 0, RoundingMode.HALF_UP)).isEqualTo(FixedPoint.INEXACT);
+        assertThat(FixedPoint.tryFixed(Double.NaN, 0, RoundingMode.FLOOR)).isEqualTo(FixedPoint.INEXACT);
+
+        // BigDecimal fallback
+        assertThat(FixedPoint.fixed(1e10, 8, RoundingMode.FLOOR)).isEqualTo(1_000_000_000_000_000_000L);
+        assertThat(FixedPoint.fixed(2.5, 0, RoundingMode.HALF_EVEN)).isEqualTo(2L);
+        assertThatThrownBy(() -> FixedPoint.fixed(1e10, 10, RoundingMode.FLOOR))
+                .isInstanceOf(ArithmeticException.class);
+    }
+
+    @Test
+    void convertsBackSameAsBigDecimal() {
+        Random random = new Random(7L);
+        for (int i = 0; i < 100_000; ++i) {
+            long val = random.nextLong() >> random.nextInt(63);
+            int scale = random.nextInt(30) - 5;
+            assertThat(FixedPoint.toDouble(val, scale)).isEqualTo(BigDecimal.valueOf(val, scale).doubleValue());
+        }
+    }
+
+    private static void assertSame(double value, int scale) {
+        for (RoundingMode mode : MODES) {
+            BigDecimal expected = BigDecimal.valueOf(value).setScale(scale, mode).movePointRight(scale);
+            long actual = FixedPoint.tryFixed(value, scale, mode);
+            if (FixedPoint.INEXACT != actual) {
+                assertThat(actual).as("%s at scale %d %s", value, scale, mode).isEqualTo(expected.longValueExact());
+            }
+        }
+    }
+
+    // mixture of short decimals, computed values with representation noise and arbitrary doubles
+    private static double randomValue(Random random) {
+        double sign = random.nextBoolean() ? 1.0 : -1.0;
+        switch (random.nextInt(3)) {
+            case 0:
+                return sign * BigDecimal.valueOf(random.nextInt(10_000_000), random.nextInt(12)).doubleValue();
+            case 1:
+                return sign * (random.nextInt(100_000) / (double) (1 + random.nextInt(1000)));
+            default:
+                return sign * random.nextDouble() * Math.pow(10, random.nextInt(12) - 6);
+        }
+    }
+}
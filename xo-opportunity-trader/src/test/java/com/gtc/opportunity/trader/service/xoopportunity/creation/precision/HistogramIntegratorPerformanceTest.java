@@ -0,0 +1,87 @@
+package com.gtc.opportunity.trader.service.xoopportunity.creation.precision;
+
+import com.gtc.opportunity.trader.cqe.domain.FullCrossMarketOpportunity;
+import com.gtc.opportunity.trader.service.xoopportunity.creation.precision.dto.AsFixed;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Microbenchmark of fixed point histogram integration and amount stepping against BigDecimal ones.
+ * Test will only start if it sees property PERF_TEST == true.
+ */
+@Slf4j
+class HistogramIntegratorPerformanceTest {
+
+    private static final int ROUNDS = 5;
+    private static final int ITERATIONS = 200_000;
+
+    // market sell histogram of XoTransactionCalculatorTest2
+    private static final FullCrossMarketOpportunity.Histogram[] HISTOGRAM = {
+            new FullCrossMarketOpportunity.Histogram(0.003229, 0.0032321, 141.25),
+            new FullCrossMarketOpportunity.Histogram(0.0032321, 0.0032352, 400.59000000000003),
+            new FullCrossMarketOpportunity.Histogram(0.0032352, 0.0032383, 0.97),
+            new FullCrossMarketOpportunity.Histogram(0.0032383, 0.0032414, 14.9),
+            new FullCrossMarketOpportunity.Histogram(0.0032414, 0.0032445, 0.0),
+            new FullCrossMarketOpportunity.Histogram(0.0032445, 0.0032476, 0.0),
+            new FullCrossMarketOpportunity.Histogram(0.0032476, 0.0032507, 0.0),
+            new FullCrossMarketOpportunity.Histogram(0.0032507, 0.0032538, 0.0),
+            new FullCrossMarketOpportunity.Histogram(0.0032538, 0.0032569, 0.0),
+            new FullCrossMarketOpportunity.Histogram(0.0032569, 0.00326, 105.47)
+    };
+
+    private static final BigDecimal STEP = new BigDecimal("0.0001");
+
+    @Test
+    @EnabledIfEnvironmentVariable(named = "PERF_TEST", matches = "true")
+    void integrate() {
+        HistogramIntegrator integrator = new HistogramIntegrator();
+        long sink = 0;
+        for (int round = 0; round < ROUNDS; ++round) {
+            long start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; ++i) {
+                sink += BigDecimalReference.integrate(HISTOGRAM, 6, 5, true).getAmount()[9];
+            }
+            long bigDecimalNs = (System.nanoTime() - start) / ITERATIONS;
+
+            start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; ++i) {
+                sink += integrator.integrate(HISTOGRAM, 6, 5, true).getAmount()[9];
+            }
+            long fixedNs = (System.nanoTime() - start) / ITERATIONS;
+
+            log.info("Round {}: BigDecimal {} ns/histogram, fixed point {} ns/histogram", round, bigDecimalNs,
+                    fixedNs);
+        }
+
+        log.info("Fallbacks {}, sink {}", integrator.exactFallbacks(), sink);
+    }
+
+    @Test
+    @EnabledIfEnvironmentVariable(named = "PERF_TEST", matches = "true")
+    void stepAmount() {
+        long sink = 0;
+        for (int round = 0; round < ROUNDS; ++round) {
+            long start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; ++i) {
+                AsFixed value = BigDecimalReference.stepped(0.30690191721627685 + i, STEP, RoundingMode.FLOOR);
+                sink += value.getVal();
+            }
+            long bigDecimalNs = (System.nanoTime() - start) / ITERATIONS;
+
+            start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; ++i) {
+                AsFixed value = AsFixed.of(FixedPoint.fixed(0.30690191721627685 + i, 4, RoundingMode.FLOOR), 4);
+                sink += value.getVal();
+            }
+            long fixedNs = (System.nanoTime() - start) / ITERATIONS;
+
+            log.info("Round {}: BigDecimal {} ns/value, fixed point {} ns/value", round, bigDecimalNs, fixedNs);
+        }
+
+        log.info("Sink {}", sink);
+    }
+}
@@ -6,7 +6,11 @@ import com.gtc.opportunity.trader.service.xoopportunity.creation.precision.dto.I
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.math.BigDecimal;
+import java.util.Random;
+
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 
 /**
@@ -70,4 +74,47 @@ public class HistogramIntegratorTest extends BaseMockitoTest  {
         assertThat(res.amount(4)).isEqualTo(8);
         assertThat(res.amount(2)).isEqualTo(8);
     }
+
+    @Test
+    public void sameAsBigDecimalOnRandomHistograms() {
+        Random random = new Random(42L);
+        for (int i = 0; i < 2000; ++i) {
+            FullCrossMarketOpportunity.Histogram[] histogram = randomHistogram(random, false);
+            BigDecimalReference.assertSameIntegral(integrator, histogram, random.nextInt(10), random.nextInt(9),
+                    random.nextBoolean());
+        }
+        // amounts with at most amount scale digits are always exact in fixed point
+        assertThat(integrator.exactFallbacks()).isZero();
+
+        for (int i = 0; i < 2000; ++i) {
+            FullCrossMarketOpportunity.Histogram[] histogram = randomHistogram(random, true);
+            BigDecimalReference.assertSameIntegral(integrator, histogram, random.nextInt(10), random.nextInt(13),
+                    random.nextBoolean());
+        }
+    }
+
+    @Test
+    public void fallsBackToBigDecimalIfNotFitsFixedPoint() {
+        sell[0] = new FullCrossMarketOpportunity.Histogram(25, 30, 8e7);
+
+        BigDecimalReference.assertSameIntegral(integrator, sell, 0, 10, true);
+        assertThat(integrator.exactFallbacks()).isEqualTo(1L);
+        assertThatThrownBy(() -> integrator.integrate(sell, 0, 12, true)).isInstanceOf(ArithmeticException.class);
+    }
+
+    private static FullCrossMarketOpportunity.Histogram[] randomHistogram(Random random, boolean noisy) {
+        int size = 1 + random.nextInt(20);
+        double price = random.nextDouble() * Math.pow(10, random.nextInt(6) - 4);
+        double step = price * 0.0001 * (1 + random.nextInt(10));
+        FullCrossMarketOpportunity.Histogram[] result = new FullCrossMarketOpportunity.Histogram[size];
+        for (int i = 0; i < size; ++i) {
+            double amount = noisy
+                    ? random.nextDouble() * 100
+                    : BigDecimal.valueOf(random.nextInt(1_000_000), random.nextInt(9)).doubleValue();
+            result[i] = new FullCrossMarketOpportunity.Histogram(price + i * step, price + (i + 1) * step,
+                    random.nextBoolean() ? amount : -amount);
+        }
+
+        return result;
+    }
 }
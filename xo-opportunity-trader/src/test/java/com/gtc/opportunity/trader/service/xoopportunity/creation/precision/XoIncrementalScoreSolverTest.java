@@ -0,0 +1,199 @@
+package com.gtc.opportunity.trader.service.xoopportunity.creation.precision;
+
+import com.gtc.opportunity.trader.BaseMockitoTest;
+import com.gtc.opportunity.trader.cqe.domain.FullCrossMarketOpportunity;
+import com.gtc.opportunity.trader.service.nnopportunity.solver.time.LocalTime;
+import com.gtc.opportunity.trader.service.xoopportunity.common.SolverPool;
+import com.gtc.opportunity.trader.service.xoopportunity.creation.precision.dto.XoTradeCondition;
+import com.gtc.opportunity.trader.service.xoopportunity.creation.precision.optaplan.XoBalanceIncrementalScore;
+import com.gtc.opportunity.trader.service.xoopportunity.creation.precision.optaplan.XoBalanceScore;
+import com.gtc.opportunity.trader.service.xoopportunity.creation.precision.optaplan.XoTrade;
+import com.gtc.opportunity.trader.service.xoopportunity.creation.precision.optaplan.XoTradeBalance;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.optaplanner.core.api.solver.SolverFactory;
+import org.optaplanner.core.config.score.director.ScoreDirectorFactoryConfig;
+import org.optaplanner.core.config.solver.EnvironmentMode;
+import org.optaplanner.core.impl.solver.DefaultSolver;
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Solver configured with {@link XoBalanceIncrementalScore} must see same scores as {@link XoBalanceScore} would give.
+ */
+@Slf4j
+public class XoIncrementalScoreSolverTest extends BaseMockitoTest {
+
+    private static final String CONFIG = "optaplan/config/xo/solver.xml";
+    private static final long SOLVE_FOR_MS = 100L;
+
+    private final XoTransactionCalculator calculator = new XoTransactionCalculator(
+            new ToLongMathMapper(),
+            new HistogramIntegrator(),
+            new SolverPool(1),
+            new LocalTime()
+    );
+
+    @Test
+    public void configuredWithIncrementalScore() {
+        SolverFactory<XoTradeBalance> factory = SolverFactory.createFromXmlResource(CONFIG);
+
+        assertThat(factory.getSolverConfig().getScoreDirectorFactoryConfig().getIncrementalScoreCalculatorClass())
+                .isEqualTo(XoBalanceIncrementalScore.class);
+    }
+
+    @Test
+    public void sameScoreAsEasyWhileSolving() {
+        SolverFactory<XoTradeBalance> factory = SolverFactory.createFromXmlResource(CONFIG);
+        factory.getSolverConfig().setEnvironmentMode(EnvironmentMode.FULL_ASSERT);
+        factory.getSolverConfig().getTerminationConfig().setScoreCalculationCountLimit(2000L);
+        ScoreDirectorFactoryConfig assertion = new ScoreDirectorFactoryConfig();
+        assertion.setEasyScoreCalculatorClass(XoBalanceScore.class);
+        factory.getSolverConfig().getScoreDirectorFactoryConfig().setAssertionScoreDirectorFactory(assertion);
+
+        // FULL_ASSERT throws if incremental score differs from assertion one after any move
+        XoTradeBalance solved = factory.buildSolver().solve(calculator.buildProblem(condition()));
+
+        assertThat(solved.getScore()).isEqualTo(new XoBalanceScore().calculateScore(solved));
+    }
+
+    /**
+     * Microbenchmark of solver score calculation count per second, first round is warmup.
+     * Test will only start if it sees property PERF_TEST == true.
+     */
+    @Test
+    @EnabledIfEnvironmentVariable(named = "PERF_TEST", matches = "true")
+    public void scoreCalculationSpeed() {
+        int iterations = 200;
+        long easyTotal = 0;
+        long incrementalTotal = 0;
+        for (int round = 0; round < 5; ++round) {
+            long easy = scoreCalculationsPerS(iterations, false);
+            long incremental = scoreCalculationsPerS(iterations, true);
+            log.info("Round {}: easy {} score calculations/s, incremental {} score calculations/s",
+                    round, easy, incremental);
+            if (round > 0) {
+                easyTotal += easy;
+                incrementalTotal += incremental;
+            }
+        }
+
+        assertThat(incrementalTotal).isGreaterThan(easyTotal);
+    }
+
+    /**
+     * Microbenchmark of applying move and calculating its score without solver.
+     * Test will only start if it sees property PERF_TEST == true.
+     */
+    @Test
+    @EnabledIfEnvironmentVariable(named = "PERF_TEST", matches = "true")
+    public void scorePerMove() {
+        int moves = 2_000_000;
+        XoTradeBalance bal = calculator.buildProblem(condition());
+        XoTrade trade = bal.getTrade();
+        long[][] values = randomMoves(trade, moves);
+        XoBalanceScore easy = new XoBalanceScore();
+        XoBalanceIncrementalScore incremental = new XoBalanceIncrementalScore();
+        incremental.resetWorkingSolution(bal);
+
+        long sink = 0;
+        for (int round = 0; round < 5; ++round) {
+            long start = System.nanoTime();
+            for (long[] move : values) {
+                apply(trade, move, null);
+                sink += easy.calculateScore(bal).getSoftScore();
+            }
+            long easyNs = (System.nanoTime() - start) / moves;
+
+            start = System.nanoTime();
+            for (long[] move : values) {
+                apply(trade, move, incremental);
+                sink += incremental.calculateScore().getSoftScore();
+            }
+            long incrementalNs = (System.nanoTime() - start) / moves;
+
+            log.info("Round {}: easy {} ns/move, incremental {} ns/move", round, easyNs, incrementalNs);
+        }
+
+        log.info("Sink {}", sink);
+    }
+
+    private static long[][] randomMoves(XoTrade trade, int count) {
+        Random random = new Random(42L);
+        long[][] moves = new long[count][];
+        for (int i = 0; i < count; ++i) {
+            moves[i] = new long[] {
+                    trade.getSellAmountFrom() + random.nextInt(21) - 10,
+                    trade.getBuyAmountTo() + random.nextInt(21) - 10,
+                    trade.getSellPriceFrom() + random.nextInt(21) - 10,
+                    trade.getBuyPriceTo() + random.nextInt(21) - 10
+            };
+        }
+
+        return moves;
+    }
+
+    // same variable change notifications as XoMove does
+    private static void apply(XoTrade trade, long[] move, XoBalanceIncrementalScore score) {
+        notify(score, trade, "sellAmountFrom", () -> trade.setSellAmountFrom(move[0]));
+        notify(score, trade, "buyAmountTo", () -> trade.setBuyAmountTo(move[1]));
+        notify(score, trade, "sellPriceFrom", () -> trade.setSellPriceFrom(move[2]));
+        notify(score, trade, "buyPriceTo", () -> trade.setBuyPriceTo(move[3]));
+    }
+
+    private static void notify(XoBalanceIncrementalScore score, XoTrade trade, String variable, Runnable change) {
+        if (null != score) {
+            score.beforeVariableChanged(trade, variable);
+        }
+
+        change.run();
+
+        if (null != score) {
+            score.afterVariableChanged(trade, variable);
+        }
+    }
+
+    private long scoreCalculationsPerS(int iterations, boolean incremental) {
+        SolverFactory<XoTradeBalance> factory = SolverFactory.createFromXmlResource(CONFIG);
+        factory.getSolverConfig().getTerminationConfig().setMillisecondsSpentLimit(SOLVE_FOR_MS);
+        if (!incremental) {
+            ScoreDirectorFactoryConfig scoreCfg = factory.getSolverConfig().getScoreDirectorFactoryConfig();
+            scoreCfg.setIncrementalScoreCalculatorClass(null);
+            scoreCfg.setEasyScoreCalculatorClass(XoBalanceScore.class);
+        }
+
+        DefaultSolver<XoTradeBalance> solver = (DefaultSolver<XoTradeBalance>) factory.buildSolver();
+        long count = 0;
+        long spentMs = 0;
+        for (int i = 0; i < iterations; ++i) {
+            solver.solve(calculator.buildProblem(condition()));
+            count += solver.getSolverScope().getScoreCalculationCount();
+            spentMs += solver.getSolverScope().getTimeMillisSpent();
+        }
+
+        return count * 1000 / Math.max(1L, spentMs);
+    }
+
+    private static XoTradeCondition condition() {
+        return new XoTradeCondition(
+                "TEST", 1000.0,
+                0.01, 0.1, 0.02228772013595108, 0.1, 0.044682234, 0.0448677565,
+                new BigDecimal("1.01"), new BigDecimal("1.01"),
+                new BigDecimal("0.999"), new BigDecimal("0.998"),
+                new BigDecimal("0.000001"), new BigDecimal("0.00001"), new BigDecimal("0.001"),
+                new BigDecimal("0.00001"), new BigDecimal("1.0009"), (int) SOLVE_FOR_MS,
+                new FullCrossMarketOpportunity.Histogram[]{
+                        new FullCrossMarketOpportunity.Histogram(0.044724, 0.044767999999999995, 0.0),
+                        new FullCrossMarketOpportunity.Histogram(0.04468, 0.044724, -0.98509921)
+                },
+                new FullCrossMarketOpportunity.Histogram[]{
+                        new FullCrossMarketOpportunity.Histogram(0.0447956, 0.0448328, 1.638),
+                        new FullCrossMarketOpportunity.Histogram(0.0448328, 0.04487, 8.75)
+                }
+        );
+    }
+}
@@ -0,0 +1,125 @@
+package com.gtc.opportunity.trader.service.xoopportunity.creation.precision;
+
+import com.gtc.opportunity.trader.BaseMockitoTest;
+import com.gtc.opportunity.trader.cqe.domain.FullCrossMarketOpportunity;
+import com.gtc.opportunity.trader.service.nnopportunity.solver.time.LocalTime;
+import com.gtc.opportunity.trader.service.xoopportunity.common.SolverPool;
+import com.gtc.opportunity.trader.service.xoopportunity.creation.precision.dto.XoTradeCondition;
+import com.gtc.opportunity.trader.service.xoopportunity.creation.precision.optaplan.XoTradeBalance;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.optaplanner.core.api.solver.Solver;
+import org.optaplanner.core.api.solver.SolverFactory;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Pooled solver must give same solution as freshly built one - solvers are terminated by score calculation count so that
+ * solutions are reproducible.
+ */
+@Slf4j
+public class XoSolverPoolTest extends BaseMockitoTest {
+
+    private static final String CONFIG = "optaplan/config/xo/solver.xml";
+    private static final long SOLVE_FOR_MS = 10000L;
+    private static final long SCORE_CALCULATIONS = 2000L;
+
+    private final XoTransactionCalculator calculator = new XoTransactionCalculator(
+            new ToLongMathMapper(),
+            new HistogramIntegrator(),
+            new SolverPool(1),
+            new LocalTime()
+    );
+
+    private final SolverPool pool = new SolverPool(2);
+    private final AtomicInteger parsed = new AtomicInteger();
+
+    @Test
+    public void pooledSolverGivesSameSolution() {
+        for (int i = 0; i < 5; ++i) {
+            XoTradeBalance fresh = buildSolver().solve(calculator.buildProblem(condition()));
+            XoTradeBalance pooled = pool.solve(CONFIG, this::stepLimited, SOLVE_FOR_MS,
+                    calculator.buildProblem(condition()));
+
+            assertThat(pooled.getScore()).isEqualTo(fresh.getScore());
+            assertThat(pooled.getTrade()).isEqualToComparingFieldByField(fresh.getTrade());
+        }
+
+        assertThat(parsed.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void failedSolveDoesNotBreakPool() {
+        XoTradeBalance expected = buildSolver().solve(calculator.buildProblem(condition()));
+
+        assertThatThrownBy(() -> pool.solve(CONFIG, this::stepLimited, SOLVE_FOR_MS, null))
+                .isInstanceOf(IllegalArgumentException.class);
+        XoTradeBalance solved = pool.solve(CONFIG, this::stepLimited, SOLVE_FOR_MS,
+                calculator.buildProblem(condition()));
+
+        assertThat(solved.getScore()).isEqualTo(expected.getScore());
+        assertThat(solved.getTrade()).isEqualToComparingFieldByField(expected.getTrade());
+    }
+
+    @Test
+    @EnabledIfEnvironmentVariable(named = "PERF_TEST", matches = "true")
+    public void latencyAgainstBuildingSolverEachTime() {
+        int iterations = 500;
+        for (int round = 0; round < 3; ++round) {
+            long fresh = time(() -> buildSolver().solve(calculator.buildProblem(condition())), iterations);
+            long pooled = time(() -> pool.solve(CONFIG, this::stepLimited, SOLVE_FOR_MS,
+                    calculator.buildProblem(condition())), iterations);
+            log.info("Round {}: build each time {} us/solve, pooled {} us/solve ({} score calculations)",
+                    round, fresh / 1000, pooled / 1000, SCORE_CALCULATIONS);
+        }
+    }
+
+    private static long time(Supplier<XoTradeBalance> solve, int iterations) {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; ++i) {
+            solve.get();
+        }
+
+        return (System.nanoTime() - start) / iterations;
+    }
+
+    // what XoTransactionCalculator did before pooling
+    private static Solver<XoTradeBalance> buildSolver() {
+        SolverFactory<XoTradeBalance> factory = SolverFactory.createFromXmlResource(CONFIG);
+        factory.getSolverConfig().getTerminationConfig().setScoreCalculationCountLimit(SCORE_CALCULATIONS);
+        factory.getSolverConfig().getTerminationConfig().setMillisecondsSpentLimit(SOLVE_FOR_MS);
+        return factory.buildSolver();
+    }
+
+    private SolverFactory<XoTradeBalance> stepLimited() {
+        parsed.incrementAndGet();
+        SolverFactory<XoTradeBalance> factory = SolverFactory.createFromXmlResource(CONFIG);
+        factory.getSolverConfig().getTerminationConfig().setScoreCalculationCountLimit(SCORE_CALCULATIONS);
+        return factory;
+    }
+
+    private static XoTradeCondition condition() {
+        return new XoTradeCondition(
+                "TEST", 1000.0,
+                0.01, 0.1, 0.02228772013595108, 0.1, 0.044682234, 0.0448677565,
+                new BigDecimal("1.01"), new BigDecimal("1.01"),
+                new BigDecimal("0.999"), new BigDecimal("0.998"),
+                new BigDecimal("0.000001"), new BigDecimal("0.00001"), new BigDecimal("0.001"),
+                new BigDecimal("0.00001"), new BigDecimal("1.0009"), (int) SOLVE_FOR_MS,
+                new FullCrossMarketOpportunity.Histogram[]{
+                        new FullCrossMarketOpportunity.Histogram(0.044724, 0.044767999999999995, 0.0),
+                        new FullCrossMarketOpportunity.Histogram(0.04468, 0.044724, -0.98509921)
+                },
+                new FullCrossMarketOpportunity.Histogram[]{
+                        new FullCrossMarketOpportunity.Histogram(0.0447956, 0.0448328, 1.638),
+                        new FullCrossMarketOpportunity.Histogram(0.0448328, 0.04487, 8.75)
+                }
+        );
+    }
+}
@@ -0,0 +1,126 @@
+package com.gtc.opportunity.trader.service.xoopportunity.creation.precision.optaplan;
+
+import com.gtc.opportunity.trader.cqe.domain.FullCrossMarketOpportunity;
+import com.gtc.opportunity.trader.service.xoopportunity.creation.precision.HistogramIntegrator;
+import com.gtc.opportunity.trader.service.xoopportunity.creation.precision.dto.AsFixed;
+import com.gtc.opportunity.trader.service.xoopportunity.creation.precision.dto.XoClientTradeConditionAsLong;
+import org.junit.jupiter.api.Test;
+import org.optaplanner.core.api.score.buildin.hardsoftlong.HardSoftLongScore;
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Incremental score must be same as {@link XoBalanceScore} after any sequence of variable changes, including
+ * changes that do not change value and partial moves.
+ */
+class XoBalanceIncrementalScoreTest {
+
+    private static final String[] VARIABLES = {"sellAmountFrom", "buyAmountTo", "sellPriceFrom", "buyPriceTo"};
+    private static final int MOVES = 100_000;
+
+    @Test
+    void sameScoreAsEasyOnRandomMoves() {
+        Random random = new Random(42L);
+        XoTradeBalance bal = balance(new XoTrade(800L, 82894L, 705124L, 67971L));
+        XoBalanceScore easy = new XoBalanceScore();
+        XoBalanceIncrementalScore incremental = new XoBalanceIncrementalScore();
+        incremental.resetWorkingSolution(bal);
+
+        boolean hadFeasible = false;
+        boolean hadInfeasible = false;
+        for (int i = 0; i < MOVES; ++i) {
+            XoTrade trade = bal.getTrade();
+            int changes = 1 + random.nextInt(VARIABLES.length);
+            for (int change = 0; change < changes; ++change) {
+                String variable = VARIABLES[random.nextInt(VARIABLES.length)];
+                incremental.beforeVariableChanged(trade, variable);
+                set(trade, variable, random);
+                incremental.afterVariableChanged(trade, variable);
+            }
+
+            HardSoftLongScore expected = easy.calculateScore(bal);
+            assertThat(incremental.calculateScore()).as("Move %d %s", i, trade).isEqualTo(expected);
+            hadFeasible |= expected.isFeasible();
+            hadInfeasible |= !expected.isFeasible();
+        }
+
+        assertThat(hadFeasible).isTrue();
+        assertThat(hadInfeasible).isTrue();
+    }
+
+    @Test
+    void resetPicksUpNewSolution() {
+        XoBalanceIncrementalScore incremental = new XoBalanceIncrementalScore();
+        XoTradeBalance first = balance(new XoTrade(800L, 82894L, 705124L, 67971L));
+        XoTradeBalance second = balance(new XoTrade(700L, 80000L, 700000L, 70000L));
+
+        incremental.resetWorkingSolution(first);
+        assertThat(incremental.calculateScore()).isEqualTo(new XoBalanceScore().calculateScore(first));
+
+        incremental.resetWorkingSolution(second);
+        assertThat(incremental.calculateScore()).isEqualTo(new XoBalanceScore().calculateScore(second));
+    }
+
+    private static void set(XoTrade trade, String variable, Random random) {
+        // keep some values close to current so that small moves are covered too
+        switch (variable) {
+            case "sellAmountFrom":
+                trade.setSellAmountFrom(value(random, trade.getSellAmountFrom(), 400, 1200));
+                return;
+            case "buyAmountTo":
+                trade.setBuyAmountTo(value(random, trade.getBuyAmountTo(), 40000, 120000));
+                return;
+            case "sellPriceFrom":
+                trade.setSellPriceFrom(value(random, trade.getSellPriceFrom(), 690000, 730000));
+                return;
+            default:
+                trade.setBuyPriceTo(value(random, trade.getBuyPriceTo(), 65000, 69000));
+        }
+    }
+
+    private static long value(Random random, long current, long min, long max) {
+        if (random.nextInt(4) == 0) {
+            return current;
+        }
+
+        if (random.nextBoolean()) {
+            return Math.max(1, current + random.nextInt(21) - 10);
+        }
+
+        return min + (long) (random.nextDouble() * (max - min));
+    }
+
+    private static XoTradeBalance balance(XoTrade trade) {
+        XoClientTradeConditionAsLong condition = XoClientTradeConditionAsLong.builder()
+                .minToBuyAmount(new AsFixed(new BigDecimal("0.040000")))
+                .maxToBuyAmount(new AsFixed(new BigDecimal("0.120000")))
+                .minFromSellAmount(new AsFixed(new BigDecimal("0.0400")))
+                .maxFromSellAmount(new AsFixed(new BigDecimal("0.1200")))
+                .minToBuyPrice(new AsFixed(new BigDecimal("6700.0")))
+                .maxFromSellPrice(new AsFixed(new BigDecimal("7200.00")))
+                .amountSafetyFromCoef(new AsFixed(new BigDecimal("1.1")))
+                .amountSafetyToCoef(new AsFixed(new BigDecimal("1.2")))
+                .lossFromCoef(new AsFixed(new BigDecimal("0.999")))
+                .lossToCoef(new AsFixed(new BigDecimal("0.998")))
+                .minProfitCoef(new AsFixed(new BigDecimal("1.001")))
+                .marketSellTo(new FullCrossMarketOpportunity.Histogram[] {
+                        new FullCrossMarketOpportunity.Histogram(6600, 6700, 0.05),
+                        new FullCrossMarketOpportunity.Histogram(6700, 6800, 0.08),
+                        new FullCrossMarketOpportunity.Histogram(6800, 6900, 0.1)
+                })
+                .marketBuyFrom(new FullCrossMarketOpportunity.Histogram[] {
+                        new FullCrossMarketOpportunity.Histogram(7000.0, 7100.0, 0.03),
+                        new FullCrossMarketOpportunity.Histogram(7100.0, 7200.0, 0.09)
+                })
+                .build();
+
+        XoTradeBalance bal = new XoTradeBalance();
+        bal.setConstraint(condition);
+        bal.setTrade(trade);
+        bal.setIntegrator(new HistogramIntegrator());
+        return bal;
+    }
+}
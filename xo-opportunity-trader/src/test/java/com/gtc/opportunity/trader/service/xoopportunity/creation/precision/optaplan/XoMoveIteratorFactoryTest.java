@@ -0,0 +1,263 @@
+package com.gtc.opportunity.trader.service.xoopportunity.creation.precision.optaplan;
+
+import com.gtc.opportunity.trader.cqe.domain.FullCrossMarketOpportunity;
+import com.gtc.opportunity.trader.service.xoopportunity.creation.precision.HistogramIntegrator;
+import com.gtc.opportunity.trader.service.xoopportunity.creation.precision.dto.AsFixed;
+import com.gtc.opportunity.trader.service.xoopportunity.creation.precision.dto.XoClientTradeConditionAsLong;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.optaplanner.core.impl.heuristic.move.Move;
+import org.optaplanner.core.impl.score.director.ScoreDirector;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.ToLongFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Moves must be distributed same as with stream and queue based generation ({@link XoMoveReference}).
+ */
+@Slf4j
+class XoMoveIteratorFactoryTest {
+
+    private static final int PACKS = 20_000;
+    private static final int MOVES = 200_000;
+
+    // KS critical value coefficient for alpha = 0.001
+    private static final double KS_ALPHA_COEF = 1.949;
+
+    @Test
+    void samePacksAsStreamBasedGenerationSellDriven() {
+        assertSamePacks(balance("0.000001", "0.0001"));
+    }
+
+    @Test
+    void samePacksAsStreamBasedGenerationBuyDriven() {
+        assertSamePacks(balance("0.0001", "0.000001"));
+    }
+
+    @Test
+    void distributionSameAsStreamBasedGeneration() {
+        for (XoTradeBalance bal : Arrays.asList(balance("0.000001", "0.0001"), balance("0.0001", "0.000001"))) {
+            List<XoTrade> expected = referenceMoves(bal, new Random(1L), MOVES);
+            List<XoTrade> actual = moves(bal, new Random(2L), MOVES);
+
+            assertSameDistribution(expected, actual, XoTrade::getSellAmountFrom);
+            assertSameDistribution(expected, actual, XoTrade::getBuyAmountTo);
+            assertSameDistribution(expected, actual, XoTrade::getSellPriceFrom);
+            assertSameDistribution(expected, actual, XoTrade::getBuyPriceTo);
+        }
+    }
+
+    @Test
+    void undoMoveRestoresAndRedoesMove() {
+        XoTradeBalance bal = balance("0.000001", "0.0001");
+        ScoreDirector<XoTradeBalance> director = director(bal);
+        Iterator<? extends Move<XoTradeBalance>> moves = new XoMoveIteratorFactory()
+                .createRandomMoveIterator(director, new Random(1L));
+        XoTrade original = copy(bal.getTrade());
+
+        for (int i = 0; i < 1000; ++i) {
+            XoMoveIteratorFactory.XoMove move = (XoMoveIteratorFactory.XoMove) moves.next();
+            XoTrade before = copy(bal.getTrade());
+
+            Move<XoTradeBalance> undo = move.doMove(director);
+            assertThat(bal.getTrade()).isEqualTo(values(move));
+
+            Move<XoTradeBalance> redo = undo.doMove(director);
+            assertThat(bal.getTrade()).isEqualTo(before);
+
+            redo.doMove(director);
+            assertThat(bal.getTrade()).isEqualTo(values(move));
+            undo.doMove(director);
+            assertThat(bal.getTrade()).isEqualTo(original);
+        }
+    }
+
+    @Test
+    void undoMoveIsNotAffectedByLaterMoves() {
+        XoTradeBalance bal = balance("0.000001", "0.0001");
+        ScoreDirector<XoTradeBalance> director = director(bal);
+        Iterator<? extends Move<XoTradeBalance>> moves = new XoMoveIteratorFactory()
+                .createRandomMoveIterator(director, new Random(1L));
+        XoTrade original = copy(bal.getTrade());
+
+        Move<XoTradeBalance> firstUndo = moves.next().doMove(director);
+        for (int i = 0; i < 100; ++i) {
+            moves.next().doMove(director);
+        }
+
+        firstUndo.doMove(director);
+        assertThat(bal.getTrade()).isEqualTo(original);
+    }
+
+    /**
+     * Microbenchmark of move generation against stream and queue based one.
+     * Test will only start if it sees property PERF_TEST == true.
+     */
+    @Test
+    @EnabledIfEnvironmentVariable(named = "PERF_TEST", matches = "true")
+    void movesPerSecond() {
+        XoTradeBalance bal = balance("0.000001", "0.0001");
+        int moves = 5_000_000;
+        long sink = 0;
+        for (int round = 0; round < 5; ++round) {
+            long start = System.nanoTime();
+            XoMoveReference reference = new XoMoveReference(bal, new Random(round));
+            Queue<XoTrade> queue = new LinkedBlockingQueue<>();
+            for (int i = 0; i < moves; ++i) {
+                if (queue.isEmpty()) {
+                    queue.addAll(reference.buildPack());
+                }
+                sink += queue.poll().getBuyPriceTo();
+            }
+            long referenceNs = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            Iterator<? extends Move<XoTradeBalance>> iterator = new XoMoveIteratorFactory()
+                    .createRandomMoveIterator(director(bal), new Random(round));
+            for (int i = 0; i < moves; ++i) {
+                sink += ((XoMoveIteratorFactory.XoMove) iterator.next()).getBuyPriceTo();
+            }
+            long iteratorNs = System.nanoTime() - start;
+
+            log.info("Round {}: streams and queue {} moves/s, iterator {} moves/s", round,
+                    moves * 1_000_000_000L / referenceNs, moves * 1_000_000_000L / iteratorNs);
+        }
+
+        log.info("Sink {}", sink);
+    }
+
+    private static void assertSamePacks(XoTradeBalance bal) {
+        for (long seed = 0; seed < 5; ++seed) {
+            XoMoveReference reference = new XoMoveReference(bal, new Random(seed));
+            Iterator<? extends Move<XoTradeBalance>> moves = new XoMoveIteratorFactory()
+                    .createRandomMoveIterator(director(bal), new Random(seed));
+
+            for (int i = 0; i < PACKS; ++i) {
+                List<XoTrade> expected = reference.buildPack();
+                List<XoTrade> actual = new ArrayList<>();
+                for (int move = 0; move < expected.size(); ++move) {
+                    actual.add(values((XoMoveIteratorFactory.XoMove) moves.next()));
+                }
+
+                assertThat(actual).as("Seed %d pack %d", seed, i).containsExactlyInAnyOrderElementsOf(expected);
+                assertThat(new HashSet<>(actual)).hasSameSizeAs(actual);
+            }
+        }
+    }
+
+    // two-sample Kolmogorov-Smirnov, moves within pack are correlated, so sample size is taken as pack count
+    private static void assertSameDistribution(List<XoTrade> expected, List<XoTrade> actual,
+                                               ToLongFunction<XoTrade> variable) {
+        long[] one = expected.stream().mapToLong(variable).sorted().toArray();
+        long[] two = actual.stream().mapToLong(variable).sorted().toArray();
+
+        double maxDiff = 0;
+        int posOne = 0;
+        int posTwo = 0;
+        while (posOne < one.length && posTwo < two.length) {
+            long value = Math.min(one[posOne], two[posTwo]);
+            while (posOne < one.length && one[posOne] == value) {
+                posOne++;
+            }
+            while (posTwo < two.length && two[posTwo] == value) {
+                posTwo++;
+            }
+
+            maxDiff = Math.max(maxDiff, Math.abs((double) posOne / one.length - (double) posTwo / two.length));
+        }
+
+        double effective = (double) MOVES / 11;
+        double critical = KS_ALPHA_COEF * Math.sqrt(2.0 / effective);
+        assertThat(maxDiff).isLessThan(critical);
+    }
+
+    private static List<XoTrade> referenceMoves(XoTradeBalance bal, Random random, int count) {
+        XoMoveReference reference = new XoMoveReference(bal, random);
+        List<XoTrade> result = new ArrayList<>();
+        while (result.size() < count) {
+            result.addAll(reference.buildPack());
+        }
+
+        return result.subList(0, count);
+    }
+
+    private static List<XoTrade> moves(XoTradeBalance bal, Random random, int count) {
+        Iterator<? extends Move<XoTradeBalance>> moves = new XoMoveIteratorFactory()
+                .createRandomMoveIterator(director(bal), random);
+        List<XoTrade> result = new ArrayList<>();
+        for (int i = 0; i < count; ++i) {
+            result.add(values((XoMoveIteratorFactory.XoMove) moves.next()));
+        }
+
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ScoreDirector<XoTradeBalance> director(XoTradeBalance bal) {
+        ScoreDirector<XoTradeBalance> director = mock(ScoreDirector.class);
+        when(director.getWorkingSolution()).thenReturn(bal);
+        return director;
+    }
+
+    private static XoTrade values(XoMoveIteratorFactory.XoMove move) {
+        return new XoTrade(move.getSellAmountFrom(), move.getBuyAmountTo(), move.getSellPriceFrom(),
+                move.getBuyPriceTo());
+    }
+
+    private static XoTrade copy(XoTrade trade) {
+        return new XoTrade(trade.getSellAmountFrom(), trade.getBuyAmountTo(), trade.getSellPriceFrom(),
+                trade.getBuyPriceTo());
+    }
+
+    private static XoTradeBalance balance(String sellAmountStep, String buyAmountStep) {
+        XoClientTradeConditionAsLong condition = XoClientTradeConditionAsLong.builder()
+                .minFromSellAmount(amount("0.01", sellAmountStep))
+                .maxFromSellAmount(amount("0.1", sellAmountStep))
+                .minToBuyAmount(amount("0.02228772013595108", buyAmountStep))
+                .maxToBuyAmount(amount("0.1", buyAmountStep))
+                .minToBuyPrice(new AsFixed(new BigDecimal("0.04469")))
+                .maxFromSellPrice(new AsFixed(new BigDecimal("0.04486")))
+                .amountSafetyFromCoef(new AsFixed(new BigDecimal("1.01")))
+                .amountSafetyToCoef(new AsFixed(new BigDecimal("1.01")))
+                .lossFromCoef(new AsFixed(new BigDecimal("0.999")))
+                .lossToCoef(new AsFixed(new BigDecimal("0.998")))
+                .minProfitCoef(new AsFixed(new BigDecimal("1.0009")))
+                .marketBuyFrom(new FullCrossMarketOpportunity.Histogram[] {
+                        new FullCrossMarketOpportunity.Histogram(0.044724, 0.044767999999999995, 0.0),
+                        new FullCrossMarketOpportunity.Histogram(0.04468, 0.044724, -0.98509921)
+                })
+                .marketSellTo(new FullCrossMarketOpportunity.Histogram[] {
+                        new FullCrossMarketOpportunity.Histogram(0.0447956, 0.0448328, 1.638),
+                        new FullCrossMarketOpportunity.Histogram(0.0448328, 0.04487, 8.75)
+                })
+                .build();
+
+        XoTradeBalance bal = new XoTradeBalance();
+        bal.setConstraint(condition);
+        bal.setTrade(new XoTrade(
+                condition.getMinFromSellAmount().getVal(),
+                condition.getMinToBuyAmount().getVal(),
+                condition.getMaxFromSellPrice().getVal(),
+                condition.getMinToBuyPrice().getVal()
+        ));
+        bal.setIntegrator(new HistogramIntegrator());
+        return bal;
+    }
+
+    private static AsFixed amount(String value, String step) {
+        return new AsFixed(new BigDecimal(value).setScale(new BigDecimal(step).scale(), BigDecimal.ROUND_FLOOR));
+    }
+}
@@ -0,0 +1,185 @@
+package com.gtc.opportunity.trader.service.xoopportunity.creation.precision.optaplan;
+
+import com.gtc.opportunity.trader.cqe.domain.FullCrossMarketOpportunity;
+import com.gtc.opportunity.trader.service.xoopportunity.creation.precision.dto.AsFixed;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Move generation as XoMoveIteratorFactory did it with random streams and queue, packs are returned as trades
+ * (move values) so that new iterator can be checked against it.
+ */
+final class XoMoveReference {
+
+    private static final int STEP_RANGE = 100;
+    private static final double DOUBLE_EPS = 1e-12;
+
+    private static final int DISTORT_RANGE = 10;
+    private static final int N_DISTORT = 10;
+
+    private final XoTradeBalance solution;
+    private final Iterator<Double> sellFromAmountRandom;
+    private final Iterator<Double> sellFromPriceRandom;
+    private final Iterator<Double> buyToAmountRandom;
+    private final Iterator<Double> buyToPriceRandom;
+    private final Iterator<Integer> dice;
+    private final Iterator<Integer> distort;
+    private final double profitCoef;
+    private final double lossFrom;
+    private final double lossTo;
+
+    XoMoveReference(XoTradeBalance solution, Random workingRandom) {
+        this.solution = solution;
+        sellFromAmountRandom = buildStream(
+                workingRandom,
+                solution.getConstraint().getMinFromSellAmount().getApprox() - DOUBLE_EPS,
+                solution.getConstraint().getMaxFromSellAmount().getApprox()
+        );
+
+        sellFromPriceRandom = buildStream(
+                workingRandom,
+                Arrays.stream(solution.getConstraint().getMarketBuyFrom())
+                        .mapToDouble(FullCrossMarketOpportunity.Histogram::getMinPrice)
+                        .min().orElse(0.0) - DOUBLE_EPS,
+                solution.getConstraint().getMaxFromSellPrice().getApprox()
+        );
+
+        buyToAmountRandom = buildStream(
+                workingRandom,
+                solution.getConstraint().getMinToBuyAmount().getApprox()- DOUBLE_EPS,
+                solution.getConstraint().getMaxToBuyAmount().getApprox()
+        );
+
+        buyToPriceRandom = buildStream(
+                workingRandom,
+                solution.getConstraint().getMinToBuyPrice().getApprox() - DOUBLE_EPS,
+                Arrays.stream(solution.getConstraint().getMarketSellTo())
+                        .mapToDouble(FullCrossMarketOpportunity.Histogram::getMaxPrice)
+                        .max().orElse(0.0)
+        );
+
+        dice = workingRandom.ints(-STEP_RANGE, STEP_RANGE).iterator();
+        distort = workingRandom.ints(-DISTORT_RANGE, DISTORT_RANGE).iterator();
+
+        profitCoef = solution.getConstraint().getMinProfitCoef().getApprox();
+        lossFrom = solution.getConstraint().getLossFromCoef().getApprox();
+        lossTo = solution.getConstraint().getLossToCoef().getApprox();
+    }
+
+    private static Iterator<Double> buildStream(Random workingRandom, double min, double max) {
+        return workingRandom.doubles(Math.min(min, max), Math.max(min, max)).iterator();
+    }
+
+    List<XoTrade> buildPack() {
+        XoTrade ini = AsFixed.scaleGreater(
+                solution.getConstraint().getMinFromSellAmount(),
+                solution.getConstraint().getMinToBuyAmount()
+        ) ?  buildMoveSellDriven() : buildMoveBuyDriven();
+
+        Set<XoTrade> pack = new HashSet<>();
+        pack.add(ini);
+
+        for (int i = 0; i < N_DISTORT; i++) {
+            XoTrade distorted = new XoTrade(
+                    ini.getSellAmountFrom() + distort.next(),
+                    ini.getBuyAmountTo() + distort.next(),
+                    ini.getSellPriceFrom() + distort.next(),
+                    ini.getBuyPriceTo() + distort.next()
+            );
+
+            if (isDoable(distorted)) {
+                pack.add(distorted);
+            }
+        }
+
+        return new ArrayList<>(pack);
+    }
+
+    private XoTrade buildMoveSellDriven() {
+        AsFixed sellFromAmount = randomRound(
+                sellFromAmountRandom.next(),
+                solution.getConstraint().getMinFromSellAmount()
+        );
+
+        AsFixed buyToAmount = solution.getConstraint().getMinToBuyAmount().ceil(
+                sellFromAmount.getApprox() * profitCoef / lossTo
+        );
+
+        AsFixed sellFromPrice = randomRound(
+                sellFromPriceRandom.next(),
+                solution.getConstraint().getMaxFromSellPrice()
+        );
+
+        AsFixed buyToPrice = solution.getConstraint().getMinToBuyPrice().floor(
+                sellFromAmount.getApprox() * sellFromPrice.getApprox() * lossFrom / buyToAmount.getApprox()
+        );
+
+        return new XoTrade(
+                sellFromAmount.getVal(),
+                buyToAmount.getVal(),
+                sellFromPrice.getVal(),
+                buyToPrice.getVal()
+        );
+    }
+
+    private XoTrade buildMoveBuyDriven() {
+        AsFixed buyToAmount = randomRound(
+                buyToAmountRandom.next(),
+                solution.getConstraint().getMinToBuyAmount()
+        );
+
+        AsFixed sellFromAmount = solution.getConstraint().getMinFromSellAmount().floor(
+                buyToAmount.getApprox() / profitCoef * lossTo
+        );
+
+        AsFixed buyToPrice = randomRound(
+                buyToPriceRandom.next(),
+                solution.getConstraint().getMinToBuyPrice()
+        );
+
+        AsFixed sellFromPrice = solution.getConstraint().getMaxFromSellPrice().ceil(
+                buyToPrice.getApprox() / (sellFromAmount.getApprox() * lossFrom / buyToAmount.getApprox())
+        );
+
+        return new XoTrade(
+                sellFromAmount.getVal(),
+                buyToAmount.getVal(),
+                sellFromPrice.getVal(),
+                buyToPrice.getVal()
+        );
+    }
+
+    private static boolean isDoable(XoTrade trade) {
+        return trade.getSellAmountFrom() > 0 && trade.getBuyAmountTo() > 0 && trade.getSellPriceFrom() > 0
+                && trade.getBuyPriceTo() > 0;
+    }
+
+    AsFixed randomRound(double value, AsFixed orig) {
+        AsFixed jumped = withJump(value, orig);
+
+        if (0 == jumped.getVal()) {
+            return orig.ceil(value);
+        }
+
+        return jumped;
+    }
+
+    AsFixed withJump(double value, AsFixed orig) {
+        if (dice.next() <= 0) {
+            return orig.ceil(value);
+        }
+
+        AsFixed pre = orig.floor(value);
+        if (0 == pre.getVal()) {
+            return orig.ceil(value);
+        }
+
+        return pre;
+    }
+}
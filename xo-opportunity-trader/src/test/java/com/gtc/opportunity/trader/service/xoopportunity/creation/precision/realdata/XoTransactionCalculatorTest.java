@@ -3,7 +3,10 @@ package com.gtc.opportunity.trader.service.xoopportunity.creation.precision.real
 import com.gtc.opportunity.trader.BaseMockitoTest;
 import com.gtc.opportunity.trader.cqe.domain.FullCrossMarketOpportunity;
 import com.gtc.opportunity.trader.service.dto.PreciseXoAmountDto;
+import com.gtc.opportunity.trader.service.nnopportunity.solver.time.LocalTime;
+import com.gtc.opportunity.trader.service.xoopportunity.common.SolverPool;
 import com.gtc.opportunity.trader.service.xoopportunity.creation.fastexception.RejectionException;
+import com.gtc.opportunity.trader.service.xoopportunity.creation.precision.BigDecimalReference;
 import com.gtc.opportunity.trader.service.xoopportunity.creation.precision.HistogramIntegrator;
 import com.gtc.opportunity.trader.service.xoopportunity.creation.precision.ToLongMathMapper;
 import com.gtc.opportunity.trader.service.xoopportunity.creation.precision.WarmupUtil;
@@ -22,7 +25,9 @@ public class XoTransactionCalculatorTest extends BaseMockitoTest {
 
     private XoTransactionCalculator calculator = new XoTransactionCalculator(
             new ToLongMathMapper(),
-            new HistogramIntegrator()
+            new HistogramIntegrator(),
+            new SolverPool(1),
+            new LocalTime()
     );
 
     private XoTradeCondition condition;
@@ -73,4 +78,9 @@ public class XoTransactionCalculatorTest extends BaseMockitoTest {
         assertThat(amountDto.getSellPrice()).isLessThanOrEqualTo(new BigDecimal("0.044868"));
         assertThat(amountDto.getBuyPrice()).isGreaterThanOrEqualTo(new BigDecimal("0.04462"));
     }
+
+    @Test
+    public void fixedPointSameAsBigDecimal() {
+        BigDecimalReference.assertSameAsBigDecimal(condition);
+    }
 }
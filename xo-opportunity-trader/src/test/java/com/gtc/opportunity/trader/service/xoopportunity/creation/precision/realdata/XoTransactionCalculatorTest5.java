@@ -3,7 +3,10 @@ package com.gtc.opportunity.trader.service.xoopportunity.creation.precision.real
 import com.gtc.opportunity.trader.BaseMockitoTest;
 import com.gtc.opportunity.trader.cqe.domain.FullCrossMarketOpportunity;
 import com.gtc.opportunity.trader.service.dto.PreciseXoAmountDto;
+import com.gtc.opportunity.trader.service.nnopportunity.solver.time.LocalTime;
+import com.gtc.opportunity.trader.service.xoopportunity.common.SolverPool;
 import com.gtc.opportunity.trader.service.xoopportunity.creation.fastexception.RejectionException;
+import com.gtc.opportunity.trader.service.xoopportunity.creation.precision.BigDecimalReference;
 import com.gtc.opportunity.trader.service.xoopportunity.creation.precision.HistogramIntegrator;
 import com.gtc.opportunity.trader.service.xoopportunity.creation.precision.ToLongMathMapper;
 import com.gtc.opportunity.trader.service.xoopportunity.creation.precision.WarmupUtil;
@@ -22,7 +25,9 @@ public class XoTransactionCalculatorTest5 extends BaseMockitoTest {
 
     private XoTransactionCalculator calculator = new XoTransactionCalculator(
             new ToLongMathMapper(),
-            new HistogramIntegrator()
+            new HistogramIntegrator(),
+            new SolverPool(1),
+            new LocalTime()
     );
 
     private XoTradeCondition condition;
@@ -71,4 +76,9 @@ public class XoTransactionCalculatorTest5 extends BaseMockitoTest {
 
         assertThat(amountDto.getProfitPct()).isGreaterThanOrEqualTo(0.135);
     }
+
+    @Test
+    public void fixedPointSameAsBigDecimal() {
+        BigDecimalReference.assertSameAsBigDecimal(condition);
+    }
 }
@@ -0,0 +1,58 @@
+package com.gtc.opportunity.trader.service.xoopportunity.finder;
+
+import com.gtc.meta.CurrencyPair;
+import com.gtc.meta.TradingCurrency;
+import com.gtc.model.provider.AggregatedOrder;
+import com.gtc.model.provider.ByClientAndCurrency;
+import com.gtc.model.provider.OrderBook;
+import lombok.experimental.UtilityClass;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Random books around price 1.0 for several clients and currency pairs.
+ */
+@UtilityClass
+class BookFixtures {
+
+    static final CurrencyPair[] PAIRS = {
+            new CurrencyPair(TradingCurrency.Bitcoin, TradingCurrency.Usd),
+            new CurrencyPair(TradingCurrency.Ethereum, TradingCurrency.Bitcoin),
+            new CurrencyPair(TradingCurrency.Litecoin, TradingCurrency.Bitcoin)
+    };
+
+    static List<OrderBook> randomBooks(Random random, int clients) {
+        List<OrderBook> books = new ArrayList<>();
+        for (int client = 0; client < clients; ++client) {
+            for (CurrencyPair pair : PAIRS) {
+                if (random.nextInt(5) == 0) {
+                    continue;
+                }
+
+                books.add(book(random, "client" + client, pair));
+            }
+        }
+
+        return books;
+    }
+
+    private static OrderBook book(Random random, String client, CurrencyPair pair) {
+        double mid = 1.0 + random.nextGaussian() * 0.005;
+        double spread = random.nextDouble() * 0.002;
+        double bestBuy = mid - spread / 2.0;
+        double bestSell = mid + spread / 2.0;
+        return OrderBook.builder()
+                .meta(new ByClientAndCurrency(client, pair))
+                .bestBuy(bestBuy)
+                .bestSell(bestSell)
+                .amountBestBuy(random.nextDouble())
+                .amountBestSell(random.nextDouble())
+                .histogramBuy(new AggregatedOrder[] {new AggregatedOrder(bestBuy * 0.99, bestBuy, 1.0, 1, false,
+                        (short) 0, 0L, 0L, 0L)})
+                .histogramSell(new AggregatedOrder[] {new AggregatedOrder(bestSell, bestSell * 1.01, 1.0, 1, true,
+                        (short) 0, 0L, 0L, 0L)})
+                .build();
+    }
+}
@@ -0,0 +1,154 @@
+package com.gtc.opportunity.trader.service.xoopportunity.finder;
+
+import com.gtc.meta.CurrencyPair;
+import com.gtc.model.provider.AggregatedOrder;
+import com.gtc.model.provider.ByClientAndCurrency;
+import com.gtc.model.provider.OrderBook;
+import com.gtc.opportunity.trader.cqe.domain.FullCrossMarketOpportunity;
+import com.gtc.opportunity.trader.cqe.domain.IndexedOrderBook;
+import com.gtc.opportunity.trader.domain.XoConfig;
+import com.gtc.opportunity.trader.service.nnopportunity.solver.time.LocalTime;
+import com.gtc.opportunity.trader.service.xoopportunity.creation.ConfigCache;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Writers update books of their own clients (as market data dispatcher does - one writer per client and pair)
+ * while readers search; readers must always see consistent snapshot and store must end with latest book of
+ * every client and pair.
+ */
+class BookRepositoryConcurrencyTest {
+
+    private static final int WRITERS = 4;
+    private static final int READERS = 4;
+    private static final int CLIENTS_PER_WRITER = 5;
+    private static final int UPDATES = 20_000;
+    private static final double MIN_GAIN = 1.003;
+
+    @Test
+    @SneakyThrows
+    void concurrentUpdatesKeepLatestBookPerClient() {
+        ConfigCache cfgCache = mock(ConfigCache.class);
+        // books must not expire while test runs
+        when(cfgCache.getXoCfg(anyString(), any(), any()))
+                .thenReturn(Optional.of(XoConfig.builder().staleBookThresholdMS(600_000).build()));
+        BookRepository repository = new BookRepository(cfgCache, new LocalTime());
+
+        ExecutorService pool = Executors.newFixedThreadPool(WRITERS + READERS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        try {
+            List<Future<List<OrderBook>>> writers = new ArrayList<>();
+            for (int writer = 0; writer < WRITERS; ++writer) {
+                int id = writer;
+                writers.add(pool.submit(() -> write(repository, start, id)));
+            }
+
+            List<Future<Long>> readers = new ArrayList<>();
+            for (int reader = 0; reader < READERS; ++reader) {
+                readers.add(pool.submit(() -> read(repository, start, writing)));
+            }
+
+            start.countDown();
+            List<OrderBook> latest = new ArrayList<>();
+            for (Future<List<OrderBook>> writer : writers) {
+                latest.addAll(writer.get(60, TimeUnit.SECONDS));
+            }
+            writing.set(false);
+            for (Future<Long> reader : readers) {
+                assertThat(reader.get(60, TimeUnit.SECONDS)).isPositive();
+            }
+
+            List<OrderBook> stored = new ArrayList<>();
+            for (CurrencyPair pair : BookFixtures.PAIRS) {
+                repository.findByPair(pair).forEach(it -> stored.add(it.getBook()));
+            }
+            assertThat(stored).containsExactlyInAnyOrderElementsOf(latest);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @SneakyThrows
+    private static List<OrderBook> write(BookRepository repository, CountDownLatch start, int writer) {
+        Random random = new Random(writer);
+        OrderBook[] latest = new OrderBook[CLIENTS_PER_WRITER * BookFixtures.PAIRS.length];
+        start.await();
+        for (int i = 0; i < UPDATES; ++i) {
+            int slot = random.nextInt(latest.length);
+            OrderBook book = book(
+                    "client-" + writer + "-" + slot / BookFixtures.PAIRS.length,
+                    BookFixtures.PAIRS[slot % BookFixtures.PAIRS.length],
+                    1.0 + random.nextGaussian() * 0.005
+            );
+            repository.addOrderBook(book);
+            latest[slot] = book;
+        }
+
+        List<OrderBook> result = new ArrayList<>();
+        for (OrderBook book : latest) {
+            if (null != book) {
+                result.add(book);
+            }
+        }
+        return result;
+    }
+
+    @SneakyThrows
+    private static long read(BookRepository repository, CountDownLatch start, AtomicBoolean writing) {
+        start.await();
+        long reads = 0;
+        while (writing.get()) {
+            for (CurrencyPair pair : BookFixtures.PAIRS) {
+                List<IndexedOrderBook> books = repository.findByPair(pair);
+                Set<String> ids = new HashSet<>();
+                double prevSell = Double.NEGATIVE_INFINITY;
+                for (IndexedOrderBook book : books) {
+                    assertThat(book.getMeta().getPair()).isEqualTo(pair);
+                    assertThat(ids.add(book.getId())).as("Single book per client").isTrue();
+                    assertThat(book.getBestSell()).isGreaterThanOrEqualTo(prevSell);
+                    prevSell = book.getBestSell();
+                }
+            }
+
+            for (FullCrossMarketOpportunity opportunity
+                    : repository.findOpportunities(MIN_GAIN, Collections.emptyList())) {
+                assertThat(opportunity.getClientFrom()).isNotEqualTo(opportunity.getClientTo());
+                assertThat(opportunity.getHistWin().getCurr()).isGreaterThanOrEqualTo(MIN_GAIN);
+            }
+            reads++;
+        }
+
+        return reads;
+    }
+
+    private static OrderBook book(String client, CurrencyPair pair, double mid) {
+        return OrderBook.builder()
+                .meta(new ByClientAndCurrency(client, pair))
+                .bestBuy(mid - 0.0005)
+                .bestSell(mid + 0.0005)
+                .histogramBuy(new AggregatedOrder[0])
+                .histogramSell(new AggregatedOrder[0])
+                .build();
+    }
+}
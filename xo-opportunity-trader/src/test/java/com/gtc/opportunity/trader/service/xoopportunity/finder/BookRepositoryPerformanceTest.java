@@ -0,0 +1,80 @@
+package com.gtc.opportunity.trader.service.xoopportunity.finder;
+
+import com.gtc.model.provider.OrderBook;
+import com.gtc.opportunity.trader.cqe.domain.FullCrossMarketOpportunity;
+import com.gtc.opportunity.trader.domain.XoConfig;
+import com.gtc.opportunity.trader.service.nnopportunity.solver.time.LocalTime;
+import com.gtc.opportunity.trader.service.xoopportunity.creation.ConfigCache;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Compares sort-and-sweep opportunity search with materializing every ordered pair of books
+ * (what search did before) and measures book update cost.
+ * Test will only start if it sees property PERF_TEST == true.
+ */
+@Slf4j
+class BookRepositoryPerformanceTest {
+
+    private static final int[] CLIENTS = {5, 10, 25, 50, 100};
+    private static final double MIN_GAIN = 1.003;
+    private static final int ITERATIONS = 200;
+
+    @Test
+    @EnabledIfEnvironmentVariable(named = "PERF_TEST", matches = "true")
+    void compareWithAllPairs() {
+        ConfigCache cfgCache = mock(ConfigCache.class);
+        // books must not expire while test runs
+        when(cfgCache.getXoCfg(anyString(), any(), any()))
+                .thenReturn(Optional.of(XoConfig.builder().staleBookThresholdMS(600_000).build()));
+        Random random = new Random(1L);
+
+        for (int clients : CLIENTS) {
+            List<OrderBook> books = BookFixtures.randomBooks(random, clients);
+            BookRepository repository = new BookRepository(cfgCache, new LocalTime());
+            books.forEach(repository::addOrderBook);
+
+            long sink = 0;
+            // warmup
+            for (int i = 0; i < ITERATIONS; ++i) {
+                sink += BookRepositoryTest.allPairs(books).size();
+                sink += repository.findOpportunities(MIN_GAIN, Collections.emptyList()).size();
+            }
+
+            long start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; ++i) {
+                for (FullCrossMarketOpportunity opportunity : BookRepositoryTest.allPairs(books)) {
+                    sink += opportunity.getHistWin().getCurr() >= MIN_GAIN ? 1 : 0;
+                }
+            }
+            long allPairsNs = (System.nanoTime() - start) / ITERATIONS;
+
+            start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; ++i) {
+                sink += repository.findOpportunities(MIN_GAIN, Collections.emptyList()).size();
+            }
+            long sweepNs = (System.nanoTime() - start) / ITERATIONS;
+
+            start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; ++i) {
+                books.forEach(repository::addOrderBook);
+            }
+            long addNs = (System.nanoTime() - start) / ITERATIONS / books.size();
+
+            log.info("{} clients ({} books): all pairs {} us/search, sort-and-sweep {} us/search, {} ns/update",
+                    clients, books.size(), allPairsNs / 1000, sweepNs / 1000, addNs);
+            log.debug("Sink {}", sink);
+        }
+    }
+}
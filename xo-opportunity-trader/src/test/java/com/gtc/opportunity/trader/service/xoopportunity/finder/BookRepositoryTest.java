@@ -0,0 +1,205 @@
+package com.gtc.opportunity.trader.service.xoopportunity.finder;
+
+import com.gtc.meta.CurrencyPair;
+import com.gtc.model.provider.AggregatedOrder;
+import com.gtc.model.provider.ByClientAndCurrency;
+import com.gtc.model.provider.OrderBook;
+import com.gtc.opportunity.trader.BaseMockitoTest;
+import com.gtc.opportunity.trader.cqe.domain.FullCrossMarketOpportunity;
+import com.gtc.opportunity.trader.cqe.domain.IndexedOrderBook;
+import com.gtc.opportunity.trader.domain.XoConfig;
+import com.gtc.opportunity.trader.service.nnopportunity.solver.time.LocalTime;
+import com.gtc.opportunity.trader.service.xoopportunity.creation.ConfigCache;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.when;
+
+class BookRepositoryTest extends BaseMockitoTest {
+
+    private static final double MIN_GAIN = 1.003;
+    private static final String STALE = "stale";
+
+    @Mock
+    private ConfigCache cfgCache;
+
+    private BookRepository repository;
+
+    @BeforeEach
+    void init() {
+        when(cfgCache.getXoCfg(anyString(), any(), any())).thenReturn(Optional.empty());
+        repository = new BookRepository(cfgCache, new LocalTime());
+    }
+
+    @Test
+    void findsSameOpportunitiesAsBruteForce() {
+        Random random = new Random(42L);
+
+        for (int round = 0; round < 200; ++round) {
+            repository = new BookRepository(cfgCache, new LocalTime());
+            List<OrderBook> books = BookFixtures.randomBooks(random, 2 + random.nextInt(15));
+            books.forEach(repository::addOrderBook);
+            List<FullCrossMarketOpportunity> tracked = randomTracked(random, books);
+
+            Map<String, Double> expected = bruteForce(books, MIN_GAIN, tracked);
+            Map<String, Double> actual = winById(repository.findOpportunities(MIN_GAIN, tracked));
+
+            assertThat(actual).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void findsNothingWithoutGain() {
+        Random random = new Random(1L);
+        BookFixtures.randomBooks(random, 10).forEach(repository::addOrderBook);
+
+        assertThat(repository.findOpportunities(Double.MAX_VALUE, Collections.emptyList())).isEmpty();
+    }
+
+    @Test
+    void reportsTrackedOpportunityThatLostGain() {
+        Random random = new Random(2L);
+        List<OrderBook> books = BookFixtures.randomBooks(random, 10);
+        books.forEach(repository::addOrderBook);
+        FullCrossMarketOpportunity lost = worst(books);
+
+        Set<FullCrossMarketOpportunity> found = repository.findOpportunities(
+                MIN_GAIN, Collections.singletonList(lost));
+
+        assertThat(found).extracting(FullCrossMarketOpportunity::getId).contains(lost.getId());
+        assertThat(lost.getHistWin().getCurr()).isLessThan(MIN_GAIN);
+    }
+
+    @Test
+    void findsBooksByPairSortedByBestSell() {
+        Random random = new Random(3L);
+        List<OrderBook> books = BookFixtures.randomBooks(random, 20);
+        books.forEach(repository::addOrderBook);
+
+        for (CurrencyPair pair : BookFixtures.PAIRS) {
+            List<OrderBook> expected = books.stream()
+                    .filter(it -> it.getMeta().getPair().equals(pair))
+                    .sorted(Comparator.comparingDouble(OrderBook::getBestSell))
+                    .collect(Collectors.toList());
+            double median = expected.get(expected.size() / 2).getBestSell();
+
+            assertThat(repository.findByPair(pair)).extracting(IndexedOrderBook::getBook)
+                    .containsExactlyElementsOf(expected);
+            assertThat(repository.findByPairWithBestSellBelow(pair, median)).extracting(IndexedOrderBook::getBook)
+                    .containsExactlyElementsOf(expected.subList(0, expected.size() / 2));
+        }
+    }
+
+    @Test
+    void replacesBookOfSameClientAndPair() {
+        Random random = new Random(4L);
+        BookFixtures.randomBooks(random, 5).forEach(repository::addOrderBook);
+        List<OrderBook> latest = BookFixtures.randomBooks(random, 5);
+        latest.forEach(repository::addOrderBook);
+
+        List<OrderBook> stored = new ArrayList<>();
+        for (CurrencyPair pair : BookFixtures.PAIRS) {
+            repository.findByPair(pair).forEach(it -> stored.add(it.getBook()));
+        }
+
+        Set<String> clientAndPair = stored.stream().map(IndexedOrderBook::calculateId).collect(Collectors.toSet());
+        assertThat(clientAndPair).hasSameSizeAs(stored);
+        assertThat(stored).containsAll(latest);
+    }
+
+    @Test
+    @SneakyThrows
+    void expiresBooksByClientThreshold() {
+        when(cfgCache.getXoCfg(eq(STALE), any(), any()))
+                .thenReturn(Optional.of(XoConfig.builder().staleBookThresholdMS(20).build()));
+        OrderBook stale = book(STALE, 1.0);
+        OrderBook fresh = book("fresh", 1.1);
+        repository.addOrderBook(stale);
+        repository.addOrderBook(fresh);
+        assertThat(repository.findOpportunities(MIN_GAIN, Collections.emptyList())).hasSize(1);
+
+        Thread.sleep(100L);
+
+        assertThat(repository.findByPair(stale.getMeta().getPair())).extracting(IndexedOrderBook::getBook)
+                .containsExactly(fresh);
+        assertThat(repository.findOpportunities(MIN_GAIN, Collections.emptyList())).isEmpty();
+    }
+
+    static Map<String, Double> bruteForce(List<OrderBook> books, double minGain,
+                                          List<FullCrossMarketOpportunity> tracked) {
+        Set<String> trackedIds = tracked.stream().map(FullCrossMarketOpportunity::getId).collect(Collectors.toSet());
+        Map<String, Double> result = new HashMap<>();
+        for (FullCrossMarketOpportunity opportunity : allPairs(books)) {
+            if (opportunity.getHistWin().getCurr() >= minGain || trackedIds.contains(opportunity.getId())) {
+                result.put(opportunity.getId(), opportunity.getHistWin().getCurr());
+            }
+        }
+
+        return result;
+    }
+
+    static List<FullCrossMarketOpportunity> allPairs(List<OrderBook> books) {
+        List<FullCrossMarketOpportunity> result = new ArrayList<>();
+        for (OrderBook from : books) {
+            for (OrderBook to : books) {
+                if (from == to || !from.getMeta().getPair().equals(to.getMeta().getPair())) {
+                    continue;
+                }
+
+                result.add(BookRepository.buildCrossMarketOpportunity(
+                        indexed(from), indexed(to), System.currentTimeMillis()));
+            }
+        }
+
+        return result;
+    }
+
+    private static List<FullCrossMarketOpportunity> randomTracked(Random random, List<OrderBook> books) {
+        return allPairs(books).stream()
+                .filter(it -> random.nextInt(10) == 0)
+                .collect(Collectors.toList());
+    }
+
+    private static FullCrossMarketOpportunity worst(List<OrderBook> books) {
+        return allPairs(books).stream()
+                .min((a, b) -> Double.compare(a.getHistWin().getCurr(), b.getHistWin().getCurr()))
+                .orElseThrow(IllegalStateException::new);
+    }
+
+    private static Map<String, Double> winById(Set<FullCrossMarketOpportunity> opportunities) {
+        Map<String, Double> result = new HashMap<>();
+        opportunities.forEach(it -> assertThat(result.put(it.getId(), it.getHistWin().getCurr())).isNull());
+        return result;
+    }
+
+    private static OrderBook book(String client, double price) {
+        return OrderBook.builder()
+                .meta(new ByClientAndCurrency(client, BookFixtures.PAIRS[0]))
+                .bestBuy(price)
+                .bestSell(price)
+                .histogramBuy(new AggregatedOrder[0])
+                .histogramSell(new AggregatedOrder[0])
+                .build();
+    }
+
+    private static IndexedOrderBook indexed(OrderBook book) {
+        return new IndexedOrderBook(IndexedOrderBook.calculateId(book), book, System.currentTimeMillis());
+    }
+}